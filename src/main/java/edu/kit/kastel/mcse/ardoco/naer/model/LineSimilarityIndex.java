@@ -0,0 +1,160 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.text.similarity.JaccardSimilarity;
+
+/**
+ * An inverted index from characters to the lines of a SAD that contain them, used to find the line that is most similar to a given text.
+ * <p>
+ * The similarity is the Jaccard similarity of the (lowercase) character sets of the lines. Instead of scoring all lines, a lookup only scores the candidate
+ * lines that can reach the threshold at all:
+ * <ul>
+ * <li>Prefix filter: if the similarity of two character sets A and B is at least t, then A and B share at least {@code ceil(t * |A|)} characters. So B
+ * must contain at least one of any {@code |A| - ceil(t * |A|) + 1} characters of A. The rarest characters of A are used, as they have the shortest
+ * posting lists.</li>
+ * <li>Size filter: the similarity is at most {@code min(|A|, |B|) / max(|A|, |B|)}.</li>
+ * <li>Merge filter: the similarity is computed from the precomputed sorted character sets before the (more expensive) final scoring.</li>
+ * </ul>
+ * The filters are exact, i.e., each line that reaches the threshold is scored, so the result is the same as scoring all lines.
+ * </p>
+ */
+class LineSimilarityIndex {
+    private static final JaccardSimilarity JACCARD = new JaccardSimilarity();
+    /**
+     * The filters use a slightly lower threshold than the callers, so that no candidate is lost due to rounding of the similarity score.
+     */
+    private static final double FILTER_THRESHOLD_MARGIN = 0.01;
+
+    private final String[] lowerCaseLines;
+    /**
+     * sorted distinct characters of each line
+     */
+    private final char[][] lineCharacters;
+    /**
+     * the (ascending) numbers of the lines (starting at 0) that contain a character
+     */
+    private final Map<Character, int[]> postings;
+
+    /**
+     * Builds the index of the given lines.
+     *
+     * @param lowerCaseLines the lowercase forms of the lines of the SAD
+     */
+    LineSimilarityIndex(String[] lowerCaseLines) {
+        this.lowerCaseLines = lowerCaseLines;
+        this.lineCharacters = new char[lowerCaseLines.length][];
+        Map<Character, List<Integer>> lineLists = new LinkedHashMap<>();
+        for (int i = 0; i < lowerCaseLines.length; i++) {
+            char[] characters = distinctCharacters(lowerCaseLines[i]);
+            lineCharacters[i] = characters;
+            for (char c : characters) {
+                lineLists.computeIfAbsent(c, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        this.postings = new LinkedHashMap<>();
+        for (Map.Entry<Character, List<Integer>> entry : lineLists.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * Finds the line that is most similar to the given text.
+     *
+     * @param textLine  the text to search for; comparison is case-insensitive
+     * @param threshold the minimum similarity of a match
+     * @return the best match; if several lines have the same score, the first one is returned. If no line reaches the threshold, the returned match is the
+     *         best of the scored candidates (line number -1 if there are none).
+     */
+    Match findMostSimilarLine(String textLine, double threshold) {
+        String lowerCaseTextLine = textLine.toLowerCase();
+        char[] characters = distinctCharacters(lowerCaseTextLine);
+        double filterThreshold = threshold - FILTER_THRESHOLD_MARGIN;
+
+        BitSet candidates = collectCandidates(characters, filterThreshold);
+
+        int bestLineNumber = -1;
+        double bestScore = 0.0;
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            int smaller = Math.min(characters.length, lineCharacters[i].length);
+            int larger = Math.max(characters.length, lineCharacters[i].length);
+            if (smaller < filterThreshold * larger) {
+                continue;
+            }
+            int sharedCharacters = countSharedCharacters(characters, lineCharacters[i]);
+            if (sharedCharacters < filterThreshold * (characters.length + lineCharacters[i].length - sharedCharacters)) {
+                continue;
+            }
+            double score = JACCARD.apply(lowerCaseLines[i], lowerCaseTextLine);
+            if (score > bestScore) {
+                bestScore = score;
+                bestLineNumber = i + 1;
+            }
+        }
+        return new Match(bestLineNumber, bestScore);
+    }
+
+    private BitSet collectCandidates(char[] characters, double filterThreshold) {
+        // rarest characters first; characters that occur in no line have no postings and are skipped
+        List<int[]> characterPostings = new ArrayList<>(characters.length);
+        int missingCharacters = 0;
+        for (char c : characters) {
+            int[] lines = postings.get(c);
+            if (lines == null) {
+                missingCharacters++;
+            } else {
+                characterPostings.add(lines);
+            }
+        }
+        characterPostings.sort((a, b) -> Integer.compare(a.length, b.length));
+
+        // subtract a small epsilon so that floating point errors never shrink the prefix
+        int requiredSharedCharacters = (int) Math.ceil(filterThreshold * characters.length - 1e-9);
+        int prefixLength = characters.length - requiredSharedCharacters + 1 - missingCharacters;
+
+        BitSet candidates = new BitSet(lowerCaseLines.length);
+        for (int i = 0; i < Math.min(prefixLength, characterPostings.size()); i++) {
+            for (int line : characterPostings.get(i)) {
+                candidates.set(line);
+            }
+        }
+        return candidates;
+    }
+
+    private static int countSharedCharacters(char[] a, char[] b) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    private static char[] distinctCharacters(String text) {
+        return text.chars().distinct().sorted().collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString().toCharArray();
+    }
+
+    /**
+     * The result of a lookup.
+     *
+     * @param lineNumber the number of the most similar line (starting at 1), or -1 if no line has been scored
+     * @param score      the similarity of the line
+     */
+    record Match(int lineNumber, double score) {
+    }
+}
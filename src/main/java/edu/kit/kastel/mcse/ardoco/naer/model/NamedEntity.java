@@ -2,28 +2,48 @@
 package edu.kit.kastel.mcse.ardoco.naer.model;
 
 import java.util.*;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * Represents a named entity.
+ * <p>
+ * A named entity can be frozen (see {@link #freeze()}), e.g., when it is shared by the result cache of the recognizer. A frozen entity cannot be modified
+ * anymore, its hash code is computed only once, and it can be shared between threads once it has been published safely (e.g., by completing a future with
+ * it). {@link #copy()} creates a modifiable copy of a frozen entity.
+ * </p>
  */
 public class NamedEntity {
+    private static final Logger logger = LoggerFactory.getLogger(NamedEntity.class);
+    private static final NamedEntityReferenceType[] REFERENCE_TYPES = NamedEntityReferenceType.values();
+    private static final int[] NO_OCCURRENCES = new int[0];
+
     private final NamedEntityType type;
     /**
      * alternative names of the entity, e.g., if the name is ambiguous
      */
-    private final SortedSet<String> alternativeNames;
+    private SortedSet<String> alternativeNames;
     /**
-     * all occurrences of the entity in the {@link #sourceText}
+     * all occurrences of the entity in the {@link #sourceText}, each packed into one {@code int} (see {@link #pack(int, NamedEntityReferenceType)});
+     * the first {@link #occurrenceCount} elements are sorted, i.e., the occurrences are ordered by line and then by reference type
      */
-    private final SortedSet<Occurrence> occurrences;
+    private int[] occurrences = NO_OCCURRENCES;
+    private int occurrenceCount;
     private String name;
     /**
      * the software architecture documentation (text) in which the named entity has been recognized
      */
     private SoftwareArchitectureDocumentation sourceText;
+    private boolean frozen;
+    /**
+     * the hash code of the entity, computed when it is frozen
+     */
+    private int frozenHashCode;
 
     /**
      * Creates a {@link NamedEntity} with the given name, type, alternative names, and occurrences.
@@ -40,7 +60,9 @@ public class NamedEntity {
         this.name = name;
         this.type = type;
         this.alternativeNames = new TreeSet<>(alternativeNames);
-        this.occurrences = new TreeSet<>(occurrences);
+        for (Occurrence occurrence : occurrences) {
+            addOccurrence(occurrence.sentenceNumber, occurrence.referenceType);
+        }
     }
 
     /**
@@ -54,7 +76,6 @@ public class NamedEntity {
         this.name = name;
         this.type = type;
         this.alternativeNames = new TreeSet<>();
-        this.occurrences = new TreeSet<>();
     }
 
     public SoftwareArchitectureDocumentation getSourceText() {
@@ -62,6 +83,7 @@ public class NamedEntity {
     }
 
     public void setSourceText(SoftwareArchitectureDocumentation sourceText) {
+        checkNotFrozen();
         this.sourceText = sourceText;
     }
 
@@ -75,6 +97,7 @@ public class NamedEntity {
      * @param name the new name
      */
     public void changeName(String name) {
+        checkNotFrozen();
         this.alternativeNames.add(this.name);
         this.name = name;
     }
@@ -91,7 +114,7 @@ public class NamedEntity {
     /**
      * Retrieves the set of alternative names associated with this {@link NamedEntity}.
      *
-     * @return a set of strings representing alternative names for this entity
+     * @return a set of strings representing alternative names for this entity (unmodifiable if the entity is frozen)
      */
     public SortedSet<String> getAlternativeNames() {
         return alternativeNames;
@@ -103,6 +126,7 @@ public class NamedEntity {
      * @param alternativeName the alternative name to be added
      */
     public void addAlternativeName(String alternativeName) {
+        checkNotFrozen();
         this.alternativeNames.add(alternativeName);
     }
 
@@ -110,6 +134,7 @@ public class NamedEntity {
      * Converts the name and all alternative names of this {@link NamedEntity} to lowercase.
      */
     public void makeAllNamesLowerCase() {
+        checkNotFrozen();
         if (this.name != null) {
             this.name = this.name.toLowerCase();
         }
@@ -127,17 +152,79 @@ public class NamedEntity {
 
     /**
      * Retrieves the line/sentence numbers where the {@link NamedEntity} occurs.
+     * <p>The set is created on each call; {@link #getOccurrenceLineNumbers()} and {@link #occurrenceLineStream()} avoid boxing the line numbers.</p>
      *
      * @return a set of unique integers representing the line/sentence numbers in which the entity is mentioned (line numbers are 1-indexed).
      */
     public SortedSet<Integer> getOccurrenceLines() {
         SortedSet<Integer> result = new TreeSet<>();
-        for (Occurrence occurrence : occurrences) {
-            result.add(occurrence.sentenceNumber);
+        for (int lineNumber : getOccurrenceLineNumbers()) {
+            result.add(lineNumber);
         }
         return result;
     }
 
+    /**
+     * Retrieves the line/sentence numbers where the {@link NamedEntity} occurs.
+     *
+     * @return the unique line/sentence numbers in ascending order (line numbers are 1-indexed)
+     */
+    public int[] getOccurrenceLineNumbers() {
+        int[] lineNumbers = new int[occurrenceCount];
+        int length = 0;
+        for (int i = 0; i < occurrenceCount; i++) {
+            int lineNumber = unpackLine(occurrences[i]);
+            if (length == 0 || lineNumbers[length - 1] != lineNumber) {
+                lineNumbers[length++] = lineNumber;
+            }
+        }
+        return length == lineNumbers.length ? lineNumbers : Arrays.copyOf(lineNumbers, length);
+    }
+
+    /**
+     * Retrieves the line/sentence numbers where the {@link NamedEntity} is referenced with the given reference type.
+     *
+     * @param referenceType the reference type
+     * @return the unique line/sentence numbers in ascending order (line numbers are 1-indexed)
+     */
+    public int[] getOccurrenceLineNumbers(NamedEntityReferenceType referenceType) {
+        int[] lineNumbers = new int[occurrenceCount];
+        int length = 0;
+        for (int i = 0; i < occurrenceCount; i++) {
+            if (unpackReferenceType(occurrences[i]) == referenceType) {
+                lineNumbers[length++] = unpackLine(occurrences[i]);
+            }
+        }
+        return Arrays.copyOf(lineNumbers, length);
+    }
+
+    /**
+     * @return the unique line/sentence numbers where the {@link NamedEntity} occurs, in ascending order
+     * @see #getOccurrenceLineNumbers()
+     */
+    public IntStream occurrenceLineStream() {
+        return Arrays.stream(getOccurrenceLineNumbers());
+    }
+
+    /**
+     * Checks whether the {@link NamedEntity} occurs in the given line/sentence (with any reference type).
+     *
+     * @param sentenceNumber the 1-based index of the sentence
+     * @return whether the entity occurs in the sentence
+     */
+    public boolean occursIn(int sentenceNumber) {
+        int index = Arrays.binarySearch(occurrences, 0, occurrenceCount, pack(sentenceNumber, REFERENCE_TYPES[0]));
+        int insertionPoint = index >= 0 ? index : -index - 1;
+        return insertionPoint < occurrenceCount && unpackLine(occurrences[insertionPoint]) == sentenceNumber;
+    }
+
+    /**
+     * @return the number of occurrences; a line that is referenced both directly and indirectly counts twice
+     */
+    public int getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
     /**
      * Adds an occurrence of the {@link NamedEntity} in a sentence with a specified reference type.
      *
@@ -145,56 +232,279 @@ public class NamedEntity {
      * @param referenceType  the type of reference (direct or indirect) as an instance of {@link NamedEntityReferenceType}
      */
     public void addOccurrence(int sentenceNumber, NamedEntityReferenceType referenceType) {
-        this.occurrences.add(new Occurrence(sentenceNumber, referenceType));
+        checkNotFrozen();
+        int occurrence = pack(sentenceNumber, referenceType);
+        int index = Arrays.binarySearch(occurrences, 0, occurrenceCount, occurrence);
+        if (index >= 0) {
+            return;
+        }
+        int insertionPoint = -index - 1;
+        if (occurrenceCount == occurrences.length) {
+            occurrences = Arrays.copyOf(occurrences, Math.max(4, occurrenceCount + (occurrenceCount >> 1)));
+        }
+        System.arraycopy(occurrences, insertionPoint, occurrences, insertionPoint + 1, occurrenceCount - insertionPoint);
+        occurrences[insertionPoint] = occurrence;
+        occurrenceCount++;
+    }
+
+    /**
+     * Makes this {@link NamedEntity} immutable: afterward, all methods that would modify it throw an {@link IllegalStateException}, and its hash code is
+     * cached. Freezing an entity that is already frozen has no effect.
+     *
+     * @return this entity
+     */
+    public NamedEntity freeze() {
+        if (frozen) {
+            return this;
+        }
+        this.alternativeNames = Collections.unmodifiableSortedSet(alternativeNames);
+        if (occurrences.length != occurrenceCount) {
+            this.occurrences = Arrays.copyOf(occurrences, occurrenceCount);
+        }
+        this.frozenHashCode = computeHashCode();
+        this.frozen = true;
+        return this;
+    }
+
+    /**
+     * @return whether this {@link NamedEntity} is frozen (see {@link #freeze()})
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            logger.error("named entity '{}' is frozen", name);
+            throw new IllegalStateException("named entity '" + name + "' is frozen");
+        }
+    }
+
+    /**
+     * Creates a copy of this {@link NamedEntity} that shares no mutable state with it. The copy is not frozen.
+     *
+     * @return the copy
+     */
+    public NamedEntity copy() {
+        return withLineOffset(0, sourceText);
+    }
+
+    /**
+     * Creates a copy of this {@link NamedEntity} whose occurrence lines are shifted by the given offset. The copy is not frozen.
+     * <p>This is used to map an entity that has been recognized in an excerpt of a SAD back to the line numbering of the complete SAD.</p>
+     *
+     * @param lineOffset the number of lines to add to each occurrence line
+     * @param sourceText the source text of the copy
+     * @return the shifted copy
+     */
+    public NamedEntity withLineOffset(int lineOffset, SoftwareArchitectureDocumentation sourceText) {
+        NamedEntity copy = new NamedEntity(name, type);
+        copy.setSourceText(sourceText);
+        copy.alternativeNames.addAll(alternativeNames);
+        // shifting all packed occurrences by the same amount keeps them sorted
+        int packedOffset = lineOffset * REFERENCE_TYPES.length;
+        copy.occurrences = new int[occurrenceCount];
+        for (int i = 0; i < occurrenceCount; i++) {
+            copy.occurrences[i] = occurrences[i] + packedOffset;
+        }
+        copy.occurrenceCount = occurrenceCount;
+        return copy;
+    }
+
+    /**
+     * Merges the given {@link NamedEntity} into this one.
+     * <p>
+     * The name (if it differs) and the alternative names of the other entity are added as alternative names, and its occurrences are added to the
+     * occurrences of this entity. If a line is referenced directly by one entity and indirectly by the other one, only the direct reference is kept.
+     * </p>
+     *
+     * @param other the entity to merge into this one
+     */
+    public void merge(NamedEntity other) {
+        checkNotFrozen();
+        if (!Objects.equals(this.name, other.name)) {
+            this.alternativeNames.add(other.name);
+        }
+        this.alternativeNames.addAll(other.alternativeNames);
+
+        // merge the sorted occurrences; the direct reference of a line precedes its indirect reference
+        int[] merged = new int[this.occurrenceCount + other.occurrenceCount];
+        int length = 0;
+        int i = 0;
+        int j = 0;
+        while (i < this.occurrenceCount || j < other.occurrenceCount) {
+            int next;
+            if (j == other.occurrenceCount || (i < this.occurrenceCount && this.occurrences[i] <= other.occurrences[j])) {
+                next = this.occurrences[i++];
+            } else {
+                next = other.occurrences[j++];
+            }
+            if (length > 0 && merged[length - 1] == next) {
+                continue;
+            }
+            if (unpackReferenceType(next) == NamedEntityReferenceType.INDIRECT && length > 0 && merged[length - 1] == pack(unpackLine(next),
+                    NamedEntityReferenceType.DIRECT)) {
+                continue;
+            }
+            merged[length++] = next;
+        }
+        this.occurrences = merged;
+        this.occurrenceCount = length;
     }
 
     @Override
     public boolean equals(Object o) {
         // sourceText is ignored here
+        if (this == o)
+            return true;
         if (o == null || getClass() != o.getClass())
             return false;
         NamedEntity entity = (NamedEntity) o;
-        return type == entity.type && Objects.equals(alternativeNames, entity.alternativeNames) && Objects.equals(occurrences, entity.occurrences) && Objects
-                .equals(name, entity.name);
+        if (frozen && entity.frozen && frozenHashCode != entity.frozenHashCode)
+            return false;
+        return type == entity.type && Objects.equals(alternativeNames, entity.alternativeNames) && Arrays.equals(occurrences, 0, occurrenceCount,
+                entity.occurrences, 0, entity.occurrenceCount) && Objects.equals(name, entity.name);
     }
 
     @Override
     public int hashCode() {
+        return frozen ? frozenHashCode : computeHashCode();
+    }
+
+    private int computeHashCode() {
         // sourceText is ignored here
-        return Objects.hash(type, alternativeNames, occurrences, name);
+        int occurrencesHash = 1;
+        for (int i = 0; i < occurrenceCount; i++) {
+            occurrencesHash = 31 * occurrencesHash + occurrences[i];
+        }
+        return Objects.hash(type, alternativeNames, occurrencesHash, name);
     }
 
     @Override
     public String toString() {
-        return "model.NamedEntity{" + "name='" + name + '\'' + ", type=" + type + ", alternativeNames=" + alternativeNames + ", occurrences=" + occurrences + "}\n";
+        StringJoiner occurrenceStrings = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < occurrenceCount; i++) {
+            occurrenceStrings.add(unpackLine(occurrences[i]) + ":" + unpackReferenceType(occurrences[i]));
+        }
+        return "model.NamedEntity{" + "name='" + name + '\'' + ", type=" + type + ", alternativeNames=" + alternativeNames + ", occurrences=" + occurrenceStrings
+                + "}\n";
+    }
+
+    /**
+     * Packs an occurrence into one {@code int}, so that the order of the packed values is the order by line and then by reference type.
+     */
+    private static int pack(int sentenceNumber, NamedEntityReferenceType referenceType) {
+        return sentenceNumber * REFERENCE_TYPES.length + referenceType.ordinal();
+    }
+
+    private static int unpackLine(int occurrence) {
+        return Math.floorDiv(occurrence, REFERENCE_TYPES.length);
+    }
+
+    private static NamedEntityReferenceType unpackReferenceType(int occurrence) {
+        return REFERENCE_TYPES[Math.floorMod(occurrence, REFERENCE_TYPES.length)];
+    }
+
+    /**
+     * Builder for {@link NamedEntity} instances, e.g., while parsing the answer of a chat model.
+     * <p>
+     * The name and the alternative names can already be read while building, e.g., to deduct the reference types of the occurrences. A builder can only be
+     * built once.
+     * </p>
+     */
+    public static class Builder {
+        private final NamedEntity entity;
+        private boolean built;
+
+        /**
+         * Creates a builder for a {@link NamedEntity} with the given name and type.
+         *
+         * @param name the entity name
+         * @param type the entity type
+         */
+        public Builder(String name, NamedEntityType type) {
+            this.entity = new NamedEntity(name, type);
+        }
+
+        public String getName() {
+            return entity.name;
+        }
+
+        /**
+         * @return the alternative names added so far (unmodifiable)
+         */
+        public SortedSet<String> getAlternativeNames() {
+            return Collections.unmodifiableSortedSet(entity.alternativeNames);
+        }
+
+        /**
+         * Sets the software architecture documentation in which the named entity has been recognized.
+         *
+         * @param sourceText the source text
+         * @return this builder
+         */
+        public Builder sourceText(SoftwareArchitectureDocumentation sourceText) {
+            checkNotBuilt();
+            entity.sourceText = sourceText;
+            return this;
+        }
+
+        /**
+         * Adds an alternative name.
+         *
+         * @param alternativeName the alternative name
+         * @return this builder
+         */
+        public Builder alternativeName(String alternativeName) {
+            checkNotBuilt();
+            entity.alternativeNames.add(alternativeName);
+            return this;
+        }
+
+        /**
+         * Adds an occurrence (see {@link NamedEntity#addOccurrence(int, NamedEntityReferenceType)}).
+         *
+         * @param sentenceNumber the 1-based index of the sentence where the entity occurs
+         * @param referenceType  the type of reference
+         * @return this builder
+         */
+        public Builder occurrence(int sentenceNumber, NamedEntityReferenceType referenceType) {
+            checkNotBuilt();
+            entity.addOccurrence(sentenceNumber, referenceType);
+            return this;
+        }
+
+        /**
+         * Builds the {@link NamedEntity}. The entity is not frozen, {@link NamedEntity#freeze()} freezes it if it is to be shared.
+         *
+         * @return the entity
+         */
+        public NamedEntity build() {
+            checkNotBuilt();
+            built = true;
+            return entity;
+        }
+
+        private void checkNotBuilt() {
+            if (built) {
+                logger.error("named entity '{}' has already been built", entity.name);
+                throw new IllegalStateException("named entity '" + entity.name + "' has already been built");
+            }
+        }
     }
 
     /**
      * Represents an occurrence of a {@link NamedEntity} in its {@link #sourceText}.
-     * (needed for JSON mapping)
+     * (needed for JSON mapping; the entity stores its occurrences packed)
      *
      * @param sentenceNumber starting at {@code 1}
      * @param referenceType  type of how the entity is referenced
      */
-    private record Occurrence(int sentenceNumber, NamedEntityReferenceType referenceType) implements Comparable<Occurrence> {
+    private record Occurrence(int sentenceNumber, NamedEntityReferenceType referenceType) {
         @JsonCreator
         private Occurrence(@JsonProperty("line") int sentenceNumber, @JsonProperty("referenceType") NamedEntityReferenceType referenceType) {
             this.sentenceNumber = sentenceNumber;
             this.referenceType = referenceType;
         }
-
-        @Override
-        public String toString() {
-            return sentenceNumber + ":" + referenceType;
-        }
-
-        @Override
-        public int compareTo(Occurrence o) {
-            int cmp = Integer.compare(this.sentenceNumber, o.sentenceNumber);
-            if (cmp != 0) {
-                return cmp;
-            }
-            return this.referenceType.compareTo(o.referenceType);
-        }
     }
 }
@@ -2,27 +2,73 @@
 package edu.kit.kastel.mcse.ardoco.naer.model;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
-import org.apache.commons.text.similarity.JaccardSimilarity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Represents a textual software architecture documentation (SAD).
+ * <p>
+ * The text is stored in one contiguous string together with a table of line offsets, so that a SAD needs (apart from the offsets) no more memory than its
+ * text. Lines are extracted on demand or handed out as views (see {@link #getLineView(int)}). If the lines of a file are already separated by the current
+ * system's line separator, the decoded content of the file is used as the text, so that loading the file does not copy the text again.
+ * </p>
  */
 public class SoftwareArchitectureDocumentation {
+    private static final double LINE_SIMILARITY_THRESHOLD = 0.90;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    /**
+     * documents with at least this number of lines are validated in parallel
+     */
+    private static final int PARALLEL_VALIDATION_THRESHOLD = 10_000;
+    private static final int READ_BUFFER_SIZE = 8192;
     private final Logger logger = LoggerFactory.getLogger(SoftwareArchitectureDocumentation.class);
 
     /**
-     * lines of the SAD text
+     * text of the SAD, with lines concatenated by the current system's line separator
      */
-    private final String[] lines;
+    private final String text;
+    /**
+     * offsets of the first character of each line within {@link #text}
+     */
+    private final int[] lineStarts;
     /**
      * path to the SAD (if available - otherwise it is null)
      */
     private final Path filePath;
+    /**
+     * SHA-256 hash of the lines (lazily computed)
+     */
+    private volatile String contentHash;
+    /**
+     * lowercase and whitespace-normalized forms of the lines (lazily computed)
+     */
+    private volatile NormalizedLines normalizedLines;
+    /**
+     * index for {@link #getLineNumber(String)} (lazily built)
+     */
+    private volatile LineSimilarityIndex lineSimilarityIndex;
 
     /**
      * Constructs a {@link SoftwareArchitectureDocumentation} instance by loading the content of the specified file into memory.
@@ -41,7 +87,19 @@ public class SoftwareArchitectureDocumentation {
 
         this.filePath = filePath;
         try {
-            this.lines = Files.readAllLines(filePath).toArray(new String[0]);
+            String content = Files.readString(filePath, StandardCharsets.UTF_8);
+            int end = content.endsWith(LINE_SEPARATOR) ? content.length() - LINE_SEPARATOR.length() : content.length();
+            int[] contentLineStarts = content.isEmpty() ? new int[0] : findLineStarts(content, end);
+            if (contentLineStarts != null) {
+                this.text = end == content.length() ? content : content.substring(0, end);
+                this.lineStarts = contentLineStarts;
+            } else {
+                // the line separators have to be replaced
+                TextBuilder textBuilder = new TextBuilder(content.length());
+                textBuilder.append(content, 0, content.length());
+                this.text = textBuilder.getText();
+                this.lineStarts = textBuilder.getLineStarts();
+            }
         } catch (IOException e) {
             logger.error("error reading SAD file: {}", filePath);
             throw new IllegalArgumentException("error reading SAD file: " + filePath);
@@ -65,33 +123,104 @@ public class SoftwareArchitectureDocumentation {
             logger.warn("sadText is empty");
 
         this.filePath = null;
-        this.lines = sadText.split("\\R");
+        TextBuilder textBuilder = new TextBuilder();
+        for (String line : sadText.split("\\R")) {
+            textBuilder.addLine(line);
+        }
+        this.text = textBuilder.getText();
+        this.lineStarts = textBuilder.getLineStarts();
 
         checkTextFormat();
     }
 
+    /**
+     * Constructs an excerpt of an already validated {@link SoftwareArchitectureDocumentation}.
+     *
+     * @param text       the text of the excerpt
+     * @param lineStarts the offsets of the lines within the text
+     * @param filePath   the path of the excerpt (if available - otherwise null)
+     */
+    private SoftwareArchitectureDocumentation(String text, int[] lineStarts, Path filePath) {
+        this.text = text;
+        this.lineStarts = lineStarts;
+        this.filePath = filePath;
+    }
+
+    /**
+     * Finds the offsets of the lines of the content up to {@code end}, provided that the lines are separated by {@link #LINE_SEPARATOR} only.
+     *
+     * @return the offsets of the lines, or {@code null} if the content contains other line separators
+     */
+    private static int[] findLineStarts(String content, int end) {
+        int[] lineStarts = new int[64];
+        int lineCount = 0;
+        lineStarts[lineCount++] = 0;
+        for (int i = 0; i < end; i++) {
+            char c = content.charAt(i);
+            if (c != '\n' && c != '\r') {
+                continue;
+            }
+            if (!content.startsWith(LINE_SEPARATOR, i) || i + LINE_SEPARATOR.length() > end) {
+                return null;
+            }
+            i += LINE_SEPARATOR.length() - 1;
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            }
+            lineStarts[lineCount++] = i + 1;
+        }
+        return Arrays.copyOf(lineStarts, lineCount);
+    }
+
     /**
      * check weather the SAD text is in the required one-sentence-per-line format
+     * <p>All lines are checked (large documents in parallel), and all violations are reported at once.</p>
      */
     private void checkTextFormat() {
-        for (String line : lines) {
-            if (line == null) {
-                logAndThrow("line is null");
-            } else {
-                String trimmed = line.trim();
+        IntStream lineIndices = IntStream.range(0, lineStarts.length);
+        if (lineStarts.length >= PARALLEL_VALIDATION_THRESHOLD) {
+            lineIndices = lineIndices.parallel();
+        }
+        List<String> violations = lineIndices.mapToObj(this::checkLineFormat).filter(Objects::nonNull).toList();
 
-                if (trimmed.isEmpty()) {
-                    logAndThrow("empty line detected");
-                }
+        if (violations.size() == 1) {
+            logAndThrow(violations.getFirst());
+        } else if (!violations.isEmpty()) {
+            logAndThrow(violations.size() + " violations: " + String.join("; ", violations));
+        }
+    }
 
-                // check: ends with a sentence terminator
-                if (!trimmed.matches(".*[.!?]$")) {
-                    logAndThrow("line does not end with a sentence terminator: \"" + trimmed + "\"");
-                }
-            }
+    /**
+     * @return a description of the format violation of the line with the given index (starting at 0), or {@code null} if the line is valid
+     */
+    private String checkLineFormat(int lineIndex) {
+        // trim the line without copying it
+        int start = lineStarts[lineIndex];
+        int end = getLineEnd(lineIndex);
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
 
+        if (start == end) {
+            return "line " + (lineIndex + 1) + ": empty line detected";
         }
 
+        // check: ends with a sentence terminator
+        char lastCharacter = text.charAt(end - 1);
+        if (lastCharacter != '.' && lastCharacter != '!' && lastCharacter != '?') {
+            return "line " + (lineIndex + 1) + ": line does not end with a sentence terminator: \"" + text.substring(start, end) + "\"";
+        }
+        return null;
+    }
+
+    /**
+     * @return the offset after the last character of the line with the given index (starting at 0) within {@link #text}
+     */
+    private int getLineEnd(int lineIndex) {
+        return lineIndex + 1 < lineStarts.length ? lineStarts[lineIndex + 1] - LINE_SEPARATOR.length() : text.length();
     }
 
     private void logAndThrow(String message) {
@@ -105,7 +234,23 @@ public class SoftwareArchitectureDocumentation {
      * @return a string representation of the text, with lines concatenated by the current system's line separator
      */
     public String getText() {
-        return String.join(System.lineSeparator(), lines);
+        return text;
+    }
+
+    /**
+     * Retrieves the complete text of the SAD where each line is prefixed with its line number, e.g., {@code "1: The first sentence."}.
+     *
+     * @return a string representation of the numbered text, with lines concatenated by the current system's line separator
+     */
+    public String getTextWithLineNumbers() {
+        StringBuilder numberedText = new StringBuilder(text.length() + 8 * lineStarts.length);
+        for (int i = 0; i < lineStarts.length; i++) {
+            if (i > 0) {
+                numberedText.append(LINE_SEPARATOR);
+            }
+            numberedText.append(i + 1).append(": ").append(text, lineStarts[i], getLineEnd(i));
+        }
+        return numberedText.toString();
     }
 
     /**
@@ -116,54 +261,382 @@ public class SoftwareArchitectureDocumentation {
      */
     public String getLine(int lineNumber) {
         lineNumber--; //to keep everything consistent, we start indexing at 1 (so we need to increment the line number to be able to handle it correctly with our internal array)
-        if (lineNumber < 0 || lineNumber >= lines.length) {
+        if (lineNumber < 0 || lineNumber >= lineStarts.length) {
             logger.error("line number {} out of range", lineNumber + 1);
             throw new IllegalArgumentException("line number " + (lineNumber + 1) + " out of range");
         }
-        return lines[lineNumber];
+        return text.substring(lineStarts[lineNumber], getLineEnd(lineNumber));
+    }
+
+    /**
+     * Returns a read-only view of the line with the specified line number, which (in contrast to {@link #getLine(int)}) does not copy the line.
+     *
+     * @param lineNumber the line number/index of the line to retrieve (starting at 1)
+     * @return a view of the requested line
+     */
+    public CharSequence getLineView(int lineNumber) {
+        if (lineNumber < 1 || lineNumber > lineStarts.length) {
+            logger.error("line number {} out of range", lineNumber);
+            throw new IllegalArgumentException("line number " + lineNumber + " out of range");
+        }
+        return CharBuffer.wrap(text, lineStarts[lineNumber - 1], getLineEnd(lineNumber - 1));
+    }
+
+    /**
+     * Returns the lowercase form of the line with the specified line number, e.g., for case-insensitive searches in the line.
+     * <p>The lowercase forms of all lines are computed only once.</p>
+     *
+     * @param lineNumber the line number/index of the line to retrieve (starting at 1)
+     * @return the requested line in lowercase
+     */
+    public String getLowerCaseLine(int lineNumber) {
+        if (lineNumber < 1 || lineNumber > lineStarts.length) {
+            logger.error("line number {} out of range", lineNumber);
+            throw new IllegalArgumentException("line number " + lineNumber + " out of range");
+        }
+        return getNormalizedLines().lowerCaseLines()[lineNumber - 1];
     }
 
+    /**
+     * Creates a new {@link SoftwareArchitectureDocumentation} that consists of the specified range of lines of this SAD.
+     * <p>Line {@code firstLine} of this SAD becomes line {@code 1} of the excerpt. The excerpt has no file path.</p>
+     *
+     * @param firstLine the number of the first line of the excerpt (starting at 1)
+     * @param lastLine  the number of the last line of the excerpt (inclusive)
+     * @return the excerpt
+     */
+    public SoftwareArchitectureDocumentation getExcerpt(int firstLine, int lastLine) {
+        if (firstLine < 1 || lastLine > lineStarts.length || firstLine > lastLine) {
+            logger.error("invalid excerpt range {}-{}", firstLine, lastLine);
+            throw new IllegalArgumentException("invalid excerpt range " + firstLine + "-" + lastLine);
+        }
+        int start = lineStarts[firstLine - 1];
+        int[] excerptLineStarts = Arrays.copyOfRange(lineStarts, firstLine - 1, lastLine);
+        for (int i = 0; i < excerptLineStarts.length; i++) {
+            excerptLineStarts[i] -= start;
+        }
+        return new SoftwareArchitectureDocumentation(text.substring(start, getLineEnd(lastLine - 1)), excerptLineStarts, null);
+    }
+
+    /**
+     * Retrieves the lines of the SAD.
+     * <p>The lines are copied from the text on each call; prefer {@link #getLine(int)} or {@link #getLineView(int)} for single lines.</p>
+     *
+     * @return a new array containing the lines
+     */
     public String[] getLines() {
+        String[] lines = new String[lineStarts.length];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = text.substring(lineStarts[i], getLineEnd(i));
+        }
         return lines;
     }
 
     public int getLineCount() {
-        return lines.length;
+        return lineStarts.length;
     }
 
     public Path getFilePath() {
         return filePath;
     }
 
+    /**
+     * Retrieves a hash of the content of the SAD, which identifies the SAD independently of its file path and the line separators used.
+     *
+     * @return the hex-encoded SHA-256 hash of the lines of the SAD
+     */
+    public String getContentHash() {
+        String hash = contentHash;
+        if (hash == null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (int i = 0; i < lineStarts.length; i++) {
+                    digest.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(text, lineStarts[i], getLineEnd(i))));
+                    digest.update((byte) '\n');
+                }
+                hash = HexFormat.of().formatHex(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not supported", e);
+            }
+            contentHash = hash;
+        }
+        return hash;
+    }
+
     /**
      * Determines the line number in the document that most closely matches the specified text line.
      * The Jaccard similarity metric is used for he comparison.
+     * <p>
+     * If the text line equals a line of the document apart from case and whitespace, that line is returned without any similarity computation (if there are
+     * several such lines, the first one). Otherwise, the lookup uses an index of the lines, which is built on the first call, so that only lines that can
+     * reach the threshold are compared.
+     * </p>
      *
      * @param textLine the text line to search for; comparison is case-insensitive
      * @return the line number (1-indexed) with the highest similarity to the provided text, or -1 if no line meets the similarity threshold (0.90 or higher)
      */
     public int getLineNumber(String textLine) {
-        JaccardSimilarity jaccard = new JaccardSimilarity();
-        int bestLineNumber = -1;
-        double bestScore = 0.0;
-        int currentLine = 0;
-
-        for (String line : lines) {
-            currentLine++;
-            double score = jaccard.apply(line.toLowerCase(), textLine.toLowerCase());
-            if (score > bestScore) {
-                bestScore = score;
-                bestLineNumber = currentLine;
-            }
+        Integer exactMatch = getNormalizedLines().lineNumbers().get(normalize(textLine));
+        if (exactMatch != null) {
+            return exactMatch;
         }
 
-        if (bestScore >= 0.90) {
-            return bestLineNumber;
+        LineSimilarityIndex.Match match = getLineSimilarityIndex().findMostSimilarLine(textLine, LINE_SIMILARITY_THRESHOLD);
+        if (match.score() >= LINE_SIMILARITY_THRESHOLD) {
+            return match.lineNumber();
         }
         if (logger.isWarnEnabled()) {
-            logger.warn("could not find similar SAD line for the following output line: '{}'\nBest score: {} best line: '{}'", textLine, bestScore, getLine(
-                    bestLineNumber));
+            logger.warn("could not find similar SAD line for the following output line: '{}'\nBest score: {} best line: '{}'", textLine, match.score(), match
+                    .lineNumber() != -1 ? getLine(match.lineNumber()) : null);
         }
         return -1;
     }
+
+    private LineSimilarityIndex getLineSimilarityIndex() {
+        LineSimilarityIndex index = lineSimilarityIndex;
+        if (index == null) {
+            index = new LineSimilarityIndex(getNormalizedLines().lowerCaseLines());
+            lineSimilarityIndex = index;
+        }
+        return index;
+    }
+
+    private NormalizedLines getNormalizedLines() {
+        NormalizedLines normalized = normalizedLines;
+        if (normalized == null) {
+            String[] lowerCaseLines = new String[lineStarts.length];
+            Map<String, Integer> lineNumbers = new LinkedHashMap<>();
+            for (int i = 0; i < lineStarts.length; i++) {
+                String line = text.substring(lineStarts[i], getLineEnd(i));
+                lowerCaseLines[i] = line.toLowerCase();
+                lineNumbers.putIfAbsent(normalize(line), i + 1);
+            }
+            normalized = new NormalizedLines(lowerCaseLines, lineNumbers);
+            normalizedLines = normalized;
+        }
+        return normalized;
+    }
+
+    /**
+     * Normalizes a line for exact matching: lowercase, trimmed, and with each sequence of whitespace replaced by a single space.
+     */
+    private static String normalize(String line) {
+        return WHITESPACE.matcher(line.trim()).replaceAll(" ").toLowerCase();
+    }
+
+    /**
+     * @param lowerCaseLines the lowercase forms of the lines
+     * @param lineNumbers    the number of the first line (starting at 1) for each normalized line
+     */
+    private record NormalizedLines(String[] lowerCaseLines, Map<String, Integer> lineNumbers) {
+    }
+
+    /**
+     * Builder for {@link SoftwareArchitectureDocumentation} instances that are read from a stream, e.g., a {@link Reader} or a {@link Stream} of lines.
+     * <p>
+     * The text is appended to the internal buffer of the SAD while it is read, so that no intermediate copies (e.g., a list of lines or the complete text)
+     * are created. Several sources can be combined; each source starts a new line. All format violations are reported at once by {@link #build()}.
+     * </p>
+     */
+    public static class Builder {
+        private final Logger logger = LoggerFactory.getLogger(Builder.class);
+
+        private final TextBuilder textBuilder = new TextBuilder();
+        private Path filePath;
+
+        /**
+         * Sets the path of the SAD, e.g., if the SAD is read from a stream of that file. The file itself is not read.
+         *
+         * @param filePath the path of the SAD
+         * @return this builder
+         */
+        public Builder filePath(Path filePath) {
+            if (filePath == null) {
+                logger.error("filePath is null");
+                throw new IllegalArgumentException("filePath is null");
+            }
+            this.filePath = filePath;
+            return this;
+        }
+
+        /**
+         * Reads the lines from the given reader until its end. Lines are separated by '\n', '\r', or "\r\n". The reader is not closed.
+         *
+         * @param reader the reader
+         * @return this builder
+         * @throws UncheckedIOException if the reader cannot be read
+         */
+        public Builder read(Reader reader) {
+            if (reader == null) {
+                logger.error("reader is null");
+                throw new IllegalArgumentException("reader is null");
+            }
+            textBuilder.endLine();
+            CharBuffer buffer = CharBuffer.allocate(READ_BUFFER_SIZE);
+            try {
+                while (reader.read(buffer) != -1) {
+                    buffer.flip();
+                    textBuilder.append(buffer, 0, buffer.length());
+                    buffer.clear();
+                }
+            } catch (IOException e) {
+                logger.error("error reading SAD");
+                throw new UncheckedIOException("error reading SAD", e);
+            }
+            return this;
+        }
+
+        /**
+         * Reads the lines from the given UTF-8 encoded input stream until its end (see {@link #read(Reader)}). The input stream is not closed.
+         *
+         * @param inputStream the input stream
+         * @return this builder
+         * @throws UncheckedIOException if the input stream cannot be read or is not UTF-8 encoded
+         */
+        public Builder read(InputStream inputStream) {
+            if (inputStream == null) {
+                logger.error("inputStream is null");
+                throw new IllegalArgumentException("inputStream is null");
+            }
+            return read(new InputStreamReader(inputStream, StandardCharsets.UTF_8.newDecoder()));
+        }
+
+        /**
+         * Adds the given lines. Each element is one line and must not contain line separators.
+         *
+         * @param lines the lines
+         * @return this builder
+         */
+        public Builder lines(Stream<String> lines) {
+            if (lines == null) {
+                logger.error("lines is null");
+                throw new IllegalArgumentException("lines is null");
+            }
+            textBuilder.endLine();
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+                if (line == null) {
+                    logger.error("line is null");
+                    throw new IllegalArgumentException("line is null");
+                }
+                textBuilder.addLine(line);
+            }
+            return this;
+        }
+
+        /**
+         * Builds the {@link SoftwareArchitectureDocumentation} from the lines read so far.
+         *
+         * @return a new {@link SoftwareArchitectureDocumentation}
+         * @throws IllegalArgumentException if the text is not in the required one-sentence-per-line format; the message lists all violations
+         */
+        public SoftwareArchitectureDocumentation build() {
+            SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(textBuilder.getText(), textBuilder.getLineStarts(), filePath);
+            sad.checkTextFormat();
+            return sad;
+        }
+    }
+
+    /**
+     * Concatenates lines with the current system's line separator and records their offsets.
+     */
+    private static final class TextBuilder {
+        private final StringBuilder text;
+        private int[] lineStarts = new int[64];
+        private int lineCount = 0;
+        /**
+         * whether the last line has been started but not terminated yet
+         */
+        private boolean lineOpen = false;
+        /**
+         * whether the last character was '\r', so that a following '\n' belongs to the same separator
+         */
+        private boolean skipLineFeed = false;
+
+        TextBuilder() {
+            this.text = new StringBuilder();
+        }
+
+        /**
+         * @param capacity the expected length of the text, so that the text does not have to be copied while it grows
+         */
+        TextBuilder(int capacity) {
+            this.text = new StringBuilder(capacity);
+        }
+
+        /**
+         * Appends a part of a text whose lines are separated by '\n', '\r', or "\r\n" (like {@link Files#readAllLines(Path)}). A text can be appended in
+         * several parts; the parts do not need to end at line boundaries.
+         */
+        void append(CharSequence content, int start, int end) {
+            int i = start;
+            while (i < end) {
+                char c = content.charAt(i);
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        i++;
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    if (!lineOpen) {
+                        startLine(); // empty line
+                    }
+                    lineOpen = false;
+                    skipLineFeed = c == '\r';
+                    i++;
+                    continue;
+                }
+
+                // append the run of characters up to the next separator at once
+                int runEnd = i + 1;
+                while (runEnd < end && content.charAt(runEnd) != '\n' && content.charAt(runEnd) != '\r') {
+                    runEnd++;
+                }
+                if (!lineOpen) {
+                    startLine();
+                    lineOpen = true;
+                }
+                text.append(content, i, runEnd);
+                i = runEnd;
+            }
+        }
+
+        /**
+         * Adds a complete line, which must not contain line separators.
+         */
+        void addLine(CharSequence line) {
+            endLine();
+            startLine();
+            text.append(line);
+        }
+
+        /**
+         * Terminates the current line (if any), so that the next appended text starts a new line.
+         */
+        void endLine() {
+            lineOpen = false;
+            skipLineFeed = false;
+        }
+
+        private void startLine() {
+            if (lineCount > 0) {
+                text.append(LINE_SEPARATOR);
+            }
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            }
+            lineStarts[lineCount++] = text.length();
+        }
+
+        String getText() {
+            return text.toString();
+        }
+
+        int[] getLineStarts() {
+            return Arrays.copyOf(lineStarts, lineCount);
+        }
+    }
 }
@@ -2,17 +2,23 @@
 package edu.kit.kastel.mcse.ardoco.naer.recognizer;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
 import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.IncrementalNamedEntityParser;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.JsonRepair;
 import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityParser;
 
 /**
@@ -69,11 +75,24 @@ public class JsonOutputPrompt extends Prompt {
     @Override
     public String process(ChatModel chatModel, SoftwareArchitectureDocumentation sad) {
         UserMessage userMessage = new UserMessage(this.text + "\nText:\n" + sad.getText());
-        ChatRequest chatRequest = ChatRequest.builder().messages(systemMessage, userMessage).build();
+        ChatRequest chatRequest = createJsonRequest(chatModel.supportedCapabilities(), systemMessage, userMessage);
         ChatResponse chatResponse = chatModel.chat(chatRequest);
         return chatResponse.aiMessage().text();
     }
 
+    @Override
+    public CompletableFuture<String> processStreaming(StreamingChatModel streamingChatModel, SoftwareArchitectureDocumentation sad,
+            Consumer<String> partialAnswerConsumer) {
+        UserMessage userMessage = new UserMessage(this.text + "\nText:\n" + sad.getText());
+        ChatRequest chatRequest = createJsonRequest(streamingChatModel.supportedCapabilities(), systemMessage, userMessage);
+        return streamChat(streamingChatModel, chatRequest, partialAnswerConsumer);
+    }
+
+    @Override
+    public IncrementalNamedEntityParser createIncrementalParser(SoftwareArchitectureDocumentation sad, Consumer<NamedEntity> entityConsumer) {
+        return NamedEntityParser.incrementalJsonParser(sad, entityConsumer);
+    }
+
     @Override
     public Set<NamedEntity> parseAnswer(String answer, SoftwareArchitectureDocumentation sad) throws IOException {
         int start = answer.indexOf('[');
@@ -87,6 +106,11 @@ public class JsonOutputPrompt extends Prompt {
         return NamedEntityParser.fromJson(answer, sad);
     }
 
+    @Override
+    public Optional<String> repairAnswerLocally(String answer) {
+        return JsonRepair.repair(answer);
+    }
+
     @Override
     public String getExpectedOutputFormat() {
         return """
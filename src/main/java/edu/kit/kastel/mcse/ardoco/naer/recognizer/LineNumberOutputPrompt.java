@@ -0,0 +1,202 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.recognizer;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.IncrementalNamedEntityParser;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.JsonRepair;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityJsonSchema;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityParser;
+
+/**
+ * A prompt type designed to generate JSON-formatted output with line numbers as occurrences using only one call.
+ * The SAD is sent with each line prefixed by its line number (see {@link SoftwareArchitectureDocumentation#getTextWithLineNumbers()}), and the prompt output
+ * format must adhere to the following JSON structure:
+ * <pre>
+ * [
+ * {
+ * "name": "...",
+ * "type": "...",
+ * "alternativeNames": [...],
+ * "occurrences": [&lt;lineNumber&gt;, ...]
+ * },
+ * ...
+ * ]
+ * </pre>
+ * In contrast to {@link JsonOutputPrompt}, the chat model does not need to repeat the lines of the SAD, and the occurrences do not need to be matched
+ * against the lines of the SAD.
+ * <p>
+ * Example:<br>
+ * Text:<br>
+ * 1: The AuthenticationService handles login requests.<br>
+ * 2: It forwards valid credentials to the UserDatabase.<br>
+ * 3: The service logs each attempt.<br>
+ * <br>
+ * Output:<br>
+ * <pre>
+ * [
+ * {
+ * "name": "AuthenticationService",
+ * "type": "COMPONENT",
+ * "alternativeNames": ["service"],
+ * "occurrences": [1, 2, 3]
+ * },
+ * {
+ * "name": "UserDatabase",
+ * "type": "COMPONENT",
+ * "alternativeNames": [],
+ * "occurrences": [2]
+ * }
+ * ]
+ * </pre>
+ */
+public class LineNumberOutputPrompt extends Prompt {
+    private static final Logger logger = LoggerFactory.getLogger(LineNumberOutputPrompt.class);
+
+    /**
+     * Constructs a new {@link LineNumberOutputPrompt} instance.
+     *
+     * @param text the text of the prompt
+     * @throws IllegalArgumentException if the text is null or blank
+     */
+    public LineNumberOutputPrompt(String text) {
+        super(text);
+    }
+
+    @Override
+    public String process(ChatModel chatModel, SoftwareArchitectureDocumentation sad) {
+        UserMessage userMessage = new UserMessage(this.text + "\nText:\n" + sad.getTextWithLineNumbers());
+        ChatRequest chatRequest = createJsonRequest(chatModel.supportedCapabilities(), NamedEntityJsonSchema.getLineNumberResponseFormat(), systemMessage,
+                userMessage);
+        ChatResponse chatResponse = chatModel.chat(chatRequest);
+        return chatResponse.aiMessage().text();
+    }
+
+    @Override
+    public CompletableFuture<String> processStreaming(StreamingChatModel streamingChatModel, SoftwareArchitectureDocumentation sad,
+            Consumer<String> partialAnswerConsumer) {
+        UserMessage userMessage = new UserMessage(this.text + "\nText:\n" + sad.getTextWithLineNumbers());
+        ChatRequest chatRequest = createJsonRequest(streamingChatModel.supportedCapabilities(), NamedEntityJsonSchema.getLineNumberResponseFormat(),
+                systemMessage, userMessage);
+        return streamChat(streamingChatModel, chatRequest, partialAnswerConsumer);
+    }
+
+    @Override
+    public IncrementalNamedEntityParser createIncrementalParser(SoftwareArchitectureDocumentation sad, Consumer<NamedEntity> entityConsumer) {
+        return NamedEntityParser.incrementalJsonWithLineNumbersParser(sad, entityConsumer);
+    }
+
+    @Override
+    public Set<NamedEntity> parseAnswer(String answer, SoftwareArchitectureDocumentation sad) throws IOException {
+        int start = answer.indexOf('[');
+        int end = answer.lastIndexOf(']');
+        if (start != -1 && end != -1 && end > start) {
+            answer = answer.substring(start, end + 1);
+        } else {
+            logger.warn("No valid JSON array found.");
+            throw new IOException("No valid JSON array found.");
+        }
+        return NamedEntityParser.fromJsonWithLineNumbers(answer, sad);
+    }
+
+    @Override
+    public Optional<String> repairAnswerLocally(String answer) {
+        return JsonRepair.repair(answer);
+    }
+
+    @Override
+    public String getExpectedOutputFormat() {
+        return """
+                [
+                    {
+                        "name": "...",
+                        "type": "COMPONENT",
+                        "alternativeNames": [...],
+                        "occurrences": [<lineNumber>, ...]
+                    },
+                    ...
+                ]
+
+                Example (content is imaginary):
+                [
+                    {
+                        "name": "AuthenticationService",
+                        "type": "COMPONENT",
+                        "alternativeNames": ["service"],
+                        "occurrences": [1, 2, 3]
+                    },
+                    {
+                        "name": "UserDatabase",
+                        "type": "COMPONENT",
+                        "alternativeNames": [],
+                        "occurrences": [2]
+                    }
+                ]
+                """;
+    }
+
+    @Override
+    public String toString() {
+        return "LineNumberOutputPrompt{" + "text='" + text + '\'' + '}';
+    }
+
+    public static LineNumberOutputPrompt getDefault() {
+        String taskPrompt = """
+                In the following text, identify all architecturally relevant components that are explicitly named.
+                Each line of the text is prefixed with its line number (e.g., "3: ...").
+
+                For each component, provide:
+                - The primary name (as it appears in the text)
+                - All alternative names or abbreviations found in the text (case-insensitive match)
+                - The numbers of all lines where the component is mentioned.
+
+                Rules:
+                - Only include actual architecturally relevant components (e.g., modules, services, subsystems, layers)
+                - Do not include: interfaces, external libraries, frameworks, or technologies unless they are implemented in this architecture as components
+                - Include all indirect references to components as well.
+                  For example, if line 4 says “Component X handles requests.”, and line 5 says “It interacts with Component Y.”, then both line numbers must be included for Component X, because “It” indirectly refers to Component X.
+
+                Output should be a JSON array (and nothing else!), like:
+                [
+                    {
+                        "name": "...",
+                        "type": "COMPONENT",
+                        "alternativeNames": [...],
+                        "occurrences": [<lineNumber>, ...]
+                    },
+                    ...
+                ]
+
+                Example:
+                [
+                    {
+                        "name": "AuthenticationService",
+                        "type": "COMPONENT",
+                        "alternativeNames": ["service"],
+                        "occurrences": [1, 2, 3]
+                    },
+                    {
+                        "name": "UserDatabase",
+                        "type": "COMPONENT",
+                        "alternativeNames": ["DB"],
+                        "occurrences": [2, 4]
+                    }
+                ]
+                """;
+        return new LineNumberOutputPrompt(taskPrompt);
+    }
+}
@@ -3,8 +3,31 @@ package edu.kit.kastel.mcse.ardoco.naer.recognizer;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,12 +35,21 @@ import org.slf4j.LoggerFactory;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
-import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
 import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.IncrementalNamedEntityParser;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.InvalidLine;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.LenientParseResult;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityParser;
+import edu.kit.kastel.mcse.ardoco.naer.util.ChatModelFactory;
 import edu.kit.kastel.mcse.ardoco.naer.util.ModelProvider;
+import edu.kit.kastel.mcse.ardoco.naer.util.ResilientChatModel;
+import edu.kit.kastel.mcse.ardoco.naer.util.ResponseCache;
+import edu.kit.kastel.mcse.ardoco.naer.util.RetryPolicy;
 
 /**
  * The main interface of the library for recognizing named entities in software architecture documentations.
@@ -25,24 +57,106 @@ import edu.kit.kastel.mcse.ardoco.naer.util.ModelProvider;
  */
 public class NamedEntityRecognizer {
     private static final Logger logger = LoggerFactory.getLogger(NamedEntityRecognizer.class);
+    private static final Pattern NUMBERED_LINE_PATTERN = Pattern.compile("^(\\d+)\\.\\s*(.*)$");
+    /**
+     * the maximum share of invalid lines in an answer for which only the invalid lines are repaired
+     */
+    private static final double MAX_INVALID_LINE_RATIO = 0.5;
     /**
      * The chat model used to process the SAD
      */
     private final ChatModel chatModel;
 
+    /**
+     * The streaming chat model used by {@link #recognizeStreaming(SoftwareArchitectureDocumentation, Consumer)} (if available - otherwise it is null)
+     */
+    private final StreamingChatModel streamingChatModel;
+
     /**
      * The prompt that instructs the chat model on how to identify named entities
      */
     private final Prompt prompt;
 
+    /**
+     * The maximum number of concurrent chat model calls
+     */
+    private final int maxConcurrency;
+
+    /**
+     * The permits for the chat model calls (including the repair calls), which bound the concurrent calls of all documents and chunks to
+     * {@link #maxConcurrency}
+     */
+    private final Semaphore chatCallPermits;
+
+    /**
+     * The number of lines per chunk if large documents are split into chunks, or {@code 0} if documents are always processed as a whole
+     */
+    private final int linesPerChunk;
+
+    /**
+     * The number of lines that consecutive chunks share
+     */
+    private final int overlappingLines;
+
+    /**
+     * The persistent cache of chat model responses (if available - otherwise it is null)
+     */
+    private final ResponseCache responseCache;
+
+    /**
+     * The description of the chat model that is part of each cache key; derived from the {@link ChatModel#defaultRequestParameters() parameters} of the
+     * chat model, so that the responses of different models are never mixed up
+     */
+    private final String modelDescription;
+
+    /**
+     * The in-memory cache of recognition results (if enabled - otherwise it is null)
+     */
+    private final RecognitionResultCache resultCache;
+
+    /**
+     * Counts how often the answers could be parsed directly or had to be repaired
+     */
+    private final RepairStatistics repairStatistics = new RepairStatistics();
+
     /**
      * Private constructor used by the Builder to create a NamedEntityRecognizer instance.
      *
      * @param builder the Builder instance containing the configured parameters
      */
     private NamedEntityRecognizer(Builder builder) {
-        this.chatModel = builder.chatModel;
+        this.chatModel = builder.retryPolicy != null && builder.chatModel != null ?
+                new ResilientChatModel(builder.chatModel, builder.retryPolicy) :
+                builder.chatModel;
+        this.streamingChatModel = builder.streamingChatModel;
         this.prompt = builder.prompt;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.chatCallPermits = new Semaphore(builder.maxConcurrency);
+        this.linesPerChunk = builder.linesPerChunk;
+        this.overlappingLines = builder.overlappingLines;
+        this.responseCache = builder.responseCache;
+        this.modelDescription = builder.responseCache != null ? describeModel(this.chatModel, builder.modelDescription) : null;
+        this.resultCache = builder.resultCacheMaxEntries > 0 ?
+                new RecognitionResultCache(builder.resultCacheTimeToLive, builder.resultCacheMaxEntries) :
+                null;
+    }
+
+    /**
+     * Describes the chat model by its model name, temperature, and response format, followed by the additional description (if any).
+     */
+    private static String describeModel(ChatModel chatModel, String additionalDescription) {
+        StringBuilder description = new StringBuilder();
+        if (chatModel != null) {
+            ChatRequestParameters parameters = chatModel.defaultRequestParameters();
+            description.append(parameters.modelName()).append("/temperature=").append(parameters.temperature());
+            if (parameters.responseFormat() != null) {
+                description.append("/responseFormat=").append(parameters.responseFormat().type());
+            }
+        }
+        if (additionalDescription != null) {
+            description.append('/').append(additionalDescription);
+        }
+        return description.toString();
     }
 
     /**
@@ -51,32 +165,481 @@ public class NamedEntityRecognizer {
      * This method first sends the SAD text along with the prompt to the configured chat model and afterward parses the chat models response into a set of
      * {@link NamedEntity} instances.
      * </p>
+     * <p>
+     * If chunking is enabled (see {@link Builder#chunking(int, int)}) and the SAD is longer than a chunk, the chunks are processed in parallel and their
+     * results are merged.
+     * </p>
+     * <p>
+     * If the result cache is enabled (see {@link Builder#resultCache(Duration, int)}), a cached result is returned if available, and concurrent calls for
+     * the same SAD share one recognition.
+     * </p>
      *
-     * @return a set of recognized named entities
+     * @return a set of recognized named entities; if the result cache is enabled, the entities are shared and therefore frozen (see
+     *         {@link NamedEntity#freeze()}), and {@link NamedEntity#copy()} creates modifiable copies
      */
     public Set<NamedEntity> recognize(SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
-        logger.info("calling LLM...");
-        String answer = prompt.process(chatModel, softwareArchitectureDocumentation);
+        if (resultCache != null) {
+            return join(resultCache.get(getResultCacheKey(softwareArchitectureDocumentation), () -> CompletableFuture.completedFuture(recognizeUncached(
+                    softwareArchitectureDocumentation))));
+        }
+        return recognizeUncached(softwareArchitectureDocumentation);
+    }
+
+    private Set<NamedEntity> recognizeUncached(SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        if (isChunked(softwareArchitectureDocumentation)) {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                return join(recognizeAsyncUncached(softwareArchitectureDocumentation, executor));
+            }
+        }
+
+        String answer = process(softwareArchitectureDocumentation);
 
         try {
-            return prompt.parseAnswer(answer, softwareArchitectureDocumentation); //if everything works as intended, this does not fail
+            return parseAnswerLocally(answer, softwareArchitectureDocumentation); //if everything works as intended, this does not fail
         } catch (IOException e) {
-            logger.warn("initial parsing failed, attempting to reformat LLM output (via LLM)...");
-            String repairPrompt = "The following output is invalid. Reformat it so it precisely adheres to the following output format:\n" + prompt
-                    .getExpectedOutputFormat() + "\n\nInvalid output to reformat:\n" + answer + "\nThis error occurred when trying to parse it:\n" + e
-                            .getMessage();
-            UserMessage repairMessage = new UserMessage(repairPrompt);
-            SystemMessage systemMessage = new SystemMessage("You are a software engineer and software architect.");
-            ChatRequest repairRequest = ChatRequest.builder().messages(systemMessage, repairMessage).build();
-            ChatResponse repairResponse = chatModel.chat(repairRequest);
-            String repairedAnswer = repairResponse.aiMessage().text();
-
-            logger.info("parsing repaired LLM response...");
+            return repairAndParse(answer, e, softwareArchitectureDocumentation);
+        }
+    }
+
+    /**
+     * Recognizes {@link NamedEntity} instances in the given {@link SoftwareArchitectureDocumentation} without blocking the calling thread.
+     * <p>
+     * The chat model calls (including a possibly needed repair call) are executed on the given executor. Cancelling the returned future prevents any chat
+     * model call that has not been started yet and interrupts the thread of a call that is already in flight, which aborts the request to the provider.
+     * </p>
+     * <p>
+     * If chunking is enabled (see {@link Builder#chunking(int, int)}) and the SAD is longer than a chunk, each chunk is processed by its own task.
+     * </p>
+     * <p>
+     * If the result cache is enabled (see {@link Builder#resultCache(Duration, int)}), a cached result is returned if available, and concurrent calls for
+     * the same SAD share one recognition. Cancelling the returned future then only detaches the caller from the shared recognition.
+     * </p>
+     *
+     * @param softwareArchitectureDocumentation the SAD to process
+     * @param executor                          the executor that runs the chat model calls
+     * @return a future that completes with the set of recognized named entities (frozen if the result cache is enabled)
+     */
+    public CompletableFuture<Set<NamedEntity>> recognizeAsync(SoftwareArchitectureDocumentation softwareArchitectureDocumentation, Executor executor) {
+        if (executor == null) {
+            logger.error("executor is null");
+            throw new IllegalArgumentException("executor is null");
+        }
+        if (resultCache != null) {
+            return resultCache.get(getResultCacheKey(softwareArchitectureDocumentation), () -> recognizeAsyncUncached(softwareArchitectureDocumentation,
+                    executor));
+        }
+        return recognizeAsyncUncached(softwareArchitectureDocumentation, executor);
+    }
+
+    private CompletableFuture<Set<NamedEntity>> recognizeAsyncUncached(SoftwareArchitectureDocumentation softwareArchitectureDocumentation,
+            Executor executor) {
+        if (!isChunked(softwareArchitectureDocumentation)) {
+            return recognizeDocumentAsync(softwareArchitectureDocumentation, executor);
+        }
+
+        List<DocumentChunk> chunks = splitIntoChunks(softwareArchitectureDocumentation);
+        logger.info("splitting document with {} lines into {} overlapping chunks...", softwareArchitectureDocumentation.getLineCount(), chunks.size());
+        List<CompletableFuture<Set<NamedEntity>>> chunkResults = new ArrayList<>(chunks.size());
+        for (DocumentChunk chunk : chunks) {
+            chunkResults.add(recognizeDocumentAsync(chunk.document(), executor));
+        }
+
+        CompletableFuture<Set<NamedEntity>> result = CompletableFuture.allOf(chunkResults.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> mergeChunkResults(softwareArchitectureDocumentation, chunks, chunkResults));
+        result.whenComplete((entities, throwable) -> {
+            if (result.isCancelled()) {
+                for (CompletableFuture<Set<NamedEntity>> chunkResult : chunkResults) {
+                    chunkResult.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<Set<NamedEntity>> recognizeDocumentAsync(SoftwareArchitectureDocumentation softwareArchitectureDocumentation,
+            Executor executor) {
+        // the running chat model call, or null once the recognition has been cancelled
+        AtomicReference<CompletableFuture<?>> currentCall = new AtomicReference<>();
+        CompletableFuture<String> answerCall = supplyInterruptibly(() -> process(softwareArchitectureDocumentation), executor);
+        currentCall.set(answerCall);
+
+        CompletableFuture<Set<NamedEntity>> result = answerCall.thenCompose(answer -> parseOrRepairAsync(answer, softwareArchitectureDocumentation, executor,
+                currentCall));
+        result.whenComplete((entities, throwable) -> {
+            if (result.isCancelled()) {
+                CompletableFuture<?> call = currentCall.getAndSet(null);
+                if (call != null) {
+                    call.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<Set<NamedEntity>> parseOrRepairAsync(String answer, SoftwareArchitectureDocumentation softwareArchitectureDocumentation,
+            Executor executor, AtomicReference<CompletableFuture<?>> currentCall) {
+        try {
+            return CompletableFuture.completedFuture(parseAnswerLocally(answer, softwareArchitectureDocumentation));
+        } catch (IOException e) {
+            CompletableFuture<?> answerCall = currentCall.get();
+            if (answerCall == null) {
+                // cancelled while the answer was parsed
+                return CompletableFuture.failedFuture(new CancellationException("recognition was cancelled"));
+            }
+            CompletableFuture<Set<NamedEntity>> repairCall = supplyInterruptibly(() -> repairAndParse(answer, e, softwareArchitectureDocumentation),
+                    executor);
+            if (!currentCall.compareAndSet(answerCall, repairCall)) {
+                // cancelled while the repair call was scheduled, so it must not start (or is interrupted)
+                repairCall.cancel(true);
+            }
+            return repairCall;
+        }
+    }
+
+    /**
+     * Runs the supplier on the given executor like {@link CompletableFuture#supplyAsync(Supplier, Executor)}, but cancelling the returned future also
+     * interrupts the running supplier (see {@link FutureTask#cancel(boolean)}), e.g., to abort the HTTP request of a chat model call.
+     */
+    private static <T> CompletableFuture<T> supplyInterruptibly(Supplier<T> supplier, Executor executor) {
+        FutureTask<T> task = new FutureTask<>(supplier::get);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.whenComplete((value, throwable) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        executor.execute(() -> {
+            task.run();
             try {
-                return prompt.parseAnswer(repairedAnswer, softwareArchitectureDocumentation);
-            } catch (IOException e2) {
-                throw new UncheckedIOException("Both original and repair attempts failed", e2);
+                result.complete(task.get());
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause());
+            } catch (CancellationException e) {
+                result.cancel(false);
+            } catch (InterruptedException e) {
+                // not possible, as the task has completed
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Recognizes {@link NamedEntity} instances in the given {@link SoftwareArchitectureDocumentation} while the answer of the chat model is streamed.
+     * <p>
+     * The answer is parsed incrementally, and each named entity is passed to the consumer as soon as it is complete, i.e., while the chat model is still
+     * generating the rest of the answer. The entities passed to the consumer are a best-effort preview: malformed parts of the answer are skipped. The
+     * returned future completes with the result of parsing the complete answer (including a repair via the streaming chat model, if needed).
+     * </p>
+     * <p>The SAD is always processed as a whole, even if chunking is enabled.</p>
+     *
+     * @param softwareArchitectureDocumentation the SAD to process
+     * @param entityConsumer                    receives each named entity as soon as it has been parsed from the partial answer
+     * @return a future that completes with the set of recognized named entities
+     * @throws IllegalStateException if no streaming chat model has been configured
+     */
+    public CompletableFuture<Set<NamedEntity>> recognizeStreaming(SoftwareArchitectureDocumentation softwareArchitectureDocumentation,
+            Consumer<NamedEntity> entityConsumer) {
+        if (streamingChatModel == null) {
+            logger.error("no streaming chat model configured");
+            throw new IllegalStateException("no streaming chat model configured");
+        }
+        if (entityConsumer == null) {
+            logger.error("entityConsumer is null");
+            throw new IllegalArgumentException("entityConsumer is null");
+        }
+
+        logger.info("calling LLM (streaming)...");
+        IncrementalNamedEntityParser incrementalParser = prompt.createIncrementalParser(softwareArchitectureDocumentation, entityConsumer);
+        return prompt.processStreaming(streamingChatModel, softwareArchitectureDocumentation, incrementalParser::accept).thenCompose(answer -> {
+            incrementalParser.finish();
+            try {
+                return CompletableFuture.completedFuture(parseAnswerLocally(answer, softwareArchitectureDocumentation));
+            } catch (IOException e) {
+                logger.warn("initial parsing failed, attempting to reformat LLM output (via LLM)...");
+                return Prompt.streamChat(streamingChatModel, createRepairRequest(answer, e), partialAnswer -> {
+                    // the repaired answer is only parsed as a whole
+                }).thenApply(repairedAnswer -> parseRepairedAnswer(repairedAnswer, softwareArchitectureDocumentation));
+            }
+        });
+    }
+
+    /**
+     * Retrieves statistics about how often the answers of the chat model could be parsed directly, had to be repaired locally, or had to be reformatted by
+     * the chat model.
+     *
+     * @return the repair statistics of this recognizer
+     */
+    public RepairStatistics getRepairStatistics() {
+        return repairStatistics;
+    }
+
+    /**
+     * Parses the answer; if that fails, the prompt's local repair is attempted before giving up.
+     *
+     * @throws IOException the exception of the initial parsing attempt if the answer can neither be parsed nor repaired locally
+     */
+    private Set<NamedEntity> parseAnswerLocally(String answer, SoftwareArchitectureDocumentation softwareArchitectureDocumentation) throws IOException {
+        try {
+            Set<NamedEntity> entities = prompt.parseAnswer(answer, softwareArchitectureDocumentation);
+            repairStatistics.recordParsedDirectly();
+            return entities;
+        } catch (IOException e) {
+            Optional<String> locallyRepairedAnswer = prompt.repairAnswerLocally(answer);
+            if (locallyRepairedAnswer.isPresent()) {
+                try {
+                    Set<NamedEntity> entities = prompt.parseAnswer(locallyRepairedAnswer.get(), softwareArchitectureDocumentation);
+                    logger.info("initial parsing failed, but LLM output could be repaired locally");
+                    repairStatistics.recordRepairedLocally();
+                    return entities;
+                } catch (IOException e2) {
+                    logger.debug("local repair of LLM output failed", e2);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private String getResultCacheKey(SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        return ResponseCache.createKey(prompt.getClass().getName(), prompt.getFullText(), softwareArchitectureDocumentation.getContentHash());
+    }
+
+    /**
+     * Waits for the result of the future and rethrows the original exception if the computation failed.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isChunked(SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        return linesPerChunk > 0 && softwareArchitectureDocumentation != null && softwareArchitectureDocumentation.getLineCount() > linesPerChunk;
+    }
+
+    /**
+     * Splits the given SAD into windows of {@link #linesPerChunk} lines, where consecutive windows share {@link #overlappingLines} lines.
+     * The overlap ensures that indirect references to an entity that is named right before a chunk boundary can still be recognized.
+     */
+    private List<DocumentChunk> splitIntoChunks(SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        int lineCount = softwareArchitectureDocumentation.getLineCount();
+        int step = linesPerChunk - overlappingLines;
+        List<DocumentChunk> chunks = new ArrayList<>();
+        for (int firstLine = 1;; firstLine += step) {
+            int lastLine = Math.min(firstLine + linesPerChunk - 1, lineCount);
+            chunks.add(new DocumentChunk(firstLine - 1, softwareArchitectureDocumentation.getExcerpt(firstLine, lastLine)));
+            if (lastLine == lineCount) {
+                return chunks;
+            }
+        }
+    }
+
+    /**
+     * Maps the entities recognized in each chunk back to the line numbering of the complete SAD and merges entities with the same name and type.
+     * <p>
+     * The reference types are deducted again from the merged names, since an alternative name recognized in one chunk can turn an indirect reference in
+     * another chunk into a direct one.
+     * </p>
+     */
+    private static Set<NamedEntity> mergeChunkResults(SoftwareArchitectureDocumentation softwareArchitectureDocumentation, List<DocumentChunk> chunks,
+            List<CompletableFuture<Set<NamedEntity>>> chunkResults) {
+        Map<EntityKey, NamedEntity> mergedEntities = new LinkedHashMap<>();
+        Map<String, NamedEntityType> typesByName = new HashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            int lineOffset = chunks.get(i).lineOffset();
+            for (NamedEntity entity : chunkResults.get(i).join()) {
+                NamedEntity shiftedEntity = entity.withLineOffset(lineOffset, softwareArchitectureDocumentation);
+                NamedEntity existingEntity = mergedEntities.putIfAbsent(new EntityKey(entity.getName(), entity.getType()), shiftedEntity);
+                if (existingEntity != null) {
+                    existingEntity.merge(shiftedEntity);
+                    continue;
+                }
+                NamedEntityType otherType = typesByName.putIfAbsent(entity.getName(), entity.getType());
+                if (otherType != null && otherType != entity.getType()) {
+                    logger.warn("entity '{}' has been recognized as {} and as {} in different chunks, keeping both", entity.getName(), otherType, entity
+                            .getType());
+                }
+            }
+        }
+        return NamedEntityParser.withDeductedReferenceTypes(mergedEntities.values(), softwareArchitectureDocumentation);
+    }
+
+    /**
+     * The identity of an entity when merging the entities of several chunks.
+     */
+    private record EntityKey(String name, NamedEntityType type) {
+    }
+
+    /**
+     * Sends the prompt and the SAD to the chat model, or retrieves the answer from the {@link #responseCache} if it has been cached before.
+     */
+    private String process(SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        if (responseCache == null) {
+            logger.info("calling LLM...");
+            return withChatCallPermit(() -> prompt.process(chatModel, softwareArchitectureDocumentation));
+        }
+
+        String key = ResponseCache.createKey(prompt.getClass().getName(), prompt.getFullText(), modelDescription, softwareArchitectureDocumentation
+                .getContentHash());
+        return responseCache.get(key).orElseGet(() -> {
+            logger.info("calling LLM...");
+            String answer = withChatCallPermit(() -> prompt.process(chatModel, softwareArchitectureDocumentation));
+            responseCache.put(key, answer);
+            return answer;
+        });
+    }
+
+    /**
+     * Repairs an answer that could not be parsed (even after a local repair) with the help of the chat model.
+     * <p>
+     * If the prompt supports lenient parsing and only a few lines of the answer are invalid, only these lines are sent to the chat model (see
+     * {@link #repairPartially(String, IOException, LenientParseResult, SoftwareArchitectureDocumentation)}). Otherwise, the complete answer is reformatted.
+     * </p>
+     */
+    private Set<NamedEntity> repairAndParse(String answer, IOException parsingException, SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        Optional<LenientParseResult> lenientParseResult = prompt.parseAnswerLeniently(answer, softwareArchitectureDocumentation);
+        if (lenientParseResult.isPresent() && isPartiallyRepairable(lenientParseResult.get())) {
+            logger.warn("initial parsing failed, attempting to reformat {} invalid lines (via LLM)...", lenientParseResult.get().invalidLines().size());
+            return repairPartially(answer, parsingException, lenientParseResult.get(), softwareArchitectureDocumentation);
+        }
+
+        logger.warn("initial parsing failed, attempting to reformat LLM output (via LLM)...");
+        return parseRepairedAnswer(repair(answer, parsingException), softwareArchitectureDocumentation);
+    }
+
+    /**
+     * A partial repair is only worthwhile if the invalid lines are a minority of the answer; otherwise, the answer is most likely malformed as a whole.
+     */
+    private static boolean isPartiallyRepairable(LenientParseResult lenientParseResult) {
+        int invalidLines = lenientParseResult.invalidLines().size();
+        long nonEmptyLines = lenientParseResult.lines().stream().filter(line -> !line.isEmpty()).count();
+        return invalidLines > 0 && invalidLines <= nonEmptyLines * MAX_INVALID_LINE_RATIO;
+    }
+
+    /**
+     * Asks the chat model to reformat only the invalid lines of the answer and merges the reformatted lines into the valid part of the answer. If any line is
+     * still invalid afterward, the complete answer is reformatted instead, so that no line is dropped.
+     */
+    private Set<NamedEntity> repairPartially(String answer, IOException parsingException, LenientParseResult lenientParseResult,
+            SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        String lineRepairPrompt = createLineRepairPrompt(lenientParseResult.invalidLines());
+        UserMessage repairMessage = new UserMessage(lineRepairPrompt);
+        SystemMessage systemMessage = new SystemMessage("You are a software engineer and software architect.");
+        ChatRequest lineRepairRequest = ChatRequest.builder().messages(systemMessage, repairMessage).build();
+        String repairAnswer = chat(lineRepairRequest, ResponseCache.createKey("repair-lines", modelDescription, lineRepairPrompt));
+
+        LenientParseResult repairedResult = lenientParseResult.withRepairedLines(parseRepairedLines(repairAnswer), softwareArchitectureDocumentation);
+        if (!repairedResult.invalidLines().isEmpty()) {
+            logger.warn("{} lines could not be repaired, attempting to reformat LLM output (via LLM)...", repairedResult.invalidLines().size());
+            return parseRepairedAnswer(repair(answer, parsingException), softwareArchitectureDocumentation);
+        }
+        repairStatistics.recordRepairedPartially();
+        return repairedResult.entities();
+    }
+
+    /**
+     * Parses the answer to a line repair prompt (see {@link #createLineRepairPrompt(List)}), i.e., lines in the form {@code <number>. <reformatted line>}.
+     *
+     * @return the reformatted lines by their number; lines that the chat model could not reformat ({@code <number>.} only) and other lines are skipped
+     */
+    static Map<Integer, String> parseRepairedLines(String repairAnswer) {
+        Map<Integer, String> repairedLines = new LinkedHashMap<>();
+        for (String line : repairAnswer.split("\\R")) {
+            Matcher matcher = NUMBERED_LINE_PATTERN.matcher(line.trim());
+            if (matcher.matches() && !matcher.group(2).isBlank()) {
+                try {
+                    repairedLines.put(Integer.parseInt(matcher.group(1)), matcher.group(2));
+                } catch (NumberFormatException e) {
+                    logger.debug("skipping repaired line with invalid number: '{}'", line);
+                }
+            }
+        }
+        return repairedLines;
+    }
+
+    private static String createLineRepairPrompt(List<InvalidLine> invalidLines) {
+        StringBuilder repairPrompt = new StringBuilder("""
+                The following numbered lines of an output are invalid. Reformat each line so it precisely adheres to its expected format.
+                Answer with exactly one line per invalid line in the form '<number>. <reformatted line>' and nothing else.
+                If a line cannot be reformatted, answer with '<number>.' only.
+
+                """);
+        for (InvalidLine invalidLine : invalidLines) {
+            repairPrompt.append(invalidLine.index()).append(". ").append(invalidLine.line()).append('\n');
+            if (invalidLine.section() != null) {
+                repairPrompt.append("   Section: ").append(invalidLine.section()).append('\n');
             }
+            repairPrompt.append("   Expected format: ").append(invalidLine.expectedFormat()).append('\n');
+            repairPrompt.append("   Error: ").append(invalidLine.error()).append('\n');
+        }
+        return repairPrompt.toString();
+    }
+
+    /**
+     * Asks the chat model to reformat the invalid answer, or retrieves the reformatted answer from the {@link #responseCache} if it has been cached before.
+     */
+    private String repair(String answer, IOException parsingException) {
+        ChatRequest repairRequest = createRepairRequest(answer, parsingException);
+        String key = ResponseCache.createKey("repair", prompt.getExpectedOutputFormat(), modelDescription, answer, parsingException.getMessage());
+        return chat(repairRequest, key);
+    }
+
+    /**
+     * Sends the request to the chat model, or retrieves the answer from the {@link #responseCache} if it has been cached before.
+     */
+    private String chat(ChatRequest chatRequest, String key) {
+        if (responseCache == null) {
+            return withChatCallPermit(() -> chatModel.chat(chatRequest).aiMessage().text());
+        }
+        return responseCache.get(key).orElseGet(() -> {
+            String answer = withChatCallPermit(() -> chatModel.chat(chatRequest).aiMessage().text());
+            responseCache.put(key, answer);
+            return answer;
+        });
+    }
+
+    /**
+     * Waits for one of the {@link #chatCallPermits} and calls the chat model while holding it.
+     */
+    private <T> T withChatCallPermit(Supplier<T> chatCall) {
+        try {
+            chatCallPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a chat model call", e);
+        }
+        try {
+            return chatCall.get();
+        } finally {
+            chatCallPermits.release();
+        }
+    }
+
+    private ChatRequest createRepairRequest(String answer, IOException parsingException) {
+        String repairPrompt = "The following output is invalid. Reformat it so it precisely adheres to the following output format:\n" + prompt
+                .getExpectedOutputFormat() + "\n\nInvalid output to reformat:\n" + answer + "\nThis error occurred when trying to parse it:\n" + parsingException
+                        .getMessage();
+        UserMessage repairMessage = new UserMessage(repairPrompt);
+        SystemMessage systemMessage = new SystemMessage("You are a software engineer and software architect.");
+        return ChatRequest.builder().messages(systemMessage, repairMessage).build();
+    }
+
+    private Set<NamedEntity> parseRepairedAnswer(String repairedAnswer, SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        logger.info("parsing repaired LLM response...");
+        try {
+            Set<NamedEntity> entities = prompt.parseAnswer(repairedAnswer, softwareArchitectureDocumentation);
+            repairStatistics.recordRepairedByLlm();
+            return entities;
+        } catch (IOException e) {
+            repairStatistics.recordFailed();
+            logger.warn("parsing failed after repair, repair statistics: {}", repairStatistics);
+            throw new UncheckedIOException("Both original and repair attempts failed", e);
         }
     }
 
@@ -97,6 +660,72 @@ public class NamedEntityRecognizer {
         return recognize(softwareArchitectureDocumentation);
     }
 
+    /**
+     * Recognizes {@link NamedEntity} instances in each of the given {@link SoftwareArchitectureDocumentation}s.
+     * <p>
+     * Each document is processed on its own virtual thread, but at most {@link Builder#maxConcurrency(int)} chat model calls (of all documents and their
+     * chunks) run at the same time. A failure while processing one document does not abort the batch; it is reported in the {@link RecognitionResult} of
+     * that document instead. {@link Error}s are not caught, but rethrown once all documents have been processed.
+     * </p>
+     *
+     * @param softwareArchitectureDocumentations the SADs to process
+     * @return one result per given SAD, in the iteration order of the given collection
+     */
+    public List<RecognitionResult> recognizeAll(Collection<SoftwareArchitectureDocumentation> softwareArchitectureDocumentations) {
+        if (softwareArchitectureDocumentations == null) {
+            logger.error("softwareArchitectureDocumentations is null");
+            throw new IllegalArgumentException("softwareArchitectureDocumentations is null");
+        }
+
+        logger.info("recognizing named entities in {} documents (max. {} concurrent chat model calls)...", softwareArchitectureDocumentations.size(),
+                maxConcurrency);
+        List<SoftwareArchitectureDocumentation> documents = new ArrayList<>(softwareArchitectureDocumentations);
+        List<Future<RecognitionResult>> futures = new ArrayList<>(documents.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (SoftwareArchitectureDocumentation document : documents) {
+                futures.add(executor.submit(() -> recognizeToResult(document)));
+            }
+        } // closing the executor waits for all submitted recognitions
+
+        List<RecognitionResult> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            Future<RecognitionResult> future = futures.get(i);
+            switch (future.state()) {
+            case SUCCESS -> results.add(future.resultNow());
+            case FAILED -> {
+                // exceptions are turned into failed results by recognizeToResult, so only errors get here
+                Throwable failure = future.exceptionNow();
+                if (failure instanceof Error error) {
+                    throw error;
+                }
+                results.add(RecognitionResult.failure(documents.get(i), failure instanceof Exception exception ? exception : new IllegalStateException(failure)));
+            }
+            default -> results.add(RecognitionResult.failure(documents.get(i), new IllegalStateException("recognition was cancelled")));
+            }
+        }
+        return results;
+    }
+
+    private RecognitionResult recognizeToResult(SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        try {
+            return RecognitionResult.success(softwareArchitectureDocumentation, recognize(softwareArchitectureDocumentation));
+        } catch (RuntimeException e) {
+            logger.warn("recognition failed for document: {}", softwareArchitectureDocumentation != null ?
+                    softwareArchitectureDocumentation.getFilePath() :
+                    null, e);
+            return RecognitionResult.failure(softwareArchitectureDocumentation, e);
+        }
+    }
+
+    /**
+     * An excerpt of a SAD that is processed on its own.
+     *
+     * @param lineOffset the number of lines of the complete SAD that precede the excerpt
+     * @param document   the excerpt
+     */
+    private record DocumentChunk(int lineOffset, SoftwareArchitectureDocumentation document) {
+    }
+
     /**
      * Builder for {@link NamedEntityRecognizer} instances.
      */
@@ -104,7 +733,16 @@ public class NamedEntityRecognizer {
         private final Logger logger = LoggerFactory.getLogger(Builder.class);
 
         private ChatModel chatModel;
+        private StreamingChatModel streamingChatModel;
         private Prompt prompt;
+        private int maxConcurrency = 8; //default
+        private int linesPerChunk = 0; //default: no chunking
+        private int overlappingLines = 0;
+        private ResponseCache responseCache;
+        private String modelDescription;
+        private Duration resultCacheTimeToLive;
+        private int resultCacheMaxEntries = 0; //default: no result cache
+        private RetryPolicy retryPolicy; //default: no retries (beyond those of the chat model)
 
         /**
          * Sets the chat model to use.
@@ -121,6 +759,21 @@ public class NamedEntityRecognizer {
             return this;
         }
 
+        /**
+         * Sets the streaming chat model to use for {@link NamedEntityRecognizer#recognizeStreaming(SoftwareArchitectureDocumentation, Consumer)}.
+         *
+         * @param streamingChatModel the streaming chat model
+         * @return this builder
+         */
+        public Builder streamingChatModel(StreamingChatModel streamingChatModel) {
+            if (streamingChatModel == null) {
+                logger.error("streaming chat model must not be null");
+                throw new IllegalArgumentException("streaming chat model must not be null");
+            }
+            this.streamingChatModel = streamingChatModel;
+            return this;
+        }
+
         /**
          * Sets the prompt that will be provided to the chat model.
          *
@@ -140,6 +793,148 @@ public class NamedEntityRecognizer {
             return this;
         }
 
+        /**
+         * Sets the maximum number of concurrent chat model calls of the recognizer, e.g., of the documents of
+         * {@link NamedEntityRecognizer#recognizeAll(Collection)} or the chunks of a large document (see {@link #chunking(int, int)}).
+         *
+         * <p>
+         * If not specified, at most 8 chat model calls run at the same time. Calls beyond the limit wait for a running call to finish.
+         * </p>
+         *
+         * @param maxConcurrency the maximum number of concurrent chat model calls; must be at least 1
+         * @return this builder
+         */
+        public Builder maxConcurrency(int maxConcurrency) {
+            if (maxConcurrency < 1) {
+                logger.error("max concurrency must be >= 1");
+                throw new IllegalArgumentException("max concurrency must be >= 1");
+            }
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Enables the chunked recognition of large documents.
+         *
+         * <p>
+         * Documents with more than {@code linesPerChunk} lines are split into windows of {@code linesPerChunk} lines that are recognized in parallel.
+         * Consecutive windows share {@code overlappingLines} lines, so that indirect references across a window boundary are kept. Entities with the same
+         * name are merged afterward. If not specified, documents are always processed as a whole.
+         * </p>
+         *
+         * @param linesPerChunk    the number of lines per chunk; must be at least 1
+         * @param overlappingLines the number of lines that consecutive chunks share; must be at least 0 and less than {@code linesPerChunk}
+         * @return this builder
+         */
+        public Builder chunking(int linesPerChunk, int overlappingLines) {
+            if (linesPerChunk < 1) {
+                logger.error("lines per chunk must be >= 1");
+                throw new IllegalArgumentException("lines per chunk must be >= 1");
+            }
+            if (overlappingLines < 0 || overlappingLines >= linesPerChunk) {
+                logger.error("overlapping lines must be >= 0 and < lines per chunk");
+                throw new IllegalArgumentException("overlapping lines must be >= 0 and < lines per chunk");
+            }
+            this.linesPerChunk = linesPerChunk;
+            this.overlappingLines = overlappingLines;
+            return this;
+        }
+
+        /**
+         * Sets a persistent cache for the responses of the chat model.
+         *
+         * <p>
+         * Responses are cached by the prompt, the model, and the content of the SAD. The model is identified by the model name, temperature, and response
+         * format of the {@link ChatModel#defaultRequestParameters() default request parameters} of the chat model. If a response is cached, the chat model
+         * is not called at all. Streaming recognitions bypass the cache.
+         * </p>
+         *
+         * @param responseCache the cache
+         * @return this builder
+         */
+        public Builder responseCache(ResponseCache responseCache) {
+            if (responseCache == null) {
+                logger.error("response cache must not be null");
+                throw new IllegalArgumentException("response cache must not be null");
+            }
+            this.responseCache = responseCache;
+            this.modelDescription = null;
+            return this;
+        }
+
+        /**
+         * Sets a persistent cache for the responses of the chat model, see {@link #responseCache(ResponseCache)}.
+         *
+         * <p>
+         * The given model description is added to the description derived from the chat model, e.g., to distinguish models with the same name that are
+         * served by different providers.
+         * </p>
+         *
+         * @param responseCache    the cache
+         * @param modelDescription an additional description of the configured chat model, e.g., as provided by
+         *                         {@link ChatModelFactory#getModelDescription()}
+         * @return this builder
+         */
+        public Builder responseCache(ResponseCache responseCache, String modelDescription) {
+            if (responseCache == null) {
+                logger.error("response cache must not be null");
+                throw new IllegalArgumentException("response cache must not be null");
+            }
+            if (modelDescription == null || modelDescription.isBlank()) {
+                logger.error("model description must not be null or blank");
+                throw new IllegalArgumentException("model description must not be null or blank");
+            }
+            this.responseCache = responseCache;
+            this.modelDescription = modelDescription;
+            return this;
+        }
+
+        /**
+         * Enables an in-memory cache for recognition results.
+         *
+         * <p>
+         * Results are cached by the prompt and the content of the SAD. Concurrent recognitions of the same SAD share one call to the chat model. Each caller
+         * receives its own set of the cached named entities; the entities themselves are frozen and shared.
+         * </p>
+         *
+         * @param timeToLive the duration after which a cached result expires; must be positive
+         * @param maxEntries the maximum number of cached results; if exceeded, the least recently used result is evicted; must be at least 1
+         * @return this builder
+         */
+        public Builder resultCache(Duration timeToLive, int maxEntries) {
+            if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+                logger.error("time to live must be positive");
+                throw new IllegalArgumentException("time to live must be positive");
+            }
+            if (maxEntries < 1) {
+                logger.error("max entries must be >= 1");
+                throw new IllegalArgumentException("max entries must be >= 1");
+            }
+            this.resultCacheTimeToLive = timeToLive;
+            this.resultCacheMaxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Retries the failed calls of the chat model (the prompt calls as well as the repair calls) according to the given policy.
+         *
+         * <p>
+         * Chat models built by {@link ChatModelFactory} already retry their calls (see {@link ChatModelFactory#retryPolicy(RetryPolicy)}), so this is only
+         * needed for other chat models.
+         * </p>
+         *
+         * @param retryPolicy the retry policy
+         * @return this builder
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            if (retryPolicy == null) {
+                logger.error("retry policy must not be null");
+                throw new IllegalArgumentException("retry policy must not be null");
+            }
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
         /**
          * Builds the {@link NamedEntityRecognizer} with the configured settings.
          *
@@ -1,17 +1,31 @@
 /* Licensed under MIT 2025. */
 package edu.kit.kastel.mcse.ardoco.naer.recognizer;
 
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
 import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.IncrementalNamedEntityParser;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.LenientParseResult;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityJsonSchema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Abstract base class representing a prompt for named entity recognition.
@@ -45,6 +59,15 @@ public abstract class Prompt {
         return text;
     }
 
+    /**
+     * Gets the complete text that this prompt sends to the chat model (apart from the SAD), e.g., to identify the prompt in a cache.
+     *
+     * @return the complete text of the prompt
+     */
+    public String getFullText() {
+        return text;
+    }
+
     /**
      * Appends a list of possible named entities that could be mentioned in the SAD, grouped by their types, to the existing prompt.
      *
@@ -93,6 +116,60 @@ public abstract class Prompt {
      */
     public abstract String process(ChatModel chatModel, SoftwareArchitectureDocumentation sad);
 
+    /**
+     * Processes the prompt using the given streaming chat model and SAD.
+     * <p>
+     * By default, the prompt is processed with {@link #process(ChatModel, SoftwareArchitectureDocumentation)} in a virtual thread, and the complete answer
+     * is passed to the consumer as a single piece. Subclasses can override this method to pass the answer on while it is generated.
+     * </p>
+     *
+     * @param streamingChatModel    the streaming chat model to use
+     * @param sad                   the software architecture documentation to be analyzed
+     * @param partialAnswerConsumer receives the pieces of the (final) answer while it is generated
+     * @return a future that completes with the complete response from the chat model
+     */
+    public CompletableFuture<String> processStreaming(StreamingChatModel streamingChatModel, SoftwareArchitectureDocumentation sad,
+            Consumer<String> partialAnswerConsumer) {
+        ChatModel blockingChatModel = new BlockingChatModel(streamingChatModel);
+        return CompletableFuture.supplyAsync(() -> process(blockingChatModel, sad), runnable -> Thread.ofVirtual().start(runnable)).thenApply(answer -> {
+            partialAnswerConsumer.accept(answer);
+            return answer;
+        });
+    }
+
+    /**
+     * Creates a parser that parses the answer of this prompt piece by piece while it is streamed.
+     * <p>
+     * By default, the parser collects the pieces and parses the complete answer with {@link #parseAnswer(String, SoftwareArchitectureDocumentation)} when it
+     * is finished. If the answer cannot be parsed, no entities are emitted. Subclasses can override this method to emit the entities while the answer is
+     * streamed.
+     * </p>
+     *
+     * @param sad            the software architecture documentation
+     * @param entityConsumer receives each named entity as soon as it has been parsed
+     * @return a new incremental parser for the output format of this prompt
+     */
+    public IncrementalNamedEntityParser createIncrementalParser(SoftwareArchitectureDocumentation sad, Consumer<NamedEntity> entityConsumer) {
+        StringBuilder answer = new StringBuilder();
+        return new IncrementalNamedEntityParser() {
+            @Override
+            public void accept(CharSequence chunk) {
+                answer.append(chunk);
+            }
+
+            @Override
+            public void finish() {
+                try {
+                    for (NamedEntity entity : parseAnswer(answer.toString(), sad)) {
+                        entityConsumer.accept(entity);
+                    }
+                } catch (IOException e) {
+                    logger.warn("streamed answer could not be parsed: {}", e.getMessage());
+                }
+            }
+        };
+    }
+
     /**
      * Parses the answer from the chat model into a set of named entities.
      *
@@ -103,10 +180,141 @@ public abstract class Prompt {
      */
     public abstract Set<NamedEntity> parseAnswer(String answer, SoftwareArchitectureDocumentation sad) throws IOException;
 
+    /**
+     * Tries to repair an answer that could not be parsed locally, i.e., without calling the chat model again.
+     * <p>By default, no local repair is supported.</p>
+     *
+     * @param answer the answer from the chat model
+     * @return the repaired answer, or an empty optional if the answer cannot be repaired locally
+     */
+    public Optional<String> repairAnswerLocally(String answer) {
+        return Optional.empty();
+    }
+
+    /**
+     * Parses the answer from the chat model leniently, i.e., keeps all valid entries and collects the invalid lines, so that only these lines have to be
+     * repaired by the chat model.
+     * <p>By default, lenient parsing is not supported.</p>
+     *
+     * @param answer the answer from the chat model
+     * @param sad    the software architecture documentation
+     * @return the result of the lenient parsing, or an empty optional if the answer cannot be parsed leniently
+     */
+    public Optional<LenientParseResult> parseAnswerLeniently(String answer, SoftwareArchitectureDocumentation sad) {
+        return Optional.empty();
+    }
+
     /**
      * Returns the expected output format of the prompt.
      *
      * @return a string describing the expected format of the output
      */
     public abstract String getExpectedOutputFormat();
+
+    /**
+     * Creates a request whose answer is a JSON array of named entities.
+     * <p>
+     * If the chat model supports structured outputs (see {@link edu.kit.kastel.mcse.ardoco.naer.util.ChatModelFactory#structuredOutput(boolean)}), the
+     * answer is forced to adhere to the {@link NamedEntityJsonSchema}. The schema wraps the array in an object, which is transparent to the parsing of the
+     * answer.
+     * </p>
+     *
+     * @param supportedCapabilities the capabilities of the chat model that the request is sent to
+     * @param messages              the messages of the request
+     * @return the request
+     */
+    protected static ChatRequest createJsonRequest(Set<Capability> supportedCapabilities, ChatMessage... messages) {
+        return createJsonRequest(supportedCapabilities, NamedEntityJsonSchema.getResponseFormat(), messages);
+    }
+
+    /**
+     * Creates a request whose answer is JSON that is forced to adhere to the given response format if the chat model supports structured outputs.
+     *
+     * @param supportedCapabilities the capabilities of the chat model that the request is sent to
+     * @param responseFormat        the response format that contains the JSON schema
+     * @param messages              the messages of the request
+     * @return the request
+     */
+    protected static ChatRequest createJsonRequest(Set<Capability> supportedCapabilities, ResponseFormat responseFormat, ChatMessage... messages) {
+        ChatRequest.Builder builder = ChatRequest.builder().messages(messages);
+        if (supportedCapabilities.contains(Capability.RESPONSE_FORMAT_JSON_SCHEMA)) {
+            builder.responseFormat(responseFormat);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Sends the request to the streaming chat model.
+     *
+     * @param streamingChatModel    the streaming chat model to use
+     * @param chatRequest           the request to send
+     * @param partialAnswerConsumer receives the pieces of the answer while it is generated
+     * @return a future that completes with the complete answer
+     */
+    protected static CompletableFuture<String> streamChat(StreamingChatModel streamingChatModel, ChatRequest chatRequest,
+            Consumer<String> partialAnswerConsumer) {
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        streamingChatModel.chat(chatRequest, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                partialAnswerConsumer.accept(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                answer.complete(completeResponse.aiMessage().text());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                answer.completeExceptionally(error);
+            }
+        });
+        return answer;
+    }
+
+    /**
+     * A {@link ChatModel} that sends each request to a streaming chat model and waits for the complete answer.
+     */
+    private static final class BlockingChatModel implements ChatModel {
+        private final StreamingChatModel streamingChatModel;
+
+        private BlockingChatModel(StreamingChatModel streamingChatModel) {
+            this.streamingChatModel = streamingChatModel;
+        }
+
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            CompletableFuture<ChatResponse> response = new CompletableFuture<>();
+            streamingChatModel.chat(chatRequest, new StreamingChatResponseHandler() {
+                @Override
+                public void onPartialResponse(String partialResponse) {
+                    // only the complete answer is used
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse completeResponse) {
+                    response.complete(completeResponse);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    response.completeExceptionally(error);
+                }
+            });
+            try {
+                return response.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public Set<Capability> supportedCapabilities() {
+            return streamingChatModel.supportedCapabilities();
+        }
+    }
 }
@@ -0,0 +1,35 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.recognizer;
+
+import java.util.Set;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+/**
+ * The outcome of recognizing the named entities of a single {@link SoftwareArchitectureDocumentation} as part of a batch.
+ * <p>Exactly one of {@link #namedEntities()} and {@link #failure()} is non-null.</p>
+ *
+ * @param softwareArchitectureDocumentation the SAD that was processed
+ * @param namedEntities                     the recognized named entities, or {@code null} if the recognition failed
+ * @param failure                           the exception that caused the recognition to fail, or {@code null} if it succeeded
+ */
+public record RecognitionResult(SoftwareArchitectureDocumentation softwareArchitectureDocumentation, Set<NamedEntity> namedEntities, Exception failure) {
+
+    static RecognitionResult success(SoftwareArchitectureDocumentation softwareArchitectureDocumentation, Set<NamedEntity> namedEntities) {
+        return new RecognitionResult(softwareArchitectureDocumentation, namedEntities, null);
+    }
+
+    static RecognitionResult failure(SoftwareArchitectureDocumentation softwareArchitectureDocumentation, Exception failure) {
+        return new RecognitionResult(softwareArchitectureDocumentation, null, failure);
+    }
+
+    /**
+     * Checks whether the recognition of the SAD succeeded.
+     *
+     * @return {@code true} iff the named entities have been recognized without an error
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
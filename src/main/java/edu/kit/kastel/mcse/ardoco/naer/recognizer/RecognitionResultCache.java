@@ -0,0 +1,138 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.recognizer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+
+/**
+ * A bounded in-memory cache of recognition results with a time-to-live and least-recently-used eviction.
+ * <p>
+ * Concurrent requests for the same key are coalesced ("single flight"): only the first request starts a recognition, all others wait for its result. The
+ * cached entities are frozen (see {@link NamedEntity#freeze()}), so they are shared between all callers without copying; each caller only receives its own
+ * set.
+ * </p>
+ */
+class RecognitionResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(RecognitionResultCache.class);
+
+    private final long timeToLiveNanos;
+    /**
+     * cached results in access order (guarded by {@code this})
+     */
+    private final Map<String, CachedResult> cachedResults;
+    /**
+     * recognitions that are currently running
+     */
+    private final ConcurrentMap<String, CompletableFuture<Set<NamedEntity>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param timeToLive the duration after which a cached result expires
+     * @param maxEntries the maximum number of cached results
+     */
+    RecognitionResultCache(Duration timeToLive, int maxEntries) {
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.cachedResults = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Retrieves the result for the given key. If it is neither cached nor currently being recognized, the given recognition is started.
+     *
+     * @param key         the key identifying the recognition (prompt and SAD)
+     * @param recognition starts the recognition if needed
+     * @return a future that completes with a private set of the (frozen) entities of the result
+     */
+    CompletableFuture<Set<NamedEntity>> get(String key, Supplier<CompletableFuture<Set<NamedEntity>>> recognition) {
+        Set<NamedEntity> cachedEntities = getCached(key);
+        if (cachedEntities != null) {
+            logger.info("using cached recognition result");
+            return CompletableFuture.completedFuture(new LinkedHashSet<>(cachedEntities));
+        }
+
+        CompletableFuture<Set<NamedEntity>> flight = new CompletableFuture<>();
+        CompletableFuture<Set<NamedEntity>> existingFlight = inFlight.putIfAbsent(key, flight);
+        if (existingFlight != null) {
+            logger.info("waiting for identical recognition that is already in flight");
+            return existingFlight.thenApply(LinkedHashSet::new);
+        }
+        // a flight for the key may have completed between the cache lookup and the registration of this flight
+        cachedEntities = getCached(key);
+        if (cachedEntities != null) {
+            inFlight.remove(key, flight);
+            flight.complete(cachedEntities);
+            logger.info("using cached recognition result");
+            return CompletableFuture.completedFuture(new LinkedHashSet<>(cachedEntities));
+        }
+
+        CompletableFuture<Set<NamedEntity>> recognitionResult;
+        try {
+            recognitionResult = recognition.get();
+        } catch (RuntimeException e) {
+            recognitionResult = CompletableFuture.failedFuture(e);
+        }
+        recognitionResult.whenComplete((entities, throwable) -> {
+            Set<NamedEntity> frozenEntities = throwable == null ? freeze(entities) : null;
+            if (frozenEntities != null) {
+                put(key, frozenEntities);
+            }
+            // the result is cached before the flight is removed, so that a request that misses the cache and then registers its own flight finds the
+            // result when it checks the cache again
+            inFlight.remove(key, flight);
+            if (frozenEntities != null) {
+                flight.complete(frozenEntities);
+            } else {
+                flight.completeExceptionally(throwable);
+            }
+        });
+        return flight.thenApply(LinkedHashSet::new);
+    }
+
+    private synchronized Set<NamedEntity> getCached(String key) {
+        CachedResult cachedResult = cachedResults.get(key);
+        if (cachedResult == null) {
+            return null;
+        }
+        if (System.nanoTime() - cachedResult.cachedAtNanos() > timeToLiveNanos) {
+            cachedResults.remove(key);
+            return null;
+        }
+        return cachedResult.entities();
+    }
+
+    private synchronized void put(String key, Set<NamedEntity> entities) {
+        cachedResults.put(key, new CachedResult(entities, System.nanoTime()));
+    }
+
+    /**
+     * @return an unmodifiable set of the given entities, where entities that are not frozen yet are replaced by frozen copies
+     */
+    private static Set<NamedEntity> freeze(Set<NamedEntity> entities) {
+        Set<NamedEntity> frozenEntities = new LinkedHashSet<>();
+        for (NamedEntity entity : entities) {
+            frozenEntities.add(entity.isFrozen() ? entity : entity.copy().freeze());
+        }
+        return Collections.unmodifiableSet(frozenEntities);
+    }
+
+    private record CachedResult(Set<NamedEntity> entities, long cachedAtNanos) {
+    }
+}
@@ -0,0 +1,76 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.recognizer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how the answers of the chat model have been turned into named entities by a {@link NamedEntityRecognizer}.
+ * <p>The counters are updated concurrently and can be read at any time.</p>
+ */
+public class RepairStatistics {
+    private final AtomicLong parsedDirectly = new AtomicLong();
+    private final AtomicLong repairedLocally = new AtomicLong();
+    private final AtomicLong repairedPartially = new AtomicLong();
+    private final AtomicLong repairedByLlm = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    void recordParsedDirectly() {
+        parsedDirectly.incrementAndGet();
+    }
+
+    void recordRepairedLocally() {
+        repairedLocally.incrementAndGet();
+    }
+
+    void recordRepairedPartially() {
+        repairedPartially.incrementAndGet();
+    }
+
+    void recordRepairedByLlm() {
+        repairedByLlm.incrementAndGet();
+    }
+
+    void recordFailed() {
+        failed.incrementAndGet();
+    }
+
+    /**
+     * @return the number of answers that could be parsed without any repair
+     */
+    public long getParsedDirectly() {
+        return parsedDirectly.get();
+    }
+
+    /**
+     * @return the number of answers that could be parsed after a local (deterministic) repair
+     */
+    public long getRepairedLocally() {
+        return repairedLocally.get();
+    }
+
+    /**
+     * @return the number of answers that could be parsed after the chat model reformatted only their invalid lines
+     */
+    public long getRepairedPartially() {
+        return repairedPartially.get();
+    }
+
+    /**
+     * @return the number of answers that could be parsed after the chat model reformatted them
+     */
+    public long getRepairedByLlm() {
+        return repairedByLlm.get();
+    }
+
+    /**
+     * @return the number of answers that could not be parsed at all
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RepairStatistics{" + "parsedDirectly=" + parsedDirectly + ", repairedLocally=" + repairedLocally + ", repairedPartially=" + repairedPartially + ", repairedByLlm=" + repairedByLlm + ", failed=" + failed + '}';
+    }
+}
@@ -2,17 +2,23 @@
 package edu.kit.kastel.mcse.ardoco.naer.recognizer;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
 import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.IncrementalNamedEntityParser;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.LenientParseResult;
 import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityParser;
 
 /**
@@ -102,18 +108,49 @@ public class StructuredTextOutputPrompt extends Prompt {
         return chatResponse.aiMessage().text();
     }
 
+    @Override
+    public CompletableFuture<String> processStreaming(StreamingChatModel streamingChatModel, SoftwareArchitectureDocumentation sad,
+            Consumer<String> partialAnswerConsumer) {
+        UserMessage userMessage = new UserMessage(this.text + "\nText:\n" + sad.getText());
+        ChatRequest chatRequest = ChatRequest.builder().messages(systemMessage, userMessage).build();
+        return streamChat(streamingChatModel, chatRequest, partialAnswerConsumer);
+    }
+
+    @Override
+    public IncrementalNamedEntityParser createIncrementalParser(SoftwareArchitectureDocumentation sad, Consumer<NamedEntity> entityConsumer) {
+        return NamedEntityParser.incrementalStructuredTextParser(sad, entityConsumer);
+    }
+
     @Override
     public Set<NamedEntity> parseAnswer(String answer, SoftwareArchitectureDocumentation sad) throws IOException {
+        String output = extractOutput(answer);
+        if (output == null) {
+            logger.warn("No valid structured text output found. Output must begin with 'BEGIN-OUTPUT' and end with 'END-OUTPUT'.");
+            throw new IOException("No valid structured text output found. Output must begin with 'BEGIN-OUTPUT' and end with 'END-OUTPUT'.");
+        }
+        return NamedEntityParser.fromString(output, sad);
+    }
+
+    @Override
+    public Optional<LenientParseResult> parseAnswerLeniently(String answer, SoftwareArchitectureDocumentation sad) {
+        String output = extractOutput(answer);
+        if (output == null) {
+            return Optional.empty();
+        }
+        return Optional.of(NamedEntityParser.fromStringLeniently(output, sad));
+    }
+
+    /**
+     * @return the text between 'BEGIN-OUTPUT' and 'END-OUTPUT', or {@code null} if the answer does not contain these markers
+     */
+    private static String extractOutput(String answer) {
         int start = answer.indexOf("BEGIN-OUTPUT");
         int end = answer.lastIndexOf("END-OUTPUT");
         if (start != -1 && end != -1 && end > start) {
             start += "BEGIN-OUTPUT".length();
-            answer = answer.substring(start, end);
-        } else {
-            logger.warn("No valid structured text output found. Output must begin with 'BEGIN-OUTPUT' and end with 'END-OUTPUT'.");
-            throw new IOException("No valid structured text output found. Output must begin with 'BEGIN-OUTPUT' and end with 'END-OUTPUT'.");
+            return answer.substring(start, end);
         }
-        return NamedEntityParser.fromString(answer, sad);
+        return null;
     }
 
     @Override
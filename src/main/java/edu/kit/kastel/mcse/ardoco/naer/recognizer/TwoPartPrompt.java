@@ -2,17 +2,23 @@
 package edu.kit.kastel.mcse.ardoco.naer.recognizer;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
 import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.IncrementalNamedEntityParser;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.JsonRepair;
 import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityParser;
 
 /**
@@ -84,6 +90,11 @@ public class TwoPartPrompt extends Prompt {
         return secondText;
     }
 
+    @Override
+    public String getFullText() {
+        return text + "\n" + secondText;
+    }
+
     @Override
     public String getExpectedOutputFormat() {
         return """
@@ -125,11 +136,32 @@ public class TwoPartPrompt extends Prompt {
 
         logger.info("send prompt two to transform answer to structured JSON array...");
         UserMessage userMessage2 = new UserMessage(secondText + "\nLast answer:\n" + part1Answer);
-        ChatRequest chatRequest2 = ChatRequest.builder().messages(systemMessage, userMessage2).build();
+        ChatRequest chatRequest2 = createJsonRequest(chatModel.supportedCapabilities(), systemMessage, userMessage2);
         ChatResponse chatResponse2 = chatModel.chat(chatRequest2);
         return chatResponse2.aiMessage().text();
     }
 
+    @Override
+    public CompletableFuture<String> processStreaming(StreamingChatModel streamingChatModel, SoftwareArchitectureDocumentation sad,
+            Consumer<String> partialAnswerConsumer) {
+        logger.info("send prompt one to get components unstructured...");
+        UserMessage userMessage1 = new UserMessage(this.text + "\nText:\n" + sad.getText());
+        ChatRequest chatRequest1 = ChatRequest.builder().messages(systemMessage, userMessage1).build();
+        return streamChat(streamingChatModel, chatRequest1, partialAnswer -> {
+            // only the structured answer of the second prompt is of interest
+        }).thenCompose(part1Answer -> {
+            logger.info("send prompt two to transform answer to structured JSON array...");
+            UserMessage userMessage2 = new UserMessage(secondText + "\nLast answer:\n" + part1Answer);
+            ChatRequest chatRequest2 = createJsonRequest(streamingChatModel.supportedCapabilities(), systemMessage, userMessage2);
+            return streamChat(streamingChatModel, chatRequest2, partialAnswerConsumer);
+        });
+    }
+
+    @Override
+    public IncrementalNamedEntityParser createIncrementalParser(SoftwareArchitectureDocumentation sad, Consumer<NamedEntity> entityConsumer) {
+        return NamedEntityParser.incrementalJsonParser(sad, entityConsumer);
+    }
+
     @Override
     public Set<NamedEntity> parseAnswer(String answer, SoftwareArchitectureDocumentation sad) throws IOException {
         int start = answer.indexOf('[');
@@ -143,6 +175,11 @@ public class TwoPartPrompt extends Prompt {
         return NamedEntityParser.fromJson(answer, sad);
     }
 
+    @Override
+    public Optional<String> repairAnswerLocally(String answer) {
+        return JsonRepair.repair(answer);
+    }
+
     @Override
     public String toString() {
         return "TwoPartPrompt{" + "first=\n'" + text + "'" + "\n, second=\n'" + secondText + "'}";
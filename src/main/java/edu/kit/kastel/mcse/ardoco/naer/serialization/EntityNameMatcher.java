@@ -0,0 +1,232 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+
+/**
+ * An Aho-Corasick automaton over the (lowercase) names and alternative names of a list of entities, used to find all entities that are mentioned in a line
+ * with a single scan of the line.
+ * <p>
+ * An entity is mentioned in a line if the line contains its name or one of its alternative names (case-insensitive), i.e., the result is the same as calling
+ * {@link String#contains(CharSequence)} for each name.
+ * </p>
+ * <p>
+ * The automaton is a complete DFA (the failure links are resolved when it is built), so each character of a line costs exactly one table lookup. To keep the
+ * table small, the characters are mapped to an alphabet that only consists of the characters of the names; all other characters share one symbol.
+ * </p>
+ */
+final class EntityNameMatcher {
+    private static final int ROOT = 0;
+    private static final int[] NO_ENTITIES = new int[0];
+    /**
+     * the symbol of all characters that do not occur in any name
+     */
+    private static final int OTHER_SYMBOL = 0;
+    private static final int ASCII_LIMIT = 128;
+    private static final int INITIAL_STATE_CAPACITY = 64;
+
+    /**
+     * the symbols of the ASCII characters
+     */
+    private final int[] asciiSymbols = new int[ASCII_LIMIT];
+    /**
+     * the sorted non-ASCII characters that occur in the names; the symbol of the character at index {@code i} is {@code nonAsciiSymbolOffset + i}
+     */
+    private final char[] nonAsciiCharacters;
+    private final int nonAsciiSymbolOffset;
+    private final int alphabetSize;
+    /**
+     * the transitions of the DFA: {@code transitions[state * alphabetSize + symbol]} is the next state
+     */
+    private int[] transitions;
+    /**
+     * the (sorted) indices of the entities with a name that is a suffix of the text read when reaching each state
+     */
+    private int[][] matchedEntities;
+    private int stateCount = 1;
+    /**
+     * entities with an empty (alternative) name, which are mentioned in every line
+     */
+    private final BitSet alwaysMentionedEntities = new BitSet();
+
+    /**
+     * Builds the automaton over the names and alternative names of the given entities.
+     *
+     * @param entities the entities; the indices of this list identify the entities in the results of {@link #findMentionedEntities(String)}
+     */
+    EntityNameMatcher(List<NamedEntity.Builder> entities) {
+        List<String> names = new ArrayList<>();
+        List<Integer> nameOwners = new ArrayList<>();
+        for (int entityIndex = 0; entityIndex < entities.size(); entityIndex++) {
+            NamedEntity.Builder entity = entities.get(entityIndex);
+            addName(entity.getName(), entityIndex, names, nameOwners);
+            for (String alternativeName : entity.getAlternativeNames()) {
+                addName(alternativeName, entityIndex, names, nameOwners);
+            }
+        }
+
+        // map the characters of the names to symbols 1..n (in ascending order of the characters)
+        BitSet characters = new BitSet();
+        for (String name : names) {
+            for (int i = 0; i < name.length(); i++) {
+                characters.set(name.charAt(i));
+            }
+        }
+        int symbol = OTHER_SYMBOL + 1;
+        for (int c = characters.nextSetBit(0); c >= 0 && c < ASCII_LIMIT; c = characters.nextSetBit(c + 1)) {
+            asciiSymbols[c] = symbol++;
+        }
+        this.nonAsciiSymbolOffset = symbol;
+        this.nonAsciiCharacters = new char[characters.cardinality() - (symbol - 1)];
+        int i = 0;
+        for (int c = characters.nextSetBit(ASCII_LIMIT); c >= 0; c = characters.nextSetBit(c + 1)) {
+            nonAsciiCharacters[i++] = (char) c;
+        }
+        this.alphabetSize = nonAsciiSymbolOffset + nonAsciiCharacters.length;
+
+        this.transitions = new int[INITIAL_STATE_CAPACITY * alphabetSize];
+        this.matchedEntities = new int[INITIAL_STATE_CAPACITY][];
+        matchedEntities[ROOT] = NO_ENTITIES;
+        for (i = 0; i < names.size(); i++) {
+            insert(names.get(i), nameOwners.get(i));
+        }
+        resolveFailureLinks();
+    }
+
+    /**
+     * Finds all entities that are mentioned in the given line.
+     *
+     * @param lowerCaseLine the lowercase form of the line
+     * @return the indices of the mentioned entities
+     */
+    BitSet findMentionedEntities(String lowerCaseLine) {
+        BitSet mentionedEntities = (BitSet) alwaysMentionedEntities.clone();
+        int state = ROOT;
+        for (int i = 0; i < lowerCaseLine.length(); i++) {
+            state = transitions[state * alphabetSize + symbolOf(lowerCaseLine.charAt(i))];
+            for (int entityIndex : matchedEntities[state]) {
+                mentionedEntities.set(entityIndex);
+            }
+        }
+        return mentionedEntities;
+    }
+
+    private void addName(String name, int entityIndex, List<String> names, List<Integer> nameOwners) {
+        if (name == null) {
+            return;
+        }
+        String lowerCaseName = name.toLowerCase();
+        if (lowerCaseName.isEmpty()) {
+            alwaysMentionedEntities.set(entityIndex);
+            return;
+        }
+        names.add(lowerCaseName);
+        nameOwners.add(entityIndex);
+    }
+
+    private int symbolOf(char c) {
+        if (c < ASCII_LIMIT) {
+            return asciiSymbols[c];
+        }
+        int i = Arrays.binarySearch(nonAsciiCharacters, c);
+        return i < 0 ? OTHER_SYMBOL : nonAsciiSymbolOffset + i;
+    }
+
+    /**
+     * Adds the given name to the trie. As the root is never the target of a trie edge, a transition to the root marks a missing edge.
+     */
+    private void insert(String name, int entityIndex) {
+        int state = ROOT;
+        for (int i = 0; i < name.length(); i++) {
+            int transition = state * alphabetSize + symbolOf(name.charAt(i));
+            if (transitions[transition] == ROOT) {
+                int child = newState(); // may reallocate the transitions
+                transitions[transition] = child;
+            }
+            state = transitions[transition];
+        }
+        int[] stateEntities = matchedEntities[state];
+        if (Arrays.binarySearch(stateEntities, entityIndex) < 0) {
+            // entities are inserted in ascending order, so the array stays sorted
+            stateEntities = Arrays.copyOf(stateEntities, stateEntities.length + 1);
+            stateEntities[stateEntities.length - 1] = entityIndex;
+            matchedEntities[state] = stateEntities;
+        }
+    }
+
+    private int newState() {
+        if (stateCount == matchedEntities.length) {
+            matchedEntities = Arrays.copyOf(matchedEntities, stateCount * 2);
+            transitions = Arrays.copyOf(transitions, stateCount * 2 * alphabetSize);
+        }
+        matchedEntities[stateCount] = NO_ENTITIES;
+        return stateCount++;
+    }
+
+    /**
+     * Turns the trie into a complete DFA: in breadth-first order, each missing edge of a state is replaced by the corresponding transition of its failure
+     * state (the state of its longest proper suffix in the trie), and the entities of the failure state are added to the matched entities.
+     */
+    private void resolveFailureLinks() {
+        int[] failureLinks = new int[stateCount];
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int child = transitions[ROOT * alphabetSize + symbol];
+            if (child != ROOT) {
+                failureLinks[child] = ROOT;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            int failure = failureLinks[state];
+            matchedEntities[state] = union(matchedEntities[state], matchedEntities[failure]);
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int transition = state * alphabetSize + symbol;
+                int failureTarget = transitions[failure * alphabetSize + symbol];
+                int child = transitions[transition];
+                if (child == ROOT) {
+                    transitions[transition] = failureTarget;
+                } else {
+                    failureLinks[child] = failureTarget;
+                    queue[tail++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the union of the given sorted arrays (as a sorted array without duplicates)
+     */
+    private static int[] union(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        int[] result = new int[a.length + b.length];
+        int length = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j == b.length || (i < a.length && a[i] <= b[j])) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            if (length == 0 || result[length - 1] != next) {
+                result[length++] = next;
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+}
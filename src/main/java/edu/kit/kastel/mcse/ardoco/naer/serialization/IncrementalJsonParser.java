@@ -0,0 +1,121 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+/**
+ * Incremental parser for the JSON array formats of {@link NamedEntityParser#fromJson(String, SoftwareArchitectureDocumentation)} and
+ * {@link NamedEntityParser#fromJsonWithLineNumbers(String, SoftwareArchitectureDocumentation)}.
+ * <p>Scans the answer character by character and parses each top-level object of the array as soon as its closing brace has been received.</p>
+ */
+class IncrementalJsonParser implements IncrementalNamedEntityParser {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalJsonParser.class);
+
+    private final SoftwareArchitectureDocumentation sad;
+    private final Consumer<NamedEntity> entityConsumer;
+    private final EntityArrayParser entityArrayParser;
+    /**
+     * the characters of the currently parsed top-level object
+     */
+    private final StringBuilder currentObject = new StringBuilder();
+    /**
+     * nesting depth of arrays/objects; the entity array itself has depth 1
+     */
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+    private boolean finished = false;
+
+    IncrementalJsonParser(SoftwareArchitectureDocumentation sad, Consumer<NamedEntity> entityConsumer, EntityArrayParser entityArrayParser) {
+        this.sad = sad;
+        this.entityConsumer = entityConsumer;
+        this.entityArrayParser = entityArrayParser;
+    }
+
+    @Override
+    public void accept(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && !finished; i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    private void accept(char c) {
+        if (depth == 0) {
+            // skip everything (e.g., code fences) before the entity array
+            if (c == '[') {
+                depth = 1;
+            }
+            return;
+        }
+
+        if (depth > 1) {
+            currentObject.append(c);
+        }
+
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+            }
+            return;
+        }
+
+        switch (c) {
+        case '"' -> inString = true;
+        case '{', '[' -> {
+            if (depth == 1) {
+                currentObject.setLength(0);
+                currentObject.append(c);
+            }
+            depth++;
+        }
+        case '}', ']' -> {
+            depth--;
+            if (depth == 1) {
+                emit(currentObject.toString());
+                currentObject.setLength(0);
+            } else if (depth == 0) {
+                finished = true;
+            }
+        }
+        default -> {
+            // other characters are only collected
+        }
+        }
+    }
+
+    private void emit(String object) {
+        try {
+            Set<NamedEntity> entities = entityArrayParser.parse("[" + object + "]", sad);
+            for (NamedEntity entity : entities) {
+                entityConsumer.accept(entity);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("skipping malformed entity in partial answer: {}", object, e);
+        }
+    }
+
+    @Override
+    public void finish() {
+        finished = true;
+    }
+
+    /**
+     * Parses a JSON array of named entities, e.g., {@link NamedEntityParser#fromJson(String, SoftwareArchitectureDocumentation)}.
+     */
+    @FunctionalInterface
+    interface EntityArrayParser {
+        Set<NamedEntity> parse(String json, SoftwareArchitectureDocumentation sad) throws IOException;
+    }
+}
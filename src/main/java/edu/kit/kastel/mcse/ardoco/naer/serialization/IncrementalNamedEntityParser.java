@@ -0,0 +1,25 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+
+/**
+ * A push-style parser that is fed with a chat model answer piece by piece and emits each {@link NamedEntity} as soon as it is complete.
+ * <p>
+ * Instances are created via {@link NamedEntityParser}. Malformed parts of the answer are skipped, so the emitted entities are a best-effort preview; the
+ * complete answer should still be parsed with {@link NamedEntityParser} once it is available.
+ * </p>
+ */
+public interface IncrementalNamedEntityParser {
+    /**
+     * Feeds the next piece of the answer to the parser.
+     *
+     * @param chunk the next piece of the answer
+     */
+    void accept(CharSequence chunk);
+
+    /**
+     * Signals that the answer is complete, so that all pending entities are emitted.
+     */
+    void finish();
+}
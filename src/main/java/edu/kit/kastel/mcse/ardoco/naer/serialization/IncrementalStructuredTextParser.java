@@ -0,0 +1,91 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+/**
+ * Incremental parser for the structured text format of {@link NamedEntityParser#fromString(String, SoftwareArchitectureDocumentation)}.
+ * <p>
+ * The answer is processed line by line with the same {@link NamedEntityParser.StructuredTextState state machine} as the complete answer. As the reference
+ * types of the occurrences depend on the alternative names, an entity is emitted once its alternative names line has been parsed, or when its section ends.
+ * Emitted entities are not merged with later lines anymore: if a name appears again in a later section, a second entity with that name is emitted, whereas
+ * {@link NamedEntityParser#fromString(String, SoftwareArchitectureDocumentation)} adds these occurrences to the first entity.
+ * </p>
+ */
+class IncrementalStructuredTextParser implements IncrementalNamedEntityParser {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalStructuredTextParser.class);
+    private static final String BEGIN_MARKER = "BEGIN-OUTPUT";
+    private static final String END_MARKER = "END-OUTPUT";
+
+    private final NamedEntityParser.StructuredTextState state;
+    /**
+     * the not yet completed line of the answer
+     */
+    private final StringBuilder currentLine = new StringBuilder();
+    private int lineIndex = 0;
+    private boolean started = false;
+    private boolean finished = false;
+
+    IncrementalStructuredTextParser(SoftwareArchitectureDocumentation sad, Consumer<NamedEntity> entityConsumer) {
+        this.state = new NamedEntityParser.StructuredTextState(sad, null, entityConsumer);
+    }
+
+    @Override
+    public void accept(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && !finished; i++) {
+            char c = chunk.charAt(i);
+            if (c == '\n' || c == '\r') {
+                processLine(currentLine.toString());
+                currentLine.setLength(0);
+            } else {
+                currentLine.append(c);
+            }
+        }
+    }
+
+    @Override
+    public void finish() {
+        if (!finished) {
+            processLine(currentLine.toString());
+            currentLine.setLength(0);
+            state.finish();
+            finished = true;
+        }
+    }
+
+    private void processLine(String line) {
+        if (!started) {
+            int begin = line.indexOf(BEGIN_MARKER);
+            if (begin == -1) {
+                return;
+            }
+            started = true;
+            line = line.substring(begin + BEGIN_MARKER.length());
+        }
+
+        int end = line.indexOf(END_MARKER);
+        if (end != -1) {
+            processEntry(line.substring(0, end));
+            state.finish();
+            finished = true;
+            return;
+        }
+        processEntry(line);
+    }
+
+    private void processEntry(String line) {
+        try {
+            state.processLine(line, 0, line.length(), lineIndex++);
+        } catch (IOException e) {
+            // the state skips the line (or the section of an unknown entity type), so parsing continues with the next line
+            logger.debug("skipping malformed line in partial answer: '{}'", line.trim());
+        }
+    }
+}
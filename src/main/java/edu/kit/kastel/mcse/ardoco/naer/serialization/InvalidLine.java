@@ -0,0 +1,14 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+/**
+ * A line of a structured text answer that could not be parsed (see {@link NamedEntityParser#fromStringLeniently}).
+ *
+ * @param index          the index of the line within the parsed text (starting at 0)
+ * @param line           the (trimmed) content of the line
+ * @param section        the header of the section that contains the line (e.g., "COMPONENT entities recognized:"), or {@code null} if there is none
+ * @param expectedFormat the format that the line should adhere to
+ * @param error          the reason why the line could not be parsed
+ */
+public record InvalidLine(int index, String line, String section, String expectedFormat, String error) {
+}
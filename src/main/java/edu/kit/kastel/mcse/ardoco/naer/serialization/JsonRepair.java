@@ -0,0 +1,188 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility class for the deterministic, local repair of malformed JSON arrays in chat model answers.
+ * <p>
+ * The following mechanical defects are fixed:
+ * <ul>
+ * <li>Markdown code fences around the JSON</li>
+ * <li>trailing commas before a closing bracket or brace</li>
+ * <li>unquoted object keys</li>
+ * <li>single-quoted strings</li>
+ * <li>a truncated answer (the incomplete last element is dropped and the array is closed; an answer that is truncated before its first complete element
+ * cannot be repaired)</li>
+ * </ul>
+ */
+public final class JsonRepair {
+    private static final Logger logger = LoggerFactory.getLogger(JsonRepair.class);
+
+    private JsonRepair() {
+        // utility class -> prevent instantiation
+    }
+
+    /**
+     * Repairs the first JSON array in the given answer.
+     *
+     * @param answer the answer of the chat model
+     * @return the repaired JSON array, or an empty optional if the answer contains no JSON array at all or is truncated before the first complete element
+     *         of the array
+     */
+    public static Optional<String> repair(String answer) {
+        if (answer == null) {
+            return Optional.empty();
+        }
+        String text = stripCodeFences(answer);
+        int start = text.indexOf('[');
+        if (start == -1) {
+            return Optional.empty();
+        }
+
+        StringBuilder output = new StringBuilder(text.length() - start + 2);
+        Deque<Character> openContainers = new ArrayDeque<>();
+        boolean expectingKey = false;
+        int lastCompleteElementEnd = -1;
+
+        int i = start;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\'') {
+                int end = copyString(text, i, output);
+                if (end == -1) {
+                    break; // truncated inside a string
+                }
+                i = end;
+                expectingKey = false;
+                if (openContainers.size() == 1) {
+                    lastCompleteElementEnd = output.length();
+                }
+                continue;
+            }
+
+            if (expectingKey && isIdentifierStart(c)) {
+                int end = i;
+                while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+                    end++;
+                }
+                output.append('"').append(text, i, end).append('"');
+                i = end;
+                expectingKey = false;
+                continue;
+            }
+
+            switch (c) {
+            case '{', '[' -> {
+                openContainers.push(c);
+                output.append(c);
+                expectingKey = c == '{';
+            }
+            case '}', ']' -> {
+                removeTrailingComma(output);
+                if (openContainers.isEmpty()) {
+                    break;
+                }
+                char opening = openContainers.pop();
+                output.append(opening == '{' ? '}' : ']');
+                if (openContainers.size() == 1) {
+                    lastCompleteElementEnd = output.length();
+                }
+                expectingKey = false;
+            }
+            case ',' -> {
+                if (openContainers.size() == 1) {
+                    lastCompleteElementEnd = output.length();
+                }
+                output.append(c);
+                expectingKey = !openContainers.isEmpty() && openContainers.peek() == '{';
+            }
+            default -> output.append(c);
+            }
+            i++;
+
+            if (openContainers.isEmpty()) {
+                return Optional.of(output.toString());
+            }
+        }
+
+        if (lastCompleteElementEnd == -1) {
+            // closing the array would turn the truncated answer into an empty (and seemingly valid) result
+            logger.debug("JSON answer is truncated before its first complete element");
+            return Optional.empty();
+        }
+        logger.debug("JSON answer is truncated, dropping the incomplete last element");
+        output.setLength(lastCompleteElementEnd);
+        removeTrailingComma(output);
+        output.append(']');
+        return Optional.of(output.toString());
+    }
+
+    private static String stripCodeFences(String answer) {
+        return answer.lines().filter(line -> !line.strip().startsWith("```")).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Copies the (double- or single-quoted) string starting at {@code start} to the output as a double-quoted JSON string.
+     * A single quote only terminates a single-quoted string if it is followed by a structural character, so that apostrophes within the string are kept.
+     *
+     * @return the index after the closing quote, or {@code -1} if the string is not terminated
+     */
+    private static int copyString(String text, int start, StringBuilder output) {
+        char quote = text.charAt(start);
+        output.append('"');
+        int i = start + 1;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char escaped = text.charAt(i + 1);
+                if (escaped == '\'') {
+                    output.append('\'');
+                } else {
+                    output.append(c).append(escaped);
+                }
+                i += 2;
+            } else if (c == quote && (quote == '"' || isFollowedByStructuralCharacter(text, i + 1))) {
+                output.append('"');
+                return i + 1;
+            } else {
+                if (c == '"') {
+                    output.append('\\');
+                }
+                output.append(c);
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isFollowedByStructuralCharacter(String text, int index) {
+        for (int i = index; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == ',' || c == ':' || c == ']' || c == '}';
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == '$';
+    }
+
+    private static void removeTrailingComma(StringBuilder output) {
+        int i = output.length() - 1;
+        while (i >= 0 && Character.isWhitespace(output.charAt(i))) {
+            i--;
+        }
+        if (i >= 0 && output.charAt(i) == ',') {
+            output.deleteCharAt(i);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+/**
+ * The result of leniently parsing a structured text answer (see {@link NamedEntityParser#fromStringLeniently}).
+ *
+ * @param entities     the entities parsed from the valid lines
+ * @param lines        the (trimmed) lines of the parsed text
+ * @param invalidLines the lines that could not be parsed
+ */
+public record LenientParseResult(Set<NamedEntity> entities, List<String> lines, List<InvalidLine> invalidLines) {
+
+    /**
+     * Replaces invalid lines with their repaired versions and parses the resulting text again.
+     *
+     * @param repairedLines                     the repaired lines by the {@link InvalidLine#index() index} of the invalid line they replace; invalid lines
+     *                                          without a repaired version are kept
+     * @param softwareArchitectureDocumentation the software architecture documentation associated with the named entities
+     * @return the result of parsing the repaired text
+     */
+    public LenientParseResult withRepairedLines(Map<Integer, String> repairedLines, SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        List<String> repairedText = new ArrayList<>(lines);
+        for (InvalidLine invalidLine : invalidLines) {
+            String repairedLine = repairedLines.get(invalidLine.index());
+            if (repairedLine != null) {
+                repairedText.set(invalidLine.index(), repairedLine.trim());
+            }
+        }
+        return NamedEntityParser.parseLeniently(List.copyOf(repairedText), softwareArchitectureDocumentation);
+    }
+}
@@ -0,0 +1,478 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+/**
+ * A compact, versioned binary format for storing many recognition results (sets of {@link NamedEntity} instances) in one stream.
+ * <p>
+ * A stream starts with the magic bytes {@code NAER} and the format version, followed by any number of results. Each result refers to its SAD by the
+ * content hash (see {@link SoftwareArchitectureDocumentation#getContentHash()}) instead of containing the text. All strings (names, alternative names, and
+ * the names of the types) are stored once per stream in a string table that grows with each result, so names that occur in many results (e.g., in the
+ * results of several versions of a SAD) are only stored once. Numbers are stored as variable-length integers (7 bits per byte), and the occurrence lines of
+ * each reference type are stored as ascending differences.
+ * </p>
+ * <p>
+ * Results are written and read one after another (see {@link #newWriter(OutputStream)} and {@link #newReader(InputStream)}), so a stream never has to be
+ * held in memory as a whole.
+ * </p>
+ */
+public final class NamedEntityBinaryCodec {
+    static final int VERSION = 1;
+    private static final byte[] MAGIC = { 'N', 'A', 'E', 'R' };
+    /**
+     * precedes each result, so that trailing garbage is detected
+     */
+    private static final int RESULT_MARKER = 0x52;
+    /**
+     * string references are shifted by one, so that {@code 0} encodes {@code null}
+     */
+    private static final int NULL_REFERENCE = 0;
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Logger logger = LoggerFactory.getLogger(NamedEntityBinaryCodec.class);
+
+    private NamedEntityBinaryCodec() {
+        // utility class -> prevent instantiation
+    }
+
+    /**
+     * Creates a writer that writes the header of the format to the given stream.
+     *
+     * @param outputStream the stream; it is closed when the writer is closed
+     * @return the writer
+     * @throws IOException if the header cannot be written
+     */
+    public static Writer newWriter(OutputStream outputStream) throws IOException {
+        if (outputStream == null) {
+            logger.error("outputStream is null");
+            throw new IllegalArgumentException("outputStream is null");
+        }
+        return new Writer(outputStream);
+    }
+
+    /**
+     * Creates a reader that reads and checks the header of the format from the given stream.
+     *
+     * @param inputStream the stream; it is closed when the reader is closed
+     * @return the reader
+     * @throws IOException if the header cannot be read, or the stream is not in this format or in an unsupported version of it
+     */
+    public static Reader newReader(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            logger.error("inputStream is null");
+            throw new IllegalArgumentException("inputStream is null");
+        }
+        return new Reader(inputStream);
+    }
+
+    /**
+     * Writes recognition results to a stream.
+     */
+    public static final class Writer implements Closeable, Flushable {
+        private final OutputStream outputStream;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        /**
+         * the indices of the strings that have been written so far
+         */
+        private final Map<String, Integer> stringIndices = new LinkedHashMap<>();
+
+        private Writer(OutputStream outputStream) throws IOException {
+            this.outputStream = outputStream;
+            writeBytes(MAGIC, 0, MAGIC.length);
+            writeVarint(VERSION);
+        }
+
+        /**
+         * Writes the recognition result of the given SAD (see {@link #write(String, Set)}).
+         *
+         * @param sad      the SAD in which the entities have been recognized
+         * @param entities the entities
+         * @throws IOException if the result cannot be written
+         */
+        public void write(SoftwareArchitectureDocumentation sad, Set<NamedEntity> entities) throws IOException {
+            if (sad == null) {
+                logger.error("sad is null");
+                throw new IllegalArgumentException("sad is null");
+            }
+            write(sad.getContentHash(), entities);
+        }
+
+        /**
+         * Writes a recognition result. The source texts of the entities are not written; the SAD is identified by its content hash instead.
+         *
+         * @param sadContentHash the hex-encoded content hash of the SAD in which the entities have been recognized
+         * @param entities       the entities
+         * @throws IOException if the result cannot be written
+         */
+        public void write(String sadContentHash, Set<NamedEntity> entities) throws IOException {
+            if (entities == null) {
+                logger.error("entities is null");
+                throw new IllegalArgumentException("entities is null");
+            }
+            byte[] hash;
+            try {
+                hash = HexFormat.of().parseHex(String.valueOf(sadContentHash));
+            } catch (IllegalArgumentException e) {
+                logger.error("invalid content hash: {}", sadContentHash);
+                throw new IllegalArgumentException("invalid content hash: " + sadContentHash, e);
+            }
+
+            writeVarint(RESULT_MARKER);
+            writeVarint(hash.length);
+            writeBytes(hash, 0, hash.length);
+            writeNewStrings(entities);
+
+            writeVarint(entities.size());
+            for (NamedEntity entity : entities) {
+                writeStringReference(entity.getName());
+                writeStringReference(entity.getType() == null ? null : entity.getType().name());
+                writeVarint(entity.getAlternativeNames().size());
+                for (String alternativeName : entity.getAlternativeNames()) {
+                    writeStringReference(alternativeName);
+                }
+
+                List<NamedEntityReferenceType> referenceTypes = new ArrayList<>();
+                List<int[]> lineNumbersByReferenceType = new ArrayList<>();
+                for (NamedEntityReferenceType referenceType : NamedEntityReferenceType.values()) {
+                    int[] lineNumbers = entity.getOccurrenceLineNumbers(referenceType);
+                    if (lineNumbers.length > 0) {
+                        referenceTypes.add(referenceType);
+                        lineNumbersByReferenceType.add(lineNumbers);
+                    }
+                }
+                writeVarint(referenceTypes.size());
+                for (int i = 0; i < referenceTypes.size(); i++) {
+                    writeStringReference(referenceTypes.get(i).name());
+                    writeLineNumbers(lineNumbersByReferenceType.get(i));
+                }
+            }
+        }
+
+        /**
+         * Adds the strings of the given entities that have not been written yet to the string table and writes them.
+         */
+        private void writeNewStrings(Set<NamedEntity> entities) throws IOException {
+            List<String> newStrings = new ArrayList<>();
+            for (NamedEntity entity : entities) {
+                addString(entity.getName(), newStrings);
+                addString(entity.getType() == null ? null : entity.getType().name(), newStrings);
+                for (String alternativeName : entity.getAlternativeNames()) {
+                    addString(alternativeName, newStrings);
+                }
+                for (NamedEntityReferenceType referenceType : NamedEntityReferenceType.values()) {
+                    addString(referenceType.name(), newStrings);
+                }
+            }
+            writeVarint(newStrings.size());
+            for (String string : newStrings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                writeVarint(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            }
+        }
+
+        private void addString(String string, List<String> newStrings) {
+            if (string != null && !stringIndices.containsKey(string)) {
+                stringIndices.put(string, stringIndices.size());
+                newStrings.add(string);
+            }
+        }
+
+        private void writeStringReference(String string) throws IOException {
+            writeVarint(string == null ? NULL_REFERENCE : stringIndices.get(string) + 1);
+        }
+
+        /**
+         * Writes the ascending line numbers: the first one (which may be negative for shifted entities) in zigzag encoding, the others as differences.
+         */
+        private void writeLineNumbers(int[] lineNumbers) throws IOException {
+            writeVarint(lineNumbers.length);
+            writeVarint((lineNumbers[0] << 1) ^ (lineNumbers[0] >> 31));
+            for (int i = 1; i < lineNumbers.length; i++) {
+                writeVarint(lineNumbers[i] - lineNumbers[i - 1]);
+            }
+        }
+
+        private void writeVarint(int value) throws IOException {
+            if (buffer.length - position < 5) {
+                flushBuffer();
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+            if (length > buffer.length - position) {
+                flushBuffer();
+                if (length > buffer.length) {
+                    outputStream.write(bytes, offset, length);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        private void flushBuffer() throws IOException {
+            outputStream.write(buffer, 0, position);
+            position = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (outputStream) {
+                flushBuffer();
+            }
+        }
+    }
+
+    /**
+     * Reads recognition results from a stream.
+     */
+    public static final class Reader implements Closeable {
+        private final InputStream inputStream;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        /**
+         * the strings that have been read so far
+         */
+        private final List<String> strings = new ArrayList<>();
+
+        private Reader(InputStream inputStream) throws IOException {
+            this.inputStream = inputStream;
+            for (byte magicByte : MAGIC) {
+                if (readByte() != magicByte) {
+                    logger.error("not a binary named entity stream");
+                    throw new IOException("not a binary named entity stream");
+                }
+            }
+            int version = readVarint();
+            if (version != VERSION) {
+                logger.error("unsupported format version: {}", version);
+                throw new IOException("unsupported format version: " + version);
+            }
+        }
+
+        /**
+         * Reads the next recognition result. The source text of its entities is not set.
+         *
+         * @return the result, or an empty optional at the end of the stream
+         * @throws IOException if the result cannot be read or is malformed
+         */
+        public Optional<Result> read() throws IOException {
+            return read(sadContentHash -> null);
+        }
+
+        /**
+         * Reads the next recognition result.
+         *
+         * @param sadResolver maps the content hash of a SAD to the SAD that is set as source text of the entities; may return {@code null}
+         * @return the result, or an empty optional at the end of the stream
+         * @throws IOException if the result cannot be read or is malformed
+         */
+        public Optional<Result> read(Function<String, SoftwareArchitectureDocumentation> sadResolver) throws IOException {
+            if (position == limit && !fill()) {
+                return Optional.empty();
+            }
+            if (readVarint() != RESULT_MARKER) {
+                logger.error("malformed result: missing result marker");
+                throw new IOException("malformed result: missing result marker");
+            }
+
+            String sadContentHash = HexFormat.of().formatHex(readBytes(readLength()));
+            SoftwareArchitectureDocumentation sad = sadResolver.apply(sadContentHash);
+
+            int newStringCount = readLength();
+            for (int i = 0; i < newStringCount; i++) {
+                strings.add(new String(readBytes(readLength()), StandardCharsets.UTF_8));
+            }
+
+            int entityCount = readLength();
+            Set<NamedEntity> entities = new LinkedHashSet<>();
+            for (int i = 0; i < entityCount; i++) {
+                entities.add(readEntity(sad));
+            }
+            return Optional.of(new Result(sadContentHash, entities));
+        }
+
+        private NamedEntity readEntity(SoftwareArchitectureDocumentation sad) throws IOException {
+            String name = readStringReference();
+            String typeName = readStringReference();
+            NamedEntityType type = typeName == null ? null : valueOf(NamedEntityType.class, typeName);
+            NamedEntity.Builder entity = new NamedEntity.Builder(name, type).sourceText(sad);
+
+            int alternativeNameCount = readLength();
+            for (int i = 0; i < alternativeNameCount; i++) {
+                String alternativeName = readStringReference();
+                if (alternativeName == null) {
+                    logger.error("malformed result: alternative name of '{}' is null", name);
+                    throw new IOException("malformed result: alternative name of '" + name + "' is null");
+                }
+                entity.alternativeName(alternativeName);
+            }
+
+            int referenceTypeCount = readLength();
+            for (int i = 0; i < referenceTypeCount; i++) {
+                NamedEntityReferenceType referenceType = valueOf(NamedEntityReferenceType.class, String.valueOf(readStringReference()));
+                int lineCount = readLength();
+                if (lineCount > 0) {
+                    int zigzagLineNumber = readVarint();
+                    int lineNumber = (zigzagLineNumber >>> 1) ^ -(zigzagLineNumber & 1);
+                    entity.occurrence(lineNumber, referenceType);
+                    for (int j = 1; j < lineCount; j++) {
+                        lineNumber += readVarint();
+                        entity.occurrence(lineNumber, referenceType);
+                    }
+                }
+            }
+            return entity.build();
+        }
+
+        private String readStringReference() throws IOException {
+            int reference = readVarint();
+            if (reference == NULL_REFERENCE) {
+                return null;
+            }
+            if (reference > strings.size()) {
+                logger.error("malformed result: invalid string reference {}", reference);
+                throw new IOException("malformed result: invalid string reference " + reference);
+            }
+            return strings.get(reference - 1);
+        }
+
+        private static <E extends Enum<E>> E valueOf(Class<E> enumType, String name) throws IOException {
+            try {
+                return Enum.valueOf(enumType, name);
+            } catch (IllegalArgumentException e) {
+                logger.error("malformed result: unknown {}: {}", enumType.getSimpleName(), name);
+                throw new IOException("malformed result: unknown " + enumType.getSimpleName() + ": " + name, e);
+            }
+        }
+
+        /**
+         * Reads a variable-length integer (at most 5 bytes, the last one with at most 4 bits).
+         */
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 28; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            byte b = readByte();
+            if ((b & 0xF0) != 0) {
+                logger.error("malformed result: invalid variable-length integer");
+                throw new IOException("malformed result: invalid variable-length integer");
+            }
+            return value | b << 28;
+        }
+
+        /**
+         * Reads a variable-length integer that is a length or a count, i.e., must not be negative.
+         */
+        private int readLength() throws IOException {
+            int length = readVarint();
+            if (length < 0) {
+                logger.error("malformed result: negative length {}", length);
+                throw new IOException("malformed result: negative length " + length);
+            }
+            return length;
+        }
+
+        /**
+         * Reads the given number of bytes. The result grows with the bytes that are actually read, so that a corrupted length cannot exhaust the memory.
+         */
+        private byte[] readBytes(int length) throws IOException {
+            byte[] bytes = new byte[Math.min(length, BUFFER_SIZE)];
+            int count = 0;
+            while (count < length) {
+                if (position == limit && !fill()) {
+                    throw new EOFException("unexpected end of stream");
+                }
+                if (count == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+                }
+                int chunk = Math.min(limit - position, bytes.length - count);
+                System.arraycopy(buffer, position, bytes, count, chunk);
+                position += chunk;
+                count += chunk;
+            }
+            return bytes;
+        }
+
+        private byte readByte() throws IOException {
+            if (position == limit && !fill()) {
+                throw new EOFException("unexpected end of stream");
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * @return whether at least one byte has been read into the buffer (otherwise, the end of the stream has been reached)
+         */
+        private boolean fill() throws IOException {
+            int read;
+            do {
+                read = inputStream.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * A recognition result read from a stream.
+     *
+     * @param sadContentHash the content hash of the SAD in which the entities have been recognized
+     * @param entities       the entities
+     */
+    public record Result(String sadContentHash, Set<NamedEntity> entities) {
+    }
+}
@@ -4,19 +4,23 @@ package edu.kit.kastel.mcse.ardoco.naer.serialization;
 import java.io.IOException;
 import java.util.*;
 
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
 import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityJsonReader.EntityWithOccurrences;
 
 /**
  * Custom deserializer for converting a JSON array into a set of {@link NamedEntity} instances.
  * <p>
  * This deserializer ensures that each {@link NamedEntity} instance is linked to the provided {@link SoftwareArchitectureDocumentation} as its source text.
+ * The entities are read directly from the token stream (see {@link NamedEntityJsonReader}); each occurrence is an object with a {@code line} and a
+ * {@code referenceType}.
  * </p>
  */
 public class NamedEntityDeserializer extends JsonDeserializer<Set<NamedEntity>> {
@@ -42,12 +46,63 @@ public class NamedEntityDeserializer extends JsonDeserializer<Set<NamedEntity>>
      */
     @Override
     public Set<NamedEntity> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
-        ObjectMapper mapper = (ObjectMapper) p.getCodec();
-        List<NamedEntity> entities = mapper.readValue(p, new TypeReference<>() {
-        });
-        for (NamedEntity entity : entities) {
-            entity.setSourceText(softwareArchitectureDocumentation);
+        Set<NamedEntity> entities = new LinkedHashSet<>();
+        for (EntityWithOccurrences<Occurrence> entityWithOccurrences : NamedEntityJsonReader.read(p, softwareArchitectureDocumentation,
+                NamedEntityDeserializer::readOccurrence)) {
+            NamedEntity.Builder entity = entityWithOccurrences.entity();
+            for (Occurrence occurrence : entityWithOccurrences.occurrences()) {
+                entity.occurrence(occurrence.line(), occurrence.referenceType());
+            }
+            entities.add(entity.build());
         }
-        return new LinkedHashSet<>(entities);
+        return entities;
+    }
+
+    private static Occurrence readOccurrence(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "expected an occurrence object but found " + parser.currentToken());
+        }
+        Integer line = null;
+        String referenceType = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            switch (fieldName) {
+            case "line" -> line = readLine(parser);
+            case "referenceType" -> referenceType = parser.getValueAsString();
+            default -> parser.skipChildren(); // unknown field
+            }
+        }
+
+        if (line == null) {
+            throw new JsonParseException(parser, "occurrence without line");
+        }
+        try {
+            return new Occurrence(line, NamedEntityReferenceType.valueOf(String.valueOf(referenceType)));
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException(parser, "unknown reference type of occurrence: " + referenceType, e);
+        }
+    }
+
+    /**
+     * Reads the line of an occurrence, which is an integer (or, like in the former data binding of the occurrences, a string containing an integer). Any
+     * integer is accepted, also a negative one.
+     */
+    private static int readLine(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.parseInt(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(parser, "line of occurrence is not an integer: '" + parser.getText() + "'", e);
+            }
+        }
+        throw new JsonParseException(parser, "line of occurrence is not an integer but " + token);
+    }
+
+    private record Occurrence(int line, NamedEntityReferenceType referenceType) {
     }
 }
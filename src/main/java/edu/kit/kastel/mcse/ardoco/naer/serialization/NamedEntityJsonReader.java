@@ -0,0 +1,169 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+/**
+ * Reads JSON arrays of named entities directly from the token stream of a {@link JsonParser}, without building a tree of the JSON document.
+ * <p>
+ * Each element of the array must be an object with a {@code name} and a {@code type}. The arrays {@code alternativeNames} and {@code occurrences} may be
+ * missing or {@code null}, and unknown fields are skipped. The format of the occurrences differs between the callers and is read by an
+ * {@link OccurrenceReader}.
+ * </p>
+ */
+final class NamedEntityJsonReader {
+    /**
+     * shared factory for the parsers; {@link JsonFactory} instances are thread-safe once configured
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private NamedEntityJsonReader() {
+        // utility class -> prevent instantiation
+    }
+
+    /**
+     * Reads the JSON array of named entities in the given string.
+     *
+     * @param json             the JSON string; if it is empty, no entities are read
+     * @param sad              the software architecture documentation that is set as source text of the entities
+     * @param occurrenceReader reads a single occurrence
+     * @param <T>              the type of the occurrences
+     * @return the builders of the entities (without occurrences) together with their occurrences
+     * @throws IOException if the JSON is malformed or an entity has no valid name or type
+     */
+    static <T> List<EntityWithOccurrences<T>> read(String json, SoftwareArchitectureDocumentation sad, OccurrenceReader<T> occurrenceReader)
+            throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return read(parser, sad, occurrenceReader);
+        }
+    }
+
+    /**
+     * Reads a JSON array of named entities from the given parser. The parser is either positioned at the start of the array or before it.
+     *
+     * @param parser           the parser
+     * @param sad              the software architecture documentation that is set as source text of the entities
+     * @param occurrenceReader reads a single occurrence
+     * @param <T>              the type of the occurrences
+     * @return the builders of the entities (without occurrences) together with their occurrences
+     * @throws IOException if the JSON is malformed or an entity has no valid name or type
+     */
+    static <T> List<EntityWithOccurrences<T>> read(JsonParser parser, SoftwareArchitectureDocumentation sad, OccurrenceReader<T> occurrenceReader)
+            throws IOException {
+        List<EntityWithOccurrences<T>> entities = new ArrayList<>();
+        JsonToken token = parser.hasCurrentToken() ? parser.currentToken() : parser.nextToken();
+        if (token == null) {
+            return entities;
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "expected a JSON array of named entities but found " + token);
+        }
+
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "expected a named entity object but found " + token);
+            }
+            entities.add(readEntity(parser, sad, occurrenceReader));
+        }
+        return entities;
+    }
+
+    private static <T> EntityWithOccurrences<T> readEntity(JsonParser parser, SoftwareArchitectureDocumentation sad, OccurrenceReader<T> occurrenceReader)
+            throws IOException {
+        String name = null;
+        String type = null;
+        List<String> alternativeNames = new ArrayList<>();
+        List<T> occurrences = new ArrayList<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            switch (fieldName) {
+            case "name" -> name = parser.getValueAsString();
+            case "type" -> type = parser.getValueAsString();
+            case "alternativeNames" -> {
+                if (valueToken == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        String alternativeName = parser.getValueAsString();
+                        if (alternativeName != null) {
+                            alternativeNames.add(alternativeName);
+                        }
+                        parser.skipChildren();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            case "occurrences" -> {
+                if (valueToken == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        T occurrence = occurrenceReader.read(parser);
+                        if (occurrence != null) {
+                            occurrences.add(occurrence);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            default -> parser.skipChildren(); // unknown field
+            }
+        }
+
+        if (name == null) {
+            throw new JsonParseException(parser, "named entity without name");
+        }
+        NamedEntityType entityType;
+        try {
+            entityType = NamedEntityType.valueOf(String.valueOf(type));
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException(parser, "unknown type of named entity '" + name + "': " + type, e);
+        }
+
+        NamedEntity.Builder entity = new NamedEntity.Builder(name, entityType).sourceText(sad);
+        for (String alternativeName : alternativeNames) {
+            entity.alternativeName(alternativeName);
+        }
+        return new EntityWithOccurrences<>(entity, occurrences);
+    }
+
+    /**
+     * Reads a single occurrence of a named entity.
+     *
+     * @param <T> the type of the occurrences
+     */
+    @FunctionalInterface
+    interface OccurrenceReader<T> {
+        /**
+         * Reads the occurrence at the current token of the parser. Afterward, the parser must be positioned at the last token of the occurrence (e.g., by
+         * calling {@link JsonParser#skipChildren()}).
+         *
+         * @param parser the parser
+         * @return the occurrence, or {@code null} if the occurrence is skipped
+         * @throws IOException if the occurrence cannot be read
+         */
+        T read(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * A named entity read from JSON together with its occurrences, which are added by the caller (e.g., to deduct their reference types) before the entity
+     * is built.
+     *
+     * @param entity      the builder of the entity with its name, type, alternative names, and source text
+     * @param occurrences the occurrences of the entity
+     * @param <T>         the type of the occurrences
+     */
+    record EntityWithOccurrences<T>(NamedEntity.Builder entity, List<T> occurrences) {
+    }
+}
@@ -0,0 +1,104 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import java.util.Arrays;
+
+import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
+import dev.langchain4j.model.chat.request.json.JsonArraySchema;
+import dev.langchain4j.model.chat.request.json.JsonEnumSchema;
+import dev.langchain4j.model.chat.request.json.JsonIntegerSchema;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchemaElement;
+import dev.langchain4j.model.chat.request.json.JsonStringSchema;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+
+/**
+ * Provides the JSON schema of the named entities expected by {@link NamedEntityParser#fromJson}, so that chat models with structured outputs can be forced
+ * to adhere to it.
+ * <p>
+ * As some providers (e.g., OpenAI) require the root of a schema to be an object, the array of named entities is wrapped:
+ * </p>
+ * <pre>
+ * {
+ * "entities": [
+ * {
+ * "name": "...",
+ * "type": "...",
+ * "alternativeNames": [...],
+ * "occurrences": [...]
+ * },
+ * ...
+ * ]
+ * }
+ * </pre>
+ */
+public final class NamedEntityJsonSchema {
+    private static final JsonSchema SCHEMA = createSchema("NamedEntities", new JsonStringSchema());
+    private static final ResponseFormat RESPONSE_FORMAT = ResponseFormat.builder().type(ResponseFormatType.JSON).jsonSchema(SCHEMA).build();
+    private static final JsonSchema LINE_NUMBER_SCHEMA = createSchema("NamedEntitiesWithLineNumbers", new JsonIntegerSchema());
+    private static final ResponseFormat LINE_NUMBER_RESPONSE_FORMAT = ResponseFormat.builder()
+            .type(ResponseFormatType.JSON)
+            .jsonSchema(LINE_NUMBER_SCHEMA)
+            .build();
+
+    private NamedEntityJsonSchema() {
+        // utility class -> prevent instantiation
+    }
+
+    /**
+     * Gets the JSON schema of a (wrapped) array of {@link NamedEntity} instances.
+     *
+     * @return the JSON schema
+     */
+    public static JsonSchema getSchema() {
+        return SCHEMA;
+    }
+
+    /**
+     * Gets the response format that forces a chat model to answer with JSON that adheres to {@link #getSchema()}.
+     *
+     * @return the response format
+     */
+    public static ResponseFormat getResponseFormat() {
+        return RESPONSE_FORMAT;
+    }
+
+    /**
+     * Gets the JSON schema of a (wrapped) array of {@link NamedEntity} instances whose occurrences are line numbers (see
+     * {@link NamedEntityParser#fromJsonWithLineNumbers}).
+     *
+     * @return the JSON schema
+     */
+    public static JsonSchema getLineNumberSchema() {
+        return LINE_NUMBER_SCHEMA;
+    }
+
+    /**
+     * Gets the response format that forces a chat model to answer with JSON that adheres to {@link #getLineNumberSchema()}.
+     *
+     * @return the response format
+     */
+    public static ResponseFormat getLineNumberResponseFormat() {
+        return LINE_NUMBER_RESPONSE_FORMAT;
+    }
+
+    private static JsonSchema createSchema(String name, JsonSchemaElement occurrenceSchema) {
+        JsonObjectSchema entitySchema = JsonObjectSchema.builder()
+                .addStringProperty("name")
+                .addProperty("type", JsonEnumSchema.builder().enumValues(Arrays.stream(NamedEntityType.values()).map(Enum::name).toList()).build())
+                .addProperty("alternativeNames", JsonArraySchema.builder().items(new JsonStringSchema()).build())
+                .addProperty("occurrences", JsonArraySchema.builder().items(occurrenceSchema).build())
+                .required("name", "type", "alternativeNames", "occurrences")
+                .additionalProperties(false)
+                .build();
+        JsonObjectSchema rootSchema = JsonObjectSchema.builder()
+                .addProperty("entities", JsonArraySchema.builder().items(entitySchema).build())
+                .required("entities")
+                .additionalProperties(false)
+                .build();
+        return JsonSchema.builder().name(name).rootElement(rootSchema).build();
+    }
+}
@@ -2,27 +2,28 @@
 package edu.kit.kastel.mcse.ardoco.naer.serialization;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
 import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
 import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
 import edu.kit.kastel.mcse.ardoco.naer.recognizer.StructuredTextOutputPrompt;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityJsonReader.EntityWithOccurrences;
+import edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityJsonReader.OccurrenceReader;
 
 /**
  * Utility class for parsing named entities from various input formats.
  */
 public class NamedEntityParser {
     private static final Logger logger = LoggerFactory.getLogger(NamedEntityParser.class);
+    private static final String ENTITY_OCCURRENCE_FORMAT = "<entityName>, '<line>'";
+    private static final String ALTERNATIVE_NAMES_FORMAT = "<entityName>: <alternativeName1>, <alternativeName2>, ... (or '<entityName>: None')";
 
     private NamedEntityParser() {
         // utility class -> prevent instantiation
@@ -37,33 +38,55 @@ public class NamedEntityParser {
      * @throws IOException if deserialization fails (e.g. malformed JSON)
      */
     public static Set<NamedEntity> fromJson(String json, SoftwareArchitectureDocumentation sad) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode rootNode = mapper.readTree(json);
-        Set<NamedEntity> entities = new LinkedHashSet<>();
-
-        for (JsonNode entityNode : rootNode) {
-            String name = entityNode.get("name").asText();
-            NamedEntityType type = NamedEntityType.valueOf(entityNode.get("type").asText());
-            NamedEntity entity = new NamedEntity(name, type);
-            entity.setSourceText(sad);
-
-            // Handle alternative names
-            JsonNode alternativeNamesNode = entityNode.get("alternativeNames");
-            for (JsonNode altName : alternativeNamesNode) {
-                entity.addAlternativeName(altName.asText());
-            }
+        // occurrences are the texts of the lines
+        return fromJson(json, sad, parser -> {
+            String line = parser.getValueAsString();
+            parser.skipChildren();
+            return line == null ? null : sad.getLineNumber(line);
+        });
+    }
 
-            // Handle occurrences
-            JsonNode occurrencesNode = entityNode.get("occurrences");
-            for (JsonNode occurrence : occurrencesNode) {
-                String line = occurrence.asText();
-                addOccurrenceWithDeductedReferenceType(entity, sad.getLineNumber(line), sad);
+    /**
+     * Deserializes a JSON array representing named entities whose occurrences are given as line numbers (starting at 1) instead of the text of the lines.
+     * <p>
+     * In contrast to {@link #fromJson(String, SoftwareArchitectureDocumentation)}, the occurrences do not need to be matched against the lines of the SAD.
+     * Occurrences that are no valid line numbers of the SAD are skipped.
+     * </p>
+     *
+     * @param json the JSON string to deserialize; must represent a JSON array of named entity instances
+     * @param sad  the software architecture documentation associated with the entities
+     * @return a set of deserialized {@link NamedEntity} instances
+     * @throws IOException if deserialization fails (e.g. malformed JSON)
+     */
+    public static Set<NamedEntity> fromJsonWithLineNumbers(String json, SoftwareArchitectureDocumentation sad) throws IOException {
+        return fromJson(json, sad, parser -> {
+            // accepts integers and numeric strings, but neither booleans nor fractions, which getValueAsInt would convert
+            int lineNumber = switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT -> parser.getValueAsInt(-1);
+            case VALUE_STRING -> parser.getText().strip().matches("\\d{1,9}") ? Integer.parseInt(parser.getText().strip()) : -1;
+            default -> -1;
+            };
+            if (lineNumber < 1 || lineNumber > sad.getLineCount()) {
+                logger.warn("skipping invalid line number: {}", parser.getText());
+                parser.skipChildren();
+                return null;
             }
+            return lineNumber;
+        });
+    }
 
-            entities.add(entity);
+    private static Set<NamedEntity> fromJson(String json, SoftwareArchitectureDocumentation sad, OccurrenceReader<Integer> lineNumberReader)
+            throws IOException {
+        List<EntityWithOccurrences<Integer>> entitiesWithOccurrences = NamedEntityJsonReader.read(json, sad, lineNumberReader);
+        List<NamedEntity.Builder> entities = new ArrayList<>(entitiesWithOccurrences.size());
+        List<List<Integer>> occurrenceLines = new ArrayList<>(entitiesWithOccurrences.size());
+        for (EntityWithOccurrences<Integer> entityWithOccurrences : entitiesWithOccurrences) {
+            entities.add(entityWithOccurrences.entity());
+            occurrenceLines.add(entityWithOccurrences.occurrences());
         }
 
-        return entities;
+        addOccurrencesWithDeductedReferenceTypes(entities, occurrenceLines, sad);
+        return build(entities);
     }
 
     /**
@@ -76,130 +99,493 @@ public class NamedEntityParser {
      * @throws IOException if the input string is invalid or cannot be parsed
      */
     public static Set<NamedEntity> fromString(String str, SoftwareArchitectureDocumentation softwareArchitectureDocumentation) throws IOException {
-        Map<String, NamedEntity> entityMap = new LinkedHashMap<>();
-        Map<String, Set<Integer>> entityOccurencesMap = new LinkedHashMap<>(); //needed to determine reference types of the occurrences after information about alternative names is saved
-        String[] lines = str.split("\\R");
-        for (int i = 0; i < lines.length; i++) {
-            lines[i] = lines[i].trim();
+        // scan the lines in place, without splitting the answer
+        StructuredTextState state = new StructuredTextState(softwareArchitectureDocumentation, null, null);
+        int lineIndex = 0;
+        int lineStart = 0;
+        while (lineStart < str.length()) {
+            int lineEnd = findLineEnd(str, lineStart);
+            state.processLine(str, lineStart, lineEnd, lineIndex++);
+            lineStart = skipLineTerminator(str, lineEnd);
         }
+        return state.getEntities();
+    }
 
-        boolean parsingAlternativeNames = false;
-        NamedEntityType currentEntityType = null;
-
-        processLines(softwareArchitectureDocumentation, lines, parsingAlternativeNames, currentEntityType, entityMap, entityOccurencesMap);
+    /**
+     * Parses a string representation of named entities (see {@link #fromString(String, SoftwareArchitectureDocumentation)}) leniently.
+     * <p>
+     * Instead of failing at the first invalid line, all valid entries are kept and all invalid lines are collected, so that only these lines need to be
+     * repaired (see {@link LenientParseResult#withRepairedLines(Map, SoftwareArchitectureDocumentation)}).
+     * </p>
+     *
+     * @param str                               the string (structured text format of named entities)
+     * @param softwareArchitectureDocumentation the software architecture documentation associated with the named entities
+     * @return the entities parsed from the valid lines together with the invalid lines
+     */
+    public static LenientParseResult fromStringLeniently(String str, SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        return parseLeniently(splitIntoTrimmedLines(str), softwareArchitectureDocumentation);
+    }
 
-        //add occurrences with correct reference types
-        for (NamedEntity entity : entityMap.values()) {
-            for (int lineNumber : entityOccurencesMap.get(entity.getName())) {
-                addOccurrenceWithDeductedReferenceType(entity, lineNumber, softwareArchitectureDocumentation);
+    static LenientParseResult parseLeniently(List<String> lines, SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        List<InvalidLine> invalidLines = new ArrayList<>();
+        try {
+            StructuredTextState state = new StructuredTextState(softwareArchitectureDocumentation, invalidLines, null);
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                state.processLine(line, 0, line.length(), i);
             }
+            return new LenientParseResult(state.getEntities(), lines, invalidLines);
+        } catch (IOException e) {
+            // cannot happen, invalid lines are collected instead of thrown
+            throw new UncheckedIOException(e);
         }
-
-        return new LinkedHashSet<>(entityMap.values());
     }
 
-    private static void processLines(SoftwareArchitectureDocumentation softwareArchitectureDocumentation, String[] lines, boolean parsingAlternativeNames,
-            NamedEntityType currentEntityType, Map<String, NamedEntity> entityMap, Map<String, Set<Integer>> entityOccurencesMap) throws IOException {
-        for (String line : lines) {
-            if (line.isEmpty()) {
-                continue;
+    /**
+     * Splits the string into trimmed lines, like {@code str.split("\\R")} followed by {@link String#trim()} of each line.
+     */
+    private static List<String> splitIntoTrimmedLines(String str) {
+        List<String> lines = new ArrayList<>();
+        // like String#split, trailing lines that are empty (before trimming) are dropped
+        int keptLineCount = 0;
+        int lineStart = 0;
+        while (lineStart < str.length()) {
+            int lineEnd = findLineEnd(str, lineStart);
+            lines.add(substringTrimmed(str, lineStart, lineEnd));
+            if (lineEnd > lineStart) {
+                keptLineCount = lines.size();
             }
+            lineStart = skipLineTerminator(str, lineEnd);
+        }
+        return List.copyOf(lines.subList(0, keptLineCount));
+    }
 
-            // Check for section header: "<currentEntityType> entities recognized:"
-            if (line.endsWith("entities recognized:")) {
-                parsingAlternativeNames = false;
-                String typeString = line.substring(0, line.indexOf(" entities recognized:")).trim().toUpperCase();
-                try {
-                    currentEntityType = NamedEntityType.valueOf(typeString);
-                } catch (IllegalArgumentException e) {
-                    logger.error("Unknown entity type: '{}'", typeString);
-                    throw new IOException("Unknown entity type: '" + typeString + "'");
-                }
-                continue;
+    /**
+     * @return the index of the first line terminator (as matched by {@code \R}) at or after {@code from}, or the length of the text
+     */
+    private static int findLineEnd(CharSequence text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\u000B' || c == '\f' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return i;
             }
+        }
+        return text.length();
+    }
 
-            if ((line.trim()).equalsIgnoreCase("Alternative names:")) {
-                parsingAlternativeNames = true;
-                continue;
-            }
+    /**
+     * @return the index after the line terminator at {@code lineEnd} ("\r\n" is one terminator)
+     */
+    private static int skipLineTerminator(CharSequence text, int lineEnd) {
+        if (lineEnd + 1 < text.length() && text.charAt(lineEnd) == '\r' && text.charAt(lineEnd + 1) == '\n') {
+            return lineEnd + 2;
+        }
+        return lineEnd + 1;
+    }
 
-            if (currentEntityType == null) {
-                throw new IOException("Entity type not specified before entries: '" + line + "'");
-            }
+    /**
+     * @return the index of the first character in the range that is no whitespace (as removed by {@link String#trim()}), or {@code end}
+     */
+    private static int skipWhitespace(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
 
-            if (!parsingAlternativeNames) {
-                parseEntityOccurrence(softwareArchitectureDocumentation, line, entityMap, currentEntityType, entityOccurencesMap);
-            } else {
-                parseAlternativeNames(line, entityMap);
+    /**
+     * @return the index after the last character in the range that is no whitespace (as removed by {@link String#trim()}), or {@code start}
+     */
+    private static int trimEnd(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static String substringTrimmed(CharSequence text, int start, int end) {
+        int trimmedStart = skipWhitespace(text, start, end);
+        return text.subSequence(trimmedStart, trimEnd(text, trimmedStart, end)).toString();
+    }
+
+    private static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
             }
         }
+        return -1;
+    }
+
+    /**
+     * Creates a push-style parser for JSON answers (see {@link #fromJson(String, SoftwareArchitectureDocumentation)}) that is fed with the answer piece by
+     * piece, e.g., while it is streamed from a chat model.
+     * <p>Each {@link NamedEntity} is passed to the consumer as soon as its JSON object is complete.</p>
+     *
+     * @param sad            the software architecture documentation associated with the entities
+     * @param entityConsumer the consumer of the parsed entities
+     * @return a new incremental parser
+     */
+    public static IncrementalNamedEntityParser incrementalJsonParser(SoftwareArchitectureDocumentation sad, Consumer<NamedEntity> entityConsumer) {
+        return new IncrementalJsonParser(sad, entityConsumer, NamedEntityParser::fromJson);
     }
 
-    private static void parseEntityOccurrence(SoftwareArchitectureDocumentation softwareArchitectureDocumentation, String line,
-            Map<String, NamedEntity> entityMap, NamedEntityType currentEntityType, Map<String, Set<Integer>> entityOccurencesMap) throws IOException {
-        // Parse entity occurrence: <name>, '<line>'
-        Pattern pattern = Pattern.compile("^(.*?),\\s*'(.*)'$");
-        Matcher matcher = pattern.matcher(line.trim());
-        if (!matcher.matches()) {
+    /**
+     * Creates a push-style parser for JSON answers with line numbers as occurrences (see
+     * {@link #fromJsonWithLineNumbers(String, SoftwareArchitectureDocumentation)}) that is fed with the answer piece by piece, e.g., while it is streamed from
+     * a chat model.
+     * <p>Each {@link NamedEntity} is passed to the consumer as soon as its JSON object is complete.</p>
+     *
+     * @param sad            the software architecture documentation associated with the entities
+     * @param entityConsumer the consumer of the parsed entities
+     * @return a new incremental parser
+     */
+    public static IncrementalNamedEntityParser incrementalJsonWithLineNumbersParser(SoftwareArchitectureDocumentation sad,
+            Consumer<NamedEntity> entityConsumer) {
+        return new IncrementalJsonParser(sad, entityConsumer, NamedEntityParser::fromJsonWithLineNumbers);
+    }
+
+    /**
+     * Creates a push-style parser for structured text answers (see {@link #fromString(String, SoftwareArchitectureDocumentation)}) that is fed with the answer
+     * piece by piece, e.g., while it is streamed from a chat model.
+     * <p>
+     * Each {@link NamedEntity} is passed to the consumer as soon as its block is complete, i.e., as soon as its alternative names have been parsed or its
+     * section has ended.
+     * Unlike {@link #fromString(String, SoftwareArchitectureDocumentation)}, a name that appears again in a later section yields a second entity, as the
+     * first one has already been passed on.
+     * </p>
+     *
+     * @param sad            the software architecture documentation associated with the entities
+     * @param entityConsumer the consumer of the parsed entities
+     * @return a new incremental parser
+     */
+    public static IncrementalNamedEntityParser incrementalStructuredTextParser(SoftwareArchitectureDocumentation sad, Consumer<NamedEntity> entityConsumer) {
+        return new IncrementalStructuredTextParser(sad, entityConsumer);
+    }
+
+    /**
+     * Parses an entity occurrence ({@code <name>, '<line>'}) in the given range of the text. The range must not contain line terminators.
+     */
+    private static void parseEntityOccurrence(SoftwareArchitectureDocumentation softwareArchitectureDocumentation, CharSequence text, int start, int end,
+            Map<String, NamedEntity.Builder> entityMap, NamedEntityType currentEntityType, Map<String, Set<Integer>> entityOccurencesMap) throws IOException {
+        // Parse entity occurrence: <name>, '<line>' (same as matching "^(.*?),\\s*'(.*)'$" against the trimmed line)
+        int trimmedStart = skipWhitespace(text, start, end);
+        int trimmedEnd = trimEnd(text, trimmedStart, end);
+        int nameEnd = -1;
+        int quote = -1;
+        if (trimmedEnd > trimmedStart && text.charAt(trimmedEnd - 1) == '\'') {
+            // the name ends at the first comma that is followed by optional whitespace and the opening quote
+            for (int i = trimmedStart; i < trimmedEnd && nameEnd == -1; i++) {
+                if (text.charAt(i) == ',') {
+                    int candidateQuote = i + 1;
+                    while (candidateQuote < trimmedEnd && isRegexWhitespace(text.charAt(candidateQuote))) {
+                        candidateQuote++;
+                    }
+                    if (candidateQuote < trimmedEnd - 1 && text.charAt(candidateQuote) == '\'') {
+                        nameEnd = i;
+                        quote = candidateQuote;
+                    }
+                }
+            }
+        }
+        if (nameEnd == -1) {
+            String line = text.subSequence(start, end).toString();
             logger.error("Invalid entity occurrence format: '{}'", line);
             throw new IOException("Invalid entity occurrence format: '" + line + "'");
         }
 
-        String name = matcher.group(1).trim();
-        String textLine = matcher.group(2);
+        String name = substringTrimmed(text, trimmedStart, nameEnd);
+        String textLine = text.subSequence(quote + 1, trimmedEnd - 1).toString();
         int lineNumber = softwareArchitectureDocumentation.getLineNumber(textLine);
 
-        NamedEntity entity = entityMap.get(name);
-        if (entity == null) {
-            entity = new NamedEntity(name, currentEntityType);
-            entity.setSourceText(softwareArchitectureDocumentation);
-            entityMap.put(name, entity);
+        if (!entityMap.containsKey(name)) {
+            entityMap.put(name, new NamedEntity.Builder(name, currentEntityType).sourceText(softwareArchitectureDocumentation));
             entityOccurencesMap.put(name, new LinkedHashSet<>());
         }
         entityOccurencesMap.get(name).add(lineNumber);
     }
 
-    private static void parseAlternativeNames(String line, Map<String, NamedEntity> entityMap) throws IOException {
-        // Parse alternative names: <componentName>: <alt1>, <alt2>, ...
-        String[] parts = line.split(":");
-        if (parts.length != 2) {
+    /**
+     * Parses the alternative names of an entity ({@code <name>: <alternativeName1>, <alternativeName2>, ...}) in the given range of the text.
+     *
+     * @return the name of the entity
+     */
+    private static String parseAlternativeNames(CharSequence text, int start, int end, Map<String, NamedEntity.Builder> entityMap) throws IOException {
+        // Parse alternative names: <componentName>: <alt1>, <alt2>, ... (same as line.split(":"), which drops trailing empty parts)
+        int partsEnd = end;
+        while (partsEnd > start && text.charAt(partsEnd - 1) == ':') {
+            partsEnd--;
+        }
+        int colon = indexOf(text, ':', start, partsEnd);
+        if (colon == -1 || indexOf(text, ':', colon + 1, partsEnd) != -1) {
+            String line = text.subSequence(start, end).toString();
             logger.error("Invalid alternative names format: '{}'", line);
             throw new IOException("Invalid alternative names format: '" + line + "'");
         }
 
-        String name = parts[0].trim();
-        String alternativesStr = parts[1].trim();
-        if (alternativesStr.equalsIgnoreCase("None")) {
-            return;
+        String name = substringTrimmed(text, start, colon);
+        int alternativesStart = skipWhitespace(text, colon + 1, partsEnd);
+        int alternativesEnd = trimEnd(text, alternativesStart, partsEnd);
+        if (regionEqualsIgnoreCase(text, alternativesStart, alternativesEnd, "None")) {
+            return name;
         }
 
-        NamedEntity entity = entityMap.get(name);
+        NamedEntity.Builder entity = entityMap.get(name);
         if (entity != null) {
-            String[] alternatives = alternativesStr.split(",");
-            for (String alt : alternatives) {
-                entity.addAlternativeName(alt.trim());
+            // same as alternatives.split(","), which drops trailing empty parts
+            int separatedEnd = alternativesEnd;
+            while (separatedEnd > alternativesStart && text.charAt(separatedEnd - 1) == ',') {
+                separatedEnd--;
+            }
+            if (separatedEnd == alternativesStart && alternativesEnd != alternativesStart) {
+                return name; // only commas
             }
+            int alternativeStart = alternativesStart;
+            while (alternativeStart <= separatedEnd) {
+                int alternativeEnd = indexOf(text, ',', alternativeStart, separatedEnd);
+                if (alternativeEnd == -1) {
+                    alternativeEnd = separatedEnd;
+                }
+                entity.alternativeName(substringTrimmed(text, alternativeStart, alternativeEnd));
+                alternativeStart = alternativeEnd + 1;
+            }
+            return name;
         } else {
             logger.error("Alternative names for unknown entity: '{}'", name);
             throw new IOException("Alternative names for unknown entity: '" + name + "'");
         }
     }
 
-    private static void addOccurrenceWithDeductedReferenceType(NamedEntity entity, int lineNumber,
+    /**
+     * @return whether the character is matched by {@code \s} in a regular expression
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean regionEqualsIgnoreCase(CharSequence text, int start, int end, String other) {
+        if (end - start != other.length()) {
+            return false;
+        }
+        for (int i = 0; i < other.length(); i++) {
+            char a = text.charAt(start + i);
+            char b = other.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b) && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the given occurrences to the entities (that are still being built) and deducts their reference types: an occurrence is {@link NamedEntityReferenceType#DIRECT direct} if the
+     * line contains the name or an alternative name of the entity (case-insensitive), otherwise it is {@link NamedEntityReferenceType#INDIRECT indirect}.
+     * <p>
+     * The names of all entities are matched at once (see {@link EntityNameMatcher}), so each occurrence line is scanned only once, regardless of the number
+     * of entities and names. Invalid occurrences (line number {@code -1}) are skipped.
+     * </p>
+     *
+     * @param entities                          the entities; their alternative names must be complete
+     * @param occurrenceLines                   the line numbers (starting at 1) of the occurrences of each entity, in the same order as the entities
+     * @param softwareArchitectureDocumentation the software architecture documentation the line numbers refer to
+     */
+    static void addOccurrencesWithDeductedReferenceTypes(List<NamedEntity.Builder> entities, List<? extends Collection<Integer>> occurrenceLines,
+            SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
+        EntityNameMatcher matcher = new EntityNameMatcher(entities);
+        // the entities mentioned in each occurrence line, so that each line is scanned only once
+        Map<Integer, BitSet> mentionedEntitiesByLine = new LinkedHashMap<>();
+        for (int entityIndex = 0; entityIndex < entities.size(); entityIndex++) {
+            NamedEntity.Builder entity = entities.get(entityIndex);
+            for (int lineNumber : occurrenceLines.get(entityIndex)) {
+                if (lineNumber == -1) {
+                    //to improve resilience, we skip invalid occurrences
+                    continue;
+                }
+                BitSet mentionedEntities = mentionedEntitiesByLine.computeIfAbsent(lineNumber, key -> matcher.findMentionedEntities(
+                        softwareArchitectureDocumentation.getLowerCaseLine(key)));
+                NamedEntityReferenceType referenceType = mentionedEntities.get(entityIndex) ? NamedEntityReferenceType.DIRECT : NamedEntityReferenceType.INDIRECT;
+                entity.occurrence(lineNumber, referenceType);
+            }
+        }
+    }
+
+    /**
+     * Deducts the reference types of the occurrences of the given entities again, from all of their names.
+     * <p>
+     * This is needed after entities have been merged, e.g., the entities recognized in separate chunks of a SAD: an alternative name that has only been
+     * recognized in one chunk can turn an indirect reference in another chunk into a direct one.
+     * </p>
+     *
+     * @param entities                          the entities
+     * @param softwareArchitectureDocumentation the software architecture documentation the occurrences of the entities refer to
+     * @return new entities with the names, types, alternative names, and occurrence lines of the given ones, in the same order
+     */
+    public static Set<NamedEntity> withDeductedReferenceTypes(Collection<NamedEntity> entities,
             SoftwareArchitectureDocumentation softwareArchitectureDocumentation) {
-        if (lineNumber == -1) {
-            //to improve resilience, we skip invalid occurrences
-            return;
+        List<NamedEntity.Builder> builders = new ArrayList<>(entities.size());
+        List<Collection<Integer>> occurrenceLines = new ArrayList<>(entities.size());
+        for (NamedEntity entity : entities) {
+            NamedEntity.Builder builder = new NamedEntity.Builder(entity.getName(), entity.getType()).sourceText(softwareArchitectureDocumentation);
+            for (String alternativeName : entity.getAlternativeNames()) {
+                builder.alternativeName(alternativeName);
+            }
+            builders.add(builder);
+            occurrenceLines.add(entity.getOccurrenceLines());
+        }
+        addOccurrencesWithDeductedReferenceTypes(builders, occurrenceLines, softwareArchitectureDocumentation);
+        return build(builders);
+    }
+
+    /**
+     * @return the entities built by the given builders, in the same order
+     */
+    static Set<NamedEntity> build(List<NamedEntity.Builder> entities) {
+        Set<NamedEntity> builtEntities = new LinkedHashSet<>();
+        for (NamedEntity.Builder entity : entities) {
+            builtEntities.add(entity.build());
+        }
+        return builtEntities;
+    }
+
+    /**
+     * The state of parsing the lines of the structured text format one after another.
+     * <p>
+     * If an entity consumer is given, each entity is passed to it (and forgotten) as soon as it is complete, i.e., as soon as its alternative names line has
+     * been parsed, or when its section ends (see {@link #finish()} for the last section). An entity whose name appears again in a later section is then
+     * passed to the consumer again, instead of being merged with the first one.
+     * </p>
+     */
+    static final class StructuredTextState {
+        private static final String SECTION_HEADER_SUFFIX = " entities recognized:";
+        private static final String ALTERNATIVE_NAMES_HEADER = "Alternative names:";
+
+        private final SoftwareArchitectureDocumentation softwareArchitectureDocumentation;
+        /**
+         * collects the invalid lines; if {@code null}, the first invalid line causes an {@link IOException}
+         */
+        private final List<InvalidLine> invalidLines;
+        /**
+         * receives the completed entities; if {@code null}, all entities are kept until {@link #getEntities()}
+         */
+        private final Consumer<NamedEntity> entityConsumer;
+        private final Map<String, NamedEntity.Builder> entityMap = new LinkedHashMap<>();
+        private final Map<String, Set<Integer>> entityOccurencesMap = new LinkedHashMap<>(); //needed to determine reference types of the occurrences after information about alternative names is saved
+        private boolean parsingAlternativeNames = false;
+        private NamedEntityType currentEntityType = null;
+        private String currentSection = null;
+
+        StructuredTextState(SoftwareArchitectureDocumentation softwareArchitectureDocumentation, List<InvalidLine> invalidLines,
+                Consumer<NamedEntity> entityConsumer) {
+            this.softwareArchitectureDocumentation = softwareArchitectureDocumentation;
+            this.invalidLines = invalidLines;
+            this.entityConsumer = entityConsumer;
+        }
+
+        /**
+         * Processes the line in the given range of the text. The range must not contain line terminators.
+         */
+        void processLine(CharSequence text, int lineStart, int lineEnd, int lineIndex) throws IOException {
+            int start = skipWhitespace(text, lineStart, lineEnd);
+            int end = trimEnd(text, start, lineEnd);
+            if (start == end) {
+                return;
+            }
+
+            try {
+                // Check for section header: "<currentEntityType> entities recognized:" (headers are rare, so they are copied)
+                if (endsWith(text, start, end, SECTION_HEADER_SUFFIX.substring(1))) {
+                    String line = text.subSequence(start, end).toString();
+                    emitEntities();
+                    parsingAlternativeNames = false;
+                    currentSection = line;
+                    currentEntityType = null;
+                    String typeString = line.substring(0, Math.max(line.indexOf(SECTION_HEADER_SUFFIX), 0)).trim().toUpperCase();
+                    try {
+                        currentEntityType = NamedEntityType.valueOf(typeString);
+                    } catch (IllegalArgumentException e) {
+                        logger.error("Unknown entity type: '{}'", typeString);
+                        throw new IOException("Unknown entity type: '" + typeString + "'");
+                    }
+                    return;
+                }
+
+                if (regionEqualsIgnoreCase(text, start, end, ALTERNATIVE_NAMES_HEADER)) {
+                    parsingAlternativeNames = true;
+                    currentSection = text.subSequence(start, end).toString();
+                    return;
+                }
+
+                if (currentEntityType == null) {
+                    throw new IOException("Entity type not specified before entries: '" + text.subSequence(start, end) + "'");
+                }
+
+                if (!parsingAlternativeNames) {
+                    parseEntityOccurrence(softwareArchitectureDocumentation, text, start, end, entityMap, currentEntityType, entityOccurencesMap);
+                } else {
+                    String name = parseAlternativeNames(text, start, end, entityMap);
+                    if (entityConsumer != null) {
+                        emit(name);
+                    }
+                }
+            } catch (IOException e) {
+                if (invalidLines == null) {
+                    throw e;
+                }
+                String expectedFormat = parsingAlternativeNames ? ALTERNATIVE_NAMES_FORMAT : ENTITY_OCCURRENCE_FORMAT;
+                invalidLines.add(new InvalidLine(lineIndex, text.subSequence(start, end).toString(), currentSection, expectedFormat, e.getMessage()));
+            }
         }
 
-        boolean isDirect = softwareArchitectureDocumentation.getLine(lineNumber).toLowerCase().contains(entity.getName().toLowerCase());
-        for (String alternativeName : entity.getAlternativeNames()) {
-            if (softwareArchitectureDocumentation.getLine(lineNumber).toLowerCase().contains(alternativeName.toLowerCase())) {
-                isDirect = true;
-                break;
+        /**
+         * Adds the occurrences with their reference types (which depend on the alternative names) to the entities.
+         *
+         * @return the parsed entities
+         */
+        Set<NamedEntity> getEntities() {
+            List<NamedEntity.Builder> entities = new ArrayList<>(entityMap.values());
+            List<Set<Integer>> occurrenceLines = new ArrayList<>();
+            for (NamedEntity.Builder entity : entities) {
+                occurrenceLines.add(entityOccurencesMap.get(entity.getName()));
+            }
+            addOccurrencesWithDeductedReferenceTypes(entities, occurrenceLines, softwareArchitectureDocumentation);
+            return build(entities);
+        }
+
+        /**
+         * Passes the entities that have not been passed to the entity consumer yet to it.
+         */
+        void finish() {
+            emitEntities();
+        }
+
+        private void emitEntities() {
+            if (entityConsumer != null) {
+                for (String name : entityMap.keySet().toArray(new String[0])) {
+                    emit(name);
+                }
+            }
+        }
+
+        private void emit(String name) {
+            NamedEntity.Builder entity = entityMap.remove(name);
+            Set<Integer> lineNumbers = entityOccurencesMap.remove(name);
+            if (entity == null) {
+                return; // "<name>: None" for an entity without occurrences
+            }
+            addOccurrencesWithDeductedReferenceTypes(List.of(entity), List.of(lineNumbers), softwareArchitectureDocumentation);
+            entityConsumer.accept(entity.build());
+        }
+
+        private static boolean endsWith(CharSequence text, int start, int end, String suffix) {
+            if (end - start < suffix.length()) {
+                return false;
+            }
+            for (int i = 0; i < suffix.length(); i++) {
+                if (text.charAt(end - suffix.length() + i) != suffix.charAt(i)) {
+                    return false;
+                }
             }
+            return true;
         }
-        NamedEntityReferenceType referenceType = isDirect ? NamedEntityReferenceType.DIRECT : NamedEntityReferenceType.INDIRECT;
-        entity.addOccurrence(lineNumber, referenceType);
     }
 }
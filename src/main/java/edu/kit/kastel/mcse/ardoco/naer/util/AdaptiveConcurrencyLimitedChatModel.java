@@ -0,0 +1,248 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * A {@link ChatModel} that limits the number of concurrent requests to its delegate and adapts the limit to the capacity of the provider (AIMD: additive
+ * increase, multiplicative decrease).
+ * <p>
+ * Each successful request whose latency is stable (at most twice the moving average) increases the limit by {@code 1 / limit}, i.e., by one per "round" of
+ * requests. A request that is rejected because of the rate limit (HTTP 429), because the provider is overloaded (HTTP 503), or that times out halves the
+ * limit. Requests that were already running when the limit was decreased do not decrease it again, so a burst of rejections only halves the limit once.
+ * Requests beyond the limit wait in a queue.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimitedChatModel implements ChatModel {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimitedChatModel.class);
+    private static final int DEFAULT_INITIAL_LIMIT = 4;
+    private static final int DEFAULT_MIN_LIMIT = 1;
+    private static final int DEFAULT_MAX_LIMIT = 64;
+    private static final double DECREASE_FACTOR = 0.5;
+    /**
+     * a latency above this multiple of the average latency is not stable
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+    /**
+     * the weight of the latest latency in the moving average
+     */
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final ChatModel delegate;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    // the following fields are guarded by lock
+    private double limit;
+    private int inFlight;
+    private int queueDepth;
+    private double averageLatencyNanos;
+    private long lastDecrease = System.nanoTime();
+
+    /**
+     * Creates a limiter for the given chat model with an initial limit of 4 concurrent requests, which adapts between 1 and 64.
+     *
+     * @param delegate the chat model to limit
+     */
+    public AdaptiveConcurrencyLimitedChatModel(ChatModel delegate) {
+        this(delegate, DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+    }
+
+    /**
+     * Creates a limiter for the given chat model.
+     *
+     * @param delegate     the chat model to limit
+     * @param initialLimit the initial number of concurrent requests
+     * @param minLimit     the minimum number of concurrent requests
+     * @param maxLimit     the maximum number of concurrent requests
+     * @throws IllegalArgumentException if the delegate is null or the limits are not {@code 1 <= minLimit <= initialLimit <= maxLimit}
+     */
+    public AdaptiveConcurrencyLimitedChatModel(ChatModel delegate, int initialLimit, int minLimit, int maxLimit) {
+        if (delegate == null) {
+            logger.error("delegate is null");
+            throw new IllegalArgumentException("delegate is null");
+        }
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            logger.error("limits must satisfy 1 <= min <= initial <= max");
+            throw new IllegalArgumentException("limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.delegate = delegate;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Returns the current number of concurrent requests that are allowed.
+     *
+     * @return the current limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests that are currently running.
+     *
+     * @return the number of running requests
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests that are waiting because the limit is reached.
+     *
+     * @return the number of waiting requests
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queueDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            ChatResponse chatResponse = delegate.chat(chatRequest);
+            onSuccess(System.nanoTime() - start);
+            return chatResponse;
+        } catch (RuntimeException e) {
+            if (isOverloaded(e)) {
+                onOverload(start, e);
+            }
+            throw e;
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            queueDepth++;
+            try {
+                while (inFlight >= (int) limit) {
+                    permitReleased.await();
+                }
+            } finally {
+                queueDepth--;
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the concurrency limit", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(long latencyNanos) {
+        lock.lock();
+        try {
+            boolean stable = averageLatencyNanos == 0 || latencyNanos <= LATENCY_TOLERANCE * averageLatencyNanos;
+            if (averageLatencyNanos == 0) {
+                averageLatencyNanos = latencyNanos;
+            } else {
+                averageLatencyNanos = LATENCY_SMOOTHING * latencyNanos + (1 - LATENCY_SMOOTHING) * averageLatencyNanos;
+            }
+            if (stable && limit < maxLimit) {
+                int previousLimit = (int) limit;
+                limit = Math.min(maxLimit, limit + 1 / limit);
+                if ((int) limit > previousLimit) {
+                    permitReleased.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onOverload(long start, RuntimeException e) {
+        lock.lock();
+        try {
+            if (start - lastDecrease < 0) {
+                // the request was sent before the last decrease, which already accounts for it
+                return;
+            }
+            int previousLimit = (int) limit;
+            limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+            lastDecrease = System.nanoTime();
+            logger.warn("provider is overloaded ({}), decreasing concurrency limit from {} to {}", e.getClass().getSimpleName(), previousLimit, (int) limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the given exception (or one of its causes) signals that the provider is overloaded, i.e., a rate limit (HTTP 429), an unavailable
+     * service (HTTP 503), or a timeout.
+     */
+    private static boolean isOverloaded(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RateLimitException || cause instanceof TimeoutException) {
+                return true;
+            }
+            if (cause instanceof HttpTimeoutException || cause instanceof SocketTimeoutException || cause instanceof java.util.concurrent.TimeoutException) {
+                return true;
+            }
+            if (cause instanceof HttpException httpException && (httpException.statusCode() == 429 || httpException.statusCode() == 503)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
@@ -3,27 +3,58 @@ package edu.kit.kastel.mcse.ardoco.naer.util;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import dev.langchain4j.model.chat.Capability;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 
 /**
  * A factory class for creating different types of {@link ChatModel} instances.
+ * <p>
+ * The built models are pooled: identical configurations (provider, model, temperature, structured outputs, timeout, and host) return the same instance.
+ * All models share the HTTP clients of {@link SharedHttpClientBuilder}, so concurrent requests to the same host reuse kept-alive connections.
+ * </p>
+ * <p>
+ * Each built {@link ChatModel} (for Ollama: each host) is wrapped in an {@link AdaptiveConcurrencyLimitedChatModel}, which adapts the number of
+ * concurrent requests to the capacity of the provider (see {@link #getConcurrencyLimiters()}). Additionally, it waits for the
+ * {@link TokenBucketRateLimiter} of its provider and model, see {@link #setRateLimits(ModelProvider, String, int, int)}. Failed calls are retried
+ * according to the {@link #retryPolicy(RetryPolicy) retry policy}, and requests to a host that is down fail fast (see
+ * {@link #setCircuitBreaker(int, Duration)}).
+ * </p>
  */
 public class ChatModelFactory {
     private static final Logger logger = LoggerFactory.getLogger(ChatModelFactory.class);
+    private static final ConcurrentMap<String, ChatModel> chatModels = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, StreamingChatModel> streamingChatModels = new ConcurrentHashMap<>();
+    /**
+     * the concurrency limiters of each pooled chat model (by the same key as {@link #chatModels}), recorded when the chat model is built
+     */
+    private static final ConcurrentMap<String, Map<String, AdaptiveConcurrencyLimitedChatModel>> concurrencyLimiters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, TokenBucketRateLimiter> rateLimiters = new ConcurrentHashMap<>();
     // Input validation is implemented in each method
 
     private ModelProvider provider;
     private double temperature = 0.0; //default
     private int timeoutSeconds = 60;  //default
     private String modelName = null;
+    private boolean structuredOutput = false; //default
+    private List<String> ollamaHosts = null;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT; //default
 
     /**
      * Creates a new factory instance with the specified model provider.
@@ -42,6 +73,94 @@ public class ChatModelFactory {
         return factory;
     }
 
+    /**
+     * Sets the maximum number of concurrent requests (and thus connections) per host for all chat models built by any factory.
+     * <p>
+     * Requests beyond the limit wait until a running request to the same host has finished. The limit applies immediately, also to already built models.
+     * Streaming requests are not limited.
+     * </p>
+     *
+     * @param maxConnectionsPerHost the maximum number of concurrent requests per host (default: 16)
+     */
+    public static void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost < 1) {
+            logger.error("max connections per host must be >= 1");
+            throw new IllegalArgumentException("Max connections per host must be >= 1");
+        }
+        SharedHttpClientBuilder.getConnectionLimiter().setMaxConnectionsPerHost(maxConnectionsPerHost);
+    }
+
+    /**
+     * Returns the maximum number of concurrent requests per host, see {@link #setMaxConnectionsPerHost(int)}.
+     *
+     * @return the maximum number of concurrent requests per host
+     */
+    public static int getMaxConnectionsPerHost() {
+        return SharedHttpClientBuilder.getConnectionLimiter().getMaxConnectionsPerHost();
+    }
+
+    /**
+     * Configures the circuit breakers that let requests to a host fail fast while it is down.
+     * <p>
+     * After the given number of consecutive failed requests (no answer or a server error), the requests to the host fail with a
+     * {@link CircuitBreakerOpenException} for the open duration. Afterward, a single probe request decides whether the host is available again. The settings
+     * apply to all hosts, also to already built models.
+     * </p>
+     *
+     * @param failureThreshold the number of consecutive failures after which the circuit breaker opens (default: 5)
+     * @param openDuration     the duration after which an open circuit breaker lets a probe request through (default: 30 s)
+     */
+    public static void setCircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold < 1) {
+            logger.error("failure threshold must be >= 1");
+            throw new IllegalArgumentException("Failure threshold must be >= 1");
+        }
+        if (openDuration == null || openDuration.isNegative() || openDuration.isZero()) {
+            logger.error("open duration must be positive");
+            throw new IllegalArgumentException("Open duration must be positive");
+        }
+        SharedHttpClientBuilder.configureCircuitBreakers(failureThreshold, openDuration);
+    }
+
+    /**
+     * Sets the rate limits of a model of a provider, e.g., the requests and tokens per minute of the OpenAI account. Requests beyond the limits wait until
+     * the limits allow them. The limits apply to all chat models of the provider and model, also to already built ones.
+     *
+     * @param provider          the provider
+     * @param modelName         the name of the model
+     * @param requestsPerMinute the maximum number of requests per minute, or 0 for no limit (default)
+     * @param tokensPerMinute   the maximum number of tokens per minute, or 0 for no limit (default)
+     */
+    public static void setRateLimits(ModelProvider provider, String modelName, int requestsPerMinute, int tokensPerMinute) {
+        getRateLimiter(provider, modelName).setLimits(requestsPerMinute, tokensPerMinute);
+    }
+
+    /**
+     * Returns the rate limiter of a model of a provider, see {@link #setRateLimits(ModelProvider, String, int, int)}.
+     *
+     * @param provider  the provider
+     * @param modelName the name of the model
+     * @return the rate limiter, which does not limit anything until limits are set
+     */
+    public static TokenBucketRateLimiter getRateLimiter(ModelProvider provider, String modelName) {
+        if (provider == null || modelName == null) {
+            logger.error("provider and model name must not be null");
+            throw new IllegalArgumentException("Provider and model name must not be null");
+        }
+        return rateLimiters.computeIfAbsent(provider + "/" + modelName, key -> new TokenBucketRateLimiter(0, 0));
+    }
+
+    /**
+     * Returns the {@link AdaptiveConcurrencyLimitedChatModel adaptive concurrency limiters} of the chat model that this factory builds, e.g., to monitor
+     * their current limits, running requests, and queue depths. The chat model is built if it has not been built yet.
+     *
+     * @return the concurrency limiters by the Ollama host, or, for other providers, a single concurrency limiter by the name of the provider
+     */
+    public Map<String, AdaptiveConcurrencyLimitedChatModel> getConcurrencyLimiters() {
+        build();
+        return new LinkedHashMap<>(concurrencyLimiters.getOrDefault(getInstanceKey(), Map.of()));
+    }
+
     /**
      * Sets the temperature parameter for the chat model.
      *
@@ -92,26 +211,147 @@ public class ChatModelFactory {
         return this;
     }
 
+    /**
+     * Enables or disables structured outputs.
+     * <p>
+     * If enabled, the chat model declares that it supports JSON schemas as response format, and prompts with a JSON output (e.g.,
+     * {@link edu.kit.kastel.mcse.ardoco.naer.recognizer.JsonOutputPrompt}) force its answers to adhere to the
+     * {@link edu.kit.kastel.mcse.ardoco.naer.serialization.NamedEntityJsonSchema}. The answers are then always parseable, so no repair calls are needed.
+     * The selected model must support structured outputs (OpenAI: e.g., gpt-4o-mini and later; Ollama: any model since Ollama 0.5).
+     * </p>
+     *
+     * @param structuredOutput whether structured outputs are used
+     * @return this factory instance for method chaining
+     */
+    public ChatModelFactory structuredOutput(boolean structuredOutput) {
+        this.structuredOutput = structuredOutput;
+        return this;
+    }
+
+    /**
+     * Sets the policy for retrying failed calls of the chat model.
+     * <p>
+     * If not specified, {@link RetryPolicy#DEFAULT} is used. Use {@link RetryPolicy#NO_RETRY} to disable retries.
+     * </p>
+     *
+     * @param retryPolicy the retry policy
+     * @return this factory instance for method chaining
+     */
+    public ChatModelFactory retryPolicy(RetryPolicy retryPolicy) {
+        if (retryPolicy == null) {
+            logger.error("retry policy is null");
+            throw new IllegalArgumentException("Retry policy cannot be null");
+        }
+
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the Ollama hosts to distribute the requests over.
+     * <p>
+     * If several hosts are given, the built {@link ChatModel} is a {@link LoadBalancingChatModel} that sends each request to the least loaded healthy host.
+     * A failed request is retried on another host only according to the {@link #retryPolicy(RetryPolicy) retry policy}, or, with
+     * {@link RetryPolicy#NO_RETRY}, once on each host.
+     * If not specified, the hosts are read from the OLLAMA_HOSTS environment variable (comma-separated), or, if that is not set, from OLLAMA_HOST.
+     * </p>
+     *
+     * @param ollamaHosts the base URLs of the Ollama servers
+     * @return this factory instance for method chaining
+     */
+    public ChatModelFactory ollamaHosts(List<String> ollamaHosts) {
+        if (ollamaHosts == null || ollamaHosts.isEmpty()) {
+            logger.error("ollama hosts must not be empty");
+            throw new IllegalArgumentException("Ollama hosts must not be empty");
+        }
+        for (String ollamaHost : ollamaHosts) {
+            if (ollamaHost == null || ollamaHost.isBlank()) {
+                logger.error("ollama host must not be blank");
+                throw new IllegalArgumentException("Ollama host must not be blank");
+            }
+        }
+
+        this.ollamaHosts = List.copyOf(ollamaHosts);
+        return this;
+    }
+
+    /**
+     * Describes the model that this factory builds, i.e., the provider, the model name, and the temperature.
+     * <p>The description identifies the model, e.g., in the key of a {@link ResponseCache}. Timeouts are not included as they do not affect the answer.</p>
+     *
+     * @return a description of the configured model
+     */
+    public String getModelDescription() {
+        resolveDefaultModelName();
+        return provider + "/" + modelName + "/temperature=" + temperature + (structuredOutput ? "/structuredOutput" : "");
+    }
+
     /**
      * Builds and returns a {@link ChatModel} instance based on the configured provider and settings.
+     * <p>If a model with the same configuration has already been built, the pooled (thread-safe) instance is returned.</p>
      *
      * @return a configured {@link ChatModel} instance ready for use
      */
     public ChatModel build() {
-        return switch (provider) {
-        case OPEN_AI -> {
-            //most cost efficient models: gpt-4.1-nano https://platform.openai.com/docs/models/gpt-4.1-nano; still pretty cost efficient: gpt-4o-mini https://platform.openai.com/docs/models/gpt-4o-mini
-            if (modelName == null)
-                modelName = "gpt-4.1-nano"; //default
-            yield buildOpenAiModel();
+        resolveDefaultModelName();
+        return chatModels.computeIfAbsent(getInstanceKey(), key -> {
+            Map<String, AdaptiveConcurrencyLimitedChatModel> modelConcurrencyLimiters = new LinkedHashMap<>();
+            ChatModel chatModel = switch (provider) {
+            case OPEN_AI -> buildOpenAiModel(modelConcurrencyLimiters);
+            case LOCAL -> buildLocalModel();
+            case OLLAMA -> buildOllamaModel(modelConcurrencyLimiters);
+            };
+            // recorded before the model is pooled, so that the limiters of a pooled model are always available
+            concurrencyLimiters.put(key, Collections.unmodifiableMap(modelConcurrencyLimiters));
+            return new ResilientChatModel(new RateLimitedChatModel(chatModel, getRateLimiter(provider, modelName)), retryPolicy);
+        });
+    }
+
+    /**
+     * Builds and returns a {@link StreamingChatModel} instance based on the configured provider and settings.
+     * <p>
+     * A streaming chat model passes the answer to its handler piece by piece while it is being generated (see
+     * {@link edu.kit.kastel.mcse.ardoco.naer.recognizer.NamedEntityRecognizer#recognizeStreaming}).
+     * If a model with the same configuration has already been built, the pooled instance is returned.
+     * </p>
+     *
+     * @return a configured {@link StreamingChatModel} instance ready for use
+     * @throws UnsupportedOperationException if the provider is LOCAL, which is not implemented yet
+     */
+    public StreamingChatModel buildStreaming() {
+        resolveDefaultModelName();
+        return streamingChatModels.computeIfAbsent(getInstanceKey(), key -> switch (provider) {
+        case OPEN_AI -> buildOpenAiStreamingModel();
+        case LOCAL -> throw new UnsupportedOperationException("Local model not implemented yet");
+        case OLLAMA -> buildOllamaStreamingModel();
+        });
+    }
+
+    /**
+     * Identifies the built model instance, i.e., the {@link #getModelDescription() model}, the timeout, the hosts, and the retry policy.
+     *
+     * @return the key of the model instance in the pool
+     */
+    private String getInstanceKey() {
+        String hosts = provider == ModelProvider.OLLAMA ? String.join(",", getOllamaHosts()) : "";
+        return getModelDescription() + "/timeout=" + timeoutSeconds + (hosts.isEmpty() ? "" : "/hosts=" + hosts) + "/" + retryPolicy;
+    }
+
+    /**
+     * Selects the default model of the provider if no model name has been specified.
+     */
+    private void resolveDefaultModelName() {
+        if (modelName != null) {
+            return;
+        }
+        switch (provider) {
+        //most cost efficient models: gpt-4.1-nano https://platform.openai.com/docs/models/gpt-4.1-nano; still pretty cost efficient: gpt-4o-mini https://platform.openai.com/docs/models/gpt-4o-mini
+        case OPEN_AI -> modelName = "gpt-4.1-nano"; //default
+        case OLLAMA -> modelName = "phi4:latest"; //default
+        case LOCAL -> {
+            // not implemented yet
         }
-        case LOCAL -> buildLocalModel();
-        case OLLAMA -> {
-            if (modelName == null)
-                modelName = "phi4:latest"; //default
-            yield buildOllamaModel();
         }
-        };
     }
 
     /**
@@ -120,41 +360,154 @@ public class ChatModelFactory {
      * This method requires the OPENAI_API_KEY environment variable to be set.
      * </p>
      *
-     * @return a configured OpenAiChatModel instance
+     * @param concurrencyLimiters receives the concurrency limiter of the model by the name of the provider
+     * @return a configured OpenAiChatModel instance behind an {@link AdaptiveConcurrencyLimitedChatModel}
+     */
+    private ChatModel buildOpenAiModel(Map<String, AdaptiveConcurrencyLimitedChatModel> concurrencyLimiters) {
+        String apiKey = Environment.getEnvNonNull("OPENAI_API_KEY");
+        var builder = OpenAiChatModel.builder().apiKey(apiKey).timeout(Duration.ofSeconds(timeoutSeconds)).modelName(modelName).temperature(temperature)
+                .httpClientBuilder(new SharedHttpClientBuilder()).maxRetries(0);
+        if (structuredOutput) {
+            builder = builder.supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA).strictJsonSchema(true);
+        }
+        return limitConcurrency(builder.build(), provider.name(), concurrencyLimiters);
+    }
+
+    /**
+     * Builds a streaming OpenAI chat model using the OpenAI API.
+     * <p>
+     * This method requires the OPENAI_API_KEY environment variable to be set.
+     * </p>
+     *
+     * @return a configured OpenAiStreamingChatModel instance
      */
-    private ChatModel buildOpenAiModel() {
+    private StreamingChatModel buildOpenAiStreamingModel() {
         String apiKey = Environment.getEnvNonNull("OPENAI_API_KEY");
-        return OpenAiChatModel.builder().apiKey(apiKey).timeout(Duration.ofSeconds(timeoutSeconds)).modelName(modelName).temperature(temperature).build();
+        var builder = OpenAiStreamingChatModel.builder().apiKey(apiKey).timeout(Duration.ofSeconds(timeoutSeconds)).modelName(modelName).temperature(temperature)
+                .httpClientBuilder(new SharedHttpClientBuilder());
+        if (structuredOutput) {
+            builder = builder.supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA).strictJsonSchema(true);
+        }
+        return builder.build();
     }
 
     /**
-     * Builds a {@link ChatModel} for a Ollama instance.
+     * Builds a {@link ChatModel} for the Ollama instances, see {@link #ollamaHosts(List)}.
      * <p>
      * This method requires the following environment variables to be set:
      * <ul>
-     * <li>OLLAMA_HOST: The base URL of the Ollama server</li>
+     * <li>OLLAMA_HOST: The base URL of the Ollama server (or OLLAMA_HOSTS: the comma-separated base URLs of several Ollama servers)</li>
      * <li>OLLAMA_USER: Username for authentication</li>
      * <li>OLLAMA_PASSWORD: Password for authentication</li>
      * </ul>
      * <p>
      *
-     * @return a configured OllamaChatModel instance
+     * @param concurrencyLimiters receives the concurrency limiter of each host by the host
+     * @return a configured OllamaChatModel instance, or a {@link LoadBalancingChatModel} if several hosts are configured
      */
-    private ChatModel buildOllamaModel() {
-        String host = Environment.getEnvNonNull("OLLAMA_HOST");
-        String user = Environment.getEnvNonNull("OLLAMA_USER");
-        String password = Environment.getEnvNonNull("OLLAMA_PASSWORD");
+    private ChatModel buildOllamaModel(Map<String, AdaptiveConcurrencyLimitedChatModel> concurrencyLimiters) {
+        List<String> hosts = getOllamaHosts();
+        if (hosts.size() == 1) {
+            return buildOllamaModel(hosts.get(0), concurrencyLimiters);
+        }
+        Map<String, ChatModel> chatModelsByHost = new LinkedHashMap<>();
+        for (String host : hosts) {
+            chatModelsByHost.put(host, buildOllamaModel(host, concurrencyLimiters));
+        }
+        // retrying on the other hosts in addition to the retries of the retry policy would multiply the attempts by the number of hosts
+        return new LoadBalancingChatModel(chatModelsByHost, retryPolicy.maxAttempts() == 1);
+    }
 
-        var builder = OllamaChatModel.builder().baseUrl(host).modelName(modelName).temperature(temperature).timeout(Duration.ofSeconds(timeoutSeconds));
+    private ChatModel buildOllamaModel(String host, Map<String, AdaptiveConcurrencyLimitedChatModel> concurrencyLimiters) {
+        var builder = OllamaChatModel.builder().baseUrl(host).modelName(modelName).temperature(temperature).timeout(Duration.ofSeconds(timeoutSeconds))
+                .httpClientBuilder(new SharedHttpClientBuilder()).maxRetries(0);
 
-        if (user != null && password != null) {
-            builder = builder.customHeaders(Map.of("Authorization", "Basic " + Base64.getEncoder()
-                    .encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8))));
+        Map<String, String> authorizationHeaders = getOllamaAuthorizationHeaders();
+        if (!authorizationHeaders.isEmpty()) {
+            builder = builder.customHeaders(authorizationHeaders);
+        }
+        if (structuredOutput) {
+            builder = builder.supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA);
+        }
+
+        return limitConcurrency(builder.build(), host, concurrencyLimiters);
+    }
+
+    /**
+     * Wraps the given chat model in an {@link AdaptiveConcurrencyLimitedChatModel} and records it under the given key.
+     *
+     * @return the concurrency limited chat model
+     */
+    private static ChatModel limitConcurrency(ChatModel chatModel, String key, Map<String, AdaptiveConcurrencyLimitedChatModel> concurrencyLimiters) {
+        AdaptiveConcurrencyLimitedChatModel concurrencyLimiter = new AdaptiveConcurrencyLimitedChatModel(chatModel);
+        concurrencyLimiters.put(key, concurrencyLimiter);
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Builds a {@link StreamingChatModel} for a Ollama instance.
+     * <p>
+     * This method requires the same environment variables as {@link #buildOllamaModel(Map)}. Streaming requests are not load balanced; if several hosts are
+     * configured, the first one is used.
+     * </p>
+     *
+     * @return a configured OllamaStreamingChatModel instance
+     */
+    private StreamingChatModel buildOllamaStreamingModel() {
+        String host = getOllamaHosts().get(0);
+        var builder = OllamaStreamingChatModel.builder().baseUrl(host).modelName(modelName).temperature(temperature).timeout(Duration.ofSeconds(timeoutSeconds))
+                .httpClientBuilder(new SharedHttpClientBuilder());
+
+        Map<String, String> authorizationHeaders = getOllamaAuthorizationHeaders();
+        if (!authorizationHeaders.isEmpty()) {
+            builder = builder.customHeaders(authorizationHeaders);
+        }
+        if (structuredOutput) {
+            builder = builder.supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA);
         }
 
         return builder.build();
     }
 
+    /**
+     * Resolves the Ollama hosts: the hosts set with {@link #ollamaHosts(List)}, the OLLAMA_HOSTS environment variable, or the OLLAMA_HOST environment
+     * variable.
+     *
+     * @return the base URLs of the Ollama servers (at least one, which may be null if no host is configured)
+     */
+    private List<String> getOllamaHosts() {
+        if (ollamaHosts != null) {
+            return ollamaHosts;
+        }
+        String hostsVariable = Environment.getEnv("OLLAMA_HOSTS");
+        if (hostsVariable != null && !hostsVariable.isBlank()) {
+            List<String> hosts = new ArrayList<>();
+            for (String host : hostsVariable.split(",")) {
+                if (!host.isBlank()) {
+                    hosts.add(host.trim());
+                }
+            }
+            if (!hosts.isEmpty()) {
+                return hosts;
+            }
+        }
+        return Collections.singletonList(Environment.getEnvNonNull("OLLAMA_HOST"));
+    }
+
+    /**
+     * Creates the basic authentication header for the Ollama server from the OLLAMA_USER and OLLAMA_PASSWORD environment variables.
+     *
+     * @return the authorization header, or an empty map if no credentials are configured
+     */
+    private static Map<String, String> getOllamaAuthorizationHeaders() {
+        String user = Environment.getEnvNonNull("OLLAMA_USER");
+        String password = Environment.getEnvNonNull("OLLAMA_PASSWORD");
+        if (user == null || password == null) {
+            return Map.of();
+        }
+        return Map.of("Authorization", "Basic " + Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8)));
+    }
+
     /**
      * Builds a local chat model.
      * <p>
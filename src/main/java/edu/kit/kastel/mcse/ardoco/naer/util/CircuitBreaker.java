@@ -0,0 +1,110 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A circuit breaker for the requests to one host.
+ * <p>
+ * After a number of consecutive failures, the circuit breaker opens: requests fail fast with a {@link CircuitBreakerOpenException} instead of waiting for
+ * the timeouts of a host that is down. After the open duration, a single probe request is let through (half open); if it succeeds, the circuit breaker
+ * closes again, otherwise it stays open for another open duration.
+ * </p>
+ */
+final class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * The state of a circuit breaker.
+     */
+    enum State {
+        /**
+         * requests are sent
+         */
+        CLOSED,
+        /**
+         * requests fail fast
+         */
+        OPEN,
+        /**
+         * a single probe request is sent
+         */
+        HALF_OPEN
+    }
+
+    private final String host;
+    // the following fields are guarded by this
+    private int failureThreshold;
+    private long openDurationNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    CircuitBreaker(String host, int failureThreshold, Duration openDuration) {
+        this.host = host;
+        configure(failureThreshold, openDuration);
+    }
+
+    synchronized void configure(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Checks whether a request may be sent.
+     *
+     * @throws CircuitBreakerOpenException if the circuit breaker is open, or if it is half open and the probe request is already running
+     */
+    synchronized void beforeRequest() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && probeInFlight)) {
+            throw new CircuitBreakerOpenException(host);
+        }
+        if (state == State.HALF_OPEN) {
+            probeInFlight = true;
+        }
+    }
+
+    /**
+     * Records that the host answered a request.
+     */
+    synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("host {} is available again, closing circuit breaker", host);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    /**
+     * Records that a request to the host failed because the host is not available.
+     */
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            logger.warn("host {} failed {} times in a row, opening circuit breaker for {} s", host, consecutiveFailures, Duration.ofNanos(openDurationNanos)
+                    .toSeconds());
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Records that a request was cancelled without an answer or failure of the host.
+     */
+    synchronized void onCancel() {
+        probeInFlight = false;
+    }
+}
@@ -0,0 +1,16 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+/**
+ * Thrown instead of sending a request to a host whose {@link CircuitBreaker} is open, i.e., which is considered to be down.
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+    /**
+     * Creates the exception.
+     *
+     * @param host the host whose circuit breaker is open
+     */
+    public CircuitBreakerOpenException(String host) {
+        super("circuit breaker for " + host + " is open");
+    }
+}
@@ -0,0 +1,83 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrent requests per host. As the shared HTTP clients are pinned to HTTP/1.1 (see {@link SharedHttpClientBuilder}), each
+ * concurrent request uses its own connection, so this also limits the number of connections per host.
+ * <p>The limit can be changed at any time; requests that are already running are not affected.</p>
+ */
+final class HostConnectionLimiter {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition connectionReleased = lock.newCondition();
+    /**
+     * the number of running requests per host (guarded by {@link #lock}); hosts without running requests are removed
+     */
+    private final Map<String, Integer> activeConnections = new LinkedHashMap<>();
+    private int maxConnectionsPerHost;
+
+    HostConnectionLimiter(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    /**
+     * Waits until a connection to the given host is available and reserves it.
+     *
+     * @param host the host (and port)
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    void acquire(String host) throws InterruptedException {
+        lock.lock();
+        try {
+            while (activeConnections.getOrDefault(host, 0) >= maxConnectionsPerHost) {
+                connectionReleased.await();
+            }
+            activeConnections.merge(host, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a connection to the given host that has been reserved by {@link #acquire(String)}.
+     *
+     * @param host the host (and port)
+     */
+    void release(String host) {
+        lock.lock();
+        try {
+            int connections = activeConnections.getOrDefault(host, 1) - 1;
+            if (connections == 0) {
+                activeConnections.remove(host);
+            } else {
+                activeConnections.put(host, connections);
+            }
+            connectionReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        lock.lock();
+        try {
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            connectionReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getMaxConnectionsPerHost() {
+        lock.lock();
+        try {
+            return maxConnectionsPerHost;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * A {@link ChatModel} that distributes the requests over the chat models of several hosts (e.g., several Ollama servers running the same model).
+ * <p>
+ * Each request is sent to the host with the lowest load, i.e., the number of outstanding requests weighted with the (exponentially weighted moving)
+ * average latency of the host. A host whose request fails is ejected for a cooldown, which doubles with each consecutive failure. After the cooldown, a
+ * single request probes the host: until it has been answered, no other request is sent to the host. If all hosts are ejected, the host whose cooldown ends
+ * first is used.
+ * </p>
+ * <p>
+ * With failover, a failed request is retried transparently on the other hosts. Combined with a retry layer on top (e.g., {@link ResilientChatModel}), a
+ * request is then sent up to {@code maxAttempts * hosts} times; therefore, failover should be disabled if the requests are retried anyway. Without
+ * failover, the failure is passed to the caller, and the retry is sent to another host as the failed one is ejected. Requests that did not reach the host
+ * because its circuit breaker is open ({@link CircuitBreakerOpenException}) are always sent to another host, as the retry layer does not retry them.
+ * </p>
+ * <p>
+ * Requests that are invalid ({@link InvalidRequestException}) fail on every host, so they are neither retried nor do they eject the host. Requests that
+ * are rejected because of a rate limit (HTTP 429) do not eject the host either: the host is available, and the rate limit is handled by the
+ * {@link AdaptiveConcurrencyLimitedChatModel} of the host.
+ * </p>
+ */
+public class LoadBalancingChatModel implements ChatModel {
+    private static final Logger logger = LoggerFactory.getLogger(LoadBalancingChatModel.class);
+    /**
+     * the weight of the latest latency in the moving average
+     */
+    private static final double LATENCY_SMOOTHING = 0.3;
+    private static final Duration INITIAL_COOLDOWN = Duration.ofSeconds(5);
+    private static final Duration MAX_COOLDOWN = Duration.ofMinutes(2);
+
+    private final List<Host> hosts;
+    private final boolean failover;
+    private final Duration initialCooldown;
+    /**
+     * the host to start the selection from, so that equally loaded hosts are used in turn
+     */
+    private final AtomicInteger nextHost = new AtomicInteger();
+
+    /**
+     * Creates a chat model that distributes its requests over the given chat models and retries failed requests on the other hosts.
+     *
+     * @param chatModelsByHost the chat models (of the same model) by the name of their host
+     * @throws IllegalArgumentException if no chat models are given
+     */
+    public LoadBalancingChatModel(Map<String, ChatModel> chatModelsByHost) {
+        this(chatModelsByHost, true);
+    }
+
+    /**
+     * Creates a chat model that distributes its requests over the given chat models.
+     *
+     * @param chatModelsByHost the chat models (of the same model) by the name of their host
+     * @param failover         whether a failed request is retried on the other hosts; disable it if the requests are retried by the caller
+     * @throws IllegalArgumentException if no chat models are given
+     */
+    public LoadBalancingChatModel(Map<String, ChatModel> chatModelsByHost, boolean failover) {
+        this(chatModelsByHost, failover, INITIAL_COOLDOWN);
+    }
+
+    /**
+     * Creates a chat model with the given cooldown after the first failure of a host (for tests).
+     */
+    LoadBalancingChatModel(Map<String, ChatModel> chatModelsByHost, boolean failover, Duration initialCooldown) {
+        if (chatModelsByHost == null || chatModelsByHost.isEmpty()) {
+            logger.error("no chat models given");
+            throw new IllegalArgumentException("no chat models given");
+        }
+        List<Host> hostList = new ArrayList<>();
+        for (Map.Entry<String, ChatModel> entry : chatModelsByHost.entrySet()) {
+            if (entry.getValue() == null) {
+                logger.error("chat model of host {} is null", entry.getKey());
+                throw new IllegalArgumentException("chat model of host " + entry.getKey() + " is null");
+            }
+            hostList.add(new Host(entry.getKey(), entry.getValue()));
+        }
+        this.hosts = Collections.unmodifiableList(hostList);
+        this.failover = failover;
+        this.initialCooldown = initialCooldown;
+    }
+
+    /**
+     * Returns the chat models of the hosts.
+     *
+     * @return the chat models by the name of their host
+     */
+    public Map<String, ChatModel> getChatModels() {
+        Map<String, ChatModel> chatModels = new LinkedHashMap<>();
+        for (Host host : hosts) {
+            chatModels.put(host.name, host.chatModel);
+        }
+        return chatModels;
+    }
+
+    /**
+     * Returns the names of the hosts that currently accept requests, i.e., that are not ejected and not being probed.
+     *
+     * @return the names of the healthy hosts
+     */
+    public List<String> getHealthyHosts() {
+        long now = System.nanoTime();
+        List<String> healthyHosts = new ArrayList<>();
+        for (Host host : hosts) {
+            if (host.isHealthy(now)) {
+                healthyHosts.add(host.name);
+            }
+        }
+        return healthyHosts;
+    }
+
+    /**
+     * Returns the number of outstanding requests of each host.
+     *
+     * @return the outstanding requests by the name of their host
+     */
+    public Map<String, Integer> getOutstandingRequests() {
+        Map<String, Integer> outstandingRequests = new LinkedHashMap<>();
+        for (Host host : hosts) {
+            outstandingRequests.put(host.name, host.outstandingRequests.get());
+        }
+        return outstandingRequests;
+    }
+
+    /**
+     * Returns the remaining cooldown of each ejected host. Hosts whose cooldown has ended but whose probe request has not been answered yet are included
+     * with a remaining cooldown of zero.
+     *
+     * @return the remaining cooldowns by the name of their host
+     */
+    public Map<String, Duration> getEjectedHosts() {
+        long now = System.nanoTime();
+        Map<String, Duration> ejectedHosts = new LinkedHashMap<>();
+        for (Host host : hosts) {
+            if (!host.isHealthy(now)) {
+                ejectedHosts.put(host.name, Duration.ofNanos(Math.max(host.getEjectedUntil() - now, 0)));
+            }
+        }
+        return ejectedHosts;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        List<Host> triedHosts = new ArrayList<>();
+        RuntimeException lastFailure = null;
+        while (triedHosts.size() < hosts.size()) {
+            Host host = startRequest(triedHosts);
+            triedHosts.add(host);
+            long start = System.nanoTime();
+            try {
+                ChatResponse chatResponse = host.chatModel.chat(chatRequest);
+                host.recordSuccess(System.nanoTime() - start);
+                return chatResponse;
+            } catch (InvalidRequestException e) {
+                host.recordAnswer();
+                throw e;
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    host.recordCancel();
+                    throw e;
+                }
+                if (isRateLimited(e)) {
+                    host.recordAnswer();
+                    logger.warn("host {} rejected the request because of its rate limit: {}", host.name, e.getMessage());
+                } else {
+                    host.recordFailure(System.nanoTime());
+                    logger.warn("request to host {} failed, ejecting it for {} s: {}", host.name, host.getCooldownSeconds(), e.getMessage());
+                }
+                if (!failover && !isCircuitBreakerOpen(e)) {
+                    throw e;
+                }
+                if (lastFailure != null) {
+                    e.addSuppressed(lastFailure);
+                }
+                lastFailure = e;
+            } finally {
+                host.outstandingRequests.decrementAndGet();
+            }
+        }
+        logger.error("request failed on all {} hosts", hosts.size());
+        throw lastFailure;
+    }
+
+    /**
+     * Selects a host for a request and counts the request as outstanding. The selection is synchronized, so that only one request can become the probe of
+     * an ejected host.
+     */
+    private synchronized Host startRequest(List<Host> excludedHosts) {
+        long now = System.nanoTime();
+        Host host = selectHost(excludedHosts, now);
+        host.start();
+        return host;
+    }
+
+    /**
+     * Selects the healthy host with the lowest load among the hosts that have not been tried yet. If no such host is healthy, the one whose cooldown ends
+     * first is selected. Hosts without a measured latency are assumed to be as fast as the average host.
+     */
+    private Host selectHost(List<Host> excludedHosts, long now) {
+        double latencySum = 0;
+        int measuredHosts = 0;
+        for (Host host : hosts) {
+            double latency = host.getAverageLatencyNanos();
+            if (latency > 0) {
+                latencySum += latency;
+                measuredHosts++;
+            }
+        }
+        double defaultLatency = measuredHosts == 0 ? 1.0 : latencySum / measuredHosts;
+
+        int start = Math.floorMod(nextHost.getAndIncrement(), hosts.size());
+        Host bestHost = null;
+        double bestLoad = Double.MAX_VALUE;
+        Host firstAvailableHost = null;
+        for (int i = 0; i < hosts.size(); i++) {
+            Host host = hosts.get((start + i) % hosts.size());
+            if (excludedHosts.contains(host)) {
+                continue;
+            }
+            if (host.isHealthy(now)) {
+                double load = host.getLoad(defaultLatency);
+                if (load < bestLoad) {
+                    bestHost = host;
+                    bestLoad = load;
+                }
+            } else if (firstAvailableHost == null || host.getEjectedUntil() - firstAvailableHost.getEjectedUntil() < 0) {
+                firstAvailableHost = host;
+            }
+        }
+        return bestHost != null ? bestHost : firstAvailableHost;
+    }
+
+    /**
+     * Checks whether the given exception (or one of its causes) signals that the host rejected the request because of its rate limit (HTTP 429).
+     */
+    private static boolean isRateLimited(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RateLimitException || (cause instanceof HttpException httpException && httpException.statusCode() == 429)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCircuitBreakerOpen(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CircuitBreakerOpenException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return hosts.get(0).chatModel.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return hosts.get(0).chatModel.supportedCapabilities();
+    }
+
+    /**
+     * The chat model of a host together with its statistics.
+     */
+    private final class Host {
+        private final String name;
+        private final ChatModel chatModel;
+        private final AtomicInteger outstandingRequests = new AtomicInteger();
+        /**
+         * the moving average of the latency in nanoseconds, 0 if no request has succeeded yet (guarded by {@code this})
+         */
+        private double averageLatencyNanos;
+        private int consecutiveFailures;
+        private long ejectedUntil;
+        /**
+         * whether a request probes the host after its cooldown
+         */
+        private boolean probeInFlight;
+
+        private Host(String name, ChatModel chatModel) {
+            this.name = name;
+            this.chatModel = chatModel;
+        }
+
+        /**
+         * @param defaultLatency the latency to assume if no request has succeeded yet
+         * @return the expected time until a new request is answered, i.e., the outstanding requests (plus the new one) times the average latency
+         */
+        private synchronized double getLoad(double defaultLatency) {
+            return (outstandingRequests.get() + 1) * (averageLatencyNanos > 0 ? averageLatencyNanos : defaultLatency);
+        }
+
+        private synchronized double getAverageLatencyNanos() {
+            return averageLatencyNanos;
+        }
+
+        /**
+         * Counts a request as outstanding. If the host has failed before, the request is its probe.
+         */
+        private synchronized void start() {
+            outstandingRequests.incrementAndGet();
+            if (consecutiveFailures > 0) {
+                probeInFlight = true;
+            }
+        }
+
+        private synchronized void recordSuccess(long latencyNanos) {
+            averageLatencyNanos = averageLatencyNanos == 0 ? latencyNanos : LATENCY_SMOOTHING * latencyNanos + (1 - LATENCY_SMOOTHING) * averageLatencyNanos;
+            recordAnswer();
+        }
+
+        /**
+         * Records that the host answered a request, even if the answer is an error that is not caused by the host.
+         */
+        private synchronized void recordAnswer() {
+            consecutiveFailures = 0;
+            probeInFlight = false;
+        }
+
+        private synchronized void recordFailure(long now) {
+            consecutiveFailures++;
+            ejectedUntil = now + getCooldownNanos();
+            probeInFlight = false;
+        }
+
+        /**
+         * Records that a request was cancelled before the host answered it.
+         */
+        private synchronized void recordCancel() {
+            probeInFlight = false;
+        }
+
+        private synchronized boolean isHealthy(long now) {
+            return consecutiveFailures == 0 || (now - ejectedUntil >= 0 && !probeInFlight);
+        }
+
+        private synchronized long getEjectedUntil() {
+            return ejectedUntil;
+        }
+
+        private synchronized long getCooldownSeconds() {
+            return Duration.ofNanos(getCooldownNanos()).toSeconds();
+        }
+
+        private long getCooldownNanos() {
+            int doublings = Math.min(Math.max(consecutiveFailures - 1, 0), 16);
+            return Math.min(initialCooldown.toNanos() << doublings, MAX_COOLDOWN.toNanos());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+/**
+ * A {@link ChatModel} that waits for a {@link TokenBucketRateLimiter} before each request, so that requests queue instead of failing when the rate limits
+ * of the provider are reached.
+ * <p>
+ * The tokens of a request are estimated from the characters of its messages (i.e., the prompt text and the SAD) plus its maximum number of output tokens,
+ * if set. After the answer, the limiter is corrected with the token usage reported by the provider. If the request fails, the estimated tokens are
+ * returned to the limiter, so that retries (e.g., of a {@link ResilientChatModel}) are not counted several times.
+ * </p>
+ */
+public class RateLimitedChatModel implements ChatModel {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitedChatModel.class);
+
+    private final ChatModel delegate;
+    private final TokenBucketRateLimiter rateLimiter;
+
+    /**
+     * Creates a rate limited chat model.
+     *
+     * @param delegate    the chat model to limit
+     * @param rateLimiter the rate limiter, which may be shared with other chat models of the same provider and model
+     * @throws IllegalArgumentException if the delegate or the rate limiter is null
+     */
+    public RateLimitedChatModel(ChatModel delegate, TokenBucketRateLimiter rateLimiter) {
+        if (delegate == null || rateLimiter == null) {
+            logger.error("delegate and rate limiter must not be null");
+            throw new IllegalArgumentException("delegate and rate limiter must not be null");
+        }
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Returns the rate limiter of this chat model.
+     *
+     * @return the rate limiter
+     */
+    public TokenBucketRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Returns the chat model that is limited.
+     *
+     * @return the delegate
+     */
+    public ChatModel getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        int characters = countCharacters(chatRequest);
+        Integer maxOutputTokens = chatRequest.maxOutputTokens();
+        int estimatedTokens = rateLimiter.estimateTokens(characters) + (maxOutputTokens != null ? maxOutputTokens : 0);
+        try {
+            rateLimiter.acquire(estimatedTokens);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the rate limit", e);
+        }
+
+        ChatResponse chatResponse;
+        try {
+            chatResponse = delegate.chat(chatRequest);
+        } catch (RuntimeException e) {
+            rateLimiter.refund(estimatedTokens);
+            throw e;
+        }
+        TokenUsage tokenUsage = chatResponse.tokenUsage();
+        if (tokenUsage != null) {
+            rateLimiter.recordUsage(characters, estimatedTokens, tokenUsage.inputTokenCount(), tokenUsage.totalTokenCount());
+        }
+        return chatResponse;
+    }
+
+    private static int countCharacters(ChatRequest chatRequest) {
+        int characters = 0;
+        for (ChatMessage message : chatRequest.messages()) {
+            if (message instanceof UserMessage userMessage) {
+                for (Content content : userMessage.contents()) {
+                    if (content instanceof TextContent textContent) {
+                        characters += textContent.text().length();
+                    }
+                }
+            } else {
+                characters += getLength(message);
+            }
+        }
+        return characters;
+    }
+
+    private static int getLength(ChatMessage message) {
+        String text = null;
+        if (message instanceof SystemMessage systemMessage) {
+            text = systemMessage.text();
+        } else if (message instanceof AiMessage aiMessage) {
+            text = aiMessage.text();
+        } else if (message instanceof ToolExecutionResultMessage toolExecutionResultMessage) {
+            text = toolExecutionResultMessage.text();
+        }
+        return text != null ? text.length() : 0;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
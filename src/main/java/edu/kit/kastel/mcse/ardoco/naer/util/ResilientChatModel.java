@@ -0,0 +1,135 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * A {@link ChatModel} that retries failed calls of its delegate according to a {@link RetryPolicy}.
+ * <p>
+ * Each call is retried on its own, so a prompt that consists of several calls (e.g., {@link edu.kit.kastel.mcse.ardoco.naer.recognizer.TwoPartPrompt})
+ * only repeats the call that failed. If the policy has a deadline, a call (including its retries) that exceeds it is interrupted and fails with a
+ * {@link dev.langchain4j.exception.TimeoutException}.
+ * </p>
+ */
+public class ResilientChatModel implements ChatModel {
+    private static final Logger logger = LoggerFactory.getLogger(ResilientChatModel.class);
+
+    private final ChatModel delegate;
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * Creates a chat model that retries the failed calls of the given chat model.
+     *
+     * @param delegate    the chat model to call
+     * @param retryPolicy the retry policy
+     * @throws IllegalArgumentException if the delegate or the retry policy is null
+     */
+    public ResilientChatModel(ChatModel delegate, RetryPolicy retryPolicy) {
+        if (delegate == null || retryPolicy == null) {
+            logger.error("delegate and retry policy must not be null");
+            throw new IllegalArgumentException("delegate and retry policy must not be null");
+        }
+        this.delegate = delegate;
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the retry policy of this chat model.
+     *
+     * @return the retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Returns the chat model whose calls are retried.
+     *
+     * @return the delegate
+     */
+    public ChatModel getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        long deadline = retryPolicy.deadline() != null ? System.nanoTime() + retryPolicy.deadline().toNanos() : 0;
+        int attempt = 1;
+        while (true) {
+            try {
+                return retryPolicy.deadline() != null ? chatWithDeadline(chatRequest, deadline) : delegate.chat(chatRequest);
+            } catch (RuntimeException e) {
+                if (attempt >= retryPolicy.maxAttempts() || !retryPolicy.isRetryable(e) || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                Duration backoff = retryPolicy.getBackoff(attempt);
+                if (retryPolicy.deadline() != null && deadline - System.nanoTime() - backoff.toNanos() <= 0) {
+                    logger.warn("attempt {} failed and the deadline does not allow a retry: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                logger.warn("attempt {} of {} failed, retrying in {} ms: {}", attempt, retryPolicy.maxAttempts(), backoff.toMillis(), e.getMessage());
+                sleep(backoff);
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * Calls the delegate in a virtual thread, which is interrupted if the call does not complete before the deadline.
+     */
+    private ChatResponse chatWithDeadline(ChatRequest chatRequest, long deadline) {
+        FutureTask<ChatResponse> call = new FutureTask<>(() -> delegate.chat(chatRequest));
+        Thread.ofVirtual().name("chat-call").start(call);
+        try {
+            return call.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            throw new dev.langchain4j.exception.TimeoutException("chat call exceeded the deadline of " + retryPolicy.deadline());
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the chat call", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void sleep(Duration backoff) {
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a retry", e);
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
@@ -0,0 +1,212 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent, file-based cache for chat model responses.
+ * <p>
+ * Each response is stored in its own file within the cache directory, named after the (hashed) key. If the total size of the cached responses exceeds the
+ * configured maximum, the least recently used responses are deleted until the cache is filled to 90 % of the maximum. The total
+ * size is tracked incrementally; the cache directory is only listed once on creation and whenever responses have to be evicted. The cache can be shared by
+ * several processes; concurrent writes of the same key are resolved by "last writer wins", and the tracked size is corrected by each eviction.
+ * </p>
+ */
+public class ResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    private static final String FILE_SUFFIX = ".response";
+    /**
+     * the share of the maximum size to which the cache is shrunk by an eviction, so that not every subsequent put triggers another eviction
+     */
+    private static final double EVICTION_TARGET_RATIO = 0.9;
+
+    private final Path directory;
+    private final long maxSizeBytes;
+    /**
+     * the (estimated) total size of the cached responses in bytes; guarded by this
+     */
+    private long totalSizeBytes;
+
+    /**
+     * Creates a cache that stores its responses in the given directory.
+     *
+     * @param directory    the directory to store the responses in; it is created if it does not exist
+     * @param maxSizeBytes the maximum total size of the cached responses in bytes
+     * @throws IllegalArgumentException if the directory cannot be created or the maximum size is not positive
+     */
+    public ResponseCache(Path directory, long maxSizeBytes) {
+        if (directory == null) {
+            logger.error("directory is null");
+            throw new IllegalArgumentException("directory is null");
+        }
+        if (maxSizeBytes < 1) {
+            logger.error("max size must be >= 1");
+            throw new IllegalArgumentException("max size must be >= 1");
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            logger.error("could not create cache directory: {}", directory);
+            throw new IllegalArgumentException("could not create cache directory: " + directory, e);
+        }
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+        this.totalSizeBytes = sumSizes(listCachedFiles());
+    }
+
+    /**
+     * Creates a cache key from the given parts, e.g., the prompt text, the model description, and the content hash of the SAD.
+     *
+     * @param parts the parts that identify the cached response
+     * @return the hex-encoded SHA-256 hash of the parts
+     */
+    public static String createKey(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                byte[] bytes = String.valueOf(part).getBytes(StandardCharsets.UTF_8);
+                // prefix each part with its length, so that the boundaries between the parts are unambiguous
+                digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) ':');
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Retrieves the cached response for the given key.
+     *
+     * @param key the key created by {@link #createKey(String...)}
+     * @return the cached response, or an empty optional if there is none
+     */
+    public Optional<String> get(String key) {
+        Path file = getFile(key);
+        try {
+            String response = Files.readString(file, StandardCharsets.UTF_8);
+            // touch the file so that eviction removes the least recently used responses first
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(response);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.warn("could not read cached response: {}", file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the response for the given key and evicts the least recently used responses if the cache is too large.
+     *
+     * @param key      the key created by {@link #createKey(String...)}
+     * @param response the response to store
+     */
+    public void put(String key, String response) {
+        Path file = getFile(key);
+        long addedSize;
+        try {
+            Path temporaryFile = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(temporaryFile, response, StandardCharsets.UTF_8);
+            addedSize = Files.size(temporaryFile) - sizeIfExists(file);
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("could not cache response: {}", file, e);
+            return;
+        }
+        synchronized (this) {
+            totalSizeBytes += addedSize;
+            if (totalSizeBytes > maxSizeBytes) {
+                evict();
+            }
+        }
+    }
+
+    private Path getFile(String key) {
+        return directory.resolve(key + FILE_SUFFIX);
+    }
+
+    private static long sizeIfExists(Path file) throws IOException {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Deletes the least recently used responses until the total size of the cache does not exceed {@link #EVICTION_TARGET_RATIO} of
+     * {@link #maxSizeBytes}. The cache directory is listed again, so that responses written or deleted by other processes are taken into account.
+     */
+    private synchronized void evict() {
+        List<CachedFile> files = listCachedFiles();
+        long totalSize = sumSizes(files);
+        long targetSize = (long) (maxSizeBytes * EVICTION_TARGET_RATIO);
+
+        files.sort(Comparator.comparingLong(CachedFile::lastUsed));
+        for (CachedFile file : files) {
+            if (totalSize <= targetSize) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(file.path());
+                totalSize -= file.size();
+                logger.debug("evicted cached response: {}", file.path());
+            } catch (IOException e) {
+                logger.warn("could not evict cached response: {}", file.path(), e);
+            }
+        }
+        totalSizeBytes = totalSize;
+    }
+
+    private List<CachedFile> listCachedFiles() {
+        List<CachedFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.filter(p -> p.getFileName().toString().endsWith(FILE_SUFFIX)).toList()) {
+                try {
+                    files.add(new CachedFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                } catch (NoSuchFileException e) {
+                    // deleted concurrently
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not list cache directory: " + directory, e);
+        }
+        return files;
+    }
+
+    private static long sumSizes(List<CachedFile> files) {
+        long totalSize = 0;
+        for (CachedFile file : files) {
+            totalSize += file.size();
+        }
+        return totalSize;
+    }
+
+    private record CachedFile(Path path, long size, long lastUsed) {
+    }
+}
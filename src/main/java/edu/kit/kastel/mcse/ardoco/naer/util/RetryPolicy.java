@@ -0,0 +1,149 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.langchain4j.exception.NonRetriableException;
+
+/**
+ * Defines how often and when a failed chat model call is retried (see {@link ResilientChatModel}).
+ * <p>
+ * The backoff before a retry grows exponentially from the initial backoff up to the maximum backoff and is randomized ("full jitter": a random duration
+ * between zero and the exponential backoff), so that concurrent callers do not retry in lockstep. A call, including all of its retries, must complete within
+ * the deadline (if set); no retry is started that would end its backoff after the deadline.
+ * </p>
+ *
+ * @param maxAttempts       the maximum number of attempts, including the first one
+ * @param initialBackoff    the backoff before the first retry
+ * @param maxBackoff        the maximum backoff before a retry
+ * @param backoffMultiplier the factor by which the backoff grows with each retry
+ * @param deadline          the maximum duration of a call including all retries, or null for no deadline
+ */
+public record RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, double backoffMultiplier, Duration deadline) {
+    private static final Logger logger = LoggerFactory.getLogger(RetryPolicy.class);
+
+    /**
+     * Up to three attempts with a backoff from 1 s to 30 s and no deadline.
+     */
+    public static final RetryPolicy DEFAULT = new Builder().build();
+
+    /**
+     * A single attempt without retries.
+     */
+    public static final RetryPolicy NO_RETRY = new Builder().maxAttempts(1).build();
+
+    /**
+     * Creates a retry policy.
+     *
+     * @throws IllegalArgumentException if a parameter is invalid, see {@link Builder}
+     */
+    public RetryPolicy {
+        if (maxAttempts < 1) {
+            logger.error("max attempts must be >= 1");
+            throw new IllegalArgumentException("max attempts must be >= 1");
+        }
+        if (initialBackoff == null || maxBackoff == null || initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            logger.error("backoffs must satisfy 0 <= initial backoff <= max backoff");
+            throw new IllegalArgumentException("backoffs must satisfy 0 <= initial backoff <= max backoff");
+        }
+        if (backoffMultiplier < 1.0) {
+            logger.error("backoff multiplier must be >= 1.0");
+            throw new IllegalArgumentException("backoff multiplier must be >= 1.0");
+        }
+        if (deadline != null && (deadline.isNegative() || deadline.isZero())) {
+            logger.error("deadline must be positive");
+            throw new IllegalArgumentException("deadline must be positive");
+        }
+    }
+
+    /**
+     * Checks whether a call that failed with the given exception may succeed when it is retried. Invalid requests ({@link NonRetriableException}, e.g.,
+     * an authentication error or an unknown model) and calls to a host whose circuit breaker is open ({@link CircuitBreakerOpenException}) are not retried.
+     *
+     * @param exception the exception of the failed call
+     * @return whether the call should be retried
+     */
+    public boolean isRetryable(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NonRetriableException || cause instanceof CircuitBreakerOpenException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the (randomized) backoff before the next attempt.
+     *
+     * @param failedAttempts the number of attempts that have failed so far (at least 1)
+     * @return the backoff
+     */
+    public Duration getBackoff(int failedAttempts) {
+        double exponentialNanos = initialBackoff.toNanos() * Math.pow(backoffMultiplier, Math.max(failedAttempts - 1, 0));
+        long maxNanos = (long) Math.min(exponentialNanos, maxBackoff.toNanos());
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(maxNanos + 1));
+    }
+
+    /**
+     * Builder for {@link RetryPolicy} instances.
+     */
+    public static class Builder {
+        private int maxAttempts = 3; //default
+        private Duration initialBackoff = Duration.ofSeconds(1); //default
+        private Duration maxBackoff = Duration.ofSeconds(30); //default
+        private double backoffMultiplier = 2.0; //default
+        private Duration deadline = null; //default: no deadline
+
+        /**
+         * Sets the maximum number of attempts, including the first one.
+         *
+         * @param maxAttempts the maximum number of attempts; must be at least 1
+         * @return this builder
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the exponential backoff between the attempts.
+         *
+         * @param initialBackoff    the backoff before the first retry; must not be negative
+         * @param maxBackoff        the maximum backoff; must not be less than the initial backoff
+         * @param backoffMultiplier the factor by which the backoff grows with each retry; must be at least 1.0
+         * @return this builder
+         */
+        public Builder backoff(Duration initialBackoff, Duration maxBackoff, double backoffMultiplier) {
+            this.initialBackoff = initialBackoff;
+            this.maxBackoff = maxBackoff;
+            this.backoffMultiplier = backoffMultiplier;
+            return this;
+        }
+
+        /**
+         * Sets the deadline of a call, i.e., the maximum duration of all of its attempts and backoffs. An attempt that is still running at the deadline is
+         * interrupted.
+         *
+         * @param deadline the deadline; must be positive
+         * @return this builder
+         */
+        public Builder deadline(Duration deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
+        /**
+         * Builds the {@link RetryPolicy}.
+         *
+         * @return a new {@link RetryPolicy}
+         * @throws IllegalArgumentException if a parameter is invalid
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, backoffMultiplier, deadline);
+        }
+    }
+}
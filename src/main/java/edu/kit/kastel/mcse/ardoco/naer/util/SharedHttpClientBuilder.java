@@ -0,0 +1,179 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+
+/**
+ * An {@link HttpClientBuilder} that hands out shared HTTP clients instead of creating a new client (with its own connection pool) for each chat model.
+ * <p>
+ * There is one client per combination of connect and read timeout, so chat models with the same timeouts reuse the connections (kept alive by the JDK HTTP
+ * client) of each other. The clients are pinned to HTTP/1.1, so each concurrent request uses its own connection instead of being multiplexed over a single
+ * HTTP/2 connection. All clients share one {@link HostConnectionLimiter}, which bounds the number of concurrent requests and thereby the number of
+ * connections per host (see {@link ChatModelFactory#setMaxConnectionsPerHost(int)}). Each host also has a {@link CircuitBreaker}, which lets requests fail
+ * fast while the host is down (see {@link ChatModelFactory#setCircuitBreaker(int, Duration)}). A request counts as failed if the host does not answer or
+ * answers with a server error (HTTP 5xx). Streaming requests are consumed asynchronously and are neither limited nor guarded by the circuit breaker.
+ * </p>
+ */
+final class SharedHttpClientBuilder implements HttpClientBuilder {
+    static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 16;
+    static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    static final Duration DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(15);
+    private static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedHttpClientBuilder.class);
+    private static final HostConnectionLimiter connectionLimiter = new HostConnectionLimiter(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    private static final ConcurrentMap<Timeouts, HttpClient> sharedClients = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private static volatile int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+    private static volatile Duration circuitBreakerOpenDuration = DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+
+    private Duration connectTimeout;
+    private Duration readTimeout;
+
+    static HostConnectionLimiter getConnectionLimiter() {
+        return connectionLimiter;
+    }
+
+    /**
+     * Configures the circuit breakers of all hosts.
+     *
+     * @param failureThreshold the number of consecutive failures after which the circuit breaker of a host opens
+     * @param openDuration     the duration after which an open circuit breaker lets a probe request through
+     */
+    static synchronized void configureCircuitBreakers(int failureThreshold, Duration openDuration) {
+        circuitBreakerFailureThreshold = failureThreshold;
+        circuitBreakerOpenDuration = openDuration;
+        for (CircuitBreaker circuitBreaker : circuitBreakers.values()) {
+            circuitBreaker.configure(failureThreshold, openDuration);
+        }
+    }
+
+    private static CircuitBreaker getCircuitBreaker(String host) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(host);
+        if (circuitBreaker != null) {
+            return circuitBreaker;
+        }
+        synchronized (SharedHttpClientBuilder.class) {
+            return circuitBreakers.computeIfAbsent(host, key -> new CircuitBreaker(key, circuitBreakerFailureThreshold, circuitBreakerOpenDuration));
+        }
+    }
+
+    @Override
+    public Duration connectTimeout() {
+        return connectTimeout;
+    }
+
+    @Override
+    public HttpClientBuilder connectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return readTimeout;
+    }
+
+    @Override
+    public HttpClientBuilder readTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    @Override
+    public HttpClient build() {
+        Duration effectiveConnectTimeout = connectTimeout != null ? connectTimeout : DEFAULT_CONNECT_TIMEOUT;
+        Duration effectiveReadTimeout = readTimeout != null ? readTimeout : DEFAULT_READ_TIMEOUT;
+        return sharedClients.computeIfAbsent(new Timeouts(effectiveConnectTimeout, effectiveReadTimeout), SharedHttpClientBuilder::createClient);
+    }
+
+    private static HttpClient createClient(Timeouts timeouts) {
+        logger.debug("creating shared HTTP client (connect timeout: {}, read timeout: {})", timeouts.connectTimeout(), timeouts.readTimeout());
+        HttpClient client = JdkHttpClient.builder()
+                .httpClientBuilder(java.net.http.HttpClient.newBuilder().version(java.net.http.HttpClient.Version.HTTP_1_1))
+                .connectTimeout(timeouts.connectTimeout())
+                .readTimeout(timeouts.readTimeout())
+                .build();
+        return new HostGuardedHttpClient(client);
+    }
+
+    private record Timeouts(Duration connectTimeout, Duration readTimeout) {
+    }
+
+    /**
+     * Checks the {@link CircuitBreaker} of the host of each (non-streaming) request and waits for a free connection to it, see
+     * {@link HostConnectionLimiter}.
+     */
+    private static final class HostGuardedHttpClient implements HttpClient {
+        private final HttpClient delegate;
+
+        private HostGuardedHttpClient(HttpClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public SuccessfulHttpResponse execute(HttpRequest request) {
+            String host = getHost(request.url());
+            CircuitBreaker circuitBreaker = getCircuitBreaker(host);
+            circuitBreaker.beforeRequest();
+            try {
+                connectionLimiter.acquire(host);
+            } catch (InterruptedException e) {
+                circuitBreaker.onCancel();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for a connection to " + host, e);
+            }
+            try {
+                SuccessfulHttpResponse response = delegate.execute(request);
+                circuitBreaker.onSuccess();
+                return response;
+            } catch (HttpException e) {
+                if (e.statusCode() >= 500) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    circuitBreaker.onCancel();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+                throw e;
+            } finally {
+                connectionLimiter.release(host);
+            }
+        }
+
+        @Override
+        public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+            delegate.execute(request, parser, listener);
+        }
+
+        private static String getHost(String url) {
+            try {
+                URI uri = URI.create(url);
+                return uri.getHost() + ":" + uri.getPort();
+            } catch (IllegalArgumentException e) {
+                return url;
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A rate limiter with two token buckets: one for the requests per minute and one for the (LLM) tokens per minute, as enforced by providers such as OpenAI.
+ * <p>
+ * Each bucket holds at most the tokens of one minute and is refilled continuously. A request waits until both buckets can cover it, i.e., one request and
+ * its estimated number of tokens. As the actual number of tokens is only known after the answer, the estimate is corrected afterwards (see
+ * {@link #recordUsage(int, int, Integer, Integer)}): the difference is taken from (or returned to) the token bucket, and the ratio of characters per token
+ * that is used for the estimates is adjusted. The tokens of a request that failed are returned (see {@link #refund(int)}).
+ * </p>
+ * <p>A bucket without limit is not tracked at all.</p>
+ */
+public final class TokenBucketRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    /**
+     * the usual ratio of characters per token for English text
+     */
+    private static final double INITIAL_CHARACTERS_PER_TOKEN = 4.0;
+    /**
+     * the weight of the latest ratio in the moving average of the characters per token
+     */
+    private static final double RATIO_SMOOTHING = 0.2;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition bucketsChanged = lock.newCondition();
+    // the following fields are guarded by lock
+    private int requestsPerMinute;
+    private int tokensPerMinute;
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefill = System.nanoTime();
+    private double charactersPerToken = INITIAL_CHARACTERS_PER_TOKEN;
+    private int waiting;
+
+    /**
+     * Creates a rate limiter.
+     *
+     * @param requestsPerMinute the maximum number of requests per minute, or 0 for no limit
+     * @param tokensPerMinute   the maximum number of tokens per minute, or 0 for no limit
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public TokenBucketRateLimiter(int requestsPerMinute, int tokensPerMinute) {
+        setLimits(requestsPerMinute, tokensPerMinute);
+    }
+
+    /**
+     * Changes the limits. The buckets start full.
+     *
+     * @param requestsPerMinute the maximum number of requests per minute, or 0 for no limit
+     * @param tokensPerMinute   the maximum number of tokens per minute, or 0 for no limit
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public void setLimits(int requestsPerMinute, int tokensPerMinute) {
+        if (requestsPerMinute < 0 || tokensPerMinute < 0) {
+            logger.error("limits must be >= 0");
+            throw new IllegalArgumentException("limits must be >= 0");
+        }
+        lock.lock();
+        try {
+            this.requestsPerMinute = requestsPerMinute;
+            this.tokensPerMinute = tokensPerMinute;
+            this.availableRequests = requestsPerMinute;
+            this.availableTokens = tokensPerMinute;
+            this.lastRefill = System.nanoTime();
+            bucketsChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Estimates the number of tokens of a text from its number of characters.
+     *
+     * @param characters the number of characters
+     * @return the estimated number of tokens
+     */
+    public int estimateTokens(int characters) {
+        lock.lock();
+        try {
+            return (int) Math.ceil(characters / charactersPerToken);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until one request and the given number of tokens are available and takes them from the buckets. A request with more tokens than the limit per
+     * minute waits until the token bucket is full, and leaves it in debt.
+     *
+     * @param tokens the estimated number of tokens of the request
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void acquire(int tokens) throws InterruptedException {
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                long waitNanos = refillAndGetWaitNanos(tokens);
+                while (waitNanos > 0) {
+                    bucketsChanged.awaitNanos(waitNanos);
+                    waitNanos = refillAndGetWaitNanos(tokens);
+                }
+            } finally {
+                waiting--;
+            }
+            if (requestsPerMinute > 0) {
+                availableRequests--;
+            }
+            if (tokensPerMinute > 0) {
+                availableTokens -= tokens;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Corrects the token bucket and the estimation with the usage that the provider reported for a request.
+     *
+     * @param characters      the number of characters of the request
+     * @param estimatedTokens the tokens that have been acquired for the request
+     * @param inputTokens     the reported number of input tokens, or null if unknown
+     * @param totalTokens     the reported number of input and output tokens, or null if unknown
+     */
+    public void recordUsage(int characters, int estimatedTokens, Integer inputTokens, Integer totalTokens) {
+        lock.lock();
+        try {
+            if (inputTokens != null && inputTokens > 0 && characters > 0) {
+                charactersPerToken = RATIO_SMOOTHING * characters / inputTokens + (1 - RATIO_SMOOTHING) * charactersPerToken;
+            }
+            if (totalTokens != null && tokensPerMinute > 0) {
+                availableTokens -= totalTokens - estimatedTokens;
+                if (totalTokens < estimatedTokens) {
+                    bucketsChanged.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the tokens that have been acquired for a request that failed, e.g., because it was rejected or timed out, so that its retries do not drain
+     * the token bucket. The request itself is not returned, as providers count failed requests as well.
+     *
+     * @param estimatedTokens the tokens that have been acquired for the request
+     */
+    public void refund(int estimatedTokens) {
+        lock.lock();
+        try {
+            if (tokensPerMinute > 0) {
+                refill(System.nanoTime());
+                availableTokens = Math.min(tokensPerMinute, availableTokens + estimatedTokens);
+                bucketsChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests that can currently be sent without waiting.
+     *
+     * @return the available requests, or {@link Integer#MAX_VALUE} if the requests are not limited
+     */
+    public int getAvailableRequests() {
+        lock.lock();
+        try {
+            refill(System.nanoTime());
+            return requestsPerMinute == 0 ? Integer.MAX_VALUE : (int) availableRequests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of tokens that can currently be sent without waiting.
+     *
+     * @return the available tokens (negative if the bucket is in debt), or {@link Integer#MAX_VALUE} if the tokens are not limited
+     */
+    public int getAvailableTokens() {
+        lock.lock();
+        try {
+            refill(System.nanoTime());
+            return tokensPerMinute == 0 ? Integer.MAX_VALUE : (int) availableTokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests that are waiting for the buckets.
+     *
+     * @return the number of waiting requests
+     */
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Refills the buckets and calculates how long to wait until the buckets can cover a request with the given tokens.
+     */
+    private long refillAndGetWaitNanos(int tokens) {
+        refill(System.nanoTime());
+        long waitNanos = 0;
+        if (requestsPerMinute > 0 && availableRequests < 1) {
+            waitNanos = (long) Math.ceil((1 - availableRequests) * NANOS_PER_MINUTE / requestsPerMinute);
+        }
+        double requiredTokens = Math.min(tokens, tokensPerMinute);
+        if (tokensPerMinute > 0 && availableTokens < requiredTokens) {
+            waitNanos = Math.max(waitNanos, (long) Math.ceil((requiredTokens - availableTokens) * NANOS_PER_MINUTE / tokensPerMinute));
+        }
+        return waitNanos;
+    }
+
+    private void refill(long now) {
+        double elapsedMinutes = (now - lastRefill) / NANOS_PER_MINUTE;
+        lastRefill = now;
+        availableRequests = Math.min(requestsPerMinute, availableRequests + elapsedMinutes * requestsPerMinute);
+        availableTokens = Math.min(tokensPerMinute, availableTokens + elapsedMinutes * tokensPerMinute);
+    }
+}
@@ -0,0 +1,147 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.text.similarity.JaccardSimilarity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LineSimilarityIndexTest {
+    private static final double THRESHOLD = 0.90;
+    private static final JaccardSimilarity JACCARD = new JaccardSimilarity();
+
+    @Test
+    @DisplayName("Lookups of randomly perturbed lines find the same line as scoring all lines")
+    void perturbedLinesMatchBruteForce() throws IOException, URISyntaxException {
+        Path file = Path.of(LineSimilarityIndexTest.class.getClassLoader()
+                .getResource("evaluation_resources/teammates/text_2021/teammates_1SentPerLine.txt")
+                .toURI());
+        String[] lines = new SoftwareArchitectureDocumentation(file).getLines();
+        LineSimilarityIndex index = new LineSimilarityIndex(toLowerCase(lines));
+
+        Random random = new Random(42);
+        int matches = 0;
+        int queries = 2000;
+        for (int i = 0; i < queries; i++) {
+            String query = perturb(lines[random.nextInt(lines.length)], 1 + random.nextInt(20), random);
+            if (assertSameAsBruteForce(index, lines, query)) {
+                matches++;
+            }
+        }
+        // the perturbations lead to queries on both sides of the threshold
+        assertTrue(matches >= 100 && queries - matches >= 100, "matches: " + matches);
+    }
+
+    @Test
+    @DisplayName("If several lines have the same score, the first one is returned")
+    void firstLineWinsTies() {
+        // the first three lines consist of the same characters
+        String[] lines = { "Components send data.", "Send components data.", "Data send components.", "The UserDatabase stores accounts." };
+        LineSimilarityIndex index = new LineSimilarityIndex(toLowerCase(lines));
+
+        for (String query : List.of("Data components send.", "components send data", "Send data, components.")) {
+            assertSameAsBruteForce(index, lines, query);
+            assertEquals(1, index.findMostSimilarLine(query, THRESHOLD).lineNumber(), query);
+        }
+    }
+
+    @Test
+    @DisplayName("Queries just below, at, and just above the threshold are decided like scoring all lines")
+    void queriesAroundThreshold() {
+        // 18 distinct characters: "abcdefghijklmnopq."
+        String line = "abcdefghijklmnopq.";
+        String[] lines = { "The UserDatabase stores accounts.", line, "Another line of text." };
+        LineSimilarityIndex index = new LineSimilarityIndex(toLowerCase(lines));
+
+        // 18 of 19 characters shared
+        assertEquals(JACCARD.apply(line, line + "x").doubleValue(), index.findMostSimilarLine(line + "x", THRESHOLD).score());
+        assertEquals(2, index.findMostSimilarLine(line + "x", THRESHOLD).lineNumber());
+        // 18 of 20 characters shared: exactly the threshold
+        assertEquals(THRESHOLD, index.findMostSimilarLine(line + "xy", THRESHOLD).score());
+        assertEquals(2, index.findMostSimilarLine(line + "xy", THRESHOLD).lineNumber());
+        // 18 of 21 characters shared
+        assertTrue(index.findMostSimilarLine(line + "xyz", THRESHOLD).score() < THRESHOLD);
+        // 17 of 18 and 16 of 18 characters shared
+        assertEquals(JACCARD.apply(line, line.replace("q", "")).doubleValue(), index.findMostSimilarLine(line.replace("q", ""), THRESHOLD).score());
+        assertTrue(index.findMostSimilarLine(line.replace("pq", ""), THRESHOLD).score() < THRESHOLD);
+
+        for (String query : List.of(line + "x", line + "xy", line + "xyz", line.replace("q", ""), line.replace("pq", ""), line.replace("p", "x"))) {
+            assertSameAsBruteForce(index, lines, query);
+        }
+    }
+
+    @Test
+    @DisplayName("Non-ASCII lines are found like scoring all lines")
+    void nonAsciiLines() {
+        String[] lines = { "Der Überweisungsdienst prüft die Aufträge.", "Die Äußere Schnittstelle übergibt Daten.", "日本語のコンポーネントです.",
+                "The ☕ service brews 🍵 and ☕.", "ΣΥΣΤΗΜΑ και υποσύστημα." };
+        LineSimilarityIndex index = new LineSimilarityIndex(toLowerCase(lines));
+
+        for (String query : List.of("DER ÜBERWEISUNGSDIENST PRÜFT DIE AUFTRÄGE.", "Der Uberweisungsdienst pruft die Auftrage.", "日本語のコンポーネント.",
+                "The ☕ service brews 🍵.", "σύστημα και υποσύστημα.", "die äußere schnittstelle übergibt daten", "日本語のコンポーネントです")) {
+            assertSameAsBruteForce(index, lines, query);
+        }
+        assertEquals(1, index.findMostSimilarLine("DER ÜBERWEISUNGSDIENST PRÜFT DIE AUFTRÄGE.", THRESHOLD).lineNumber());
+        assertEquals(3, index.findMostSimilarLine("日本語のコンポーネントです", THRESHOLD).lineNumber());
+    }
+
+    /**
+     * Checks that the index finds the same line (with the same score) as scoring all lines if that line reaches the threshold, and no match otherwise.
+     *
+     * @return whether the query matches a line
+     */
+    private static boolean assertSameAsBruteForce(LineSimilarityIndex index, String[] lines, String query) {
+        int expectedLineNumber = -1;
+        double expectedScore = 0.0;
+        for (int i = 0; i < lines.length; i++) {
+            double score = JACCARD.apply(lines[i].toLowerCase(), query.toLowerCase());
+            if (score > expectedScore) {
+                expectedScore = score;
+                expectedLineNumber = i + 1;
+            }
+        }
+
+        LineSimilarityIndex.Match match = index.findMostSimilarLine(query, THRESHOLD);
+        if (expectedScore >= THRESHOLD) {
+            assertEquals(expectedLineNumber, match.lineNumber(), query);
+            assertEquals(expectedScore, match.score(), query);
+            return true;
+        }
+        assertTrue(match.score() < THRESHOLD, query);
+        return false;
+    }
+
+    /**
+     * Deletes, inserts, replaces, or changes the case of the given number of random characters.
+     */
+    private static String perturb(String line, int edits, Random random) {
+        StringBuilder perturbed = new StringBuilder(line);
+        for (int i = 0; i < edits && !perturbed.isEmpty(); i++) {
+            int position = random.nextInt(perturbed.length());
+            char c = (char) ('a' + random.nextInt(26));
+            switch (random.nextInt(4)) {
+            case 0 -> perturbed.deleteCharAt(position);
+            case 1 -> perturbed.insert(position, c);
+            case 2 -> perturbed.setCharAt(position, c);
+            default -> perturbed.setCharAt(position, Character.toUpperCase(perturbed.charAt(position)));
+            }
+        }
+        return perturbed.toString();
+    }
+
+    private static String[] toLowerCase(String[] lines) {
+        String[] lowerCaseLines = new String[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            lowerCaseLines[i] = lines[i].toLowerCase();
+        }
+        return lowerCaseLines;
+    }
+}
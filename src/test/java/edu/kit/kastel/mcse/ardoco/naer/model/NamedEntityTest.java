@@ -0,0 +1,181 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class NamedEntityTest {
+    @Test
+    @DisplayName("Mutators of a frozen entity throw")
+    void mutatorsThrowAfterFreeze() {
+        NamedEntity entity = createEntity().freeze();
+
+        assertTrue(entity.isFrozen());
+        assertThrows(IllegalStateException.class, () -> entity.setSourceText(null));
+        assertThrows(IllegalStateException.class, () -> entity.changeName("AuthService"));
+        assertThrows(IllegalStateException.class, () -> entity.addAlternativeName("Auth"));
+        assertThrows(IllegalStateException.class, entity::makeAllNamesLowerCase);
+        assertThrows(IllegalStateException.class, () -> entity.addOccurrence(9, NamedEntityReferenceType.DIRECT));
+        assertThrows(IllegalStateException.class, () -> entity.merge(createEntity()));
+        assertThrows(UnsupportedOperationException.class, () -> entity.getAlternativeNames().add("Auth"));
+        assertEquals(createEntity(), entity);
+    }
+
+    @Test
+    @DisplayName("Freezing a frozen entity returns the entity itself")
+    void freezeIsIdempotent() {
+        NamedEntity entity = createEntity().freeze();
+        assertSame(entity, entity.freeze());
+    }
+
+    @Test
+    @DisplayName("A builder cannot be used after the entity has been built, but the built entity is modifiable")
+    void builderThrowsAfterBuild() {
+        NamedEntity.Builder builder = new NamedEntity.Builder("AuthenticationService", NamedEntityType.COMPONENT).occurrence(1,
+                NamedEntityReferenceType.DIRECT);
+        NamedEntity entity = builder.build();
+
+        assertFalse(entity.isFrozen());
+        entity.addOccurrence(2, NamedEntityReferenceType.INDIRECT);
+        assertArrayEquals(new int[] { 1, 2 }, entity.getOccurrenceLineNumbers());
+        assertThrows(IllegalStateException.class, () -> builder.sourceText(null));
+        assertThrows(IllegalStateException.class, () -> builder.alternativeName("Auth"));
+        assertThrows(IllegalStateException.class, () -> builder.occurrence(2, NamedEntityReferenceType.DIRECT));
+        assertThrows(IllegalStateException.class, builder::build);
+        assertThrows(UnsupportedOperationException.class, () -> builder.getAlternativeNames().add("Auth"));
+    }
+
+    @Test
+    @DisplayName("Frozen and unfrozen entities with the same content are equal and have the same hash code")
+    void equalsIgnoresFreezing() {
+        NamedEntity unfrozen = createEntity();
+        NamedEntity frozen = createEntity().freeze();
+        NamedEntity copy = frozen.copy();
+
+        assertEquals(unfrozen, frozen);
+        assertEquals(frozen, unfrozen);
+        assertEquals(unfrozen.hashCode(), frozen.hashCode());
+        assertFalse(copy.isFrozen());
+        assertEquals(frozen, copy);
+        assertEquals(frozen.hashCode(), copy.hashCode());
+        assertEquals(Set.of(frozen), Set.of(unfrozen));
+
+        copy.addOccurrence(9, NamedEntityReferenceType.INDIRECT);
+        assertNotEquals(frozen, copy);
+        assertEquals(createEntity(), frozen);
+    }
+
+    @Test
+    @DisplayName("Entities that differ in their reference types are not equal")
+    void equalsComparesReferenceTypes() {
+        NamedEntity direct = new NamedEntity.Builder("AuthenticationService", NamedEntityType.COMPONENT).occurrence(1, NamedEntityReferenceType.DIRECT)
+                .build();
+        NamedEntity indirect = new NamedEntity.Builder("AuthenticationService", NamedEntityType.COMPONENT).occurrence(1, NamedEntityReferenceType.INDIRECT)
+                .build();
+        assertNotEquals(direct, indirect);
+    }
+
+    @Test
+    @DisplayName("Occurrences are sorted by line and duplicates are ignored")
+    void occurrencesAreSortedAndUnique() {
+        NamedEntity entity = new NamedEntity("AuthenticationService", NamedEntityType.COMPONENT);
+        entity.addOccurrence(7, NamedEntityReferenceType.INDIRECT);
+        entity.addOccurrence(2, NamedEntityReferenceType.DIRECT);
+        entity.addOccurrence(7, NamedEntityReferenceType.DIRECT);
+        entity.addOccurrence(2, NamedEntityReferenceType.DIRECT);
+
+        assertEquals(3, entity.getOccurrenceCount());
+        assertArrayEquals(new int[] { 2, 7 }, entity.getOccurrenceLineNumbers());
+        assertArrayEquals(new int[] { 2, 7 }, entity.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[] { 7 }, entity.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+        assertEquals(new TreeSet<>(List.of(2, 7)), entity.getOccurrenceLines());
+    }
+
+    @Test
+    @DisplayName("Merging drops indirect references of lines that are referenced directly")
+    void mergeDropsIndirectReferencesOfDirectLines() {
+        NamedEntity entity = new NamedEntity("AuthenticationService", NamedEntityType.COMPONENT);
+        entity.addOccurrence(1, NamedEntityReferenceType.DIRECT);
+        entity.addOccurrence(3, NamedEntityReferenceType.INDIRECT);
+        entity.addOccurrence(5, NamedEntityReferenceType.INDIRECT);
+        NamedEntity other = new NamedEntity.Builder("AuthService", NamedEntityType.COMPONENT).alternativeName("Auth")
+                .occurrence(1, NamedEntityReferenceType.INDIRECT)
+                .occurrence(3, NamedEntityReferenceType.DIRECT)
+                .occurrence(4, NamedEntityReferenceType.INDIRECT)
+                .build();
+
+        entity.merge(other);
+
+        assertArrayEquals(new int[] { 1, 3 }, entity.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[] { 4, 5 }, entity.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+        assertEquals(4, entity.getOccurrenceCount());
+        assertEquals(new TreeSet<>(List.of("Auth", "AuthService")), entity.getAlternativeNames());
+        assertEquals("AuthenticationService", entity.getName());
+    }
+
+    @Test
+    @DisplayName("Shifting an entity by a negative offset keeps the reference types and the order of the occurrences")
+    void withNegativeLineOffset() {
+        NamedEntity entity = createEntity().freeze();
+
+        NamedEntity shifted = entity.withLineOffset(-10, null);
+
+        assertFalse(shifted.isFrozen());
+        assertArrayEquals(new int[] { -9, -7, -3 }, shifted.getOccurrenceLineNumbers());
+        assertArrayEquals(new int[] { -9, -3 }, shifted.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[] { -7, -3 }, shifted.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+        assertEquals(entity.getAlternativeNames(), shifted.getAlternativeNames());
+        assertEquals(entity, shifted.withLineOffset(10, null));
+
+        // new occurrences are inserted at the right position among the shifted ones
+        shifted.addOccurrence(-8, NamedEntityReferenceType.DIRECT);
+        shifted.addOccurrence(0, NamedEntityReferenceType.INDIRECT);
+        assertArrayEquals(new int[] { -9, -8, -7, -3, 0 }, shifted.getOccurrenceLineNumbers());
+    }
+
+    @Test
+    @DisplayName("occursIn finds lines with direct and indirect references, including negative lines")
+    void occursIn() {
+        NamedEntity entity = createEntity();
+        assertTrue(entity.occursIn(1));
+        assertTrue(entity.occursIn(3));
+        assertTrue(entity.occursIn(7));
+        assertFalse(entity.occursIn(0));
+        assertFalse(entity.occursIn(2));
+        assertFalse(entity.occursIn(8));
+
+        NamedEntity shifted = entity.withLineOffset(-5, null);
+        assertTrue(shifted.occursIn(-4));
+        assertTrue(shifted.occursIn(-2));
+        assertTrue(shifted.occursIn(2));
+        assertFalse(shifted.occursIn(-3));
+        assertFalse(shifted.occursIn(1));
+
+        assertFalse(new NamedEntity("AuthenticationService", NamedEntityType.COMPONENT).occursIn(1));
+    }
+
+    /**
+     * @return an unfrozen entity with a direct reference in line 1, an indirect reference in line 3, and both references in line 7
+     */
+    private static NamedEntity createEntity() {
+        NamedEntity entity = new NamedEntity("AuthenticationService", NamedEntityType.COMPONENT);
+        entity.addAlternativeName("service");
+        entity.addOccurrence(7, NamedEntityReferenceType.INDIRECT);
+        entity.addOccurrence(1, NamedEntityReferenceType.DIRECT);
+        entity.addOccurrence(3, NamedEntityReferenceType.INDIRECT);
+        entity.addOccurrence(7, NamedEntityReferenceType.DIRECT);
+        return entity;
+    }
+}
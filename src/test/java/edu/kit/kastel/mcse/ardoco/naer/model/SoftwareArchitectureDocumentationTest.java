@@ -0,0 +1,237 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SoftwareArchitectureDocumentationTest {
+    /**
+     * the size of the buffer that {@link SoftwareArchitectureDocumentation.Builder#read(java.io.Reader)} reads at once
+     */
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final List<String> LINES = List.of("The AuthenticationService handles login requests.", "It forwards valid credentials to the UserDatabase.",
+            "The DB then validates the credentials!");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Files with any line separators are split into the same lines")
+    void readsFilesWithAnyLineSeparators() throws IOException {
+        for (String separator : List.of("\n", "\r\n", "\r")) {
+            for (String end : List.of("", separator)) {
+                Path file = write(String.join(separator, LINES) + end);
+                SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(file);
+
+                assertLines(LINES, sad);
+                assertEquals(String.join(System.lineSeparator(), LINES), sad.getText());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Files with mixed line separators are split into the same lines")
+    void readsFilesWithMixedLineSeparators() throws IOException {
+        Path file = write(LINES.get(0) + "\r\n" + LINES.get(1) + "\r" + LINES.get(2) + "\n");
+        assertLines(LINES, new SoftwareArchitectureDocumentation(file));
+    }
+
+    @Test
+    @DisplayName("A \\r\\n separator that is split by a read buffer boundary is one separator")
+    void readsCarriageReturnLineFeedAcrossBufferBoundary() {
+        // the first line ends right before the boundary, so that '\r' is the last character of the first buffer and '\n' the first of the second
+        String firstLine = sentenceOfLength(READ_BUFFER_SIZE - 1);
+        String content = firstLine + "\r\n" + LINES.get(0) + "\r\n";
+
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation.Builder().read(new StringReader(content)).build();
+
+        assertLines(List.of(firstLine, LINES.get(0)), sad);
+    }
+
+    @Test
+    @DisplayName("A \\r separator at the end of a read buffer is not merged with the next line")
+    void readsCarriageReturnAtBufferBoundary() {
+        String firstLine = sentenceOfLength(READ_BUFFER_SIZE - 1);
+        String secondLine = sentenceOfLength(READ_BUFFER_SIZE - 1);
+        String content = firstLine + "\r" + secondLine + "\r" + LINES.get(0);
+
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation.Builder().read(new StringReader(content)).build();
+
+        assertLines(List.of(firstLine, secondLine, LINES.get(0)), sad);
+    }
+
+    @Test
+    @DisplayName("The content hash does not depend on the line separators and is the hash of the lines read by Files.readAllLines")
+    void contentHashIsUnchanged() throws IOException {
+        String expectedHash = hashLines(LINES);
+        for (String separator : List.of("\n", "\r\n", "\r")) {
+            Path file = write(String.join(separator, LINES) + separator);
+
+            assertEquals(hashLines(Files.readAllLines(file)), new SoftwareArchitectureDocumentation(file).getContentHash());
+            assertEquals(expectedHash, new SoftwareArchitectureDocumentation(file).getContentHash());
+            assertEquals(expectedHash, new SoftwareArchitectureDocumentation(String.join(separator, LINES)).getContentHash());
+            assertEquals(expectedHash, new SoftwareArchitectureDocumentation.Builder().read(Files.newBufferedReader(file)).build().getContentHash());
+        }
+    }
+
+    @Test
+    @DisplayName("Non-ASCII text is decoded as UTF-8")
+    void decodesUtf8() throws IOException {
+        List<String> lines = List.of("Der Überweisungsdienst prüft die Aufträge.", "日本語のコンポーネントです.");
+        Path file = write(String.join("\n", lines) + "\n");
+
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(file);
+
+        assertLines(lines, sad);
+        assertEquals(hashLines(lines), sad.getContentHash());
+    }
+
+    @Test
+    @DisplayName("All invalid lines are reported in one exception, in line order")
+    void allFormatViolationsAreReported() {
+        String text = String.join("\n", LINES.get(0), "It forwards valid credentials", LINES.get(1), "  ", LINES.get(2), "The service logs each attempt");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new SoftwareArchitectureDocumentation(text));
+
+        assertEquals("invalid SAD text format: 3 violations: line 2: line does not end with a sentence terminator: \"It forwards valid credentials\"; "
+                + "line 4: empty line detected; line 6: line does not end with a sentence terminator: \"The service logs each attempt\"", exception
+                        .getMessage());
+        assertEquals("invalid SAD text format: line 2: empty line detected", assertThrows(IllegalArgumentException.class,
+                () -> new SoftwareArchitectureDocumentation(LINES.get(0) + "\n\n" + LINES.get(1))).getMessage());
+    }
+
+    @Test
+    @DisplayName("The invalid lines of large documents, which are checked in parallel, are reported in line order")
+    void formatViolationsOfLargeDocumentsAreReportedInOrder() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 12_000; i++) {
+            lines.add(LINES.get(i % LINES.size()));
+        }
+        List<Integer> invalidLineNumbers = List.of(3, 2_500, 6_001, 9_999, 11_999, 12_000);
+        for (int lineNumber : invalidLineNumbers) {
+            lines.set(lineNumber - 1, "Line " + lineNumber);
+        }
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new SoftwareArchitectureDocumentation(String.join("\n",
+                lines)));
+
+        StringBuilder expectedMessage = new StringBuilder("invalid SAD text format: " + invalidLineNumbers.size() + " violations: ");
+        for (int lineNumber : invalidLineNumbers) {
+            if (lineNumber != invalidLineNumbers.getFirst()) {
+                expectedMessage.append("; ");
+            }
+            expectedMessage.append("line ").append(lineNumber).append(": line does not end with a sentence terminator: \"Line ").append(lineNumber).append("\"");
+        }
+        assertEquals(expectedMessage.toString(), exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("The numbered text prefixes each line with its number, a colon, and a space")
+    void textWithLineNumbers() {
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(String.join("\r\n", LINES));
+        String separator = System.lineSeparator();
+
+        assertEquals("1: " + LINES.get(0) + separator + "2: " + LINES.get(1) + separator + "3: " + LINES.get(2), sad.getTextWithLineNumbers());
+        // excerpts are numbered from 1
+        assertEquals("1: " + LINES.get(1) + separator + "2: " + LINES.get(2), sad.getExcerpt(2, 3).getTextWithLineNumbers());
+    }
+
+    @Test
+    @DisplayName("Echoed lines that differ in case and whitespace are resolved to their line")
+    void exactEchoIgnoresCaseAndWhitespace() {
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(String.join("\n", LINES));
+
+        assertEquals(1, sad.getLineNumber("The AuthenticationService handles login requests."));
+        assertEquals(1, sad.getLineNumber("the authenticationservice HANDLES login requests."));
+        assertEquals(2, sad.getLineNumber("  It forwards \t valid credentials\tto the   UserDatabase.  "));
+        assertEquals(3, sad.getLineNumber("THE DB THEN VALIDATES THE CREDENTIALS!"));
+    }
+
+    @Test
+    @DisplayName("For duplicate lines, the first line number is returned")
+    void duplicateLinesResolveToFirstLine() {
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(String.join("\n", LINES.get(0), LINES.get(1), LINES.get(0),
+                LINES.get(1).toUpperCase(), LINES.get(2)));
+
+        assertEquals(1, sad.getLineNumber(LINES.get(0)));
+        assertEquals(2, sad.getLineNumber(LINES.get(1).toUpperCase()));
+        // similar, but no exact echo of the duplicates
+        assertEquals(1, sad.getLineNumber(LINES.get(0).replace("requests", "request")));
+    }
+
+    @Test
+    @DisplayName("Echoes that are not exact are found by their similarity, and dissimilar texts are not found")
+    void nonExactEchoFallsThroughToIndex() {
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(String.join("\n", LINES));
+
+        // a typo and a missing sentence terminator: no exact echo, but the same characters
+        assertEquals(1, sad.getLineNumber("The AuthenticationService handels login requests"));
+        assertEquals(2, sad.getLineNumber("It forwards valid credentials to the UserDatabase"));
+        assertEquals(-1, sad.getLineNumber("A completely different sentence about queues?"));
+    }
+
+    @Test
+    @DisplayName("Lowercase lines are the lowercase forms of the lines, also for non-ASCII text")
+    void lowerCaseLines() {
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(String.join("\n", LINES) + "\nDer ÜBERWEISUNGSDIENST prüft Aufträge.");
+
+        for (int lineNumber = 1; lineNumber <= sad.getLineCount(); lineNumber++) {
+            assertEquals(sad.getLine(lineNumber).toLowerCase(), sad.getLowerCaseLine(lineNumber));
+        }
+        assertEquals("der überweisungsdienst prüft aufträge.", sad.getLowerCaseLine(4));
+        assertThrows(IllegalArgumentException.class, () -> sad.getLowerCaseLine(0));
+        assertThrows(IllegalArgumentException.class, () -> sad.getLowerCaseLine(5));
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(directory, "sad", ".txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static void assertLines(List<String> expectedLines, SoftwareArchitectureDocumentation sad) {
+        assertEquals(expectedLines.size(), sad.getLineCount());
+        for (int i = 0; i < expectedLines.size(); i++) {
+            assertEquals(expectedLines.get(i), sad.getLine(i + 1));
+        }
+    }
+
+    private static String sentenceOfLength(int length) {
+        StringBuilder sentence = new StringBuilder("The Component");
+        while (sentence.length() < length - 1) {
+            sentence.append(sentence.length() % 10 == 0 ? ' ' : 'x');
+        }
+        return sentence.append('.').toString();
+    }
+
+    /**
+     * Hashes the lines like the content hash of the SAD, i.e., the UTF-8 encoding of each line followed by '\n'.
+     */
+    private static String hashLines(List<String> lines) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String line : lines) {
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -57,7 +57,7 @@ class ComponentRecognitionParameterizedTest {
         if (testConfig.modelTimeoutSeconds > 0) {
             chatModelFactory = chatModelFactory.timeout(testConfig.modelTimeoutSeconds);
         }
-        ChatModel chatModel = chatModelFactory.temperature(testConfig.modelTemperature()).build();
+        ChatModel chatModel = chatModelFactory.temperature(testConfig.modelTemperature()).structuredOutput(testConfig.structuredOutput()).build();
 
         //get the test project from the config (jabref is the default)
         TestProject project = testConfig.testProject() != null ? testConfig.testProject() : TestProject.JABREF;
@@ -79,13 +79,13 @@ class ComponentRecognitionParameterizedTest {
 
     //Config holder record matching the JSON structure:
     public record TestConfig(ModelProvider modelProvider, String model, double modelTemperature, int modelTimeoutSeconds, TestProject testProject,
-                             Prompt prompt, boolean useGoldstandardComponentNames) {
+                             Prompt prompt, boolean useGoldstandardComponentNames, boolean structuredOutput) {
         // more parameters can be added above (if a param is not set in the config its simply null)
 
         @NotNull
         @Override
         public String toString() {
-            return "TestConfig{" + "modelProvider=" + modelProvider + ", model='" + model + "'" + ", modelTemperature=" + modelTemperature + ", modelTimeoutSeconds=" + modelTimeoutSeconds + ",\ntestProject=" + testProject + ", prompt=" + prompt + ", useGoldstandardComponentNames=" + useGoldstandardComponentNames + "}";
+            return "TestConfig{" + "modelProvider=" + modelProvider + ", model='" + model + "'" + ", modelTemperature=" + modelTemperature + ", modelTimeoutSeconds=" + modelTimeoutSeconds + ",\ntestProject=" + testProject + ", prompt=" + prompt + ", useGoldstandardComponentNames=" + useGoldstandardComponentNames + ", structuredOutput=" + structuredOutput + "}";
         }
 
     }
@@ -0,0 +1,400 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.recognizer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+class NamedEntityRecognizerTest {
+    private static final SoftwareArchitectureDocumentation SAD = new SoftwareArchitectureDocumentation("""
+            The AuthenticationService handles login requests.
+            It forwards valid credentials to the UserDatabase.
+            The service logs each attempt.""");
+    private static final String VALID_ANSWER = """
+            BEGIN-OUTPUT
+            COMPONENT entities recognized:
+            AuthenticationService, 'The AuthenticationService handles login requests.'
+            UserDatabase, 'It forwards valid credentials to the UserDatabase.'
+
+            Alternative names:
+            AuthenticationService: service
+            UserDatabase: None
+            END-OUTPUT""";
+    /**
+     * the valid answer with an invalid occurrence in line 3 of the output (line 0 is the empty rest of the line with the BEGIN-OUTPUT marker)
+     */
+    private static final String ANSWER_WITH_INVALID_LINE = VALID_ANSWER.replace("UserDatabase, 'It forwards valid credentials to the UserDatabase.'",
+            "UserDatabase - It forwards valid credentials to the UserDatabase.");
+    private static final String LINE_REPAIR_PROMPT_START = "The following numbered lines";
+    private static final String REPAIR_PROMPT_START = "The following output is invalid";
+
+    @Test
+    @DisplayName("A valid answer is parsed without repair")
+    void validAnswerIsParsed() {
+        ScriptedChatModel chatModel = new ScriptedChatModel(request -> VALID_ANSWER);
+
+        Set<NamedEntity> entities = createRecognizer(chatModel).recognize(SAD);
+
+        assertEquals(2, entities.size());
+        assertEquals(1, chatModel.getRequests());
+    }
+
+    @Test
+    @DisplayName("Without the result cache, the recognized entities are not frozen and can be modified, also if the SAD is chunked")
+    void recognizedEntitiesAreModifiable() {
+        ScriptedChatModel chatModel = new ScriptedChatModel(request -> VALID_ANSWER);
+        List<NamedEntityRecognizer> recognizers = List.of(createRecognizer(chatModel), new NamedEntityRecognizer.Builder().chatModel(chatModel)
+                .prompt(new StructuredTextOutputPrompt("Recognize the components."))
+                .chunking(2, 1)
+                .build());
+
+        for (NamedEntityRecognizer recognizer : recognizers) {
+            Set<NamedEntity> entities = recognizer.recognize(SAD);
+
+            assertEquals(2, entities.size());
+            for (NamedEntity entity : entities) {
+                assertFalse(entity.isFrozen());
+                entity.addOccurrence(3, NamedEntityReferenceType.INDIRECT);
+                entity.setSourceText(SAD);
+                entity.changeName(entity.getName() + "Renamed");
+                entity.makeAllNamesLowerCase();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("With the result cache, the recognized entities are frozen and shared between the callers")
+    void cachedEntitiesAreFrozen() {
+        ScriptedChatModel chatModel = new ScriptedChatModel(request -> VALID_ANSWER);
+        NamedEntityRecognizer recognizer = new NamedEntityRecognizer.Builder().chatModel(chatModel)
+                .prompt(new StructuredTextOutputPrompt("Recognize the components."))
+                .resultCache(Duration.ofMinutes(1), 10)
+                .build();
+
+        Set<NamedEntity> first = recognizer.recognize(SAD);
+        Set<NamedEntity> second = recognizer.recognize(SAD);
+
+        assertEquals(1, chatModel.getRequests());
+        assertEquals(first, second);
+        NamedEntity entity = first.iterator().next();
+        assertTrue(entity.isFrozen());
+        assertTrue(second.contains(entity));
+        assertThrows(IllegalStateException.class, () -> entity.changeName("Renamed"));
+        assertFalse(entity.copy().isFrozen());
+    }
+
+    @Test
+    @DisplayName("Only the invalid lines are repaired if the chat model reformats all of them")
+    void invalidLinesAreRepairedPartially() {
+        ScriptedChatModel chatModel = new ScriptedChatModel(request -> {
+            if (request.startsWith(LINE_REPAIR_PROMPT_START)) {
+                assertTrue(request.contains("3. UserDatabase - It forwards"), request);
+                return "3. UserDatabase, 'It forwards valid credentials to the UserDatabase.'";
+            }
+            return ANSWER_WITH_INVALID_LINE;
+        });
+        NamedEntityRecognizer recognizer = createRecognizer(chatModel);
+
+        Set<NamedEntity> entities = recognizer.recognize(SAD);
+
+        assertEquals(2, entities.size());
+        assertEquals(2, chatModel.getRequests());
+        assertEquals(1, recognizer.getRepairStatistics().getRepairedPartially());
+        assertEquals(0, recognizer.getRepairStatistics().getRepairedByLlm());
+    }
+
+    @Test
+    @DisplayName("If the line repair leaves invalid lines, the complete answer is reformatted instead of dropping them")
+    void unrepairedLinesFallBackToFullRepair() {
+        for (String lineRepairAnswer : new String[] { "Sorry, I cannot help with that.", "3.", "3. UserDatabase in line 2" }) {
+            ScriptedChatModel chatModel = new ScriptedChatModel(request -> {
+                if (request.startsWith(LINE_REPAIR_PROMPT_START)) {
+                    return lineRepairAnswer;
+                }
+                if (request.startsWith(REPAIR_PROMPT_START)) {
+                    return VALID_ANSWER;
+                }
+                return ANSWER_WITH_INVALID_LINE;
+            });
+            NamedEntityRecognizer recognizer = createRecognizer(chatModel);
+
+            Set<NamedEntity> entities = recognizer.recognize(SAD);
+
+            assertEquals(2, entities.size(), lineRepairAnswer);
+            assertEquals(3, chatModel.getRequests(), lineRepairAnswer);
+            assertEquals(0, recognizer.getRepairStatistics().getRepairedPartially(), lineRepairAnswer);
+            assertEquals(1, recognizer.getRepairStatistics().getRepairedByLlm(), lineRepairAnswer);
+        }
+    }
+
+    @Test
+    @DisplayName("The answer to a line repair prompt is parsed into the reformatted lines by their number")
+    void parseRepairedLines() {
+        Map<Integer, String> repairedLines = NamedEntityRecognizer.parseRepairedLines("""
+                Here are the reformatted lines:
+                3. UserDatabase, 'It forwards valid credentials to the UserDatabase.'
+                  7.UserDatabase: None\r
+                8.
+                12.    AuthenticationService: service
+                99999999999. too large
+                - 13. not numbered
+                """);
+
+        assertEquals(Map.of(3, "UserDatabase, 'It forwards valid credentials to the UserDatabase.'", 7, "UserDatabase: None", 12,
+                "AuthenticationService: service"), repairedLines);
+        assertTrue(NamedEntityRecognizer.parseRepairedLines("").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Cancelling an asynchronous recognition interrupts the chat model call in flight")
+    void cancelInterruptsChatCall() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ScriptedChatModel chatModel = new ScriptedChatModel(request -> {
+            started.countDown();
+            try {
+                Thread.sleep(Duration.ofSeconds(10));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("interrupted");
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<Set<NamedEntity>> result = createRecognizer(chatModel).recognizeAsync(SAD, executor);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            result.cancel(true);
+
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS), "the chat model call has not been interrupted");
+            assertThrows(CancellationException.class, result::join);
+        }
+        assertEquals(1, chatModel.getRequests());
+    }
+
+    @Test
+    @DisplayName("The chat model calls of all documents and their chunks are bounded by the max. concurrency")
+    void chunkCallsAreBoundedByMaxConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ScriptedChatModel chatModel = new ScriptedChatModel(request -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(Duration.ofMillis(20));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return VALID_ANSWER;
+        });
+        NamedEntityRecognizer recognizer = new NamedEntityRecognizer.Builder().chatModel(chatModel)
+                .prompt(new StructuredTextOutputPrompt("Recognize the components."))
+                .maxConcurrency(2)
+                .chunking(1, 0)
+                .build();
+        List<SoftwareArchitectureDocumentation> documents = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            documents.add(new SoftwareArchitectureDocumentation(SAD.getText() + "\nDocument " + i + "."));
+        }
+
+        List<RecognitionResult> results = recognizer.recognizeAll(documents);
+
+        for (RecognitionResult result : results) {
+            assertTrue(result.isSuccess());
+        }
+        // 4 documents with 4 chunks each
+        assertEquals(16, chatModel.getRequests());
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("Chunk results are merged by name and type, and reference types are deducted from the merged names")
+    void chunkResultsAreMergedByNameAndType() {
+        ScriptedChatModel chatModel = new ScriptedChatModel(request -> {
+            if (request.contains("The AuthenticationService handles login requests.")) {
+                return """
+                        BEGIN-OUTPUT
+                        COMPONENT entities recognized:
+                        AuthenticationService, 'The AuthenticationService handles login requests.'
+                        Alternative names:
+                        AuthenticationService: service
+                        END-OUTPUT""";
+            }
+            if (request.contains("It forwards valid credentials to the UserDatabase.")) {
+                return """
+                        BEGIN-OUTPUT
+                        COMPONENT entities recognized:
+                        UserDatabase, 'It forwards valid credentials to the UserDatabase.'
+                        Alternative names:
+                        UserDatabase: None
+                        END-OUTPUT""";
+            }
+            // without the alternative name "service", the reference to the AuthenticationService is indirect in this chunk
+            return """
+                    BEGIN-OUTPUT
+                    COMPONENT entities recognized:
+                    AuthenticationService, 'The service logs each attempt.'
+                    INTERFACE entities recognized:
+                    UserDatabase, 'The service logs each attempt.'
+                    Alternative names:
+                    AuthenticationService: None
+                    UserDatabase: None
+                    END-OUTPUT""";
+        });
+        NamedEntityRecognizer recognizer = new NamedEntityRecognizer.Builder().chatModel(chatModel)
+                .prompt(new StructuredTextOutputPrompt("Recognize the components."))
+                .chunking(1, 0)
+                .build();
+
+        List<NamedEntity> entities = new ArrayList<>(recognizer.recognize(SAD));
+
+        assertEquals(3, chatModel.getRequests());
+        assertEquals(List.of("AuthenticationService", "UserDatabase", "UserDatabase"), entities.stream().map(NamedEntity::getName).toList());
+        assertEquals(List.of(NamedEntityType.COMPONENT, NamedEntityType.COMPONENT, NamedEntityType.INTERFACE), entities.stream()
+                .map(NamedEntity::getType)
+                .toList());
+        assertArrayEquals(new int[] { 1, 3 }, entities.get(0).getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[0], entities.get(0).getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+        assertArrayEquals(new int[] { 2 }, entities.get(1).getOccurrenceLineNumbers());
+        assertArrayEquals(new int[] { 3 }, entities.get(2).getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+    }
+
+    @Test
+    @DisplayName("A failed document is reported with its exception, and errors are rethrown instead of being reported as cancellations")
+    void failuresOfBatchRecognition() {
+        List<SoftwareArchitectureDocumentation> documents = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            documents.add(new SoftwareArchitectureDocumentation(SAD.getText() + "\nDocument " + i + "."));
+        }
+        IllegalStateException exception = new IllegalStateException("model unavailable");
+        NamedEntityRecognizer recognizer = new NamedEntityRecognizer.Builder().chatModel(new ScriptedChatModel(request -> {
+            if (request.contains("Document 1.")) {
+                throw exception;
+            }
+            return VALID_ANSWER;
+        })).prompt(new StructuredTextOutputPrompt("Recognize the components.")).build();
+
+        List<RecognitionResult> results = recognizer.recognizeAll(documents);
+
+        assertEquals(List.of(true, false, true), results.stream().map(RecognitionResult::isSuccess).toList());
+        assertEquals(exception, results.get(1).failure());
+
+        NamedEntityRecognizer failingRecognizer = new NamedEntityRecognizer.Builder().chatModel(new ScriptedChatModel(request -> {
+            if (request.contains("Document 1.")) {
+                throw new InternalError("simulated");
+            }
+            return VALID_ANSWER;
+        })).prompt(new StructuredTextOutputPrompt("Recognize the components.")).build();
+
+        assertEquals("simulated", assertThrows(InternalError.class, () -> failingRecognizer.recognizeAll(documents)).getMessage());
+    }
+
+    @Test
+    @DisplayName("Streamed entities are passed on while the answer is streamed and equal the result of parsing the complete answer")
+    void streamedEntitiesEqualResult() {
+        String answer = VALID_ANSWER.replace("\n", "\r\n");
+        for (int chunkLength : new int[] { 1, 3, 7, answer.length() }) {
+            List<NamedEntity> streamedEntities = new CopyOnWriteArrayList<>();
+            NamedEntityRecognizer recognizer = new NamedEntityRecognizer.Builder().streamingChatModel(new ChunkedStreamingChatModel(answer, chunkLength))
+                    .prompt(new StructuredTextOutputPrompt("Recognize the components."))
+                    .build();
+
+            Set<NamedEntity> entities = recognizer.recognizeStreaming(SAD, streamedEntities::add).join();
+
+            assertEquals(2, entities.size());
+            assertEquals(entities, new LinkedHashSet<>(streamedEntities), "chunk length " + chunkLength);
+            assertEquals(2, streamedEntities.size(), "chunk length " + chunkLength);
+        }
+    }
+
+    private static NamedEntityRecognizer createRecognizer(ChatModel chatModel) {
+        return new NamedEntityRecognizer.Builder().chatModel(chatModel).prompt(new StructuredTextOutputPrompt("Recognize the components.")).build();
+    }
+
+    /**
+     * A {@link ChatModel} that answers each request with the answer of a function of the text of its last user message.
+     */
+    private static final class ScriptedChatModel implements ChatModel {
+        private final Function<String, String> answers;
+        private final AtomicInteger requests = new AtomicInteger();
+
+        private ScriptedChatModel(Function<String, String> answers) {
+            this.answers = answers;
+        }
+
+        int getRequests() {
+            return requests.get();
+        }
+
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            requests.incrementAndGet();
+            String text = "";
+            for (ChatMessage message : chatRequest.messages()) {
+                if (message instanceof UserMessage userMessage) {
+                    text = userMessage.singleText();
+                }
+            }
+            return ChatResponse.builder().aiMessage(AiMessage.from(answers.apply(text))).build();
+        }
+    }
+
+    /**
+     * A {@link StreamingChatModel} that streams a fixed answer in chunks of the given length.
+     */
+    private static final class ChunkedStreamingChatModel implements StreamingChatModel {
+        private final String answer;
+        private final int chunkLength;
+
+        private ChunkedStreamingChatModel(String answer, int chunkLength) {
+            this.answer = answer;
+            this.chunkLength = chunkLength;
+        }
+
+        @Override
+        public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            Thread.ofVirtual().start(() -> {
+                for (int start = 0; start < answer.length(); start += chunkLength) {
+                    handler.onPartialResponse(answer.substring(start, Math.min(start + chunkLength, answer.length())));
+                }
+                handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(answer)).build());
+            });
+        }
+    }
+}
@@ -39,6 +39,7 @@ public class PromptDeserializer extends StdDeserializer<Prompt> {
             return switch (typeStr) {
             case "STRUCTURED_TEXT_OUTPUT_PROMPT" -> new StructuredTextOutputPrompt(first);
             case "JSON_OUTPUT_PROMPT" -> new JsonOutputPrompt(first);
+            case "LINE_NUMBER_OUTPUT_PROMPT" -> new LineNumberOutputPrompt(first);
             case "TWO_PART_PROMPT" -> {
                 if (second == null || second.isBlank()) {
                     logger.error("Second part of prompt cannot be null or blank for TWO_PART_PROMPT");
@@ -0,0 +1,108 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.recognizer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+
+class RecognitionResultCacheTest {
+    private static final String KEY = "prompt/sad";
+    private static final int ROUNDS = 2000;
+    private static final int CALLERS = 8;
+
+    @Test
+    @DisplayName("Concurrent requests for the same key call the recognizer only once")
+    void concurrentRequestsRecognizeOnce() throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            for (int round = 0; round < ROUNDS; round++) {
+                RecognitionResultCache cache = new RecognitionResultCache(Duration.ofMinutes(1), 10);
+                AtomicInteger recognitions = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Set<NamedEntity>>> results = new ArrayList<>();
+                for (int caller = 0; caller < CALLERS; caller++) {
+                    // the callers start with different delays, so that some of them miss the cache right before the first flight completes
+                    int delay = caller * round % 500;
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < delay; i++) {
+                            Thread.onSpinWait();
+                        }
+                        return cache.get(KEY, () -> {
+                            recognitions.incrementAndGet();
+                            return CompletableFuture.completedFuture(Set.of(createEntity()));
+                        }).join();
+                    }));
+                }
+                start.countDown();
+                for (Future<Set<NamedEntity>> result : results) {
+                    assertEquals(Set.of(createEntity()), result.get());
+                }
+                assertEquals(1, recognitions.get(), "recognitions in round " + round);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Cached results are frozen and each caller receives its own set")
+    void cachedResultsAreFrozenCopies() {
+        RecognitionResultCache cache = new RecognitionResultCache(Duration.ofMinutes(1), 10);
+        Set<NamedEntity> first = cache.get(KEY, () -> CompletableFuture.completedFuture(Set.of(createEntity()))).join();
+        Set<NamedEntity> second = cache.get(KEY, () -> {
+            throw new AssertionError("the result should have been cached");
+        }).join();
+
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertTrue(second.iterator().next().isFrozen());
+    }
+
+    @Test
+    @DisplayName("Failed recognitions are not cached")
+    void failedRecognitionsAreNotCached() {
+        RecognitionResultCache cache = new RecognitionResultCache(Duration.ofMinutes(1), 10);
+        CompletableFuture<Set<NamedEntity>> failed = cache.get(KEY, () -> CompletableFuture.failedFuture(new IllegalStateException("LLM not available")));
+        assertThrows(CompletionException.class, failed::join);
+
+        Set<NamedEntity> result = cache.get(KEY, () -> CompletableFuture.completedFuture(Set.of(createEntity()))).join();
+        assertEquals(Set.of(createEntity()), result);
+    }
+
+    @Test
+    @DisplayName("Expired results are recognized again")
+    void expiredResultsAreRecognizedAgain() throws InterruptedException {
+        RecognitionResultCache cache = new RecognitionResultCache(Duration.ofNanos(1), 10);
+        AtomicInteger recognitions = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            cache.get(KEY, () -> {
+                recognitions.incrementAndGet();
+                return CompletableFuture.completedFuture(Set.of(createEntity()));
+            }).join();
+            Thread.sleep(1);
+        }
+        assertEquals(3, recognitions.get());
+    }
+
+    private static NamedEntity createEntity() {
+        return new NamedEntity.Builder("AuthenticationService", NamedEntityType.COMPONENT).occurrence(1, NamedEntityReferenceType.DIRECT).build();
+    }
+}
@@ -0,0 +1,97 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.recognizer;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.langchain4j.model.chat.ChatModel;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+import edu.kit.kastel.mcse.ardoco.naer.util.ChatModelFactory;
+import edu.kit.kastel.mcse.ardoco.naer.util.ModelProvider;
+
+/**
+ * Benchmark of the recognition with and without structured outputs ({@link ChatModelFactory#structuredOutput(boolean)}).
+ * Both modes recognize the components of all test projects with the same JSON prompt; the repair statistics and the latency of both modes are reported side
+ * by side. The benchmark calls the chat model, so the credentials of the provider (e.g., {@code OPENAI_API_KEY}) or a running Ollama server are required.
+ */
+class StructuredOutputBenchmarkTest {
+    private static final String PROMPT = """
+            In the following text, identify all architecturally relevant components that are explicitly named.
+            For each component, provide the primary name, all alternative names or abbreviations found in the text, and all complete lines where the \
+            component is mentioned.
+            Output should be a JSON array (and nothing else!), like:
+            [
+                {
+                    "name": "...",
+                    "type": "COMPONENT",
+                    "alternativeNames": [...],
+                    "occurrences": [...]
+                },
+                ...
+            ]
+            """;
+
+    private final Logger logger = LoggerFactory.getLogger(StructuredOutputBenchmarkTest.class);
+
+    @EnabledIfEnvironmentVariable(named = "runBenchmark", matches = ".*")
+    @DisplayName("Benchmark the recognition with and without structured outputs")
+    @ParameterizedTest(name = "{0} {1}")
+    @CsvSource({ "OPEN_AI, gpt-4.1-nano", "OLLAMA, phi4:latest" })
+    void benchmarkStructuredOutput(ModelProvider provider, String modelName) throws IOException, URISyntaxException {
+        List<Path> testProjects = getTestProjects();
+        Measurement unstructured = measure(provider, modelName, false, testProjects);
+        Measurement structured = measure(provider, modelName, true, testProjects);
+
+        logger.info("{} {} ({} test projects)", provider, modelName, testProjects.size());
+        logger.info("without structured outputs: {} ms, {} entities, {}", unstructured.nanos() / 1_000_000, unstructured.entityCount(), unstructured
+                .repairStatistics());
+        logger.info("with structured outputs:    {} ms, {} entities, {}", structured.nanos() / 1_000_000, structured.entityCount(), structured
+                .repairStatistics());
+    }
+
+    /**
+     * @return the total duration, the number of recognized entities, and the repair statistics of recognizing the components of all test projects
+     */
+    private static Measurement measure(ModelProvider provider, String modelName, boolean structuredOutput, List<Path> testProjects) {
+        ChatModel chatModel = ChatModelFactory.withProvider(provider).modelName(modelName).temperature(0.0).structuredOutput(structuredOutput).build();
+        NamedEntityRecognizer recognizer = new NamedEntityRecognizer.Builder().chatModel(chatModel).prompt(new JsonOutputPrompt(PROMPT)).build();
+
+        long nanos = 0;
+        int entityCount = 0;
+        for (Path testProject : testProjects) {
+            SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(TestProjectEvaluator.findSadFile(testProject));
+            long start = System.nanoTime();
+            Set<NamedEntity> entities = recognizer.recognize(sad);
+            nanos += System.nanoTime() - start;
+            entityCount += entities.size();
+        }
+        return new Measurement(nanos, entityCount, recognizer.getRepairStatistics());
+    }
+
+    private static List<Path> getTestProjects() throws IOException, URISyntaxException {
+        URL evalResourcesUrl = StructuredOutputBenchmarkTest.class.getClassLoader().getResource("evaluation_resources");
+        assertNotNull(evalResourcesUrl, "Evaluation resources not found");
+        try (Stream<Path> paths = Files.list(Path.of(evalResourcesUrl.toURI()))) {
+            return paths.filter(Files::isDirectory).sorted().toList();
+        }
+    }
+
+    private record Measurement(long nanos, int entityCount, RepairStatistics repairStatistics) {
+    }
+}
@@ -7,6 +7,7 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
 
 import org.slf4j.Logger;
@@ -131,9 +132,12 @@ public class TestProjectEvaluator {
         }
         NamedEntityRecognizer recognizer = builder.build();
 
+        long start = System.nanoTime();
         Set<NamedEntity> components = useGoldStandardComponentNames ?
                 recognizer.recognize(sad, GoldstandardParser.getPossibleComponents(dir)) :
                 recognizer.recognize(sad);
+        // latency and repair statistics allow comparing configurations, e.g., with and without structured outputs
+        logger.info("recognition took {} ms, {}", Duration.ofNanos(System.nanoTime() - start).toMillis(), recognizer.getRepairStatistics());
         Set<NamedEntity> groundTruth = assertDoesNotThrow(() -> GoldstandardParser.parse(goldstandardFile));
 
         matchAndLogResults(components, groundTruth);
@@ -164,7 +168,7 @@ public class TestProjectEvaluator {
      * @param dir the root directory to search for the SAD file
      * @return the {@link Path} to the found SAD file
      */
-    private Path findSadFile(Path dir) {
+    static Path findSadFile(Path dir) {
         Path sadDir = assertDoesNotThrow(() -> Files.list(dir)
                 .filter(Files::isDirectory)
                 .filter(p -> p.getFileName().toString().contains("text_"))
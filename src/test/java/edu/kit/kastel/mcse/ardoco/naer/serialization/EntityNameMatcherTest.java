@@ -0,0 +1,160 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+class EntityNameMatcherTest {
+    private static final int RANDOM_ROUNDS = 500;
+
+    @Test
+    @DisplayName("Names that overlap or contain each other are all found")
+    void overlappingNames() {
+        EntityNameMatcher matcher = new EntityNameMatcher(List.of(entity("UserDatabase"), entity("Database"), entity("User"), entity("Base"), entity(
+                "SerDa")));
+
+        assertEquals(bits(0, 1, 2, 3, 4), matcher.findMentionedEntities("the userdatabase stores the credentials."));
+        assertEquals(bits(1, 3), matcher.findMentionedEntities("a database"));
+        // "serda" is only found via the failure link from "userda" to "serda"
+        assertEquals(bits(2, 4), matcher.findMentionedEntities("userdata"));
+        assertEquals(bits(), matcher.findMentionedEntities("the data store"));
+    }
+
+    @Test
+    @DisplayName("A name is only found if it occurs completely, also if it is a prefix of another name")
+    void prefixNames() {
+        EntityNameMatcher matcher = new EntityNameMatcher(List.of(entity("AuthenticationService"), entity("Auth"), entity("AuthenticationServiceClient")));
+
+        assertEquals(bits(1), matcher.findMentionedEntities("auth"));
+        assertEquals(bits(1), matcher.findMentionedEntities("the authenticationservic"));
+        assertEquals(bits(0, 1), matcher.findMentionedEntities("the authenticationservice."));
+        assertEquals(bits(0, 1, 2), matcher.findMentionedEntities("authenticationserviceclient"));
+        assertEquals(bits(), matcher.findMentionedEntities("aut"));
+    }
+
+    @Test
+    @DisplayName("Alternative names are matched case-insensitively for their entity")
+    void alternativeNames() {
+        EntityNameMatcher matcher = new EntityNameMatcher(List.of(entity("AuthenticationService", "Auth-Service", "LOGIN"), entity("UserDatabase", "DB")));
+
+        assertEquals(bits(0), matcher.findMentionedEntities("the auth-service checks the login."));
+        assertEquals(bits(0, 1), matcher.findMentionedEntities("login data is stored in the db."));
+        assertEquals(bits(), matcher.findMentionedEntities("the auth service"));
+    }
+
+    @Test
+    @DisplayName("Entities with an empty name are mentioned in every line, entities without names in no line")
+    void emptyNames() {
+        EntityNameMatcher matcher = new EntityNameMatcher(List.of(entity("", "Logger"), entity("UserDatabase", ""), entity("Cache")));
+
+        assertEquals(bits(0, 1), matcher.findMentionedEntities(""));
+        assertEquals(bits(0, 1, 2), matcher.findMentionedEntities("the cache"));
+
+        EntityNameMatcher emptyMatcher = new EntityNameMatcher(List.of());
+        assertEquals(bits(), emptyMatcher.findMentionedEntities("the cache"));
+    }
+
+    @Test
+    @DisplayName("Non-ASCII characters in names and lines are matched")
+    void nonAsciiNames() {
+        EntityNameMatcher matcher = new EntityNameMatcher(List.of(entity("Überwachungsdienst"), entity("Straße"), entity("Café")));
+
+        assertEquals(bits(0), matcher.findMentionedEntities("der überwachungsdienst prüft die daten."));
+        assertEquals(bits(1, 2), matcher.findMentionedEntities("café an der straße"));
+        assertEquals(bits(), matcher.findMentionedEntities("strasse, cafe, 日本"));
+    }
+
+    @Test
+    @DisplayName("The matcher finds the same entities as String#contains for each name")
+    void sameResultAsContains() {
+        Random random = new Random(42);
+        for (int round = 0; round < RANDOM_ROUNDS; round++) {
+            // a small alphabet, so that names overlap, share prefixes, and contain each other
+            List<NamedEntity.Builder> entities = new ArrayList<>();
+            int entityCount = 1 + random.nextInt(8);
+            for (int i = 0; i < entityCount; i++) {
+                entities.add(entity(randomText(random, 4), randomText(random, 3)));
+            }
+            EntityNameMatcher matcher = new EntityNameMatcher(entities);
+
+            for (int line = 0; line < 10; line++) {
+                String lowerCaseLine = randomText(random, 30).toLowerCase();
+                assertEquals(findNaively(entities, lowerCaseLine), matcher.findMentionedEntities(lowerCaseLine), entities + " in '" + lowerCaseLine + "'");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Occurrences are direct if the line mentions the entity, otherwise indirect; invalid occurrences are skipped")
+    void deductReferenceTypes() {
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation("""
+                The AuthenticationService handles login requests.
+                It forwards valid credentials to the UserDatabase.
+                The service logs each attempt.""");
+        List<NamedEntity.Builder> entities = List.of(entity("AuthenticationService", "service"), entity("UserDatabase"));
+
+        NamedEntityParser.addOccurrencesWithDeductedReferenceTypes(entities, List.of(List.of(1, 2, 3, -1), List.of(2, 3)), sad);
+
+        NamedEntity authenticationService = entities.get(0).build();
+        assertArrayEquals(new int[] { 1, 3 }, authenticationService.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[] { 2 }, authenticationService.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+        NamedEntity userDatabase = entities.get(1).build();
+        assertArrayEquals(new int[] { 2 }, userDatabase.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[] { 3 }, userDatabase.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+    }
+
+    private static NamedEntity.Builder entity(String name, String... alternativeNames) {
+        NamedEntity.Builder entity = new NamedEntity.Builder(name, NamedEntityType.COMPONENT);
+        for (String alternativeName : alternativeNames) {
+            entity.alternativeName(alternativeName);
+        }
+        return entity;
+    }
+
+    private static BitSet bits(int... indices) {
+        BitSet bits = new BitSet();
+        for (int index : indices) {
+            bits.set(index);
+        }
+        return bits;
+    }
+
+    private static BitSet findNaively(List<NamedEntity.Builder> entities, String lowerCaseLine) {
+        BitSet mentionedEntities = new BitSet();
+        for (int i = 0; i < entities.size(); i++) {
+            NamedEntity.Builder entity = entities.get(i);
+            boolean mentioned = lowerCaseLine.contains(entity.getName().toLowerCase());
+            for (String alternativeName : entity.getAlternativeNames()) {
+                mentioned |= lowerCaseLine.contains(alternativeName.toLowerCase());
+            }
+            mentionedEntities.set(i, mentioned);
+        }
+        return mentionedEntities;
+    }
+
+    /**
+     * @return a text of up to the given length over the characters 'a', 'B', 'c', and 'ä', or an empty text
+     */
+    private static String randomText(Random random, int maxLength) {
+        String alphabet = "aBcä";
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
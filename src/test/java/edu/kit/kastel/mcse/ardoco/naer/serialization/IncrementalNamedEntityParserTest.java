@@ -0,0 +1,164 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+class IncrementalNamedEntityParserTest {
+    private static final SoftwareArchitectureDocumentation SAD = new SoftwareArchitectureDocumentation("""
+            The AuthenticationService handles login requests.
+            It forwards valid credentials to the UserDatabase.
+            The service logs each attempt.
+            The "legacy" UserDatabase stores {all} accounts.""");
+    /**
+     * a JSON answer with text around the array, escaped quotes and backslashes, and braces within strings
+     */
+    private static final String JSON_ANSWER = """
+            Here are the entities:
+            ```json
+            [
+              {"name": "AuthenticationService", "type": "COMPONENT", "alternativeNames": ["service", "auth \\"core\\""],
+               "occurrences": ["The AuthenticationService handles login requests.", "The service logs each attempt."]},
+              {"name": "UserDatabase", "type": "COMPONENT", "alternativeNames": ["db\\\\", "[users]"],
+               "occurrences": ["It forwards valid credentials to the UserDatabase.", "The \\"legacy\\" UserDatabase stores {all} accounts."]}
+            ]
+            ```""";
+    /**
+     * a structured text answer with "\r\n" line separators, text around the markers, and the end marker in the middle of a line
+     */
+    private static final String STRUCTURED_TEXT_ANSWER = String.join("\r\n", "Sure!", "BEGIN-OUTPUT", "COMPONENT entities recognized:",
+            "AuthenticationService, 'The AuthenticationService handles login requests.'", "UserDatabase, 'The \"legacy\" UserDatabase stores {all} accounts.'",
+            "AuthenticationService, 'The service logs each attempt.'", "", "Alternative names:", "AuthenticationService: service, auth",
+            "UserDatabase: None END-OUTPUT", "Hope this helps.");
+
+    @Test
+    @DisplayName("JSON answers split at any point yield the same entities as parsing the complete answer")
+    void jsonAnswerSplitAnywhere() throws IOException {
+        Set<NamedEntity> expected = NamedEntityParser.fromJson(extractArray(JSON_ANSWER), SAD);
+
+        assertEquals(2, expected.size());
+        assertSplitsYield(expected, JSON_ANSWER, NamedEntityParser::incrementalJsonParser);
+    }
+
+    @Test
+    @DisplayName("JSON answers wrapped in an object (structured outputs) yield the same entities as parsing the complete answer")
+    void wrappedJsonAnswerSplitAnywhere() throws IOException {
+        String answer = "{\"entities\": " + extractArray(JSON_ANSWER) + "}";
+        Set<NamedEntity> expected = NamedEntityParser.fromJson(extractArray(answer), SAD);
+
+        assertEquals(2, expected.size());
+        assertSplitsYield(expected, answer, NamedEntityParser::incrementalJsonParser);
+    }
+
+    @Test
+    @DisplayName("JSON answers with line numbers yield the same entities as parsing the complete answer")
+    void jsonWithLineNumbersAnswerSplitAnywhere() throws IOException {
+        String answer = """
+                {"entities": [{"name": "UserDatabase", "type": "COMPONENT", "alternativeNames": ["db"], "occurrences": [2, "4", 99]},
+                {"name": "AuthenticationService", "type": "COMPONENT", "alternativeNames": [], "occurrences": [1, 3]}]}""";
+        Set<NamedEntity> expected = NamedEntityParser.fromJsonWithLineNumbers(extractArray(answer), SAD);
+
+        assertEquals(2, expected.size());
+        assertSplitsYield(expected, answer, NamedEntityParser::incrementalJsonWithLineNumbersParser);
+    }
+
+    @Test
+    @DisplayName("Structured text answers split at any point (also within \"\\r\\n\") yield the same entities as parsing the complete answer")
+    void structuredTextAnswerSplitAnywhere() throws IOException {
+        String output = STRUCTURED_TEXT_ANSWER.substring(STRUCTURED_TEXT_ANSWER.indexOf("BEGIN-OUTPUT") + "BEGIN-OUTPUT".length(), STRUCTURED_TEXT_ANSWER
+                .lastIndexOf("END-OUTPUT"));
+        Set<NamedEntity> expected = NamedEntityParser.fromString(output, SAD);
+
+        assertEquals(2, expected.size());
+        assertSplitsYield(expected, STRUCTURED_TEXT_ANSWER, NamedEntityParser::incrementalStructuredTextParser);
+    }
+
+    @Test
+    @DisplayName("A name that appears again in a later section is emitted again instead of being merged into the emitted entity")
+    void repeatedNameInLaterSection() throws IOException {
+        String output = """
+                COMPONENT entities recognized:
+                UserDatabase, 'It forwards valid credentials to the UserDatabase.'
+                INTERFACE entities recognized:
+                UserDatabase, 'The "legacy" UserDatabase stores {all} accounts.'
+                """;
+        List<NamedEntity> entities = new ArrayList<>();
+        IncrementalNamedEntityParser parser = NamedEntityParser.incrementalStructuredTextParser(SAD, entities::add);
+        parser.accept("BEGIN-OUTPUT\n" + output + "END-OUTPUT");
+        parser.finish();
+
+        // the complete answer is parsed into one entity with the type of the first section
+        Set<NamedEntity> parsed = NamedEntityParser.fromString(output, SAD);
+        assertEquals(1, parsed.size());
+        assertEquals(NamedEntityType.COMPONENT, parsed.iterator().next().getType());
+        assertEquals(2, parsed.iterator().next().getOccurrenceCount());
+
+        assertEquals(List.of(NamedEntityType.COMPONENT, NamedEntityType.INTERFACE), entities.stream().map(NamedEntity::getType).toList());
+        assertEquals(List.of("UserDatabase", "UserDatabase"), entities.stream().map(NamedEntity::getName).toList());
+    }
+
+    @Test
+    @DisplayName("A section header without entity type skips its section instead of failing the streamed answer")
+    void bareSectionHeaderInChunks() {
+        List<NamedEntity> entities = new ArrayList<>();
+        IncrementalNamedEntityParser parser = NamedEntityParser.incrementalStructuredTextParser(SAD, entities::add);
+
+        assertDoesNotThrow(() -> {
+            for (String chunk : List.of("BEGIN-OUTPUT\nent", "ities recog", "nized:\nUserDatabase, 'It forwards valid credentials to the UserDatabase.'\n",
+                    "entities recognized:", "\nCOMPONENT entities recognized:\n", "AuthenticationService, 'The AuthenticationService handles login requests.'\n",
+                    "END-OUTPUT")) {
+                parser.accept(chunk);
+            }
+            parser.finish();
+        });
+
+        assertEquals(1, entities.size());
+        assertEquals("AuthenticationService", entities.getFirst().getName());
+        assertEquals(NamedEntityType.COMPONENT, entities.getFirst().getType());
+    }
+
+    /**
+     * Feeds the answer as a whole, character by character, and split into two pieces at each position, and checks that the emitted entities equal the
+     * expected ones.
+     */
+    private static void assertSplitsYield(Set<NamedEntity> expected, String answer,
+            BiFunction<SoftwareArchitectureDocumentation, Consumer<NamedEntity>, IncrementalNamedEntityParser> parserFactory) {
+        List<List<String>> splits = new ArrayList<>();
+        splits.add(List.of(answer));
+        splits.add(answer.chars().mapToObj(c -> String.valueOf((char) c)).toList());
+        for (int i = 1; i < answer.length(); i++) {
+            splits.add(List.of(answer.substring(0, i), answer.substring(i)));
+        }
+
+        for (List<String> chunks : splits) {
+            List<NamedEntity> entities = new ArrayList<>();
+            IncrementalNamedEntityParser parser = parserFactory.apply(SAD, entities::add);
+            for (String chunk : chunks) {
+                parser.accept(chunk);
+            }
+            parser.finish();
+
+            assertEquals(expected.size(), entities.size(), chunks.toString());
+            assertEquals(expected, new LinkedHashSet<>(entities), chunks.toString());
+        }
+    }
+
+    private static String extractArray(String answer) {
+        return answer.substring(answer.indexOf('['), answer.lastIndexOf(']') + 1);
+    }
+}
@@ -0,0 +1,110 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class JsonRepairTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Valid JSON is not changed")
+    void validJsonIsUnchanged() {
+        String json = "[{\"name\": \"AuthenticationService\", \"occurrences\": [1, 2]}]";
+        assertEquals(Optional.of(json), JsonRepair.repair(json));
+    }
+
+    @Test
+    @DisplayName("Markdown code fences and surrounding text are removed")
+    void removesCodeFences() throws JsonProcessingException {
+        String answer = """
+                Here are the entities:
+                ```json
+                [{"name": "AuthenticationService"}]
+                ```
+                """;
+        assertEquals(parse("[{\"name\": \"AuthenticationService\"}]"), repairAndParse(answer));
+    }
+
+    @Test
+    @DisplayName("Trailing commas in arrays and objects are removed")
+    void removesTrailingCommas() throws JsonProcessingException {
+        String answer = "[{\"name\": \"AuthenticationService\", \"occurrences\": [1, 2, ],}, ]";
+        assertEquals(parse("[{\"name\": \"AuthenticationService\", \"occurrences\": [1, 2]}]"), repairAndParse(answer));
+    }
+
+    @Test
+    @DisplayName("Unquoted keys are quoted")
+    void quotesUnquotedKeys() throws JsonProcessingException {
+        String answer = "[{name: \"AuthenticationService\", alternative_names: [\"Auth\"], $type: \"COMPONENT\"}]";
+        assertEquals(parse("[{\"name\": \"AuthenticationService\", \"alternative_names\": [\"Auth\"], \"$type\": \"COMPONENT\"}]"), repairAndParse(answer));
+    }
+
+    @Test
+    @DisplayName("Single-quoted strings are converted and apostrophes within them are kept")
+    void convertsSingleQuotedStrings() throws JsonProcessingException {
+        String answer = "[{'name': 'AuthenticationService', 'occurrences': ['The service's token is valid', 'It says \"hello\"', 'It\\'s escaped']}]";
+        JsonNode repaired = repairAndParse(answer);
+
+        assertEquals("AuthenticationService", repaired.get(0).get("name").asText());
+        assertEquals("The service's token is valid", repaired.get(0).get("occurrences").get(0).asText());
+        assertEquals("It says \"hello\"", repaired.get(0).get("occurrences").get(1).asText());
+        assertEquals("It's escaped", repaired.get(0).get("occurrences").get(2).asText());
+    }
+
+    @Test
+    @DisplayName("The incomplete last element of a truncated answer is dropped")
+    void dropsIncompleteLastElement() throws JsonProcessingException {
+        String answer = "[{\"name\": \"AuthenticationService\", \"occurrences\": [1]}, {\"name\": \"UserDat";
+        assertEquals(parse("[{\"name\": \"AuthenticationService\", \"occurrences\": [1]}]"), repairAndParse(answer));
+    }
+
+    @Test
+    @DisplayName("Complete primitive elements of a truncated answer are kept")
+    void keepsCompletePrimitiveElements() throws JsonProcessingException {
+        assertEquals(parse("[\"AuthenticationService\", \"UserDatabase\"]"), repairAndParse("[\"AuthenticationService\", \"UserDatabase\", \"Logg"));
+        assertEquals(parse("[1, 2]"), repairAndParse("[1, 2, 3"));
+    }
+
+    @Test
+    @DisplayName("An answer that is truncated before the first complete element cannot be repaired")
+    void truncatedBeforeFirstElementIsNotRepaired() {
+        assertEquals(Optional.empty(), JsonRepair.repair("["));
+        assertEquals(Optional.empty(), JsonRepair.repair("[{\"name\": \"Authentication"));
+        assertEquals(Optional.empty(), JsonRepair.repair("```json\n[{\"name\": \"AuthenticationService\", \"occurrences\": [1, 2"));
+    }
+
+    @Test
+    @DisplayName("Answers without a JSON array cannot be repaired")
+    void answerWithoutArrayIsNotRepaired() {
+        assertEquals(Optional.empty(), JsonRepair.repair(null));
+        assertEquals(Optional.empty(), JsonRepair.repair("I could not find any named entities."));
+    }
+
+    @Test
+    @DisplayName("An empty array is kept")
+    void emptyArrayIsKept() throws JsonProcessingException {
+        JsonNode repaired = repairAndParse("```\n[ ]\n```");
+        assertTrue(repaired.isArray());
+        assertEquals(0, repaired.size());
+    }
+
+    private JsonNode repairAndParse(String answer) throws JsonProcessingException {
+        Optional<String> repaired = JsonRepair.repair(answer);
+        assertTrue(repaired.isPresent(), "answer could not be repaired: " + answer);
+        return parse(repaired.get());
+    }
+
+    private JsonNode parse(String json) throws JsonProcessingException {
+        return mapper.readTree(json);
+    }
+}
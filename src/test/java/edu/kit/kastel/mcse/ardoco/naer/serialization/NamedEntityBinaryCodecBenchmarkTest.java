@@ -0,0 +1,191 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+
+/**
+ * Benchmark of the size and the duration of storing recognition results with {@link NamedEntityBinaryCodec}.
+ * The binary format is compared with JSON in the format of the answers of JSON prompts (with explicit reference types), which is written with a
+ * {@link JsonGenerator} and read with Jackson.
+ */
+class NamedEntityBinaryCodecBenchmarkTest {
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 20;
+
+    private final Logger logger = LoggerFactory.getLogger(NamedEntityBinaryCodecBenchmarkTest.class);
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @EnabledIfEnvironmentVariable(named = "runBenchmark", matches = ".*")
+    @DisplayName("Benchmark the size and duration of storing recognition results")
+    @ParameterizedTest(name = "{0} results, {1} entities per result, {2} occurrences per entity")
+    @CsvSource({ "10, 20, 10", "50, 40, 30", "200, 100, 50" })
+    void benchmarkBinaryCodec(int resultCount, int entitiesPerResult, int occurrencesPerEntity) throws IOException {
+        List<NamedEntityBinaryCodec.Result> results = createResults(resultCount, entitiesPerResult, occurrencesPerEntity);
+
+        byte[] binary = writeBinary(results);
+        byte[] json = writeJson(results);
+        assertEquals(results, readBinary(binary));
+        assertEquals(results, readJson(json));
+
+        long binaryWriteNanos = measure(() -> writeBinary(results));
+        long binaryReadNanos = measure(() -> readBinary(binary));
+        long jsonWriteNanos = measure(() -> writeJson(results));
+        long jsonReadNanos = measure(() -> readJson(json));
+        logger.info("{} results, {} entities per result, {} occurrences per entity: binary {} KB, write {} ms, read {} ms; JSON {} KB, write {} ms, read {} ms",
+                resultCount, entitiesPerResult, occurrencesPerEntity, binary.length / 1024, binaryWriteNanos / 1_000_000.0, binaryReadNanos / 1_000_000.0,
+                json.length / 1024, jsonWriteNanos / 1_000_000.0, jsonReadNanos / 1_000_000.0);
+    }
+
+    /**
+     * Creates the results of the recognition in several versions of a SAD, so that most names occur in many results.
+     */
+    private static List<NamedEntityBinaryCodec.Result> createResults(int resultCount, int entitiesPerResult, int occurrencesPerEntity) {
+        Random random = new Random(42);
+        List<NamedEntityBinaryCodec.Result> results = new ArrayList<>();
+        for (int i = 0; i < resultCount; i++) {
+            byte[] hash = new byte[32];
+            random.nextBytes(hash);
+            Set<NamedEntity> entities = new LinkedHashSet<>();
+            for (int j = 0; j < entitiesPerResult; j++) {
+                int id = random.nextInt(entitiesPerResult * 2);
+                NamedEntity.Builder entity = new NamedEntity.Builder("Component" + id + "Service", NamedEntityType.COMPONENT);
+                if (id % 2 == 0) {
+                    entity.alternativeName("C" + id).alternativeName("Service" + id);
+                }
+                for (int k = 0; k < occurrencesPerEntity; k++) {
+                    entity.occurrence(1 + random.nextInt(2000), random.nextInt(4) == 0 ? NamedEntityReferenceType.INDIRECT : NamedEntityReferenceType.DIRECT);
+                }
+                entities.add(entity.build());
+            }
+            results.add(new NamedEntityBinaryCodec.Result(HexFormat.of().formatHex(hash), entities));
+        }
+        return results;
+    }
+
+    private static byte[] writeBinary(List<NamedEntityBinaryCodec.Result> results) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (NamedEntityBinaryCodec.Writer writer = NamedEntityBinaryCodec.newWriter(output)) {
+            for (NamedEntityBinaryCodec.Result result : results) {
+                writer.write(result.sadContentHash(), result.entities());
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static List<NamedEntityBinaryCodec.Result> readBinary(byte[] binary) throws IOException {
+        List<NamedEntityBinaryCodec.Result> results = new ArrayList<>();
+        try (NamedEntityBinaryCodec.Reader reader = NamedEntityBinaryCodec.newReader(new ByteArrayInputStream(binary))) {
+            Optional<NamedEntityBinaryCodec.Result> result = reader.read();
+            while (result.isPresent()) {
+                results.add(result.get());
+                result = reader.read();
+            }
+        }
+        return results;
+    }
+
+    private byte[] writeJson(List<NamedEntityBinaryCodec.Result> results) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(output)) {
+            generator.writeStartArray();
+            for (NamedEntityBinaryCodec.Result result : results) {
+                generator.writeStartObject();
+                generator.writeStringField("sadContentHash", result.sadContentHash());
+                generator.writeArrayFieldStart("entities");
+                for (NamedEntity entity : result.entities()) {
+                    writeJson(entity, generator);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        return output.toByteArray();
+    }
+
+    private static void writeJson(NamedEntity entity, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", entity.getName());
+        generator.writeStringField("type", entity.getType().name());
+        generator.writeArrayFieldStart("alternativeNames");
+        for (String alternativeName : entity.getAlternativeNames()) {
+            generator.writeString(alternativeName);
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("occurrences");
+        for (NamedEntityReferenceType referenceType : NamedEntityReferenceType.values()) {
+            for (int line : entity.getOccurrenceLineNumbers(referenceType)) {
+                generator.writeStartObject();
+                generator.writeNumberField("line", line);
+                generator.writeStringField("referenceType", referenceType.name());
+                generator.writeEndObject();
+            }
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private List<NamedEntityBinaryCodec.Result> readJson(byte[] json) throws IOException {
+        List<JsonResult> jsonResults = mapper.readValue(json, new TypeReference<>() {
+        });
+        List<NamedEntityBinaryCodec.Result> results = new ArrayList<>();
+        for (JsonResult jsonResult : jsonResults) {
+            Set<NamedEntity> entities = new LinkedHashSet<>();
+            for (NamedEntity entity : jsonResult.entities()) {
+                entities.add(entity.freeze());
+            }
+            results.add(new NamedEntityBinaryCodec.Result(jsonResult.sadContentHash(), entities));
+        }
+        return results;
+    }
+
+    /**
+     * @return the minimum duration of the operation
+     */
+    private static long measure(Operation operation) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            nanos = Math.min(nanos, System.nanoTime() - start);
+        }
+        return nanos;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        Object run() throws IOException;
+    }
+
+    private record JsonResult(String sadContentHash, List<NamedEntity> entities) {
+    }
+}
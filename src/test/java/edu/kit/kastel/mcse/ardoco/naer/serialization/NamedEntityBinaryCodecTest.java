@@ -0,0 +1,212 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+class NamedEntityBinaryCodecTest {
+    private static final String HASH_1 = "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
+    private static final String HASH_2 = "ffeeddccbbaa99887766554433221100ffeeddccbbaa99887766554433221100";
+    private static final byte[] HEADER = { 'N', 'A', 'E', 'R', NamedEntityBinaryCodec.VERSION };
+    private static final int RESULT_MARKER = 0x52;
+
+    @Test
+    @DisplayName("Several results are read back in the order in which they have been written")
+    void roundTripOfSeveralResults() throws IOException {
+        List<NamedEntityBinaryCodec.Result> results = List.of(new NamedEntityBinaryCodec.Result(HASH_1, Set.of(entity("AuthenticationService", "Auth", 1, 4),
+                entity("UserDatabase", "DB", 2))), new NamedEntityBinaryCodec.Result(HASH_2, Set.of()), new NamedEntityBinaryCodec.Result(HASH_2, Set.of(entity(
+                        "AuthenticationService", "Auth", 10, 40, 400), entity("Logger", null, 3))));
+
+        List<NamedEntityBinaryCodec.Result> readResults = readAll(write(results));
+
+        assertEquals(results, readResults);
+        for (NamedEntityBinaryCodec.Result result : readResults) {
+            for (NamedEntity entity : result.entities()) {
+                assertFalse(entity.isFrozen());
+                assertNull(entity.getSourceText());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Strings are written only once per stream")
+    void stringTableIsSharedAcrossResults() throws IOException {
+        Set<NamedEntity> entities = Set.of(entity("AuthenticationServiceWithAVeryLongName", "AnAlternativeNameThatIsAlsoQuiteLong", 1, 2, 3));
+        byte[] once = write(List.of(new NamedEntityBinaryCodec.Result(HASH_1, entities)));
+        byte[] twice = write(List.of(new NamedEntityBinaryCodec.Result(HASH_1, entities), new NamedEntityBinaryCodec.Result(HASH_2, entities)));
+
+        int firstResultSize = once.length - HEADER.length;
+        int secondResultSize = twice.length - once.length;
+        // the second result only refers to the strings of the first one
+        assertTrue(secondResultSize < firstResultSize - "AuthenticationServiceWithAVeryLongName".length(), secondResultSize + " >= " + firstResultSize);
+        assertEquals(List.of(new NamedEntityBinaryCodec.Result(HASH_1, entities), new NamedEntityBinaryCodec.Result(HASH_2, entities)), readAll(twice));
+    }
+
+    @Test
+    @DisplayName("Negative lines and lines that are referenced both directly and indirectly are kept")
+    void roundTripOfShiftedOccurrences() throws IOException {
+        NamedEntity entity = new NamedEntity("AuthenticationService", NamedEntityType.COMPONENT);
+        entity.addOccurrence(1, NamedEntityReferenceType.DIRECT);
+        entity.addOccurrence(1, NamedEntityReferenceType.INDIRECT);
+        entity.addOccurrence(5, NamedEntityReferenceType.INDIRECT);
+        entity.addOccurrence(300, NamedEntityReferenceType.DIRECT);
+        NamedEntity shifted = entity.withLineOffset(-100, null).freeze();
+
+        NamedEntity readEntity = readAll(write(List.of(new NamedEntityBinaryCodec.Result(HASH_1, Set.of(shifted))))).getFirst().entities().iterator().next();
+
+        assertEquals(shifted, readEntity);
+        assertArrayEquals(new int[] { -99, 200 }, readEntity.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[] { -99, -95 }, readEntity.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+    }
+
+    @Test
+    @DisplayName("Entities without type or occurrences are kept")
+    void roundTripOfEntityWithoutType() throws IOException {
+        NamedEntity untyped = new NamedEntity.Builder("AuthenticationService", null).occurrence(1, NamedEntityReferenceType.DIRECT).build();
+        NamedEntity withoutOccurrences = new NamedEntity.Builder("UserDatabase", NamedEntityType.COMPONENT).alternativeName("DB").build();
+
+        List<NamedEntityBinaryCodec.Result> readResults = readAll(write(List.of(new NamedEntityBinaryCodec.Result(HASH_1, Set.of(untyped,
+                withoutOccurrences)))));
+
+        assertEquals(Set.of(untyped, withoutOccurrences), readResults.getFirst().entities());
+        for (NamedEntity entity : readResults.getFirst().entities()) {
+            if (entity.getName().equals("AuthenticationService")) {
+                assertNull(entity.getType());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The SAD resolver sets the source text of the entities")
+    void resolvesSourceText() throws IOException {
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation("The AuthenticationService handles login requests.");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (NamedEntityBinaryCodec.Writer writer = NamedEntityBinaryCodec.newWriter(output)) {
+            writer.write(sad, Set.of(entity("AuthenticationService", null, 1)));
+        }
+
+        try (NamedEntityBinaryCodec.Reader reader = NamedEntityBinaryCodec.newReader(new ByteArrayInputStream(output.toByteArray()))) {
+            NamedEntityBinaryCodec.Result result = reader.read(hash -> hash.equals(sad.getContentHash()) ? sad : null).orElseThrow();
+            assertEquals(sad.getContentHash(), result.sadContentHash());
+            assertSame(sad, result.entities().iterator().next().getSourceText());
+            assertEquals(Optional.empty(), reader.read());
+        }
+    }
+
+    @Test
+    @DisplayName("A truncated stream is reported as IOException unless it ends between two results")
+    void truncatedStreamThrows() throws IOException {
+        List<NamedEntityBinaryCodec.Result> results = List.of(new NamedEntityBinaryCodec.Result(HASH_1, Set.of(entity("AuthenticationService", "Auth", 1, 4,
+                1000))), new NamedEntityBinaryCodec.Result(HASH_2, Set.of(entity("UserDatabase", "DB", 2, 3))));
+        byte[] bytes = write(results);
+        int firstResultEnd = write(results.subList(0, 1)).length;
+
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            if (length == HEADER.length) {
+                assertEquals(List.of(), readAll(truncated));
+            } else if (length == firstResultEnd) {
+                assertEquals(results.subList(0, 1), readAll(truncated));
+            } else {
+                assertThrows(IOException.class, () -> readAll(truncated), "truncated to " + length + " bytes");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A stream with other magic bytes or another version is rejected")
+    void badHeaderThrows() {
+        assertThrows(IOException.class, () -> readAll(new byte[] { 'J', 'S', 'O', 'N', NamedEntityBinaryCodec.VERSION }));
+        assertThrows(IOException.class, () -> readAll(new byte[] { 'N', 'A', 'E', 'R', NamedEntityBinaryCodec.VERSION + 1 }));
+        assertThrows(IOException.class, () -> readAll(new byte[] { 'N', 'A', 'E', 'R', (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF }));
+    }
+
+    @Test
+    @DisplayName("A reference to a string that has not been written is rejected")
+    void invalidStringReferenceThrows() {
+        // one result with an empty hash, no new strings, and one entity whose name refers to the (non-existing) third string
+        byte[] bytes = withHeader(RESULT_MARKER, 0, 0, 1, 3, 0, 0, 0);
+        IOException exception = assertThrows(IOException.class, () -> readAll(bytes));
+        assertTrue(exception.getMessage().contains("invalid string reference"), exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Malformed results are rejected")
+    void malformedResultThrows() {
+        // missing result marker
+        assertThrows(IOException.class, () -> readAll(withHeader(0x13, 0, 0, 0)));
+        // a null alternative name
+        assertThrows(IOException.class, () -> readAll(withHeader(RESULT_MARKER, 0, 1, 1, 'A', 1, 1, 0, 1, 0, 0)));
+        // an unknown reference type
+        assertThrows(IOException.class, () -> readAll(withHeader(RESULT_MARKER, 0, 1, 1, 'A', 1, 1, 0, 0, 1, 1, 1, 2)));
+        // trailing garbage
+        assertThrows(IOException.class, () -> readAll(withHeader(RESULT_MARKER, 0, 0, 0, 0x7F)));
+    }
+
+    private static NamedEntity entity(String name, String alternativeName, int... lines) {
+        NamedEntity.Builder builder = new NamedEntity.Builder(name, NamedEntityType.COMPONENT);
+        if (alternativeName != null) {
+            builder.alternativeName(alternativeName);
+        }
+        for (int i = 0; i < lines.length; i++) {
+            builder.occurrence(lines[i], i % 2 == 0 ? NamedEntityReferenceType.DIRECT : NamedEntityReferenceType.INDIRECT);
+        }
+        return builder.build();
+    }
+
+    private static byte[] write(List<NamedEntityBinaryCodec.Result> results) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (NamedEntityBinaryCodec.Writer writer = NamedEntityBinaryCodec.newWriter(output)) {
+            for (NamedEntityBinaryCodec.Result result : results) {
+                writer.write(result.sadContentHash(), new LinkedHashSet<>(result.entities()));
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static List<NamedEntityBinaryCodec.Result> readAll(byte[] bytes) throws IOException {
+        List<NamedEntityBinaryCodec.Result> results = new ArrayList<>();
+        try (NamedEntityBinaryCodec.Reader reader = NamedEntityBinaryCodec.newReader(new ByteArrayInputStream(bytes))) {
+            Optional<NamedEntityBinaryCodec.Result> result = reader.read();
+            while (result.isPresent()) {
+                results.add(result.get());
+                result = reader.read();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the header followed by the given bytes (each of which must be less than 128, i.e., a single-byte variable-length integer)
+     */
+    private static byte[] withHeader(int... bytes) {
+        byte[] stream = Arrays.copyOf(HEADER, HEADER.length + bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            stream[HEADER.length + i] = (byte) bytes[i];
+        }
+        return stream;
+    }
+}
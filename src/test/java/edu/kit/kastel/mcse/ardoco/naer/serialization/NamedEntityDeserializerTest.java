@@ -0,0 +1,87 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+class NamedEntityDeserializerTest {
+    private static final SoftwareArchitectureDocumentation SAD = new SoftwareArchitectureDocumentation("""
+            The AuthenticationService handles login requests.
+            It forwards valid credentials to the UserDatabase.""");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Test
+    @DisplayName("Occurrences with any integer line are read, also with a negative line or a line in a string")
+    void occurrenceLines() throws IOException {
+        NamedEntity entity = deserializeSingle(entityWithOccurrences("""
+                { "line": -1, "referenceType": "DIRECT" },
+                { "line": 0, "referenceType": "INDIRECT" },
+                { "line": "2", "referenceType": "DIRECT", "confidence": { "value": 1 } }"""));
+
+        assertArrayEquals(new int[] { -1, 2 }, entity.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[] { 0 }, entity.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+    }
+
+    @Test
+    @DisplayName("An occurrence without line is rejected")
+    void missingLineIsRejected() {
+        JsonParseException exception = assertThrows(JsonParseException.class, () -> deserialize(entityWithOccurrences("""
+                { "referenceType": "DIRECT" }""")));
+
+        assertTrue(exception.getMessage().contains("occurrence without line"), exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("An occurrence whose line is not an integer is rejected")
+    void nonNumericLineIsRejected() {
+        for (String line : new String[] { "\"two\"", "\"\"", "2.5", "true", "null", "{ \"value\": 2 }", "[ 2 ]", "99999999999" }) {
+            String json = entityWithOccurrences("{ \"line\": " + line + ", \"referenceType\": \"DIRECT\" }");
+
+            assertThrows(IOException.class, () -> deserialize(json), line);
+        }
+    }
+
+    @Test
+    @DisplayName("An occurrence with an unknown or missing reference type is rejected")
+    void unknownReferenceTypeIsRejected() {
+        JsonParseException exception = assertThrows(JsonParseException.class, () -> deserialize(entityWithOccurrences("""
+                { "line": 1, "referenceType": "direct" }""")));
+        assertTrue(exception.getMessage().contains("unknown reference type of occurrence: direct"), exception.getMessage());
+
+        assertThrows(JsonParseException.class, () -> deserialize(entityWithOccurrences("{ \"line\": 1 }")));
+    }
+
+    private static String entityWithOccurrences(String occurrences) {
+        return """
+                [ { "name": "AuthenticationService", "type": "COMPONENT", "alternativeNames": [ "service" ], "occurrences": [ %s ] } ]""".formatted(
+                occurrences);
+    }
+
+    private static NamedEntity deserializeSingle(String json) throws IOException {
+        Set<NamedEntity> entities = deserialize(json);
+        assertEquals(1, entities.size());
+        return entities.iterator().next();
+    }
+
+    private static Set<NamedEntity> deserialize(String json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return new NamedEntityDeserializer(SAD).deserialize(parser, null);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+class NamedEntityParserTest {
+    private static final SoftwareArchitectureDocumentation SAD = new SoftwareArchitectureDocumentation("""
+            The AuthenticationService handles login requests.
+            It forwards valid credentials to the UserDatabase.
+            The service logs each attempt.""");
+
+    @Test
+    @DisplayName("Lenient parsing keeps the valid entries and collects all invalid lines")
+    void lenientParsingCollectsInvalidLines() {
+        LenientParseResult result = NamedEntityParser.fromStringLeniently("""
+                COMPONENT entities recognized:
+                AuthenticationService, 'The AuthenticationService handles login requests.'
+                UserDatabase - It forwards valid credentials to the UserDatabase.
+
+                Alternative names:
+                AuthenticationService: service
+                UserDatabase = None
+                """, SAD);
+
+        assertEquals(7, result.lines().size());
+        assertEquals("", result.lines().get(3));
+        assertEquals(Set.of("AuthenticationService"), names(result.entities()));
+        assertEquals(2, result.invalidLines().size());
+
+        InvalidLine invalidOccurrence = result.invalidLines().get(0);
+        assertEquals(2, invalidOccurrence.index());
+        assertEquals("UserDatabase - It forwards valid credentials to the UserDatabase.", invalidOccurrence.line());
+        assertEquals("COMPONENT entities recognized:", invalidOccurrence.section());
+        assertTrue(invalidOccurrence.error().contains("Invalid entity occurrence format"), invalidOccurrence.error());
+
+        InvalidLine invalidAlternativeNames = result.invalidLines().get(1);
+        assertEquals(6, invalidAlternativeNames.index());
+        assertEquals("Alternative names:", invalidAlternativeNames.section());
+        assertTrue(invalidAlternativeNames.expectedFormat().contains("<alternativeName1>"), invalidAlternativeNames.expectedFormat());
+    }
+
+    @Test
+    @DisplayName("Lines before the first section header are invalid and have no section")
+    void lenientParsingOfLinesWithoutSection() {
+        LenientParseResult result = NamedEntityParser.fromStringLeniently("""
+                Here are the entities:
+                COMPONENT entities recognized:
+                UserDatabase, 'It forwards valid credentials to the UserDatabase.'
+                """, SAD);
+
+        assertEquals(Set.of("UserDatabase"), names(result.entities()));
+        assertEquals(1, result.invalidLines().size());
+        assertEquals(0, result.invalidLines().get(0).index());
+        assertNull(result.invalidLines().get(0).section());
+    }
+
+    @Test
+    @DisplayName("Repaired lines replace the invalid lines, and the text is parsed again")
+    void repairedLinesAreParsed() {
+        LenientParseResult result = NamedEntityParser.fromStringLeniently("""
+                COMPONENT entities recognized:
+                AuthenticationService, 'The AuthenticationService handles login requests.'
+                UserDatabase - It forwards valid credentials to the UserDatabase.
+                Alternative names:
+                AuthenticationService: service
+                UserDatabase = None
+                """, SAD);
+
+        LenientParseResult repairedResult = result.withRepairedLines(Map.of(2, "  UserDatabase, 'It forwards valid credentials to the UserDatabase.'", 5,
+                "UserDatabase: None"), SAD);
+
+        assertTrue(repairedResult.invalidLines().isEmpty(), repairedResult.invalidLines().toString());
+        assertEquals(Set.of("AuthenticationService", "UserDatabase"), names(repairedResult.entities()));
+        assertEquals("UserDatabase, 'It forwards valid credentials to the UserDatabase.'", repairedResult.lines().get(2));
+        for (NamedEntity entity : repairedResult.entities()) {
+            if (entity.getName().equals("UserDatabase")) {
+                assertArrayEquals(new int[] { 2 }, entity.getOccurrenceLineNumbers());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid lines without a repaired version, or with a still invalid one, remain invalid")
+    void unrepairedLinesRemainInvalid() {
+        LenientParseResult result = NamedEntityParser.fromStringLeniently("""
+                COMPONENT entities recognized:
+                AuthenticationService: 'The AuthenticationService handles login requests.'
+                UserDatabase - It forwards valid credentials to the UserDatabase.
+                """, SAD);
+
+        // line 0 is valid, so its "repair" is ignored
+        LenientParseResult repairedResult = result.withRepairedLines(Map.of(0, "garbage", 2, "UserDatabase in line 2"), SAD);
+
+        assertEquals(List.of(1, 2), List.of(repairedResult.invalidLines().get(0).index(), repairedResult.invalidLines().get(1).index()));
+        assertEquals("COMPONENT entities recognized:", repairedResult.lines().get(0));
+        assertEquals("UserDatabase in line 2", repairedResult.invalidLines().get(1).line());
+        assertTrue(repairedResult.entities().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Strict parsing fails at the first invalid line with a message naming the line")
+    void strictParsingErrorMessages() {
+        String occurrences = """
+                COMPONENT entities recognized:
+                AuthenticationService, 'The AuthenticationService handles login requests.'
+                """;
+        Map<String, String> expectedMessages = new LinkedHashMap<>();
+        expectedMessages.put(occurrences + "UserDatabase - It forwards valid credentials.",
+                "Invalid entity occurrence format: 'UserDatabase - It forwards valid credentials.'");
+        expectedMessages.put(occurrences + "Alternative names:\nAuthenticationService = service",
+                "Invalid alternative names format: 'AuthenticationService = service'");
+        expectedMessages.put(occurrences + "Alternative names:\nAuthenticationService: service: auth",
+                "Invalid alternative names format: 'AuthenticationService: service: auth'");
+        expectedMessages.put(occurrences + "Alternative names:\nAuthenticationService:", "Invalid alternative names format: 'AuthenticationService:'");
+        expectedMessages.put(occurrences + "Alternative names:\nUserDatabase: DB", "Alternative names for unknown entity: 'UserDatabase'");
+        expectedMessages.put("DATABASE entities recognized:\nUserDatabase, 'It forwards valid credentials to the UserDatabase.'",
+                "Unknown entity type: 'DATABASE'");
+        expectedMessages.put("UserDatabase, 'It forwards valid credentials to the UserDatabase.'",
+                "Entity type not specified before entries: 'UserDatabase, 'It forwards valid credentials to the UserDatabase.''");
+        expectedMessages.put("Alternative names:\nUserDatabase: DB", "Entity type not specified before entries: 'UserDatabase: DB'");
+
+        for (Map.Entry<String, String> expectedMessage : expectedMessages.entrySet()) {
+            IOException exception = assertThrows(IOException.class, () -> NamedEntityParser.fromString(expectedMessage.getKey(), SAD),
+                    expectedMessage.getKey());
+            assertEquals(expectedMessage.getValue(), exception.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("A section header without entity type is an unknown entity type, also for the entries that follow it")
+    void bareSectionHeader() {
+        IOException exception = assertThrows(IOException.class, () -> NamedEntityParser.fromString("entities recognized:", SAD));
+        assertEquals("Unknown entity type: ''", exception.getMessage());
+
+        LenientParseResult result = NamedEntityParser.fromStringLeniently("""
+                entities recognized:
+                UserDatabase, 'It forwards valid credentials to the UserDatabase.'
+                component entities recognized:
+                AuthenticationService, 'The AuthenticationService handles login requests.'
+                """, SAD);
+
+        assertEquals(Set.of("AuthenticationService"), names(result.entities()));
+        assertEquals(List.of("Unknown entity type: ''",
+                "Entity type not specified before entries: 'UserDatabase, 'It forwards valid credentials to the UserDatabase.''"),
+                List.of(result.invalidLines().get(0).error(), result.invalidLines().get(1).error()));
+        assertEquals("entities recognized:", result.invalidLines().get(1).section());
+    }
+
+    @Test
+    @DisplayName("Trailing empty alternative names and trailing colons are dropped, like String#split does")
+    void trailingEmptyAlternativeNames() throws IOException {
+        Map<String, Set<String>> expectedAlternativeNames = new LinkedHashMap<>();
+        expectedAlternativeNames.put("AuthenticationService: service, auth,,", Set.of("service", "auth"));
+        expectedAlternativeNames.put("AuthenticationService: service , auth , ", Set.of("service", "auth"));
+        expectedAlternativeNames.put("AuthenticationService: service::", Set.of("service"));
+        expectedAlternativeNames.put("AuthenticationService: ,,", Set.of());
+        expectedAlternativeNames.put("AuthenticationService: none", Set.of());
+
+        for (Map.Entry<String, Set<String>> expected : expectedAlternativeNames.entrySet()) {
+            Set<NamedEntity> entities = NamedEntityParser.fromString("""
+                    COMPONENT entities recognized:
+                    AuthenticationService, 'The AuthenticationService handles login requests.'
+                    Alternative names:
+                    """ + expected.getKey(), SAD);
+
+            assertEquals(1, entities.size(), expected.getKey());
+            assertEquals(expected.getValue(), entities.iterator().next().getAlternativeNames(), expected.getKey());
+        }
+    }
+
+    @Test
+    @DisplayName("Occurrences given as line numbers or numeric strings are parsed like the echoed lines")
+    void lineNumbersAreParsed() throws IOException {
+        Set<NamedEntity> entities = NamedEntityParser.fromJsonWithLineNumbers("""
+                [{"name": "AuthenticationService", "type": "COMPONENT", "alternativeNames": ["service"], "occurrences": [1, "2", 3]},
+                 {"name": "UserDatabase", "type": "COMPONENT", "alternativeNames": [], "occurrences": ["2"]}]""", SAD);
+        Set<NamedEntity> echoedEntities = NamedEntityParser.fromJson("""
+                [{"name": "AuthenticationService", "type": "COMPONENT", "alternativeNames": ["service"],
+                  "occurrences": ["The AuthenticationService handles login requests.", "It forwards valid credentials to the UserDatabase.",
+                                  "The service logs each attempt."]},
+                 {"name": "UserDatabase", "type": "COMPONENT", "alternativeNames": [], "occurrences": ["It forwards valid credentials to the UserDatabase."]}]""",
+                SAD);
+
+        assertEquals(echoedEntities, entities);
+        assertArrayEquals(new int[] { 1, 2, 3 }, get(entities, "AuthenticationService").getOccurrenceLineNumbers());
+        assertArrayEquals(new int[] { 2 }, get(entities, "UserDatabase").getOccurrenceLineNumbers());
+    }
+
+    @Test
+    @DisplayName("Occurrences that are out of range or not numeric are skipped")
+    void invalidLineNumbersAreSkipped() throws IOException {
+        Set<NamedEntity> entities = NamedEntityParser.fromJsonWithLineNumbers("""
+                [{"name": "UserDatabase", "type": "COMPONENT", "alternativeNames": [],
+                  "occurrences": [0, -1, 4, "99", 2, "two", "", null, true, 1.5, "3.0", [1], {"line": 3}]}]""", SAD);
+
+        assertEquals(1, entities.size());
+        assertArrayEquals(new int[] { 2 }, entities.iterator().next().getOccurrenceLineNumbers());
+    }
+
+    @Test
+    @DisplayName("Reference types are deducted from the names of the entity in the lines with the given numbers")
+    void referenceTypesOfLineNumbers() throws IOException {
+        Set<NamedEntity> entities = NamedEntityParser.fromJsonWithLineNumbers("""
+                [{"name": "AuthenticationService", "type": "COMPONENT", "alternativeNames": ["service"], "occurrences": [1, 2, 3]},
+                 {"name": "UserDatabase", "type": "COMPONENT", "alternativeNames": [], "occurrences": [1, 2]}]""", SAD);
+
+        NamedEntity authenticationService = get(entities, "AuthenticationService");
+        assertArrayEquals(new int[] { 1, 3 }, authenticationService.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[] { 2 }, authenticationService.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+        NamedEntity userDatabase = get(entities, "UserDatabase");
+        assertArrayEquals(new int[] { 2 }, userDatabase.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[] { 1 }, userDatabase.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+    }
+
+    @Test
+    @DisplayName("Deducting the reference types again turns references by a merged alternative name into direct ones")
+    void referenceTypesAreDeductedAgain() throws IOException {
+        NamedEntity entity = get(NamedEntityParser.fromJsonWithLineNumbers("""
+                [{"name": "AuthenticationService", "type": "COMPONENT", "alternativeNames": [], "occurrences": [1, 3]}]""", SAD), "AuthenticationService");
+        assertArrayEquals(new int[] { 3 }, entity.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+        entity.addAlternativeName("service");
+
+        Set<NamedEntity> entities = NamedEntityParser.withDeductedReferenceTypes(List.of(entity), SAD);
+
+        NamedEntity deductedEntity = get(entities, "AuthenticationService");
+        assertArrayEquals(new int[] { 1, 3 }, deductedEntity.getOccurrenceLineNumbers(NamedEntityReferenceType.DIRECT));
+        assertArrayEquals(new int[0], deductedEntity.getOccurrenceLineNumbers(NamedEntityReferenceType.INDIRECT));
+        assertEquals(entity.getAlternativeNames(), deductedEntity.getAlternativeNames());
+        assertEquals(SAD, deductedEntity.getSourceText());
+    }
+
+    private static NamedEntity get(Set<NamedEntity> entities, String name) {
+        for (NamedEntity entity : entities) {
+            if (entity.getName().equals(name)) {
+                return entity;
+            }
+        }
+        throw new AssertionError("no entity named " + name);
+    }
+
+    private static Set<String> names(Set<NamedEntity> entities) {
+        Set<String> names = new TreeSet<>();
+        for (NamedEntity entity : entities) {
+            names.add(entity.getName());
+        }
+        return names;
+    }
+}
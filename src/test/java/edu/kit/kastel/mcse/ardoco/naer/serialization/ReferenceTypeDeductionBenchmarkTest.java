@@ -0,0 +1,119 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityReferenceType;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+/**
+ * Benchmark of the deduction of reference types ({@link NamedEntityParser#addOccurrencesWithDeductedReferenceTypes(List, List,
+ * SoftwareArchitectureDocumentation)}) on generated documents with hundreds of entities.
+ * The results are compared with the naive deduction, which checks each name of an entity on each of its occurrence lines.
+ */
+class ReferenceTypeDeductionBenchmarkTest {
+    private static final int ITERATIONS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(ReferenceTypeDeductionBenchmarkTest.class);
+
+    @EnabledIfEnvironmentVariable(named = "runBenchmark", matches = ".*")
+    @DisplayName("Benchmark the deduction of reference types with many entities")
+    @ParameterizedTest(name = "{0} entities, {1} lines, {2} occurrences per entity")
+    @CsvSource({ "100, 2000, 50", "500, 10000, 100", "1000, 20000, 200" })
+    void benchmarkReferenceTypeDeduction(int entityCount, int lineCount, int occurrencesPerEntity) {
+        Random random = new Random(42);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < entityCount * 3; i++) {
+            names.add("Component" + Integer.toString(i * 7919, 36) + (i % 3 == 0 ? "Service" : ""));
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < lineCount; i++) {
+            lines.add("The " + names.get(random.nextInt(names.size())) + " sends its results to the " + names.get(random.nextInt(names.size()))
+                    + " whenever it is invoked by a client.");
+        }
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(String.join("\n", lines));
+
+        List<Set<Integer>> occurrenceLines = new ArrayList<>();
+        for (int i = 0; i < entityCount; i++) {
+            Set<Integer> lineNumbers = new LinkedHashSet<>();
+            for (int j = 0; j < occurrencesPerEntity; j++) {
+                lineNumbers.add(1 + random.nextInt(lineCount));
+            }
+            occurrenceLines.add(lineNumbers);
+        }
+
+        long naiveNanos = Long.MAX_VALUE;
+        long batchNanos = Long.MAX_VALUE;
+        List<NamedEntity> naiveEntities = null;
+        Set<NamedEntity> batchEntities = null;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            naiveEntities = createEntities(names, entityCount);
+            long start = System.nanoTime();
+            deduceNaively(naiveEntities, occurrenceLines, sad);
+            naiveNanos = Math.min(naiveNanos, System.nanoTime() - start);
+
+            List<NamedEntity.Builder> builders = createBuilders(names, entityCount);
+            start = System.nanoTime();
+            NamedEntityParser.addOccurrencesWithDeductedReferenceTypes(builders, occurrenceLines, sad);
+            batchNanos = Math.min(batchNanos, System.nanoTime() - start);
+            batchEntities = NamedEntityParser.build(builders);
+        }
+
+        assertEquals(new LinkedHashSet<>(naiveEntities), batchEntities);
+        logger.info("{} entities, {} lines, {} occurrences per entity: naive {} ms, automaton {} ms", entityCount, lineCount, occurrencesPerEntity,
+                naiveNanos / 1_000_000.0, batchNanos / 1_000_000.0);
+    }
+
+    private static List<NamedEntity> createEntities(List<String> names, int entityCount) {
+        List<NamedEntity> entities = new ArrayList<>();
+        for (int i = 0; i < entityCount; i++) {
+            NamedEntity entity = new NamedEntity(names.get(3 * i), NamedEntityType.COMPONENT);
+            entity.addAlternativeName(names.get(3 * i + 1));
+            entity.addAlternativeName(names.get(3 * i + 2).toUpperCase());
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private static List<NamedEntity.Builder> createBuilders(List<String> names, int entityCount) {
+        List<NamedEntity.Builder> builders = new ArrayList<>();
+        for (int i = 0; i < entityCount; i++) {
+            builders.add(new NamedEntity.Builder(names.get(3 * i), NamedEntityType.COMPONENT).alternativeName(names.get(3 * i + 1))
+                    .alternativeName(names.get(3 * i + 2).toUpperCase()));
+        }
+        return builders;
+    }
+
+    private static void deduceNaively(List<NamedEntity> entities, List<Set<Integer>> occurrenceLines, SoftwareArchitectureDocumentation sad) {
+        for (int i = 0; i < entities.size(); i++) {
+            NamedEntity entity = entities.get(i);
+            for (int lineNumber : occurrenceLines.get(i)) {
+                String lowerCaseLine = sad.getLowerCaseLine(lineNumber);
+                boolean isDirect = lowerCaseLine.contains(entity.getName().toLowerCase());
+                for (String alternativeName : entity.getAlternativeNames()) {
+                    if (lowerCaseLine.contains(alternativeName.toLowerCase())) {
+                        isDirect = true;
+                        break;
+                    }
+                }
+                entity.addOccurrence(lineNumber, isDirect ? NamedEntityReferenceType.DIRECT : NamedEntityReferenceType.INDIRECT);
+            }
+        }
+    }
+}
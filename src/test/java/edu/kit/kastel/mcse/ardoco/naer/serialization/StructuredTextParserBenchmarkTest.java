@@ -0,0 +1,149 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntity;
+import edu.kit.kastel.mcse.ardoco.naer.model.NamedEntityType;
+import edu.kit.kastel.mcse.ardoco.naer.model.SoftwareArchitectureDocumentation;
+
+/**
+ * Benchmark of the allocations and the duration of parsing structured text answers ({@link NamedEntityParser#fromString(String,
+ * SoftwareArchitectureDocumentation)}).
+ * The single-pass scanner is compared with the previous implementation, which split the answer with a regular expression, trimmed each line, compiled the
+ * occurrence pattern for each line, and split the alternative names.
+ */
+class StructuredTextParserBenchmarkTest {
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 20;
+
+    private final Logger logger = LoggerFactory.getLogger(StructuredTextParserBenchmarkTest.class);
+
+    @EnabledIfEnvironmentVariable(named = "runBenchmark", matches = ".*")
+    @DisplayName("Benchmark the allocations of parsing structured text answers")
+    @ParameterizedTest(name = "{0} entities, {1} occurrences per entity")
+    @CsvSource({ "50, 10", "200, 30", "500, 50" })
+    void benchmarkStructuredTextParsing(int entityCount, int occurrencesPerEntity) throws IOException {
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            lines.add("Sentence " + i + " describes how Component" + random.nextInt(entityCount) + " handles its requests.");
+        }
+        SoftwareArchitectureDocumentation sad = new SoftwareArchitectureDocumentation(String.join("\n", lines));
+
+        StringBuilder answer = new StringBuilder("COMPONENT entities recognized:\n");
+        for (int i = 0; i < entityCount; i++) {
+            for (int j = 0; j < occurrencesPerEntity; j++) {
+                answer.append("Component").append(i).append(", '").append(lines.get(random.nextInt(lines.size()))).append("'\n");
+            }
+        }
+        answer.append("\nAlternative names:\n");
+        for (int i = 0; i < entityCount; i++) {
+            answer.append("Component").append(i).append(i % 2 == 0 ? ": C" + i + ", Comp" + i + "\n" : ": None\n");
+        }
+        String text = answer.toString();
+
+        Measurement legacy = measure(() -> parseWithRegularExpressions(text, sad));
+        Measurement scanner = measure(() -> NamedEntityParser.fromString(text, sad));
+
+        assertEquals(parseWithRegularExpressions(text, sad), NamedEntityParser.fromString(text, sad));
+        logger.info("{} entities, {} occurrences per entity ({} KB): regular expressions {} KB, {} ms; scanner {} KB, {} ms", entityCount,
+                occurrencesPerEntity, text.length() / 1024, legacy.allocatedBytes() / 1024, legacy.nanos() / 1_000_000.0, scanner.allocatedBytes() / 1024,
+                scanner.nanos() / 1_000_000.0);
+    }
+
+    /**
+     * @return the average allocated bytes and the minimum duration of the parsing
+     */
+    private static Measurement measure(Parsing parsing) throws IOException {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            parsing.parse();
+        }
+        long allocatedBytes = 0;
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            parsing.parse();
+            nanos = Math.min(nanos, System.nanoTime() - start);
+            allocatedBytes += threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        return new Measurement(allocatedBytes / ITERATIONS, nanos);
+    }
+
+    /**
+     * The previous implementation of {@link NamedEntityParser#fromString(String, SoftwareArchitectureDocumentation)} (for valid answers).
+     */
+    private static Set<NamedEntity> parseWithRegularExpressions(String text, SoftwareArchitectureDocumentation sad) throws IOException {
+        Map<String, NamedEntity.Builder> entityMap = new LinkedHashMap<>();
+        Map<String, Set<Integer>> entityOccurrencesMap = new LinkedHashMap<>();
+        NamedEntityType currentEntityType = null;
+        boolean parsingAlternativeNames = false;
+        for (String line : text.split("\\R")) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.endsWith("entities recognized:")) {
+                currentEntityType = NamedEntityType.valueOf(line.substring(0, line.indexOf(" entities recognized:")).trim().toUpperCase());
+                parsingAlternativeNames = false;
+            } else if (line.equalsIgnoreCase("Alternative names:")) {
+                parsingAlternativeNames = true;
+            } else if (!parsingAlternativeNames) {
+                Matcher matcher = Pattern.compile("^(.*?),\\s*'(.*)'$").matcher(line.trim());
+                if (!matcher.matches()) {
+                    throw new IOException("Invalid entity occurrence format: '" + line + "'");
+                }
+                String name = matcher.group(1).trim();
+                if (!entityMap.containsKey(name)) {
+                    entityMap.put(name, new NamedEntity.Builder(name, currentEntityType).sourceText(sad));
+                    entityOccurrencesMap.put(name, new LinkedHashSet<>());
+                }
+                entityOccurrencesMap.get(name).add(sad.getLineNumber(matcher.group(2)));
+            } else {
+                String[] parts = line.split(":");
+                if (!parts[1].trim().equalsIgnoreCase("None")) {
+                    for (String alternativeName : parts[1].trim().split(",")) {
+                        entityMap.get(parts[0].trim()).alternativeName(alternativeName.trim());
+                    }
+                }
+            }
+        }
+
+        List<NamedEntity.Builder> entities = new ArrayList<>(entityMap.values());
+        List<Set<Integer>> occurrenceLines = new ArrayList<>();
+        for (NamedEntity.Builder entity : entities) {
+            occurrenceLines.add(entityOccurrencesMap.get(entity.getName()));
+        }
+        NamedEntityParser.addOccurrencesWithDeductedReferenceTypes(entities, occurrenceLines, sad);
+        return NamedEntityParser.build(entities);
+    }
+
+    @FunctionalInterface
+    private interface Parsing {
+        Set<NamedEntity> parse() throws IOException;
+    }
+
+    private record Measurement(long allocatedBytes, long nanos) {
+    }
+}
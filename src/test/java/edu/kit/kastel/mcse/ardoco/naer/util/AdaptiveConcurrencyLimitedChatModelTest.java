@@ -0,0 +1,139 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+class AdaptiveConcurrencyLimitedChatModelTest {
+    private final FakeChatModel delegate = new FakeChatModel("answer");
+
+    @Test
+    @DisplayName("Successful requests with a stable latency increase the limit by one per round")
+    void limitGrowsAdditively() {
+        delegate.latency(Duration.ofMillis(5));
+        AdaptiveConcurrencyLimitedChatModel chatModel = new AdaptiveConcurrencyLimitedChatModel(delegate, 4, 1, 8);
+
+        // each success increases the limit by 1 / limit, so 15 successes increase it from 4 to about 6.8 (less if a latency was not stable)
+        for (int i = 0; i < 15; i++) {
+            chatModel.chat(FakeChatModel.request("request"));
+        }
+        int limit = chatModel.getLimit();
+        assertTrue(limit >= 5 && limit <= 6, "limit: " + limit);
+
+        for (int i = 0; i < 20; i++) {
+            chatModel.chat(FakeChatModel.request("request"));
+        }
+        assertEquals(8, chatModel.getLimit());
+        assertEquals(0, chatModel.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Rate limits, overloads, and timeouts halve the limit down to the minimum")
+    void limitShrinksMultiplicatively() {
+        AdaptiveConcurrencyLimitedChatModel chatModel = new AdaptiveConcurrencyLimitedChatModel(delegate, 16, 2, 64);
+
+        delegate.failWith(() -> new RateLimitException("rate limit"));
+        assertThrows(RateLimitException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+        assertEquals(8, chatModel.getLimit());
+
+        delegate.failWith(() -> new HttpException(503, "service unavailable"));
+        assertThrows(HttpException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+        assertEquals(4, chatModel.getLimit());
+
+        delegate.failWith(() -> new TimeoutException("timeout"));
+        assertThrows(TimeoutException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+        assertEquals(2, chatModel.getLimit());
+
+        // a wrapped timeout is detected as well, but the limit does not fall below the minimum
+        delegate.failWith(() -> new IllegalStateException("wrapped", new HttpTimeoutException("timeout")));
+        assertThrows(IllegalStateException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+        assertEquals(2, chatModel.getLimit());
+        assertEquals(0, chatModel.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Other failures do not change the limit")
+    void otherFailuresKeepLimit() {
+        AdaptiveConcurrencyLimitedChatModel chatModel = new AdaptiveConcurrencyLimitedChatModel(delegate, 16, 1, 64);
+
+        delegate.failWith(() -> new InvalidRequestException("invalid"));
+        assertThrows(InvalidRequestException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+        delegate.failWith(() -> new HttpException(500, "internal server error"));
+        assertThrows(HttpException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+
+        assertEquals(16, chatModel.getLimit());
+    }
+
+    @Test
+    @DisplayName("A burst of rejections of concurrent requests halves the limit only once")
+    void burstOfRejectionsHalvesOnce() throws InterruptedException {
+        AdaptiveConcurrencyLimitedChatModel chatModel = new AdaptiveConcurrencyLimitedChatModel(delegate, 8, 1, 64);
+        CountDownLatch release = delegate.hold();
+        delegate.failWith(() -> new RateLimitException("rate limit"));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> chatModel.chat(FakeChatModel.request("request"))));
+            }
+            delegate.awaitRequests(8);
+            assertEquals(8, chatModel.getInFlight());
+
+            release.countDown();
+            for (Future<?> future : futures) {
+                ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+                assertTrue(exception.getCause() instanceof RateLimitException, exception.toString());
+            }
+        }
+        assertEquals(4, chatModel.getLimit());
+        assertEquals(0, chatModel.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Requests beyond the limit wait in the queue")
+    void requestsBeyondLimitWait() throws InterruptedException, ExecutionException {
+        AdaptiveConcurrencyLimitedChatModel chatModel = new AdaptiveConcurrencyLimitedChatModel(delegate, 2, 2, 2);
+        CountDownLatch release = delegate.hold();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ChatResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(executor.submit(() -> chatModel.chat(FakeChatModel.request("request"))));
+            }
+            delegate.awaitRequests(2);
+            while (chatModel.getQueueDepth() < 3) {
+                Thread.onSpinWait();
+            }
+            assertEquals(2, chatModel.getInFlight());
+            assertEquals(2, delegate.getRequests());
+
+            release.countDown();
+            for (Future<ChatResponse> future : futures) {
+                assertEquals("answer", future.get().aiMessage().text());
+            }
+        }
+        assertEquals(5, delegate.getRequests());
+        assertEquals(0, chatModel.getQueueDepth());
+        assertEquals(0, chatModel.getInFlight());
+    }
+}
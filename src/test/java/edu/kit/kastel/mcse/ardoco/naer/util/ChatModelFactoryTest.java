@@ -0,0 +1,58 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.model.chat.ChatModel;
+
+class ChatModelFactoryTest {
+    @Test
+    @DisplayName("The concurrency limiters of each Ollama host are accessible")
+    void concurrencyLimitersByHost() {
+        List<String> hosts = List.of("http://localhost:11434", "http://127.0.0.1:11434");
+        ChatModelFactory factory = ChatModelFactory.withProvider(ModelProvider.OLLAMA).ollamaHosts(hosts).retryPolicy(RetryPolicy.NO_RETRY);
+
+        Map<String, AdaptiveConcurrencyLimitedChatModel> concurrencyLimiters = factory.getConcurrencyLimiters();
+
+        assertEquals(hosts, List.copyOf(concurrencyLimiters.keySet()));
+        for (AdaptiveConcurrencyLimitedChatModel concurrencyLimiter : concurrencyLimiters.values()) {
+            assertEquals(4, concurrencyLimiter.getLimit());
+            assertEquals(0, concurrencyLimiter.getInFlight());
+            assertEquals(0, concurrencyLimiter.getQueueDepth());
+        }
+        // the built model is pooled, so are its limiters
+        assertSame(concurrencyLimiters.get(hosts.get(0)), factory.getConcurrencyLimiters().get(hosts.get(0)));
+    }
+
+    @Test
+    @DisplayName("A model with the same configuration is pooled, a model with another host or timeout is not")
+    void modelsArePooledByConfiguration() {
+        String host = "http://localhost:11436";
+        ChatModel chatModel = ChatModelFactory.withProvider(ModelProvider.OLLAMA).ollamaHosts(List.of(host)).timeout(30).build();
+
+        assertSame(chatModel, ChatModelFactory.withProvider(ModelProvider.OLLAMA).ollamaHosts(List.of(host)).timeout(30).build());
+        assertNotSame(chatModel, ChatModelFactory.withProvider(ModelProvider.OLLAMA).ollamaHosts(List.of("http://127.0.0.1:11436")).timeout(30).build());
+        assertNotSame(chatModel, ChatModelFactory.withProvider(ModelProvider.OLLAMA).ollamaHosts(List.of(host)).timeout(31).build());
+    }
+
+    @Test
+    @DisplayName("The concurrency limiter of a single Ollama host is the one that the built model uses")
+    void concurrencyLimiterOfSingleHost() {
+        String host = "http://localhost:11435";
+        ChatModelFactory factory = ChatModelFactory.withProvider(ModelProvider.OLLAMA).ollamaHosts(List.of(host)).retryPolicy(RetryPolicy.NO_RETRY);
+
+        Map<String, AdaptiveConcurrencyLimitedChatModel> concurrencyLimiters = factory.getConcurrencyLimiters();
+
+        assertEquals(List.of(host), List.copyOf(concurrencyLimiters.keySet()));
+        ChatModel chatModel = ((RateLimitedChatModel) ((ResilientChatModel) factory.build()).getDelegate()).getDelegate();
+        assertSame(concurrencyLimiters.get(host), chatModel);
+    }
+}
@@ -0,0 +1,114 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+    private static final Duration OPEN_DURATION = Duration.ofMillis(100);
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("localhost", 3, OPEN_DURATION);
+
+    @Test
+    @DisplayName("The circuit breaker opens after the threshold of consecutive failures")
+    void opensAfterThreshold() {
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        failRequests(2);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        failRequests(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(CircuitBreakerOpenException.class, circuitBreaker::beforeRequest);
+    }
+
+    @Test
+    @DisplayName("A success resets the consecutive failures")
+    void successResetsFailures() {
+        failRequests(2);
+        circuitBreaker.beforeRequest();
+        circuitBreaker.onSuccess();
+        failRequests(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    @DisplayName("After the open duration, a single probe request is let through")
+    void halfOpenLetsSingleProbeThrough() throws InterruptedException {
+        failRequests(3);
+        Thread.sleep(OPEN_DURATION.multipliedBy(2));
+
+        assertDoesNotThrow(circuitBreaker::beforeRequest);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertThrows(CircuitBreakerOpenException.class, circuitBreaker::beforeRequest);
+    }
+
+    @Test
+    @DisplayName("A successful probe closes the circuit breaker")
+    void successfulProbeCloses() throws InterruptedException {
+        failRequests(3);
+        Thread.sleep(OPEN_DURATION.multipliedBy(2));
+        circuitBreaker.beforeRequest();
+
+        circuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertDoesNotThrow(circuitBreaker::beforeRequest);
+        assertDoesNotThrow(circuitBreaker::beforeRequest);
+    }
+
+    @Test
+    @DisplayName("A failed probe opens the circuit breaker for another open duration")
+    void failedProbeReopens() throws InterruptedException {
+        failRequests(3);
+        Thread.sleep(OPEN_DURATION.multipliedBy(2));
+        circuitBreaker.beforeRequest();
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(CircuitBreakerOpenException.class, circuitBreaker::beforeRequest);
+        Thread.sleep(OPEN_DURATION.multipliedBy(2));
+        assertDoesNotThrow(circuitBreaker::beforeRequest);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    @DisplayName("A cancelled probe lets the next request probe the host")
+    void cancelledProbeIsReplaced() throws InterruptedException {
+        failRequests(3);
+        Thread.sleep(OPEN_DURATION.multipliedBy(2));
+        circuitBreaker.beforeRequest();
+
+        circuitBreaker.onCancel();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertDoesNotThrow(circuitBreaker::beforeRequest);
+        assertThrows(CircuitBreakerOpenException.class, circuitBreaker::beforeRequest);
+    }
+
+    @Test
+    @DisplayName("A new configuration applies to the following failures")
+    void configureChangesThreshold() {
+        circuitBreaker.configure(1, OPEN_DURATION);
+
+        failRequests(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void failRequests(int failures) {
+        for (int i = 0; i < failures; i++) {
+            circuitBreaker.beforeRequest();
+            circuitBreaker.onFailure();
+        }
+    }
+}
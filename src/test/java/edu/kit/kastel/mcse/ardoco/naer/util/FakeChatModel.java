@@ -0,0 +1,110 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+/**
+ * A {@link ChatModel} for tests that answers each request with its name, or fails with a configured exception. It counts the requests and can hold them
+ * until it is released, so that tests can control how many requests are running.
+ */
+class FakeChatModel implements ChatModel {
+    private final String name;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger remainingFailures = new AtomicInteger();
+    private final Semaphore startedRequests = new Semaphore(0);
+    private volatile Supplier<RuntimeException> failure;
+    private volatile Duration latency = Duration.ZERO;
+    private volatile CountDownLatch release;
+    private volatile TokenUsage tokenUsage;
+
+    FakeChatModel(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Creates a request with a single user message.
+     */
+    static ChatRequest request(String text) {
+        return ChatRequest.builder().messages(UserMessage.from(text)).build();
+    }
+
+    /**
+     * Lets all following requests fail with a new exception of the given supplier, or answers them if it is null.
+     */
+    FakeChatModel failWith(Supplier<RuntimeException> failure) {
+        return failWith(failure, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lets the given number of following requests fail with a new exception of the given supplier.
+     */
+    FakeChatModel failWith(Supplier<RuntimeException> failure, int times) {
+        this.failure = failure;
+        remainingFailures.set(failure != null ? times : 0);
+        return this;
+    }
+
+    FakeChatModel latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    FakeChatModel tokenUsage(TokenUsage tokenUsage) {
+        this.tokenUsage = tokenUsage;
+        return this;
+    }
+
+    /**
+     * Holds the following requests until the returned latch is counted down.
+     */
+    CountDownLatch hold() {
+        CountDownLatch latch = new CountDownLatch(1);
+        this.release = latch;
+        return latch;
+    }
+
+    /**
+     * Waits until the given number of (further) requests has been started.
+     */
+    void awaitRequests(int count) throws InterruptedException {
+        startedRequests.acquire(count);
+    }
+
+    int getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        requests.incrementAndGet();
+        startedRequests.release();
+        try {
+            CountDownLatch latch = release;
+            if (latch != null) {
+                latch.await();
+            }
+            if (!latency.isZero()) {
+                Thread.sleep(latency);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        }
+        Supplier<RuntimeException> currentFailure = failure;
+        if (currentFailure != null && remainingFailures.getAndDecrement() > 0) {
+            throw currentFailure.get();
+        }
+        return ChatResponse.builder().aiMessage(AiMessage.from(name)).tokenUsage(tokenUsage).build();
+    }
+}
@@ -0,0 +1,84 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HostConnectionLimiterTest {
+    private static final String HOST = "localhost:11434";
+    private static final String OTHER_HOST = "127.0.0.1:11434";
+
+    private final HostConnectionLimiter limiter = new HostConnectionLimiter(2);
+
+    @Test
+    @DisplayName("A request to a host blocks while the limit of connections to that host is reached, but requests to other hosts do not")
+    void blocksAtLimit() throws InterruptedException {
+        limiter.acquire(HOST);
+        limiter.acquire(HOST);
+
+        CountDownLatch acquired = acquireInBackground(HOST);
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS), "acquired beyond the limit");
+
+        limiter.acquire(OTHER_HOST);
+        limiter.release(OTHER_HOST);
+
+        limiter.release(HOST);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS), "not acquired after a release");
+    }
+
+    @Test
+    @DisplayName("Raising the limit lets waiting requests through")
+    void raisingLimitUnblocks() throws InterruptedException {
+        limiter.acquire(HOST);
+        limiter.acquire(HOST);
+        CountDownLatch acquired = acquireInBackground(HOST);
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS), "acquired beyond the limit");
+
+        limiter.setMaxConnectionsPerHost(3);
+
+        assertTrue(acquired.await(5, TimeUnit.SECONDS), "not acquired after raising the limit");
+        assertEquals(3, limiter.getMaxConnectionsPerHost());
+    }
+
+    @Test
+    @DisplayName("A waiting request can be interrupted")
+    void waitingRequestIsInterruptible() throws InterruptedException {
+        limiter.acquire(HOST);
+        limiter.acquire(HOST);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Thread thread = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire(HOST);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+
+        thread.interrupt();
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "the waiting request has not been interrupted");
+        // the interrupted request has not reserved a connection
+        limiter.release(HOST);
+        assertTrue(acquireInBackground(HOST).await(5, TimeUnit.SECONDS));
+    }
+
+    private CountDownLatch acquireInBackground(String host) {
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire(host);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return acquired;
+    }
+}
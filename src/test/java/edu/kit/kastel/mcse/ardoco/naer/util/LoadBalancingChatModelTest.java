@@ -0,0 +1,220 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.model.chat.ChatModel;
+
+class LoadBalancingChatModelTest {
+    private final FakeChatModel hostA = new FakeChatModel("A");
+    private final FakeChatModel hostB = new FakeChatModel("B");
+
+    @Test
+    @DisplayName("Requests are sent to the host with the lower latency")
+    void selectsFastestHost() {
+        hostA.latency(Duration.ofMillis(50));
+        LoadBalancingChatModel chatModel = new LoadBalancingChatModel(hosts());
+
+        for (int i = 0; i < 20; i++) {
+            chatModel.chat(FakeChatModel.request("request " + i));
+        }
+
+        // the slow host is only used until the latencies of both hosts have been measured
+        assertTrue(hostA.getRequests() <= 2, "requests to the slow host: " + hostA.getRequests());
+        assertEquals(20, hostA.getRequests() + hostB.getRequests());
+    }
+
+    @Test
+    @DisplayName("Concurrent requests are distributed over the hosts by their number of outstanding requests")
+    void distributesOutstandingRequests() throws InterruptedException, ExecutionException {
+        CountDownLatch releaseA = hostA.hold();
+        CountDownLatch releaseB = hostB.hold();
+        LoadBalancingChatModel chatModel = new LoadBalancingChatModel(hosts());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> chatModel.chat(FakeChatModel.request("request"))));
+                // wait until the request is outstanding, so that the next one sees it
+                while (hostA.getRequests() + hostB.getRequests() <= i) {
+                    Thread.onSpinWait();
+                }
+            }
+
+            assertEquals(Map.of("A", 2, "B", 2), chatModel.getOutstandingRequests());
+            releaseA.countDown();
+            releaseB.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        assertEquals(Map.of("A", 0, "B", 0), chatModel.getOutstandingRequests());
+    }
+
+    @Test
+    @DisplayName("A failing host is ejected and the request is retried on the other host")
+    void ejectsFailingHostWithFailover() {
+        hostA.failWith(() -> new TimeoutException("timeout"));
+        LoadBalancingChatModel chatModel = new LoadBalancingChatModel(hosts());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("B", chatModel.chat(FakeChatModel.request("request")).aiMessage().text());
+        }
+
+        assertEquals(1, hostA.getRequests());
+        assertEquals(List.of("B"), chatModel.getHealthyHosts());
+        Duration cooldown = chatModel.getEjectedHosts().get("A");
+        assertTrue(cooldown.compareTo(Duration.ofSeconds(4)) > 0 && cooldown.compareTo(Duration.ofSeconds(5)) <= 0, cooldown.toString());
+    }
+
+    @Test
+    @DisplayName("The cooldown of a host doubles with each consecutive failure")
+    void cooldownDoubles() {
+        hostA.failWith(() -> new TimeoutException("timeout"));
+        hostB.failWith(() -> new TimeoutException("timeout"));
+        LoadBalancingChatModel chatModel = new LoadBalancingChatModel(hosts());
+
+        // if all hosts are ejected, the requests are sent to the host whose cooldown ends first, which fails again
+        for (int failures = 1; failures <= 3; failures++) {
+            assertThrows(TimeoutException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+            assertEquals(failures, hostA.getRequests());
+            assertEquals(failures, hostB.getRequests());
+
+            Duration expectedCooldown = Duration.ofSeconds(5L << (failures - 1));
+            for (Duration cooldown : chatModel.getEjectedHosts().values()) {
+                assertTrue(cooldown.compareTo(expectedCooldown.minusSeconds(1)) > 0 && cooldown.compareTo(expectedCooldown) <= 0, cooldown.toString());
+            }
+        }
+        assertEquals(List.of(), chatModel.getHealthyHosts());
+    }
+
+    @Test
+    @DisplayName("Rate limited requests do not eject the host")
+    void rateLimitDoesNotEject() {
+        LoadBalancingChatModel chatModel = new LoadBalancingChatModel(hosts());
+        List<Supplier<RuntimeException>> rateLimits = List.of(() -> new RateLimitException("rate limit"), () -> new HttpException(429, "too many requests"));
+        for (Supplier<RuntimeException> rateLimit : rateLimits) {
+            hostA.failWith(rateLimit);
+            hostB.failWith(rateLimit);
+
+            RuntimeException exception = assertThrows(RuntimeException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+
+            assertEquals(rateLimit.get().getClass(), exception.getClass());
+            assertEquals(List.of("A", "B"), chatModel.getHealthyHosts());
+            assertEquals(Map.of(), chatModel.getEjectedHosts());
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid requests are neither retried nor do they eject the host")
+    void invalidRequestIsNotRetried() {
+        hostA.failWith(() -> new InvalidRequestException("invalid"));
+        hostB.failWith(() -> new InvalidRequestException("invalid"));
+        LoadBalancingChatModel chatModel = new LoadBalancingChatModel(hosts());
+
+        assertThrows(InvalidRequestException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+
+        assertEquals(1, hostA.getRequests() + hostB.getRequests());
+        assertEquals(List.of("A", "B"), chatModel.getHealthyHosts());
+    }
+
+    @Test
+    @DisplayName("Without failover, the failure is passed on and the next request is sent to another host")
+    void withoutFailoverFailureIsRethrown() {
+        hostA.failWith(() -> new TimeoutException("timeout"));
+        LoadBalancingChatModel chatModel = new LoadBalancingChatModel(hosts(), false);
+
+        int failures = 0;
+        for (int i = 0; i < 5; i++) {
+            try {
+                assertEquals("B", chatModel.chat(FakeChatModel.request("request")).aiMessage().text());
+            } catch (TimeoutException e) {
+                failures++;
+            }
+        }
+
+        assertEquals(1, failures);
+        assertEquals(1, hostA.getRequests());
+        assertEquals(4, hostB.getRequests());
+        assertEquals(List.of("B"), chatModel.getHealthyHosts());
+    }
+
+    @Test
+    @DisplayName("Without failover, requests to a host with an open circuit breaker are still sent to another host")
+    void withoutFailoverOpenCircuitBreakerFailsOver() {
+        hostA.failWith(() -> new CircuitBreakerOpenException("A"));
+        LoadBalancingChatModel chatModel = new LoadBalancingChatModel(hosts(), false);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("B", chatModel.chat(FakeChatModel.request("request")).aiMessage().text());
+        }
+        assertEquals(1, hostA.getRequests());
+    }
+
+    @Test
+    @DisplayName("After the cooldown, a single probe request is sent to the host")
+    void probesHostAfterCooldown() throws InterruptedException, ExecutionException {
+        hostA.failWith(() -> new TimeoutException("timeout"), 1);
+        LoadBalancingChatModel chatModel = new LoadBalancingChatModel(hosts(), true, Duration.ofMillis(1));
+        while (hostA.getRequests() == 0) {
+            chatModel.chat(FakeChatModel.request("request"));
+        }
+        Thread.sleep(10);
+        assertEquals(List.of("A", "B"), chatModel.getHealthyHosts());
+
+        CountDownLatch releaseA = hostA.hold();
+        CountDownLatch releaseB = hostB.hold();
+        int requestsA = hostA.getRequests();
+        int requestsB = hostB.getRequests();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> chatModel.chat(FakeChatModel.request("request"))));
+                while (hostA.getRequests() + hostB.getRequests() - requestsA - requestsB <= i) {
+                    Thread.onSpinWait();
+                }
+            }
+
+            // the probe is the only request to the host until it has been answered
+            assertEquals(1, hostA.getRequests() - requestsA);
+            assertEquals(3, hostB.getRequests() - requestsB);
+            assertEquals(List.of("B"), chatModel.getHealthyHosts());
+            assertEquals(Map.of("A", Duration.ZERO), chatModel.getEjectedHosts());
+
+            releaseA.countDown();
+            releaseB.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        assertEquals(List.of("A", "B"), chatModel.getHealthyHosts());
+    }
+
+    private Map<String, ChatModel> hosts() {
+        Map<String, ChatModel> hosts = new LinkedHashMap<>();
+        hosts.put("A", hostA);
+        hosts.put("B", hostB);
+        return hosts;
+    }
+}
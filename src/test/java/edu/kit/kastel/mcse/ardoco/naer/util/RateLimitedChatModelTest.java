@@ -0,0 +1,45 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.model.output.TokenUsage;
+
+class RateLimitedChatModelTest {
+    /**
+     * 400 characters, i.e., 100 tokens with the initial estimate of 4 characters per token
+     */
+    private static final String PROMPT = "The AuthenticationService handles login requests. ".repeat(8);
+
+    private final FakeChatModel delegate = new FakeChatModel("answer");
+
+    @Test
+    @DisplayName("The tokens of a successful request are corrected with the reported usage")
+    void successfulRequestUsesReportedTokens() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0, 1000);
+        RateLimitedChatModel chatModel = new RateLimitedChatModel(delegate.tokenUsage(new TokenUsage(100, 50)), rateLimiter);
+
+        chatModel.chat(FakeChatModel.request(PROMPT));
+
+        assertEquals(850, rateLimiter.getAvailableTokens());
+    }
+
+    @Test
+    @DisplayName("The estimated tokens of failed requests are refunded, so that retries do not drain the bucket")
+    void failedRequestsAreRefunded() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0, 1000);
+        RateLimitedChatModel chatModel = new RateLimitedChatModel(delegate.failWith(() -> new TimeoutException("timeout")), rateLimiter);
+
+        for (int i = 0; i < 20; i++) {
+            assertThrows(TimeoutException.class, () -> chatModel.chat(FakeChatModel.request(PROMPT)));
+        }
+
+        assertEquals(20, delegate.getRequests());
+        assertEquals(1000, rateLimiter.getAvailableTokens());
+    }
+}
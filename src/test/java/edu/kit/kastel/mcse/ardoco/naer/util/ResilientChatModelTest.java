@@ -0,0 +1,113 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.exception.NonRetriableException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.TimeoutException;
+
+class ResilientChatModelTest {
+    private final FakeChatModel delegate = new FakeChatModel("answer");
+
+    @Test
+    @DisplayName("Failed calls are retried until they succeed")
+    void retriesUntilSuccess() {
+        delegate.failWith(() -> new RateLimitException("rate limit"), 2);
+        ResilientChatModel chatModel = new ResilientChatModel(delegate, retryPolicy(3).build());
+
+        assertEquals("answer", chatModel.chat(FakeChatModel.request("request")).aiMessage().text());
+        assertEquals(3, delegate.getRequests());
+    }
+
+    @Test
+    @DisplayName("A call is attempted at most maxAttempts times")
+    void givesUpAfterMaxAttempts() {
+        delegate.failWith(() -> new RateLimitException("rate limit"));
+
+        assertThrows(RateLimitException.class, () -> new ResilientChatModel(delegate, retryPolicy(4).build()).chat(FakeChatModel.request("request")));
+        assertEquals(4, delegate.getRequests());
+
+        assertThrows(RateLimitException.class, () -> new ResilientChatModel(delegate, RetryPolicy.NO_RETRY).chat(FakeChatModel.request("request")));
+        assertEquals(5, delegate.getRequests());
+    }
+
+    @Test
+    @DisplayName("Non-retriable failures and open circuit breakers are not retried")
+    void nonRetryableFailuresAreNotRetried() {
+        ResilientChatModel chatModel = new ResilientChatModel(delegate, retryPolicy(5).build());
+
+        delegate.failWith(() -> new NonRetriableException("unknown model"));
+        assertThrows(NonRetriableException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+        assertEquals(1, delegate.getRequests());
+
+        delegate.failWith(() -> new CircuitBreakerOpenException("localhost"));
+        assertThrows(CircuitBreakerOpenException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+        assertEquals(2, delegate.getRequests());
+    }
+
+    @Test
+    @DisplayName("The backoffs between the attempts do not exceed the maximum backoff")
+    void backoffsAreBounded() {
+        delegate.failWith(() -> new RateLimitException("rate limit"));
+        RetryPolicy retryPolicy = new RetryPolicy.Builder().maxAttempts(4).backoff(Duration.ofMillis(20), Duration.ofMillis(40), 2.0).build();
+
+        long start = System.nanoTime();
+        assertThrows(RateLimitException.class, () -> new ResilientChatModel(delegate, retryPolicy).chat(FakeChatModel.request("request")));
+        long elapsedNanos = System.nanoTime() - start;
+
+        // at most 20 + 40 + 40 ms of backoff
+        assertEquals(4, delegate.getRequests());
+        assertTrue(elapsedNanos < Duration.ofSeconds(1).toNanos(), elapsedNanos + " ns");
+    }
+
+    @Test
+    @DisplayName("An attempt that exceeds the deadline is interrupted and fails with a timeout")
+    void attemptIsInterruptedAtDeadline() {
+        CountDownLatch release = delegate.hold();
+        try {
+            ResilientChatModel chatModel = new ResilientChatModel(delegate, retryPolicy(3).deadline(Duration.ofMillis(100)).build());
+
+            long start = System.nanoTime();
+            TimeoutException exception = assertThrows(TimeoutException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+            long elapsedNanos = System.nanoTime() - start;
+
+            assertTrue(exception.getMessage().contains("deadline"), exception.getMessage());
+            assertTrue(elapsedNanos >= Duration.ofMillis(100).toNanos() && elapsedNanos < Duration.ofSeconds(2).toNanos(), elapsedNanos + " ns");
+            // the deadline applies to all attempts, so the timed out attempt is not retried
+            assertEquals(1, delegate.getRequests());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("No attempt is started after the deadline")
+    void noRetryAfterDeadline() {
+        delegate.failWith(() -> new RateLimitException("rate limit")).latency(Duration.ofMillis(30));
+        ResilientChatModel chatModel = new ResilientChatModel(delegate, retryPolicy(100).deadline(Duration.ofMillis(100)).build());
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> chatModel.chat(FakeChatModel.request("request")));
+        long elapsedNanos = System.nanoTime() - start;
+
+        int requests = delegate.getRequests();
+        assertTrue(requests >= 2 && requests <= 4, "requests: " + requests);
+        assertTrue(elapsedNanos < Duration.ofSeconds(2).toNanos(), elapsedNanos + " ns");
+    }
+
+    /**
+     * @return a policy with the given number of attempts and without backoff
+     */
+    private static RetryPolicy.Builder retryPolicy(int maxAttempts) {
+        return new RetryPolicy.Builder().maxAttempts(maxAttempts).backoff(Duration.ZERO, Duration.ZERO, 1.0);
+    }
+}
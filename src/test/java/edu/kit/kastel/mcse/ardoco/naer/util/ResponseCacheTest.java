@@ -0,0 +1,145 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResponseCacheTest {
+    private static final String FILE_SUFFIX = ".response";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("A stored response is returned for its key, and other keys miss")
+    void hitAndMiss() {
+        ResponseCache cache = new ResponseCache(directory, 1_000);
+        String key = ResponseCache.createKey("prompt", "model", "hash");
+
+        assertEquals(Optional.empty(), cache.get(key));
+        cache.put(key, "response");
+        cache.put(key + "0", "other response");
+
+        assertEquals(Optional.of("response"), cache.get(key));
+        assertEquals(Optional.of("response"), new ResponseCache(directory, 1_000).get(key));
+        assertEquals(Optional.empty(), cache.get(ResponseCache.createKey("prompt", "model", "other hash")));
+    }
+
+    @Test
+    @DisplayName("The key changes with the prompt, the model description, and the hash of the SAD")
+    void keyChangesWithEachPart() {
+        String key = ResponseCache.createKey("prompt", "gpt-4.1/temperature=0.0", "hash");
+
+        assertEquals(key, ResponseCache.createKey("prompt", "gpt-4.1/temperature=0.0", "hash"));
+        assertNotEquals(key, ResponseCache.createKey("prompt!", "gpt-4.1/temperature=0.0", "hash"));
+        assertNotEquals(key, ResponseCache.createKey("prompt", "gpt-4.1/temperature=0.5", "hash"));
+        assertNotEquals(key, ResponseCache.createKey("prompt", "gpt-4.1/temperature=0.0", "other hash"));
+        // the boundaries between the parts are part of the key
+        assertNotEquals(ResponseCache.createKey("ab", "c"), ResponseCache.createKey("a", "bc"));
+    }
+
+    @Test
+    @DisplayName("If the cache is too large, the least recently used responses are evicted down to 90 % of the max. size")
+    void evictsLeastRecentlyUsedResponses() throws IOException {
+        ResponseCache cache = new ResponseCache(directory, 1_000);
+        long oneHourAgo = System.currentTimeMillis() - 3_600_000;
+        for (int i = 0; i < 10; i++) {
+            cache.put(key(i), response(100));
+            Files.setLastModifiedTime(directory.resolve(key(i) + FILE_SUFFIX), FileTime.fromMillis(oneHourAgo + i * 1_000L));
+        }
+        assertEquals(1_000, directorySize());
+
+        // using response 0 makes responses 1 and 2 the least recently used ones
+        assertTrue(cache.get(key(0)).isPresent());
+        cache.put(key(10), response(100));
+
+        assertEquals(900, directorySize());
+        assertFalse(cache.get(key(1)).isPresent());
+        assertFalse(cache.get(key(2)).isPresent());
+        for (int i : new int[] { 0, 3, 9, 10 }) {
+            assertTrue(cache.get(key(i)).isPresent(), "response " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Replacing a response only counts the difference in size")
+    void replacingResponseCountsDifference() throws IOException {
+        ResponseCache cache = new ResponseCache(directory, 1_000);
+        for (int i = 0; i < 5; i++) {
+            cache.put(key(0), response(600));
+        }
+        cache.put(key(1), response(300));
+
+        assertEquals(900, directorySize());
+        assertTrue(cache.get(key(0)).isPresent());
+    }
+
+    @Test
+    @DisplayName("The responses of an existing cache directory are counted on creation, other files are not")
+    void existingDirectoryIsSized() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(directory.resolve(key(i) + FILE_SUFFIX), response(300));
+        }
+        Files.writeString(directory.resolve("notes.txt"), response(5_000));
+
+        ResponseCache cache = new ResponseCache(directory, 2_000);
+        cache.put(key(5), response(400));
+
+        // 1900 bytes of responses: no eviction yet
+        assertEquals(1_900, directorySize());
+
+        cache.put(key(6), response(200));
+
+        // 2100 bytes of responses: evicted down to at most 1800 bytes
+        assertTrue(directorySize() <= 1_800, "size: " + directorySize());
+        assertTrue(Files.exists(directory.resolve("notes.txt")));
+    }
+
+    @Test
+    @DisplayName("A corrupted or unreadable cached response is a miss")
+    void corruptedResponseIsMiss() throws IOException {
+        ResponseCache cache = new ResponseCache(directory, 1_000);
+        // invalid UTF-8
+        Files.write(directory.resolve(key(0) + FILE_SUFFIX), new byte[] { 'o', 'k', (byte) 0xC3, (byte) 0x28, (byte) 0xFF });
+        // not a regular file
+        Files.createDirectory(directory.resolve(key(1) + FILE_SUFFIX));
+
+        assertEquals(Optional.empty(), cache.get(key(0)));
+        assertEquals(Optional.empty(), cache.get(key(1)));
+
+        cache.put(key(0), "repaired response");
+        assertEquals(Optional.of("repaired response"), cache.get(key(0)));
+    }
+
+    private long directorySize() throws IOException {
+        long size = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX) && Files.isRegularFile(file)).toList()) {
+                size += Files.size(file);
+            }
+        }
+        return size;
+    }
+
+    private static String key(int i) {
+        return ResponseCache.createKey("prompt", "model", List.of("hash", i).toString());
+    }
+
+    private static String response(int length) {
+        return "x".repeat(length);
+    }
+}
@@ -0,0 +1,86 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.exception.NonRetriableException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.TimeoutException;
+
+class RetryPolicyTest {
+    private static final int SAMPLES = 1000;
+
+    @Test
+    @DisplayName("Invalid parameters are rejected")
+    void invalidParametersThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy.Builder().maxAttempts(0).build());
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy.Builder().backoff(Duration.ofSeconds(-1), Duration.ofSeconds(1), 2.0).build());
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy.Builder().backoff(Duration.ofSeconds(2), Duration.ofSeconds(1), 2.0).build());
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy.Builder().backoff(null, Duration.ofSeconds(1), 2.0).build());
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy.Builder().backoff(Duration.ZERO, Duration.ofSeconds(1), 0.5).build());
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy.Builder().deadline(Duration.ZERO).build());
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy.Builder().deadline(Duration.ofSeconds(-1)).build());
+    }
+
+    @Test
+    @DisplayName("The default policy makes three attempts without deadline, NO_RETRY a single one")
+    void predefinedPolicies() {
+        assertEquals(3, RetryPolicy.DEFAULT.maxAttempts());
+        assertEquals(Duration.ofSeconds(1), RetryPolicy.DEFAULT.initialBackoff());
+        assertEquals(Duration.ofSeconds(30), RetryPolicy.DEFAULT.maxBackoff());
+        assertNull(RetryPolicy.DEFAULT.deadline());
+        assertEquals(1, RetryPolicy.NO_RETRY.maxAttempts());
+    }
+
+    @Test
+    @DisplayName("The backoff is a random duration up to the exponential backoff, which is capped at the maximum backoff")
+    void backoffIsWithinBounds() {
+        RetryPolicy retryPolicy = new RetryPolicy.Builder().backoff(Duration.ofMillis(100), Duration.ofSeconds(1), 2.0).build();
+
+        for (int failedAttempts = 1; failedAttempts <= 8; failedAttempts++) {
+            Duration bound = Duration.ofMillis(Math.min(100L << (failedAttempts - 1), 1000));
+            Duration longest = Duration.ZERO;
+            for (int i = 0; i < SAMPLES; i++) {
+                Duration backoff = retryPolicy.getBackoff(failedAttempts);
+                assertFalse(backoff.isNegative(), backoff.toString());
+                assertTrue(backoff.compareTo(bound) <= 0, backoff + " > " + bound);
+                if (backoff.compareTo(longest) > 0) {
+                    longest = backoff;
+                }
+            }
+            // the backoffs are spread over the whole range (full jitter)
+            assertTrue(longest.compareTo(bound.dividedBy(2)) > 0, "longest backoff " + longest + " of " + bound);
+        }
+    }
+
+    @Test
+    @DisplayName("Without backoff, retries are immediate")
+    void zeroBackoff() {
+        RetryPolicy retryPolicy = new RetryPolicy.Builder().backoff(Duration.ZERO, Duration.ZERO, 1.0).build();
+        assertEquals(Duration.ZERO, retryPolicy.getBackoff(1));
+        assertEquals(Duration.ZERO, retryPolicy.getBackoff(10));
+    }
+
+    @Test
+    @DisplayName("Non-retriable failures and open circuit breakers are not retried, also if they are wrapped")
+    void isRetryable() {
+        RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
+        assertTrue(retryPolicy.isRetryable(new TimeoutException("timeout")));
+        assertTrue(retryPolicy.isRetryable(new RateLimitException("rate limit")));
+        assertTrue(retryPolicy.isRetryable(new IllegalStateException("connection reset")));
+        assertFalse(retryPolicy.isRetryable(new NonRetriableException("unknown model")));
+        assertFalse(retryPolicy.isRetryable(new CircuitBreakerOpenException("localhost")));
+        assertFalse(retryPolicy.isRetryable(new IllegalStateException("wrapped", new CircuitBreakerOpenException("localhost"))));
+        assertFalse(retryPolicy.isRetryable(new RuntimeException(new IllegalStateException(new NonRetriableException("unauthorized")))));
+    }
+}
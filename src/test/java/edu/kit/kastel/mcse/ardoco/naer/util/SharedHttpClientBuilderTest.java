@@ -0,0 +1,28 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.http.client.HttpClient;
+
+class SharedHttpClientBuilderTest {
+    @Test
+    @DisplayName("Builders with the same timeouts share one HTTP client, builders with other timeouts do not")
+    void clientsAreSharedByTimeouts() {
+        HttpClient client = new SharedHttpClientBuilder().connectTimeout(Duration.ofSeconds(5)).readTimeout(Duration.ofSeconds(30)).build();
+
+        assertSame(client, new SharedHttpClientBuilder().connectTimeout(Duration.ofSeconds(5)).readTimeout(Duration.ofSeconds(30)).build());
+        assertNotSame(client, new SharedHttpClientBuilder().connectTimeout(Duration.ofSeconds(5)).readTimeout(Duration.ofSeconds(31)).build());
+        assertNotSame(client, new SharedHttpClientBuilder().connectTimeout(Duration.ofSeconds(6)).readTimeout(Duration.ofSeconds(30)).build());
+        // unset timeouts are the defaults
+        assertSame(new SharedHttpClientBuilder().build(), new SharedHttpClientBuilder().connectTimeout(Duration.ofSeconds(15))
+                .readTimeout(Duration.ofSeconds(60))
+                .build());
+    }
+}
@@ -0,0 +1,136 @@
+/* Licensed under MIT 2025. */
+package edu.kit.kastel.mcse.ardoco.naer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketRateLimiterTest {
+    @Test
+    @DisplayName("Negative limits are rejected")
+    void negativeLimitsThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, -1));
+    }
+
+    @Test
+    @DisplayName("Acquiring takes one request and the tokens from the buckets")
+    void acquireTakesFromBuckets() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(60, 6000);
+
+        rateLimiter.acquire(1000);
+
+        assertEquals(59, rateLimiter.getAvailableRequests());
+        assertEquals(5000, rateLimiter.getAvailableTokens());
+        assertEquals(0, rateLimiter.getWaiting());
+    }
+
+    @Test
+    @DisplayName("Unlimited buckets never wait and are not tracked")
+    void unlimitedBucketsDoNotWait() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0, 0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            rateLimiter.acquire(100_000);
+            rateLimiter.recordUsage(4000, 100_000, 1000, 200_000);
+        }
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        assertEquals(Integer.MAX_VALUE, rateLimiter.getAvailableRequests());
+        assertEquals(Integer.MAX_VALUE, rateLimiter.getAvailableTokens());
+
+        // limiting only the tokens does not limit the requests, and the other way round
+        rateLimiter.setLimits(0, 6000);
+        rateLimiter.acquire(1000);
+        assertEquals(Integer.MAX_VALUE, rateLimiter.getAvailableRequests());
+        assertEquals(5000, rateLimiter.getAvailableTokens());
+        rateLimiter.setLimits(60, 0);
+        rateLimiter.acquire(1000);
+        assertEquals(59, rateLimiter.getAvailableRequests());
+        assertEquals(Integer.MAX_VALUE, rateLimiter.getAvailableTokens());
+    }
+
+    @Test
+    @DisplayName("A request waits until the request bucket has been refilled")
+    void waitsForRequestBucket() throws InterruptedException {
+        // one request every 50 ms
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1200, 0);
+        for (int i = 0; i < 1200; i++) {
+            rateLimiter.acquire(0);
+        }
+
+        long start = System.nanoTime();
+        rateLimiter.acquire(0);
+        long waitedNanos = System.nanoTime() - start;
+
+        assertTrue(waitedNanos >= Duration.ofMillis(30).toNanos() && waitedNanos < Duration.ofSeconds(2).toNanos(), waitedNanos + " ns");
+    }
+
+    @Test
+    @DisplayName("A request with more tokens than the limit waits for a full bucket and leaves it in debt")
+    void oversizedRequestLeavesDebt() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0, 6000);
+
+        rateLimiter.acquire(10_000);
+
+        // the bucket is refilled by 100 tokens per second in the meantime
+        int availableTokens = rateLimiter.getAvailableTokens();
+        assertTrue(availableTokens >= -4000 && availableTokens < -3900, String.valueOf(availableTokens));
+    }
+
+    @Test
+    @DisplayName("The reported usage corrects the token bucket and the estimation")
+    void recordUsageCorrectsBucketAndEstimation() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0, 6000);
+        assertEquals(100, rateLimiter.estimateTokens(400));
+        rateLimiter.acquire(1000);
+
+        // the answer used 400 tokens less than estimated, and the prompt had 8 characters per token
+        rateLimiter.recordUsage(4000, 1000, 500, 600);
+
+        assertEquals(5400, rateLimiter.getAvailableTokens());
+        // 0.2 * 8 + 0.8 * 4 = 4.8 characters per token
+        assertEquals(100, rateLimiter.estimateTokens(480));
+
+        // an unknown usage changes nothing
+        rateLimiter.recordUsage(4000, 1000, null, null);
+        assertEquals(5400, rateLimiter.getAvailableTokens());
+        assertEquals(100, rateLimiter.estimateTokens(480));
+    }
+
+    @Test
+    @DisplayName("Refunded tokens are available again and wake up waiting requests")
+    void refundWakesUpWaitingRequests() throws InterruptedException {
+        // 10 tokens per second
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0, 600);
+        rateLimiter.acquire(600);
+
+        Thread waiting = Thread.ofVirtual().start(() -> {
+            try {
+                rateLimiter.acquire(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        while (rateLimiter.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        rateLimiter.refund(600);
+
+        // without the refund, the request would wait for 30 s
+        assertTrue(waiting.join(Duration.ofSeconds(5)));
+        assertFalse(waiting.isAlive());
+        int availableTokens = rateLimiter.getAvailableTokens();
+        assertTrue(availableTokens >= 300 && availableTokens < 400, String.valueOf(availableTokens));
+
+        // a refund does not overfill the bucket
+        rateLimiter.refund(10_000);
+        assertEquals(600, rateLimiter.getAvailableTokens());
+    }
+}